@@ -0,0 +1,104 @@
+package org.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.catalog.bulk.BookImporter;
+import org.catalog.cache.BookJsonCache;
+import org.catalog.changes.ChangeJournal;
+import org.catalog.config.CatalogProperties;
+import org.catalog.controller.BookController;
+import org.catalog.index.BookAttributeIndexes;
+import org.catalog.index.TitleSearchIndex;
+import org.catalog.model.Book;
+import org.catalog.persistence.CatalogPersistence;
+import org.catalog.service.BookService;
+import org.catalog.store.BookStore;
+import org.catalog.store.VersionedBookStore;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * A catalog wired as {@code StoreConfig} and the component scan wire it with the default
+ * settings, on a versioned store with every listener registered and persistence disabled, so
+ * that benchmarks can drive the service and the controller without starting the application.
+ */
+public final class CatalogFixture {
+    public final CatalogProperties properties;
+    public final ObjectMapper objectMapper;
+    public final BookStore store;
+    public final BookJsonCache jsonCache;
+    public final BookService service;
+    public final BookController controller;
+
+    private CatalogFixture() {
+        properties = new CatalogProperties(
+                new CatalogProperties.Store(CatalogProperties.StoreType.VERSIONED, 0, 64, 1024),
+                new CatalogProperties.Listing(100, 1000, 256, true),
+                new CatalogProperties.Search(true, 0.5, 100),
+                new CatalogProperties.Persistence(false, "data", true, Duration.ZERO, DataSize.ofMegabytes(1),
+                        Duration.ofMinutes(10), DataSize.ofMegabytes(256)),
+                new CatalogProperties.Bulk(1000, DataSize.ofKilobytes(64), 1000, 0),
+                new CatalogProperties.Changes(65536, Duration.ofSeconds(15), Duration.ofMinutes(5), 100,
+                        Duration.ofSeconds(5)));
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        store = new VersionedBookStore(0, 64);
+        var indexes = new BookAttributeIndexes();
+        var searchIndex = new TitleSearchIndex(properties);
+        var changeJournal = new ChangeJournal(properties);
+        jsonCache = new BookJsonCache(objectMapper, properties);
+        store.addListener(indexes);
+        store.addListener(searchIndex);
+        store.addListener(changeJournal);
+        store.addListener(jsonCache);
+        service = new BookService(store, indexes, searchIndex, properties, new CatalogPersistence(store, properties),
+                changeJournal);
+        controller = new BookController(service, jsonCache, new BookImporter(service, objectMapper, properties),
+                properties);
+    }
+
+    /**
+     * Creates a catalog holding the given number of books, whose ISBNs are {@link #isbn(int)}
+     * of {@code 0} to {@code books - 1}.
+     *
+     * @param books the number of books to add
+     * @return the populated catalog
+     */
+    public static CatalogFixture create(int books) {
+        var fixture = new CatalogFixture();
+        var batch = new ArrayList<Book>(1000);
+        for (int i = 0; i < books; i++) {
+            batch.add(book(isbn(i), i));
+            if (batch.size() == 1000 || i == books - 1) {
+                fixture.service.addBooksToCatalog(batch);
+                batch.clear();
+            }
+        }
+        return fixture;
+    }
+
+    /**
+     * Returns the ISBN of the i-th book of a created catalog.
+     *
+     * @param i the number of the book
+     * @return its ISBN
+     */
+    public static String isbn(int i) {
+        return String.valueOf(9_780_000_000_000L + i);
+    }
+
+    /**
+     * Returns a book as a client would send it, without the fields the service assigns.
+     *
+     * @param isbn the ISBN of the book
+     * @param i    a number varying the title, author, price and publisher
+     * @return the book
+     */
+    public static Book book(String isbn, int i) {
+        return Book.of(isbn, "The Title of Book " + i, "Author " + (i % 1_000), 9.90 + i % 50, "Publisher " + (i % 100));
+    }
+}
@@ -0,0 +1,106 @@
+package org.catalog.cache;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.catalog.model.Book;
+import org.catalog.store.BookSnapshot;
+import org.catalog.store.VersionedBookStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing books through Jackson, as the controller did, with writing the JSON kept by
+ * the {@link BookJsonCache}, for a single book, a page of 100 books and a listing of 10,000.
+ * Both write into a reused in-memory buffer standing in for the response.
+ * Run with {@code ./gradlew jmh -Pjmh.includes=BookJsonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookJsonBenchmark {
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(4 << 20);
+    private ObjectWriter bookWriter;
+    private ObjectWriter listWriter;
+    private BookJsonCache cache;
+    private BookSnapshot snapshot;
+    private Book book;
+    private List<Book> page;
+
+    @Setup
+    public void setUp() {
+        var objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        bookWriter = objectMapper.writerFor(Book.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, Book.class))
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        cache = new BookJsonCache(objectMapper, true);
+        var store = new VersionedBookStore(0, 64);
+        store.addListener(cache);
+        var created = Instant.parse("2025-01-01T00:00:00Z");
+        for (int i = 0; i < 10_000; i++) {
+            store.putIfAbsent(new Book((long) i, String.valueOf(9_780_000_000_000L + i), "The Title of Book " + i,
+                    "Author " + (i % 100), 9.90 + i % 10, "Publisher " + (i % 10), created, created,
+                    "employee", "employee", 0));
+        }
+        snapshot = store.snapshot();
+        book = snapshot.get("9780000000042");
+        page = snapshot.booksAfter(null, 100);
+    }
+
+    @Benchmark
+    public void jacksonBook() throws IOException {
+        sink.reset();
+        bookWriter.writeValue(sink, book);
+    }
+
+    @Benchmark
+    public void cachedBook() throws IOException {
+        sink.reset();
+        cache.body(book).writeTo(sink);
+    }
+
+    @Benchmark
+    public void jacksonPage() throws IOException {
+        sink.reset();
+        listWriter.writeValue(sink, page);
+    }
+
+    @Benchmark
+    public void cachedPage() throws IOException {
+        sink.reset();
+        cache.body(page).writeTo(sink);
+    }
+
+    @Benchmark
+    public void jacksonListing() throws IOException {
+        sink.reset();
+        listWriter.writeValue(sink, snapshot.books());
+    }
+
+    @Benchmark
+    public void cachedListing() throws IOException {
+        sink.reset();
+        cache.body(snapshot).writeTo(sink);
+    }
+}
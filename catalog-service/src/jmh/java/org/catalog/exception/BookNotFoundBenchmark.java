@@ -0,0 +1,70 @@
+package org.catalog.exception;
+
+import org.catalog.CatalogFixture;
+import org.catalog.cache.JsonBodyHttpMessageConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares looking up a book that exists with looking up one that does not, whose
+ * {@link BookNotFoundException} is turned into a 404 by {@link BookControllerAdvice}. The
+ * requests go through the Spring MVC dispatcher of a standalone {@link MockMvc}, without the
+ * security filters; {@code serviceNotFound} isolates the cost of throwing the exception.
+ * Run with {@code ./gradlew jmh -Pjmh.includes=BookNotFoundBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookNotFoundBenchmark {
+    private static final String MISSING_ISBN = "9789999999999";
+    private CatalogFixture catalog;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() {
+        catalog = CatalogFixture.create(1000);
+        mockMvc = MockMvcBuilders.standaloneSetup(catalog.controller)
+                .setControllerAdvice(new BookControllerAdvice())
+                .setMessageConverters(new JsonBodyHttpMessageConverter(), new StringHttpMessageConverter(),
+                        new MappingJackson2HttpMessageConverter(catalog.objectMapper))
+                .build();
+    }
+
+    @Benchmark
+    public int handleFound() throws Exception {
+        return mockMvc.perform(get("/books/" + CatalogFixture.isbn(42))).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int handleNotFound() throws Exception {
+        return mockMvc.perform(get("/books/" + MISSING_ISBN)).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public String serviceNotFound() {
+        try {
+            return catalog.service.viewBookDetails(MISSING_ISBN).isbn();
+        } catch (BookNotFoundException ex) {
+            return ex.getMessage();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.catalog.model;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.catalog.CatalogFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a {@link Book} to JSON, reading it back and the round trip of both, with
+ * the object mapper configured as by Spring Boot. The read side is what every {@code POST}
+ * and {@code PUT} of a book pays; the write side is what the JSON cache saves listings.
+ * Run with {@code ./gradlew jmh -Pjmh.includes=BookJacksonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookJacksonBenchmark {
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Book book;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        var catalog = CatalogFixture.create(1);
+        writer = catalog.objectMapper.writerFor(Book.class);
+        reader = catalog.objectMapper.readerFor(Book.class);
+        book = catalog.service.viewBookDetails(CatalogFixture.isbn(0));
+        json = writer.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public Book read() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public Book roundTrip() throws IOException {
+        return reader.readValue(writer.writeValueAsBytes(book));
+    }
+}
@@ -0,0 +1,93 @@
+package org.catalog.service;
+
+import org.catalog.CatalogFixture;
+import org.catalog.model.Book;
+import org.catalog.model.BookPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the operations of {@link BookService} on catalogs of different sizes, with every
+ * store listener registered as in the application and persistence disabled. Each book added
+ * is removed again in the same operation, so the catalog keeps its size however long the run;
+ * the nested {@link FourThreads} repeats every benchmark with four threads contending for the
+ * store. Run with {@code ./gradlew jmh -Pjmh.includes=BookServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookServiceBenchmark {
+    private static final AtomicLong NEXT_WRITER = new AtomicLong();
+
+    @Param({"1000", "100000"})
+    public int books;
+
+    private BookService service;
+
+    @Setup
+    public void setUp() {
+        service = CatalogFixture.create(books).service;
+    }
+
+    @Benchmark
+    public Book viewBook() {
+        return service.viewBookDetails(randomIsbn());
+    }
+
+    @Benchmark
+    public BookPage viewPage() {
+        return service.viewBookPage(randomIsbn(), 100);
+    }
+
+    @Benchmark
+    public Book editBook() {
+        var isbn = randomIsbn();
+        return service.editBookDetails(isbn, CatalogFixture.book(isbn, ThreadLocalRandom.current().nextInt()));
+    }
+
+    @Benchmark
+    public Book addThenRemoveBook(Writer writer) {
+        var isbn = String.valueOf(writer.nextIsbn++);
+        var book = service.addBookToCatalog(CatalogFixture.book(isbn, 0));
+        service.removeBookFromCatalog(isbn);
+        return book;
+    }
+
+    private String randomIsbn() {
+        return CatalogFixture.isbn(ThreadLocalRandom.current().nextInt(books));
+    }
+
+    /**
+     * The ISBNs of the books a thread adds, which no other thread and no existing book uses.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        long nextIsbn;
+
+        @Setup
+        public void setUp() {
+            nextIsbn = 9_790_000_000_000L + NEXT_WRITER.getAndIncrement() * 1_000_000_000L;
+        }
+    }
+
+    @Threads(4)
+    public static class FourThreads extends BookServiceBenchmark {
+    }
+}
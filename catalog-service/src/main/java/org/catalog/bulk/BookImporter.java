@@ -0,0 +1,224 @@
+package org.catalog.bulk;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.catalog.config.CatalogProperties;
+import org.catalog.exception.InvalidBookException;
+import org.catalog.model.Book;
+import org.catalog.model.BookImportResult;
+import org.catalog.model.BookImportResult.Reason;
+import org.catalog.model.BookImportResult.Rejection;
+import org.catalog.service.BookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports books in bulk from a streamed body of newline-delimited JSON or CSV.
+ * <p>
+ * The body is split into rows on the calling thread and gathered into batches of the
+ * configured size, so an import holds on to one batch at a time however large the body is.
+ * The rows of a batch are decoded and validated in parallel on the importer's own threads,
+ * so that imports neither compete for the common pool nor hold up whatever else runs on it,
+ * and are validated by {@link BookService#validate(Book)}, as a single book added to the
+ * catalog is. The valid books are then added through {@link BookService#addBooksToCatalog(List)}
+ * in input order, which waits for the log to be synced once per batch rather than once per
+ * book. A row that cannot be read, fails validation or duplicates an ISBN is counted and
+ * reported in the result, and the import carries on with the next row.
+ */
+@Component
+public class BookImporter implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(BookImporter.class);
+    private final BookService bookService;
+    private final ObjectReader bookReader;
+    private final CatalogProperties.Bulk settings;
+    private final int threads;
+    private final ExecutorService decoders;
+
+    /**
+     * Constructs a {@code BookImporter} adding the imported books through the given service.
+     *
+     * @param bookService       the service the valid books are added through
+     * @param objectMapper      the mapper used to decode the JSON rows
+     * @param catalogProperties the catalog configuration containing the bulk import settings
+     */
+    public BookImporter(BookService bookService, ObjectMapper objectMapper, CatalogProperties catalogProperties) {
+        this.bookService = bookService;
+        this.bookReader = objectMapper.readerFor(Book.class).with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.settings = catalogProperties.bulk();
+        this.threads = settings.threads() > 0 ? settings.threads() : Runtime.getRuntime().availableProcessors();
+        var count = new AtomicInteger();
+        this.decoders = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "catalog-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Imports the books of a newline-delimited JSON body, one JSON object per line.
+     *
+     * @param in the body, which is read to its end but not closed
+     * @return the summary of the import
+     * @throws IOException if the body cannot be read
+     */
+    public BookImportResult importNdjson(InputStream in) throws IOException {
+        return importRows(new NdjsonRowReader(in, bookReader, (int) settings.maxRowSize().toBytes()));
+    }
+
+    /**
+     * Imports the books of a CSV body, whose header row names the columns.
+     *
+     * @param in      the body, which is read to its end but not closed
+     * @param charset the character encoding of the body
+     * @return the summary of the import
+     * @throws IOException if the body cannot be read
+     * @throws org.catalog.exception.MalformedImportException if the body has no usable header row
+     */
+    public BookImportResult importCsv(InputStream in, Charset charset) throws IOException {
+        return importRows(new CsvRowReader(new InputStreamReader(in, charset), (int) settings.maxRowSize().toBytes()));
+    }
+
+    private BookImportResult importRows(BookRowReader reader) throws IOException {
+        long start = System.nanoTime();
+        int batchSize = Math.max(1, settings.batchSize());
+        var summary = new Summary(settings.maxReportedRejections());
+        var batch = new ArrayList<BookRowReader.Row>(batchSize);
+        BookRowReader.Row row;
+        while ((row = reader.next()) != null) {
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                importBatch(batch, summary);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, summary);
+        }
+        var result = summary.result();
+        log.info("Imported {} of {} rows ({} duplicates, {} invalid) in {} ms", result.imported(), result.rows(),
+                result.duplicates(), result.invalid(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * Stops the threads decoding the rows when the application shuts down.
+     */
+    @Override
+    public void destroy() {
+        decoders.shutdownNow();
+    }
+
+    private void importBatch(List<BookRowReader.Row> rows, Summary summary) throws IOException {
+        int size = rows.size();
+        var books = new Book[size];
+        var problems = new String[size];
+        int slices = Math.min(threads, size);
+        var tasks = new ArrayList<Callable<Void>>(slices);
+        for (int slice = 0; slice < slices; slice++) {
+            int from = size * slice / slices;
+            int to = size * (slice + 1) / slices;
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    try {
+                        books[i] = rows.get(i).decode();
+                        bookService.validate(books[i]);
+                    } catch (BookRowReader.InvalidRowException | InvalidBookException ex) {
+                        problems[i] = ex.getMessage();
+                    }
+                }
+                return null;
+            });
+        }
+        decode(tasks);
+        var valid = new ArrayList<Book>(size);
+        for (int i = 0; i < size; i++) {
+            if (problems[i] == null) {
+                valid.add(books[i]);
+            }
+        }
+        var added = bookService.addBooksToCatalog(valid);
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            var isbn = books[i] == null ? null : books[i].isbn();
+            if (problems[i] != null) {
+                summary.reject(new Rejection(rows.get(i).line(), isbn, Reason.INVALID, problems[i]));
+            } else if (added.get(next++) == null) {
+                summary.reject(new Rejection(rows.get(i).line(), isbn, Reason.DUPLICATE,
+                        "A book with ISBN " + isbn + " already exists."));
+            } else {
+                summary.imported++;
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks decoding the slices of a batch and waits for all of them.
+     *
+     * @throws InterruptedIOException if the import is interrupted while waiting
+     */
+    private void decode(List<Callable<Void>> tasks) throws InterruptedIOException {
+        try {
+            for (Future<Void> future : decoders.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decoding the rows of an import");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Cannot decode the rows of an import", ex.getCause());
+        }
+    }
+
+    /**
+     * Counts the outcomes of the rows and keeps the first rejections.
+     */
+    private static final class Summary {
+        private final int maxRejections;
+        private final List<Rejection> rejections = new ArrayList<>();
+        private long imported;
+        private long duplicates;
+        private long invalid;
+
+        Summary(int maxRejections) {
+            this.maxRejections = maxRejections;
+        }
+
+        void reject(Rejection rejection) {
+            if (rejection.reason() == Reason.DUPLICATE) {
+                duplicates++;
+            } else {
+                invalid++;
+            }
+            if (rejections.size() < maxRejections) {
+                rejections.add(rejection);
+            }
+        }
+
+        BookImportResult result() {
+            long rejected = duplicates + invalid;
+            return new BookImportResult(imported + rejected, imported, duplicates, invalid,
+                    List.copyOf(rejections), rejected > rejections.size());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.catalog.bulk;
+
+import org.catalog.model.Book;
+
+import java.io.IOException;
+
+/**
+ * Splits the body of a bulk import into rows, one at a time, without decoding them. Only the
+ * current row is buffered, so reading holds on to a bounded amount of memory however long the
+ * input is, and the decoding can be left to other threads.
+ */
+interface BookRowReader {
+
+    /**
+     * Reads the next row of the input.
+     *
+     * @return the next row, or {@code null} at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    Row next() throws IOException;
+
+    /**
+     * A row split off the input, not yet decoded.
+     */
+    interface Row {
+
+        /**
+         * Returns the line of the input the row starts on, counting from 1.
+         */
+        long line();
+
+        /**
+         * Decodes the row. Safe to call from any thread.
+         *
+         * @return the book the row describes
+         * @throws InvalidRowException if the row cannot be read as a book
+         */
+        Book decode() throws InvalidRowException;
+
+        /**
+         * Returns a row that fails to decode with the given message, for a row rejected while
+         * it was being split off the input.
+         */
+        static Row invalid(long line, String message) {
+            return new Row() {
+                @Override
+                public long line() {
+                    return line;
+                }
+
+                @Override
+                public Book decode() throws InvalidRowException {
+                    throw new InvalidRowException(message);
+                }
+            };
+        }
+    }
+
+    /**
+     * Signals that a row cannot be read as a book.
+     */
+    final class InvalidRowException extends Exception {
+        InvalidRowException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.catalog.bulk;
+
+import org.catalog.exception.MalformedImportException;
+import org.catalog.model.Book;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits comma-separated values into rows, as described by RFC 4180. The first record is a
+ * header naming the columns, which may come in any order: {@code isbn} is required, while
+ * {@code title}, {@code author}, {@code price} and {@code publisher} are optional and other
+ * columns are ignored. Quoted fields may contain commas, doubled quotes and line breaks. Blank
+ * lines are skipped, and a record longer than the maximum row size is rejected and skipped
+ * without being buffered.
+ */
+final class CsvRowReader implements BookRowReader {
+    private static final List<String> COLUMNS = List.of("isbn", "title", "author", "price", "publisher");
+    private final Reader in;
+    private final int maxRowSize;
+    private final char[] buffer = new char[8192];
+    private final int[] columns = new int[COLUMNS.size()];
+    private final StringBuilder field = new StringBuilder();
+    private int position;
+    private int limit;
+    private long line = 1;
+    private boolean oversized;
+
+    /**
+     * Constructs a {@code CsvRowReader} over the given input and reads its header.
+     *
+     * @param in         the input, which is read but not closed
+     * @param maxRowSize the number of characters beyond which a record is rejected
+     * @throws IOException              if the input cannot be read
+     * @throws MalformedImportException if the input has no header or the header has no {@code isbn} column
+     */
+    CsvRowReader(Reader in, int maxRowSize) throws IOException {
+        this.in = in;
+        this.maxRowSize = maxRowSize;
+        var header = readRecord();
+        if (header == null || oversized) {
+            throw new MalformedImportException("The CSV must start with a header row naming its columns.");
+        }
+        for (int column = 0; column < COLUMNS.size(); column++) {
+            columns[column] = -1;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            int column = COLUMNS.indexOf(header.get(i).strip().toLowerCase(Locale.ROOT));
+            if (column >= 0 && columns[column] < 0) {
+                columns[column] = i;
+            }
+        }
+        if (columns[0] < 0) {
+            throw new MalformedImportException("The CSV header must name an isbn column.");
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (true) {
+            long start = line;
+            var fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+            if (oversized) {
+                return Row.invalid(start, "The row is longer than " + maxRowSize + " characters.");
+            }
+            if (fields.size() > 1 || !fields.get(0).isBlank()) {
+                var values = new String[COLUMNS.size()];
+                for (int column = 0; column < values.length; column++) {
+                    int i = columns[column];
+                    values[column] = i >= 0 && i < fields.size() ? fields.get(i) : null;
+                }
+                return new CsvRow(start, values);
+            }
+        }
+    }
+
+    /**
+     * Reads the fields of the next record, keeping track of the lines it spans.
+     *
+     * @return the fields, or {@code null} at the end of the input
+     */
+    private List<String> readRecord() throws IOException {
+        var fields = new ArrayList<String>(COLUMNS.size());
+        field.setLength(0);
+        oversized = false;
+        int length = 0;
+        boolean quoted = false;
+        boolean atFieldStart = true;
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        while (c >= 0) {
+            if (++length > maxRowSize) {
+                oversized = true;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    line++;
+                }
+            } else if (c == ',') {
+                if (!oversized) {
+                    fields.add(field.toString());
+                }
+                field.setLength(0);
+                atFieldStart = true;
+                c = read();
+                continue;
+            } else if (c == '\n' || c == '\r') {
+                line++;
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                break;
+            } else if (c == '"' && atFieldStart) {
+                quoted = true;
+                atFieldStart = false;
+                c = read();
+                continue;
+            }
+            atFieldStart = false;
+            if (!oversized) {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private record CsvRow(long line, String[] values) implements Row {
+
+        @Override
+        public Book decode() throws InvalidRowException {
+            Double price = null;
+            var priceValue = emptyToNull(values[3]);
+            if (priceValue != null) {
+                try {
+                    price = Double.valueOf(priceValue.strip());
+                } catch (NumberFormatException ex) {
+                    throw new InvalidRowException("The price " + priceValue + " is not a number.");
+                }
+            }
+            var isbn = emptyToNull(values[0]);
+            return Book.of(isbn == null ? null : isbn.strip(), emptyToNull(values[1]), emptyToNull(values[2]),
+                    price, emptyToNull(values[4]));
+        }
+
+        private static String emptyToNull(String value) {
+            return value == null || value.isEmpty() ? null : value;
+        }
+    }
+}
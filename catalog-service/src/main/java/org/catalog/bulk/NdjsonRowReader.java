@@ -0,0 +1,162 @@
+package org.catalog.bulk;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.catalog.model.Book;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits newline-delimited JSON into rows, one JSON object per line. Lines are split on the
+ * raw bytes and each row keeps its bytes until it is decoded, so no characters are decoded
+ * twice. Blank lines are skipped, and a line longer than the maximum row size is rejected and
+ * skipped without being buffered.
+ */
+final class NdjsonRowReader implements BookRowReader {
+    private final InputStream in;
+    private final ObjectReader bookReader;
+    private final int maxRowSize;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private long line;
+
+    /**
+     * Constructs a {@code NdjsonRowReader} over the given input.
+     *
+     * @param in         the input, which is read but not closed
+     * @param bookReader the reader decoding a JSON object into a book
+     * @param maxRowSize the number of bytes beyond which a line is rejected
+     */
+    NdjsonRowReader(InputStream in, ObjectReader bookReader, int maxRowSize) {
+        this.in = in;
+        this.bookReader = bookReader;
+        this.maxRowSize = maxRowSize;
+        this.buffer = new byte[Math.max(maxRowSize + 1, 8192)];
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (true) {
+            int scanned = 0;
+            int newline;
+            while ((newline = indexOfNewline(position + scanned)) < 0) {
+                if (eof) {
+                    break;
+                }
+                if (limit - position > maxRowSize) {
+                    line++;
+                    skipLine();
+                    return tooLong();
+                }
+                scanned = limit - position;
+                fill();
+            }
+            if (newline < 0 && position == limit) {
+                return null;
+            }
+            int end = newline < 0 ? limit : newline;
+            int start = position;
+            position = newline < 0 ? limit : newline + 1;
+            line++;
+            if (end - start > maxRowSize) {
+                return tooLong();
+            }
+            if (!isBlank(start, end)) {
+                return new JsonRow(line, Arrays.copyOfRange(buffer, start, end));
+            }
+        }
+    }
+
+    private Row tooLong() {
+        return Row.invalid(line, "The row is longer than " + maxRowSize + " bytes.");
+    }
+
+    private int indexOfNewline(int from) {
+        for (int i = from; i < limit; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = buffer[i];
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer and reads more after them.
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * Discards the rest of the current line, reading as much input as it takes.
+     */
+    private void skipLine() throws IOException {
+        while (true) {
+            int newline = indexOfNewline(position);
+            if (newline >= 0) {
+                position = newline + 1;
+                return;
+            }
+            position = limit;
+            if (eof) {
+                return;
+            }
+            fill();
+        }
+    }
+
+    private final class JsonRow implements Row {
+        private final long line;
+        private final byte[] json;
+
+        JsonRow(long line, byte[] json) {
+            this.line = line;
+            this.json = json;
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        @Override
+        public Book decode() throws InvalidRowException {
+            Book book;
+            try {
+                book = bookReader.readValue(json);
+            } catch (JacksonException ex) {
+                throw new InvalidRowException("The row cannot be read as a book: " + ex.getOriginalMessage());
+            } catch (IOException ex) {
+                throw new InvalidRowException("The row cannot be read as a book.");
+            }
+            if (book == null) {
+                throw new InvalidRowException("The row is not a JSON object.");
+            }
+            return book;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.catalog.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.catalog.config.CatalogProperties;
+import org.catalog.model.Book;
+import org.catalog.model.BookChange;
+import org.catalog.model.BookLookup;
+import org.catalog.store.BookSnapshot;
+import org.catalog.store.BookStoreListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the UTF-8 JSON of every book of the catalog, serialised once when the book is written,
+ * so that reads copy bytes instead of running Jackson.
+ * <p>
+ * The cache follows the {@link org.catalog.store.BookStore} as a {@link BookStoreListener}:
+ * an added or edited book is serialised by its writer while its ISBN is locked and a removed
+ * book is evicted. An entry is only served for the very book it was serialised from, so a
+ * book read from an older generation is serialised on demand rather than answered with the
+ * bytes of its successor.
+ * <p>
+ * The full listing is kept as a {@link JsonBody} of the per-book buffers, tagged with its
+ * generation. A listing of a newer generation rebuilds it from the cached buffers, so only the
+ * books written since were ever serialised.
+ */
+@Component
+public class BookJsonCache implements BookStoreListener {
+    private static final byte[] LOOKUP_START = "{\"found\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LOOKUP_MISSING = "],\"missing\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COMMA = {','};
+    private static final byte[] OBJECT_END = {'}'};
+    private static final byte[] CHANGE_BOOK = ",\"book\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+    private final ObjectWriter bookWriter;
+    private final ObjectWriter isbnsWriter;
+    private final ObjectWriter isbnWriter;
+    private final boolean enabled;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicReference<Listing> listing = new AtomicReference<>();
+
+    private record Entry(Book book, byte[] json) {
+    }
+
+    private record Listing(long generation, int size, JsonBody body) {
+    }
+
+    /**
+     * Constructs a {@code BookJsonCache} with the application's JSON settings.
+     *
+     * @param objectMapper      the mapper whose configuration the cached JSON follows
+     * @param catalogProperties the catalog configuration telling whether books are cached
+     */
+    @Autowired
+    public BookJsonCache(ObjectMapper objectMapper, CatalogProperties catalogProperties) {
+        this(objectMapper, catalogProperties.listing().cacheJson());
+    }
+
+    /**
+     * Constructs a {@code BookJsonCache}.
+     *
+     * @param objectMapper the mapper whose configuration the cached JSON follows
+     * @param enabled      whether books are cached, or serialised on every read
+     */
+    public BookJsonCache(ObjectMapper objectMapper, boolean enabled) {
+        this.bookWriter = objectMapper.writerFor(Book.class);
+        this.isbnsWriter = objectMapper.writerFor(String[].class);
+        this.isbnWriter = objectMapper.writerFor(String.class);
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void onChange(Book previous, Book current, long generation) {
+        if (!enabled) {
+            return;
+        }
+        if (current == null) {
+            entries.remove(previous.isbn());
+        } else {
+            entries.put(current.isbn(), new Entry(current, serialise(current)));
+        }
+    }
+
+    /**
+     * Returns the JSON of the book, from the cache when it holds this very book.
+     *
+     * @param book the book to serialise
+     * @return the UTF-8 JSON of the book, which must not be modified
+     */
+    public byte[] json(Book book) {
+        var entry = entries.get(book.isbn());
+        if (entry != null && (entry.book() == book || entry.book().equals(book))) {
+            return entry.json();
+        }
+        return serialise(book);
+    }
+
+    /**
+     * Returns the body of a single book.
+     *
+     * @param book the book to serialise
+     * @return the body holding the JSON of the book
+     */
+    public JsonBody body(Book book) {
+        return JsonBody.of(json(book));
+    }
+
+    /**
+     * Returns the body of a JSON array of books.
+     *
+     * @param books the books to serialise, in order
+     * @return the body holding the JSON array
+     */
+    public JsonBody body(List<Book> books) {
+        var parts = new ArrayList<byte[]>(books.size());
+        for (Book book : books) {
+            parts.add(json(book));
+        }
+        return JsonBody.array(parts);
+    }
+
+    /**
+     * Returns the body of the result of a lookup: an object holding the array of found books
+     * under {@code found} and the array of missing ISBNs under {@code missing}.
+     *
+     * @param lookup the result of the lookup
+     * @return the body holding the JSON object
+     */
+    public JsonBody body(BookLookup lookup) {
+        var fragments = new ArrayList<byte[]>(2 * lookup.found().size() + 4);
+        fragments.add(LOOKUP_START);
+        for (Book book : lookup.found()) {
+            if (fragments.size() > 1) {
+                fragments.add(COMMA);
+            }
+            fragments.add(json(book));
+        }
+        fragments.add(LOOKUP_MISSING);
+        try {
+            fragments.add(isbnsWriter.writeValueAsBytes(lookup.missing().toArray(new String[0])));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        fragments.add(OBJECT_END);
+        return JsonBody.document(fragments);
+    }
+
+    /**
+     * Returns the body of a change of the catalog: an object holding its sequence number,
+     * generation, type, ISBN and, unless the book was removed, the book under {@code book}.
+     *
+     * @param change the change to serialise
+     * @return the body holding the JSON object
+     */
+    public JsonBody body(BookChange change) {
+        var head = "{\"sequence\":" + change.sequence() + ",\"generation\":" + change.generation()
+                + ",\"type\":\"" + change.type() + "\",\"isbn\":";
+        byte[] isbn;
+        try {
+            isbn = isbnWriter.writeValueAsBytes(change.isbn());
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return JsonBody.document(List.of(head.getBytes(StandardCharsets.UTF_8),
+                isbn, CHANGE_BOOK,
+                change.book() == null ? NULL : json(change.book()), OBJECT_END));
+    }
+
+    /**
+     * Returns the body of a JSON array of every book of the snapshot, reusing the body built
+     * for the same generation if there is one.
+     *
+     * @param snapshot the snapshot to list
+     * @return the body holding the JSON array, in ISBN order
+     */
+    public JsonBody body(BookSnapshot snapshot) {
+        var cached = listing.get();
+        if (cached != null && cached.generation() == snapshot.generation() && cached.size() == snapshot.size()) {
+            return cached.body();
+        }
+        var parts = new ArrayList<byte[]>(snapshot.size());
+        for (Book book : snapshot.books()) {
+            parts.add(json(book));
+        }
+        var body = JsonBody.array(parts);
+        if (enabled) {
+            listing.accumulateAndGet(new Listing(snapshot.generation(), parts.size(), body),
+                    (current, built) -> current == null || current.generation() <= built.generation() ? built : current);
+        }
+        return body;
+    }
+
+    /**
+     * Returns the number of cached books.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private byte[] serialise(Book book) {
+        try {
+            return bookWriter.writeValueAsBytes(book);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.catalog.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A response body made of JSON that was serialised ahead of time: either a single document,
+ * possibly assembled from several fragments, or an array whose elements are kept as separate
+ * buffers and joined only while being written.
+ * <p>
+ * The element buffers are shared with the {@link BookJsonCache} and must not be modified.
+ */
+public final class JsonBody {
+    private static final byte[] EMPTY_ARRAY = {'[', ']'};
+    private final byte[][] parts;
+    private final boolean array;
+    private final long contentLength;
+
+    private JsonBody(byte[][] parts, boolean array) {
+        this.parts = parts;
+        this.array = array;
+        long length = array ? 2 + Math.max(0, parts.length - 1) : 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        this.contentLength = length;
+    }
+
+    /**
+     * Creates a body holding a single JSON document.
+     *
+     * @param json the serialised document
+     * @return the body
+     */
+    public static JsonBody of(byte[] json) {
+        return new JsonBody(new byte[][] {json}, false);
+    }
+
+    /**
+     * Creates a body holding a single JSON document made of the given fragments, which are
+     * written one after the other.
+     *
+     * @param fragments the serialised fragments, in order, which together form one document
+     * @return the body
+     */
+    public static JsonBody document(List<byte[]> fragments) {
+        return new JsonBody(fragments.toArray(new byte[0][]), false);
+    }
+
+    /**
+     * Creates a body holding a JSON array of the given serialised elements.
+     *
+     * @param elements the serialised elements, in order
+     * @return the body
+     */
+    public static JsonBody array(List<byte[]> elements) {
+        return new JsonBody(elements.toArray(new byte[0][]), true);
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #writeTo(OutputStream)}.
+     *
+     * @return the length of the body
+     */
+    public long contentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Returns the number of elements of an array body, or one for a single document.
+     *
+     * @return the number of serialised documents in the body
+     */
+    public int size() {
+        return array ? parts.length : 1;
+    }
+
+    /**
+     * Writes the body.
+     *
+     * @param out the stream to write to, which is neither flushed nor closed
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (!array) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+            return;
+        }
+        if (parts.length == 0) {
+            out.write(EMPTY_ARRAY);
+            return;
+        }
+        out.write('[');
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(parts[i]);
+        }
+        out.write(']');
+    }
+}
@@ -0,0 +1,50 @@
+package org.catalog.cache;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link JsonBody} to the response as {@code application/json}, copying its
+ * pre-serialised bytes without going through Jackson. Registered with Spring MVC as a bean.
+ */
+@Component
+public class JsonBodyHttpMessageConverter extends AbstractHttpMessageConverter<JsonBody> {
+
+    /**
+     * Constructs a converter writing {@code application/json}.
+     */
+    public JsonBodyHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JsonBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected JsonBody readInternal(Class<? extends JsonBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Pre-serialised JSON bodies are write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(JsonBody body, MediaType contentType) {
+        return body.contentLength();
+    }
+
+    @Override
+    protected void writeInternal(JsonBody body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
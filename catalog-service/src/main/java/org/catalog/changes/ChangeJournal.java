@@ -0,0 +1,151 @@
+package org.catalog.changes;
+
+import org.catalog.config.CatalogProperties;
+import org.catalog.model.Book;
+import org.catalog.model.BookChange;
+import org.catalog.store.BookStoreListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-memory ring buffer of the most recent mutations of the catalog, which consumers read
+ * as a change feed from any sequence number still in the ring.
+ * <p>
+ * The journal follows the store as a {@link BookStoreListener} and numbers the changes in the
+ * order it is notified of them, so the changes of one ISBN are in the order they were made.
+ * Readers copy batches out of the ring at their own pace and never hold up writers: once the
+ * writers have lapped a reader, the changes it has not read yet are gone and it has to list
+ * the catalog again before following the feed from its current end.
+ * <p>
+ * Sequence numbers start from the start time of the journal shifted left by 20 bits, so they
+ * keep increasing across restarts, and a consumer resuming from a sequence number of an
+ * earlier process is told to list the catalog again rather than missing changes.
+ */
+@Component
+public class ChangeJournal implements BookStoreListener {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final BookChange[] ring;
+    private final int mask;
+    private final long first;
+    private long next;
+
+    /**
+     * Constructs a {@code ChangeJournal} with the change feed settings of the catalog.
+     *
+     * @param catalogProperties the catalog configuration containing the change feed settings
+     */
+    @Autowired
+    public ChangeJournal(CatalogProperties catalogProperties) {
+        this(catalogProperties.changes().capacity(), System.currentTimeMillis() << 20);
+    }
+
+    /**
+     * Constructs a {@code ChangeJournal}.
+     *
+     * @param capacity the number of changes kept, rounded up to a power of two
+     * @param first    the sequence number of the first change
+     */
+    public ChangeJournal(int capacity, long first) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new BookChange[size];
+        this.mask = size - 1;
+        this.first = first;
+        this.next = first;
+    }
+
+    @Override
+    public void onChange(Book previous, Book current, long generation) {
+        var type = previous == null ? BookChange.Type.ADDED
+                : current == null ? BookChange.Type.REMOVED : BookChange.Type.UPDATED;
+        var isbn = current != null ? current.isbn() : previous.isbn();
+        lock.lock();
+        try {
+            long sequence = next++;
+            ring[(int) (sequence & mask)] = new BookChange(sequence, generation, type, isbn, current);
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the latest change, which a consumer that has just listed
+     * the catalog follows the feed from.
+     *
+     * @return the sequence number of the latest change, or one less than the first sequence
+     *         number if nothing has changed yet
+     */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return next - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the changes following the given sequence number, oldest first.
+     *
+     * @param after the sequence number of the last change the consumer has seen
+     * @param max   the largest number of changes to copy
+     * @param into  the list the changes are appended to
+     * @return {@code false} if changes following {@code after} are no longer in the ring or
+     *         {@code after} was not issued by this journal, in which case the consumer has to
+     *         list the catalog again
+     */
+    public boolean read(long after, int max, List<BookChange> into) {
+        lock.lock();
+        try {
+            if (after >= next || after < Math.max(first, next - ring.length) - 1) {
+                return false;
+            }
+            long end = Math.min(next, after + 1 + max);
+            for (long sequence = after + 1; sequence < end; sequence++) {
+                into.add(ring[(int) (sequence & mask)]);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a change follows the given sequence number.
+     *
+     * @param after   the sequence number of the last change the consumer has seen
+     * @param timeout the longest time to wait
+     * @return {@code true} if a change follows {@code after}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean await(long after, Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (next - 1 <= after) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = appended.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of changes the ring holds.
+     *
+     * @return the capacity of the journal
+     */
+    public int capacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,139 @@
+package org.catalog.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the catalog, bound from the properties prefixed with
+ * "catalog" in the application's configuration files.
+ *
+ * @param store       the settings of the store holding the books of the catalog
+ * @param listing     the settings of the catalog listings
+ * @param search      the settings of the full-text search over the catalog
+ * @param persistence the settings of the on-disk persistence of the catalog
+ * @param bulk        the settings of the bulk import of books
+ * @param changes     the settings of the change feed of the catalog
+ */
+@ConfigurationProperties(prefix = "catalog")
+public record CatalogProperties(@DefaultValue Store store,
+                                @DefaultValue Listing listing,
+                                @DefaultValue Search search,
+                                @DefaultValue Persistence persistence,
+                                @DefaultValue Bulk bulk,
+                                @DefaultValue Changes changes) {
+
+    /**
+     * Settings of the {@link org.catalog.store.BookStore}.
+     *
+     * @param type                the kind of store holding the books
+     * @param stripes             the number of lock stripes serialising writers, or {@code 0} to derive
+     *                            it from the number of available processors
+     * @param retainedGenerations the number of recent catalog generations a versioned store keeps
+     *                            available to point-in-time listings
+     * @param expectedSize        the number of books a compact store allocates room for up front
+     */
+    public record Store(@DefaultValue("versioned") StoreType type,
+                        @DefaultValue("0") int stripes,
+                        @DefaultValue("64") int retainedGenerations,
+                        @DefaultValue("1024") int expectedSize) {
+    }
+
+    /**
+     * Settings of the catalog listings.
+     *
+     * @param defaultPageSize the number of books in a page when a paginated listing gives no limit
+     * @param maxPageSize     the largest number of books a single page, or a single lookup, may hold
+     * @param flushEvery      the number of books written to a streamed listing between flushes
+     * @param cacheJson       whether the JSON of every book is kept from its last write rather than
+     *                        serialised on every read
+     */
+    public record Listing(@DefaultValue("100") int defaultPageSize,
+                          @DefaultValue("1000") int maxPageSize,
+                          @DefaultValue("256") int flushEvery,
+                          @DefaultValue("true") boolean cacheJson) {
+    }
+
+    /**
+     * Settings of the full-text search over the catalog.
+     *
+     * @param includeAuthor whether authors are searched alongside titles
+     * @param minMatch      the fraction of a query's trigrams a book must contain to be returned
+     * @param maxResults    the largest number of results a single search may return
+     */
+    public record Search(@DefaultValue("true") boolean includeAuthor,
+                         @DefaultValue("0.5") double minMatch,
+                         @DefaultValue("100") int maxResults) {
+    }
+
+    /**
+     * Settings of the write-ahead log and snapshots that let the catalog survive restarts.
+     *
+     * @param enabled          whether the catalog is recovered from and persisted to disk
+     * @param directory        the directory holding the snapshot and the write-ahead log segments
+     * @param syncWrites       whether a mutation waits for its log record to be synced to disk before
+     *                         returning; otherwise records are synced in the background
+     * @param commitDelay      how long the log waits for more records before syncing a batch
+     * @param bufferSize       the size of each of the two in-memory batch buffers of the log
+     * @param snapshotInterval the time after which a snapshot is taken if the catalog changed
+     * @param snapshotLogSize  the size of the current log segment that triggers a snapshot
+     */
+    public record Persistence(@DefaultValue("true") boolean enabled,
+                              @DefaultValue("data") String directory,
+                              @DefaultValue("true") boolean syncWrites,
+                              @DefaultValue("0ms") Duration commitDelay,
+                              @DefaultValue("1MB") DataSize bufferSize,
+                              @DefaultValue("10m") Duration snapshotInterval,
+                              @DefaultValue("256MB") DataSize snapshotLogSize) {
+    }
+
+    /**
+     * Settings of the bulk import of books.
+     *
+     * @param batchSize             the number of rows decoded, validated and added together, which
+     *                              bounds the memory an import holds on to
+     * @param maxRowSize            the size beyond which a row is rejected without being decoded
+     * @param maxReportedRejections the number of rejected rows an import result lists individually
+     * @param threads               the number of threads decoding and validating the rows of the
+     *                              imports, or {@code 0} for the number of available processors
+     */
+    public record Bulk(@DefaultValue("1000") int batchSize,
+                       @DefaultValue("64KB") DataSize maxRowSize,
+                       @DefaultValue("1000") int maxReportedRejections,
+                       @DefaultValue("0") int threads) {
+    }
+
+    /**
+     * Settings of the change feed of the catalog.
+     *
+     * @param capacity    the number of recent changes kept for consumers to catch up on, rounded
+     *                    up to a power of two
+     * @param heartbeat   the time after which an idle event stream is sent a comment, so that
+     *                    proxies keep it open and a closed connection is noticed
+     * @param maxDuration the time after which a followed feed ends, for the consumer to resume
+     *                    it from its last sequence number with a new request
+     * @param maxStreams  the number of change streams served at once, each on a thread of the
+     *                    feed's own; a further request is answered with 503 (Service Unavailable)
+     * @param retryAfter  the time a request turned away for lack of a stream is told to wait
+     *                    before retrying
+     */
+    public record Changes(@DefaultValue("65536") int capacity,
+                          @DefaultValue("15s") Duration heartbeat,
+                          @DefaultValue("5m") Duration maxDuration,
+                          @DefaultValue("100") int maxStreams,
+                          @DefaultValue("5s") Duration retryAfter) {
+    }
+
+    /**
+     * The kinds of {@link org.catalog.store.BookStore} the catalog can run on.
+     * <p>
+     * - VERSIONED: a multi-version store serving immutable snapshots of recent generations.
+     * - STRIPED: a lock-striped concurrent map whose snapshots are copies of the latest state.
+     * - COMPACT: primitive columnar storage trading write concurrency for a small heap footprint.
+     */
+    public enum StoreType {
+        VERSIONED, STRIPED, COMPACT
+    }
+}
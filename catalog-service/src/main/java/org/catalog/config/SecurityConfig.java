@@ -29,6 +29,7 @@ public class SecurityConfig {
 				.authorizeHttpRequests(authorize -> authorize
 						.requestMatchers("/actuator/**").permitAll()
 						.requestMatchers(HttpMethod.GET, "/", "/books/**").permitAll()
+						.requestMatchers(HttpMethod.POST, "/books/lookup").permitAll()
 						.anyRequest().hasRole("employee")
 				)
 				.oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()))
@@ -0,0 +1,38 @@
+package org.catalog.config;
+
+import org.catalog.store.BookStore;
+import org.catalog.store.CompactBookStore;
+import org.catalog.store.BookStoreListener;
+import org.catalog.store.StripedBookStore;
+import org.catalog.store.VersionedBookStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class providing the {@link BookStore} that holds the books of the catalog.
+ */
+@Configuration(proxyBeanMethods = false)
+public class StoreConfig {
+
+    /**
+     * Creates the {@link BookStore} selected by the {@code catalog.store.type} property and
+     * registers every {@link BookStoreListener} bean with it, so that derived structures such as
+     * the secondary indexes follow each mutation.
+     *
+     * @param catalogProperties the catalog configuration containing the store settings
+     * @param listeners         the listeners to notify of the store's mutations
+     * @return a {@link VersionedBookStore}, a {@link StripedBookStore} or a {@link CompactBookStore}
+     */
+    @Bean
+    BookStore bookStore(CatalogProperties catalogProperties, ObjectProvider<BookStoreListener> listeners) {
+        var settings = catalogProperties.store();
+        BookStore store = switch (settings.type()) {
+            case VERSIONED -> new VersionedBookStore(settings.stripes(), settings.retainedGenerations());
+            case STRIPED -> new StripedBookStore(settings.stripes());
+            case COMPACT -> new CompactBookStore(settings.expectedSize());
+        };
+        listeners.orderedStream().forEach(store::addListener);
+        return store;
+    }
+}
@@ -1,10 +1,24 @@
 package org.catalog.controller;
 
+import org.catalog.bulk.BookImporter;
+import org.catalog.cache.BookJsonCache;
+import org.catalog.cache.JsonBody;
+import org.catalog.config.CatalogProperties;
+import org.catalog.exception.TooManyChangeStreamsException;
+import org.catalog.index.PriceKey;
 import org.catalog.model.Book;
+import org.catalog.model.BookChange;
+import org.catalog.model.BookImportResult;
+import org.catalog.model.BookPage;
 import org.catalog.service.BookService;
+import org.catalog.store.BookSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -12,8 +26,30 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * The {@code BookController} class is a REST controller responsible for managing
@@ -21,45 +57,283 @@ import org.springframework.web.bind.annotation.PutMapping;
  * add, update, and delete books.
  * <p>
  * The controller interacts with the {@code BookService} to perform these operations
- * and logs actions for debugging purposes.
+ * and logs actions for debugging purposes. Books and listings are written from the JSON
+ * serialised ahead of time by the {@link BookJsonCache}.
+ * <p>
+ * Books and listings carry strong entity tags (see {@link ETags}). A {@code GET} whose
+ * {@code If-None-Match} header still matches is answered with 304 (Not Modified) before any
+ * JSON is looked up, and a {@code PUT} or {@code DELETE} whose {@code If-Match} header no longer
+ * matches the stored book is rejected with 412 (Precondition Failed).
  */
 @RestController
 @RequestMapping("books")
-public class BookController {
+public class BookController implements DisposableBean {
+    /**
+     * Response header carrying the catalog generation a listing was served from, which can be
+     * passed back as {@code asOf} to repeat the listing.
+     */
+    static final String GENERATION_HEADER = "X-Catalog-Generation";
+    static final String TEXT_CSV_VALUE = "text/csv";
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
     private static final Logger log = LoggerFactory.getLogger(BookController.class);
     private final BookService bookService;
+    private final BookJsonCache jsonCache;
+    private final BookImporter bookImporter;
+    private final int flushEvery;
+    private final Duration heartbeat;
+    private final Duration maxChangesDuration;
+    private final int maxChangeStreams;
+    private final Duration changeStreamsRetryAfter;
+    private final Semaphore changeStreams;
+    private final ExecutorService changeWriters;
 
     /**
      * Constructs a {@code BookController} with the given {@code BookService}.
      *
-     * @param bookService the service used to manage book operations in the catalog
+     * @param bookService       the service used to manage book operations in the catalog
+     * @param jsonCache         the cache providing the serialised books
+     * @param bookImporter      the importer adding books in bulk
+     * @param catalogProperties the catalog configuration containing the listing and change feed settings
      */
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookJsonCache jsonCache, BookImporter bookImporter,
+                          CatalogProperties catalogProperties) {
         this.bookService = bookService;
+        this.jsonCache = jsonCache;
+        this.bookImporter = bookImporter;
+        this.flushEvery = Math.max(1, catalogProperties.listing().flushEvery());
+        this.heartbeat = catalogProperties.changes().heartbeat();
+        this.maxChangesDuration = catalogProperties.changes().maxDuration();
+        this.maxChangeStreams = catalogProperties.changes().maxStreams();
+        this.changeStreamsRetryAfter = catalogProperties.changes().retryAfter();
+        this.changeStreams = new Semaphore(maxChangeStreams);
+        var count = new AtomicInteger();
+        this.changeWriters = Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "catalog-changes-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
-     * Retrieves a list of all books available in the catalog.
+     * Retrieves a list of all books available in the catalog, optionally as of a recent
+     * catalog generation. The listing is served from an immutable snapshot and carries its
+     * generation in the {@value #GENERATION_HEADER} header.
+     * <p>
+     * When {@code after} or {@code limit} is given, only one page of the catalog is returned
+     * and the URI of the following page, if any, is sent in a {@code Link} header with
+     * {@code rel="next"}.
      *
-     * @return an {@code Iterable} containing all {@code Book} objects from the catalog,
-     *         or an empty collection if no books are available
+     * @param asOf  the catalog generation to list, or {@code null} for the latest one
+     * @param after the ISBN of the last book of the previous page, or {@code null} for the first page
+     * @param limit the maximum number of books of a page, or {@code null} for the default page size
+     * @param request the request, used to evaluate its {@code If-None-Match} header
+     * @return a JSON array of the requested books from the catalog in ISBN order, which is empty
+     *         if no books are available, or {@code null} if the client's copy is up to date
      */
     @GetMapping
-    public Iterable<Book> get() {
-        log.debug("Retrieving all books from the catalog");
-        return bookService.viewBookList();
+    public ResponseEntity<JsonBody> get(@RequestParam(required = false) Long asOf,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam(required = false) Integer limit,
+                                        WebRequest request) {
+        if (after != null || limit != null) {
+            log.debug("Retrieving books after ISBN {} from the catalog as of generation {}", after, asOf);
+            var page = asOf == null ? bookService.viewBookPage(after, limit) : bookService.viewBookPage(asOf, after, limit);
+            return pageResponse(page, request);
+        }
+        log.debug("Retrieving all books from the catalog as of generation {}", asOf);
+        var snapshot = asOf == null ? bookService.viewBookList() : bookService.viewBookList(asOf);
+        var etag = ETags.ofGeneration(snapshot.generation());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .header(GENERATION_HEADER, String.valueOf(snapshot.generation()))
+                .body(jsonCache.body(snapshot));
+    }
+
+    /**
+     * Retrieves the books by the given author, optionally restricted to a publisher. Matching
+     * ignores case and, with {@code prefix=true}, accepts every author and publisher starting
+     * with the given values.
+     *
+     * @param author    the author to look up
+     * @param publisher the publisher to restrict the result to, or {@code null}
+     * @param prefix    whether the values are prefixes rather than complete names
+     * @param limit     the maximum number of books to return, or {@code null} for the default page size
+     * @return the matching books, ordered by author and then by ISBN
+     */
+    @GetMapping(params = "author")
+    public List<Book> getByAuthor(@RequestParam String author,
+                                  @RequestParam(required = false) String publisher,
+                                  @RequestParam(defaultValue = "false") boolean prefix,
+                                  @RequestParam(required = false) Integer limit) {
+        log.debug("Retrieving books by author {} and publisher {}", author, publisher);
+        return bookService.viewBooksBy(author, publisher, prefix, limit);
+    }
+
+    /**
+     * Retrieves the books by the given publisher. Matching ignores case and, with
+     * {@code prefix=true}, accepts every publisher starting with the given value.
+     *
+     * @param publisher the publisher to look up
+     * @param prefix    whether the value is a prefix rather than a complete name
+     * @param limit     the maximum number of books to return, or {@code null} for the default page size
+     * @return the matching books, ordered by publisher and then by ISBN
+     */
+    @GetMapping(params = {"publisher", "!author"})
+    public List<Book> getByPublisher(@RequestParam String publisher,
+                                     @RequestParam(defaultValue = "false") boolean prefix,
+                                     @RequestParam(required = false) Integer limit) {
+        log.debug("Retrieving books by publisher {}", publisher);
+        return bookService.viewBooksBy(null, publisher, prefix, limit);
+    }
+
+    /**
+     * Searches the titles, and if so configured the authors, of the catalog for free text.
+     *
+     * @param query the free text to look for
+     * @param limit the maximum number of books to return, or {@code null} for the default page size
+     * @return the best matching books, most relevant first
+     */
+    @GetMapping("search")
+    public List<Book> search(@RequestParam("q") String query, @RequestParam(required = false) Integer limit) {
+        log.debug("Searching the catalog for: {}", query);
+        return bookService.searchBooks(query, limit);
+    }
+
+    /**
+     * Retrieves one page of the books priced within the given range, cheapest first, optionally
+     * restricted to a publisher; the k cheapest books of a publisher are the first page with
+     * {@code limit=k}. The URI of the following page, if any, is sent in a {@code Link} header
+     * with {@code rel="next"}, and its {@code after} cursor has the form {@code price:isbn}.
+     *
+     * @param min       the lowest price, inclusive, or {@code null} for no lower bound
+     * @param max       the highest price, inclusive, or {@code null} for no upper bound
+     * @param publisher the publisher to restrict the result to, ignoring case, or {@code null}
+     * @param after     the position of the last book of the previous page, or {@code null} for the first page
+     * @param limit     the maximum number of books of a page, or {@code null} for the default page size
+     * @param request   the request, used to evaluate its {@code If-None-Match} header
+     * @return a JSON array of the matching books ordered by price and then by ISBN, or {@code null}
+     *         if the client's copy is up to date
+     */
+    @GetMapping("by-price")
+    public ResponseEntity<JsonBody> getByPrice(@RequestParam(required = false) Double min,
+                                               @RequestParam(required = false) Double max,
+                                               @RequestParam(required = false) String publisher,
+                                               @RequestParam(required = false) PriceKey after,
+                                               @RequestParam(required = false) Integer limit,
+                                               WebRequest request) {
+        log.debug("Retrieving books priced from {} to {} by publisher {}", min, max, publisher);
+        return pageResponse(bookService.viewBooksByPrice(min, max, publisher, after, limit), request);
+    }
+
+    /**
+     * Streams all books available in the catalog as newline-delimited JSON, one book per line.
+     * The body is written from an immutable snapshot on an async worker rather than on the
+     * request thread, and is flushed in small batches so memory use does not grow with the
+     * size of the catalog.
+     *
+     * @param asOf the catalog generation to stream, or {@code null} for the latest one
+     * @return the streamed body, carrying its generation in the {@value #GENERATION_HEADER} header
+     */
+    @GetMapping(value = "stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) Long asOf) {
+        log.debug("Streaming all books from the catalog as of generation {}", asOf);
+        var snapshot = asOf == null ? bookService.viewBookList() : bookService.viewBookList(asOf);
+        return ResponseEntity.ok()
+                .header(GENERATION_HEADER, String.valueOf(snapshot.generation()))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> writeNdjson(snapshot, out));
+    }
+
+    /**
+     * Streams the changes of the catalog following the given sequence number as Server-Sent
+     * Events. Each event is named after the type of the change, carries its sequence number as
+     * id and the change as JSON data; an idle stream is sent a comment every heartbeat.
+     * <p>
+     * A consumer that has fallen behind further than the feed retains is sent a
+     * {@code resnapshot} event instead, whose data holds the sequence number to follow the feed
+     * from once the catalog has been listed again, and the stream ends.
+     * <p>
+     * Change streams are written on threads of the feed's own, so followers idling on the feed
+     * never hold up the other asynchronous responses. Once the most streams allowed are being
+     * served, the request is answered with 503 (Service Unavailable) and a {@code Retry-After}
+     * header.
+     *
+     * @param since       the sequence number of the last change seen, or {@code null} to follow
+     *                    the feed from now on
+     * @param lastEventId the id of the last event received before reconnecting, which takes
+     *                    precedence over {@code since}
+     * @param follow      whether to wait for further changes once caught up, rather than ending
+     * @return the streamed events
+     */
+    @GetMapping(value = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> changesAsEvents(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(defaultValue = "true") boolean follow) {
+        long after = lastEventId != null ? lastEventId : since != null ? since : bookService.viewLastChange();
+        log.debug("Streaming catalog change events after sequence {}", after);
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(changes(after, follow, true));
+    }
+
+    /**
+     * Streams the changes of the catalog following the given sequence number as
+     * newline-delimited JSON, one change per line. A consumer that has fallen behind further
+     * than the feed retains is sent a line with type {@code RESNAPSHOT} instead, holding the
+     * sequence number to follow the feed from once the catalog has been listed again, and the
+     * stream ends. Like the event stream, it is answered with 503 (Service Unavailable) once the
+     * most change streams allowed are being served.
+     *
+     * @param since  the sequence number of the last change seen, or {@code null} to follow the
+     *               feed from now on
+     * @param follow whether to wait for further changes once caught up, rather than ending
+     * @return the streamed changes
+     */
+    @GetMapping(value = "changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> changesAsNdjson(@RequestParam(required = false) Long since,
+                                                               @RequestParam(defaultValue = "true") boolean follow) {
+        long after = since != null ? since : bookService.viewLastChange();
+        log.debug("Streaming catalog changes after sequence {}", after);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(changes(after, follow, false));
     }
 
     /**
      * Retrieves the details of a book based on its ISBN.
      *
-     * @param isbn the ISBN of the book whose details are to be retrieved
-     * @return the {@code Book} object containing the details of the book, or {@code null} if no book is found with the given ISBN
+     * @param isbn    the ISBN of the book whose details are to be retrieved
+     * @param request the request, used to evaluate its {@code If-None-Match} header
+     * @return the JSON of the book with the given ISBN, or {@code null} if the client's copy is up to date
      */
     @GetMapping("{isbn}")
-    public Book getByIsbn(@PathVariable String isbn) {
+    public ResponseEntity<JsonBody> getByIsbn(@PathVariable String isbn, WebRequest request) {
         log.debug("Retrieving book details for ISBN: {}", isbn);
-        return bookService.viewBookDetails(isbn);
+        var book = bookService.viewBookDetails(isbn);
+        var etag = ETags.of(book);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(jsonCache.body(book));
+    }
+
+    /**
+     * Looks up several books by ISBN in one request. ISBNs missing from the catalog are listed
+     * in the response rather than answered with 404 (Not Found).
+     *
+     * @param isbns the ISBNs to look up, as a JSON array
+     * @return a JSON object holding the found books under {@code found} and the missing ISBNs
+     *         under {@code missing}
+     */
+    @PostMapping("lookup")
+    public JsonBody lookup(@RequestBody List<String> isbns) {
+        log.debug("Looking up {} ISBNs", isbns.size());
+        return jsonCache.body(bookService.lookupBooks(isbns));
     }
 
     /**
@@ -76,16 +350,51 @@ public class BookController {
     }
 
     /**
-     * Deletes a book from the catalog based on its ISBN.
-     * This operation removes the book entry if it exists in the catalog.
+     * Adds the books of a streamed newline-delimited JSON body to the catalog, one book per
+     * line. Rows that cannot be read, are invalid or duplicate an ISBN are reported in the
+     * result rather than failing the import.
+     *
+     * @param body the request body
+     * @return the number of rows imported and rejected, along with the rejected rows
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BookImportResult bulkNdjson(InputStream body) throws IOException {
+        log.debug("Importing books from newline-delimited JSON");
+        return bookImporter.importNdjson(body);
+    }
+
+    /**
+     * Adds the books of a streamed CSV body to the catalog. The header row names the columns,
+     * of which {@code isbn} is required. Rows that cannot be read, are invalid or duplicate an
+     * ISBN are reported in the result rather than failing the import.
      *
-     * @param isbn the ISBN of the book to be deleted from the catalog
+     * @param contentType the content type of the body, whose charset defaults to UTF-8
+     * @param body        the request body
+     * @return the number of rows imported and rejected, along with the rejected rows
+     * @throws IOException if the body cannot be read
      */
+    @PostMapping(value = "bulk", consumes = TEXT_CSV_VALUE)
+    public BookImportResult bulkCsv(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                    InputStream body) throws IOException {
+        log.debug("Importing books from CSV");
+        var charset = contentType.getCharset();
+        return bookImporter.importCsv(body, charset == null ? StandardCharsets.UTF_8 : charset);
+    }
 
+    /**
+     * Deletes a book from the catalog based on its ISBN.
+     * This operation removes the book entry if it exists in the catalog and, when an
+     * {@code If-Match} header is given, still matches it.
+     *
+     * @param isbn    the ISBN of the book to be deleted from the catalog
+     * @param ifMatch the entity tags the stored book must match, or {@code null}
+     */
     @DeleteMapping("{isbn}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable String isbn) {
-        bookService.removeBookFromCatalog(isbn);
+    public void delete(@PathVariable String isbn,
+                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        bookService.removeBookFromCatalog(isbn, precondition(ifMatch));
     }
 
     /**
@@ -94,10 +403,146 @@ public class BookController {
      *
      * @param isbn the ISBN of the book to be updated. This is used to identify the book in the catalog.
      * @param book the {@code Book} object containing the updated details of the book to be persisted.
-     * @return the updated {@code Book} object after successful modification.
+     * @param ifMatch the entity tags the stored book must match, or {@code null} to update unconditionally.
+     * @return the updated {@code Book} object after successful modification, tagged with its new version.
      */
     @PutMapping("{isbn}")
-    public Book put(@PathVariable String isbn,@RequestBody Book book) {
-        return bookService.editBookDetails(isbn, book);
+    public ResponseEntity<Book> put(@PathVariable String isbn, @RequestBody Book book,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var updatedBook = bookService.editBookDetails(isbn, book, precondition(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updatedBook)).body(updatedBook);
+    }
+
+    private static Predicate<Book> precondition(String ifMatch) {
+        return ifMatch == null ? book -> true : book -> ETags.matches(ifMatch, book);
+    }
+
+    private ResponseEntity<JsonBody> pageResponse(BookPage page, WebRequest request) {
+        var etag = ETags.ofGeneration(page.generation());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        var response = ResponseEntity.ok()
+                .eTag(etag)
+                .header(GENERATION_HEADER, String.valueOf(page.generation()));
+        if (page.next() != null) {
+            var next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.next())
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(jsonCache.body(page.books()));
+    }
+
+    /**
+     * Stops the threads writing the change streams when the application shuts down, which ends
+     * the streams.
+     */
+    @Override
+    public void destroy() {
+        changeWriters.shutdownNow();
+    }
+
+    /**
+     * Starts writing a change stream on a thread of the feed, provided fewer than the most
+     * streams allowed are being served. The stream gives its permit back before it completes,
+     * so a client that has read a stream to its end can always request the next one.
+     */
+    private ResponseBodyEmitter changes(long after, boolean follow, boolean events) {
+        if (!changeStreams.tryAcquire()) {
+            log.debug("Turning away change feed consumer, {} streams are being served", maxChangeStreams);
+            throw new TooManyChangeStreamsException(maxChangeStreams, changeStreamsRetryAfter);
+        }
+        var emitter = new ResponseBodyEmitter(maxChangesDuration.plus(heartbeat).toMillis());
+        try {
+            changeWriters.execute(() -> {
+                RuntimeException failure = null;
+                try {
+                    writeChanges(after, follow, events, emitter);
+                } catch (IOException ex) {
+                    log.debug("Change feed consumer after sequence {} went away", after);
+                    return;
+                } catch (RuntimeException ex) {
+                    failure = ex;
+                } finally {
+                    changeStreams.release();
+                }
+                if (failure == null) {
+                    emitter.complete();
+                } else {
+                    emitter.completeWithError(failure);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            changeStreams.release();
+            throw ex;
+        }
+        return emitter;
+    }
+
+    /**
+     * Copies changes out of the feed in batches and sends them, so a slow consumer only slows
+     * down its own stream; if it falls off the feed meanwhile, it is told to resnapshot.
+     */
+    private void writeChanges(long after, boolean follow, boolean events, ResponseBodyEmitter emitter)
+            throws IOException {
+        long deadline = System.nanoTime() + maxChangesDuration.toNanos();
+        var batch = new ArrayList<BookChange>(flushEvery);
+        var out = new ByteArrayOutputStream();
+        while (true) {
+            batch.clear();
+            if (!bookService.viewChanges(after, flushEvery, batch)) {
+                long resume = bookService.viewLastChange();
+                log.debug("Change feed consumer at sequence {} has to resnapshot", after);
+                var json = "{\"type\":\"RESNAPSHOT\",\"sequence\":" + resume + "}";
+                emitter.send((events ? "event: resnapshot\ndata: " + json + "\n\n" : json + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            for (BookChange change : batch) {
+                if (events) {
+                    out.write(("id: " + change.sequence() + "\nevent: " + change.type().name().toLowerCase(Locale.ROOT)
+                            + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+                    jsonCache.body(change).writeTo(out);
+                    out.write('\n');
+                    out.write('\n');
+                } else {
+                    jsonCache.body(change).writeTo(out);
+                    out.write('\n');
+                }
+                after = change.sequence();
+            }
+            if (!batch.isEmpty()) {
+                emitter.send(out.toByteArray());
+                out.reset();
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (!follow || remaining <= 0) {
+                return;
+            }
+            try {
+                if (!bookService.awaitChanges(after, Duration.ofNanos(Math.min(remaining, heartbeat.toNanos())))
+                        && events) {
+                    emitter.send(HEARTBEAT);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeNdjson(BookSnapshot snapshot, OutputStream out) throws IOException {
+        int written = 0;
+        for (Book book : snapshot.books()) {
+            out.write(jsonCache.json(book));
+            out.write('\n');
+            if (++written % flushEvery == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
     }
 }
@@ -0,0 +1,58 @@
+package org.catalog.controller;
+
+import org.catalog.model.Book;
+
+/**
+ * Builds and compares the strong entity tags of the catalog's resources.
+ * <p>
+ * A book is tagged with its id and version, and a listing with the catalog generation it was
+ * served from, both qualified by the start of this process: ids are handed out again after a
+ * restart once the book holding the highest one has been removed, or whenever the catalog is
+ * not persisted, and generations restart from zero when the catalog is recovered, so an id
+ * and version or a generation alone could reappear with different contents.
+ */
+final class ETags {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private ETags() {
+    }
+
+    /**
+     * Returns the entity tag of the given book.
+     *
+     * @param book the book to tag
+     * @return the quoted entity tag
+     */
+    static String of(Book book) {
+        return "\"" + EPOCH + "." + (book.id() == null ? 0 : book.id()) + "." + book.version() + "\"";
+    }
+
+    /**
+     * Returns the entity tag of a listing of the given catalog generation.
+     *
+     * @param generation the catalog generation the listing was served from
+     * @return the quoted entity tag
+     */
+    static String ofGeneration(long generation) {
+        return "\"" + EPOCH + "." + generation + "\"";
+    }
+
+    /**
+     * Evaluates an {@code If-Match} header against the current state of a book. Weak tags never
+     * match, as required for {@code If-Match}.
+     *
+     * @param ifMatch the header value, either {@code *} or a comma-separated list of entity tags
+     * @param book    the book as currently stored
+     * @return {@code true} if the header matches the book
+     */
+    static boolean matches(String ifMatch, Book book) {
+        var etag = of(book);
+        for (String candidate : ifMatch.split(",")) {
+            var tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,8 @@
 package org.catalog.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -48,6 +50,92 @@ public class BookControllerAdvice {
         return ex.getMessage();
     }
 
+    /**
+     * Handles the {@code GenerationNotRetainedException} when a listing is requested as of a
+     * catalog generation that is no longer retained. This method returns an appropriate error
+     * message and sets the HTTP status to 410 (Gone).
+     *
+     * @param ex the exception instance containing details about the requested generation
+     * @return a string containing the exception message
+     */
+    @ExceptionHandler(GenerationNotRetainedException.class)
+    @ResponseStatus(HttpStatus.GONE)
+    String generationNotRetainedHandler(GenerationNotRetainedException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Handles the {@code BookVersionMismatchException} when a conditional update or removal
+     * targets a book that has changed since the client read it. This method returns an
+     * appropriate error message and sets the HTTP status to 412 (Precondition Failed).
+     *
+     * @param ex the exception instance containing details about the modified book
+     * @return a string containing the exception message
+     */
+    @ExceptionHandler(BookVersionMismatchException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    String bookVersionMismatchHandler(BookVersionMismatchException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Handles the {@code LookupTooLargeException} when a lookup requests more ISBNs than
+     * allowed. This method returns an appropriate error message and sets the HTTP status
+     * to 400 (Bad Request).
+     *
+     * @param ex the exception instance containing details about the requested lookup
+     * @return a string containing the exception message
+     */
+    @ExceptionHandler(LookupTooLargeException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String lookupTooLargeHandler(LookupTooLargeException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Handles the {@code InvalidBookException} when a book to be added violates a constraint of
+     * the catalog. This method returns an appropriate error message and sets the HTTP status
+     * to 400 (Bad Request).
+     *
+     * @param ex the exception instance containing details about the violated constraint
+     * @return a string containing the exception message
+     */
+    @ExceptionHandler(InvalidBookException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String invalidBookHandler(InvalidBookException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Handles the {@code MalformedImportException} when the body of a bulk import cannot be
+     * imported at all. This method returns an appropriate error message and sets the HTTP
+     * status to 400 (Bad Request).
+     *
+     * @param ex the exception instance containing details about the malformed body
+     * @return a string containing the exception message
+     */
+    @ExceptionHandler(MalformedImportException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String malformedImportHandler(MalformedImportException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Handles the {@code TooManyChangeStreamsException} when a change feed is requested while
+     * the most change streams allowed are being served. This method returns an appropriate
+     * error message, sets the HTTP status to 503 (Service Unavailable) and tells the client in
+     * the {@code Retry-After} header how many seconds to wait before retrying.
+     *
+     * @param ex the exception instance containing the time to wait before retrying
+     * @return the response containing the exception message
+     */
+    @ExceptionHandler(TooManyChangeStreamsException.class)
+    ResponseEntity<String> tooManyChangeStreamsHandler(TooManyChangeStreamsException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(ex.getMessage());
+    }
+
     /**
      * Handles validation errors arising from method argument validation failures, specifically
      * when a {@code MethodArgumentNotValidException} is thrown. This method extracts field-specific
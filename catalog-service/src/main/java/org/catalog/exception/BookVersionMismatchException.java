@@ -0,0 +1,25 @@
+package org.catalog.exception;
+
+/**
+ * Exception thrown to indicate that a conditional update or removal of a book was rejected
+ * because the stored book no longer matches the version the client based its request on.
+ * <p>
+ * It is handled at the controller layer to return an appropriate HTTP response status and
+ * message, telling the client to fetch the current version of the book before retrying.
+ *
+ * @see org.catalog.service.BookService#editBookDetails(String, org.catalog.model.Book, java.util.function.Predicate)
+ * @see BookControllerAdvice#bookVersionMismatchHandler
+ */
+public class BookVersionMismatchException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code BookVersionMismatchException} with a detailed message
+     * indicating that the book with the specified ISBN has changed.
+     *
+     * @param isbn the ISBN of the book whose version did not match
+     */
+    public BookVersionMismatchException(String isbn) {
+        super("The book with ISBN " + isbn + " has been modified.");
+    }
+
+}
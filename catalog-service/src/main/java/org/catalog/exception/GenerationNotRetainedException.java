@@ -0,0 +1,25 @@
+package org.catalog.exception;
+
+/**
+ * Exception thrown to indicate that a listing was requested as of a catalog generation
+ * the store no longer retains, or has not reached yet.
+ * <p>
+ * It is handled at the controller layer to return an appropriate HTTP response status and
+ * message, telling the client to list the current generation instead.
+ *
+ * @see org.catalog.service.BookService#viewBookList(long)
+ * @see BookControllerAdvice#generationNotRetainedHandler
+ */
+public class GenerationNotRetainedException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code GenerationNotRetainedException} with a detailed message
+     * indicating that the specified catalog generation is not available.
+     *
+     * @param generation the catalog generation that was requested
+     */
+    public GenerationNotRetainedException(long generation) {
+        super("The catalog generation " + generation + " is not retained.");
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.catalog.exception;
+
+/**
+ * Exception thrown to indicate that a book cannot be added to the catalog as given, such as a
+ * book without an ISBN.
+ * <p>
+ * It is handled at the controller layer to return an appropriate HTTP response status and
+ * message describing the violated constraint.
+ *
+ * @see org.catalog.service.BookService#validate
+ * @see BookControllerAdvice#invalidBookHandler
+ */
+public class InvalidBookException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code InvalidBookException} with the given message.
+     *
+     * @param message the description of the constraint the book violates
+     */
+    public InvalidBookException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.catalog.exception;
+
+/**
+ * Exception thrown to indicate that a lookup requested more ISBNs than a single lookup may
+ * return books for.
+ * <p>
+ * It is handled at the controller layer to return an appropriate HTTP response status and
+ * message, telling the client to split the lookup.
+ *
+ * @see org.catalog.service.BookService#lookupBooks
+ * @see BookControllerAdvice#lookupTooLargeHandler
+ */
+public class LookupTooLargeException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code LookupTooLargeException} with a detailed message indicating
+     * how many ISBNs were requested and how many are allowed.
+     *
+     * @param requested the number of distinct ISBNs requested
+     * @param maximum   the largest number of ISBNs a lookup may request
+     */
+    public LookupTooLargeException(int requested, int maximum) {
+        super("A lookup may request at most " + maximum + " ISBNs, but " + requested + " were requested.");
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.catalog.exception;
+
+/**
+ * Exception thrown to indicate that the body of a bulk import cannot be imported at all, such
+ * as a CSV body whose header row does not name the columns of a book.
+ * <p>
+ * Problems confined to single rows do not raise this exception; they are reported per row in
+ * the result of the import instead.
+ *
+ * @see org.catalog.bulk.BookImporter
+ * @see BookControllerAdvice#malformedImportHandler
+ */
+public class MalformedImportException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code MalformedImportException} with the given message.
+     *
+     * @param message the description of what is wrong with the body
+     */
+    public MalformedImportException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,39 @@
+package org.catalog.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown to indicate that a change feed was requested while the catalog already
+ * serves as many change streams as it allows at once.
+ * <p>
+ * It is handled at the controller layer to return an appropriate HTTP response status and
+ * message, telling the client when to request the feed again.
+ *
+ * @see org.catalog.controller.BookController#changesAsEvents
+ * @see BookControllerAdvice#tooManyChangeStreamsHandler
+ */
+public class TooManyChangeStreamsException extends RuntimeException {
+    private final Duration retryAfter;
+
+    /**
+     * Constructs a new {@code TooManyChangeStreamsException} with a detailed message indicating
+     * how many change streams are served at once.
+     *
+     * @param maximum    the largest number of change streams served at once
+     * @param retryAfter the time after which the client may request the feed again
+     */
+    public TooManyChangeStreamsException(int maximum, Duration retryAfter) {
+        super("The catalog already serves the most change streams it allows at once (" + maximum + ").");
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns the time after which the client may request the feed again.
+     *
+     * @return the time to wait before retrying
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+}
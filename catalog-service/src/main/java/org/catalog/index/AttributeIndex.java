@@ -0,0 +1,123 @@
+package org.catalog.index;
+
+import org.catalog.model.Book;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * A case-insensitive secondary index over one text attribute of the books in the catalog.
+ * <p>
+ * The index is a concurrent skip list of (normalised value, ISBN) pairs, so an exact lookup
+ * or a prefix lookup is a range scan that costs O(log n + k) for k matches and never blocks.
+ * Adding or moving a book touches only its own entries, and because the store notifies
+ * changes of one ISBN one at a time, the entries of a book always reflect its latest version.
+ */
+public class AttributeIndex {
+    private final Function<Book, String> attribute;
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+
+    /**
+     * Constructs an {@code AttributeIndex} over the given attribute.
+     *
+     * @param attribute the function extracting the indexed value from a book; books whose value
+     *                  is {@code null} are not indexed
+     */
+    public AttributeIndex(Function<Book, String> attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * Moves the entry of a book after it has been added, replaced or removed.
+     *
+     * @param previous the book before the change, or {@code null} if it was added
+     * @param current  the book after the change, or {@code null} if it was removed
+     */
+    public void update(Book previous, Book current) {
+        var previousKey = previous == null ? null : normalize(attribute.apply(previous));
+        var currentKey = current == null ? null : normalize(attribute.apply(current));
+        if (previous != null && current != null && Objects.equals(previousKey, currentKey)) {
+            return;
+        }
+        if (previousKey != null) {
+            entries.remove(new Entry(previousKey, previous.isbn()));
+        }
+        if (currentKey != null) {
+            entries.add(new Entry(currentKey, current.isbn()));
+        }
+    }
+
+    /**
+     * Returns the entries of the books whose attribute equals, or starts with, the given value,
+     * ignoring case, ordered by attribute value and then by ISBN.
+     *
+     * @param value  the value to look up
+     * @param prefix {@code true} to match every value starting with {@code value}
+     * @return a live, weakly consistent view of the matching entries
+     */
+    public Iterable<Entry> find(String value, boolean prefix) {
+        var key = normalize(value);
+        var upper = prefix ? key + Character.MAX_VALUE : key + Character.MIN_VALUE;
+        return entries.subSet(new Entry(key, ""), true, new Entry(upper, ""), false);
+    }
+
+    /**
+     * Tells whether the book is still at the given entry, which a lookup may have read before
+     * the book was moved. A book moved within the range of a prefix lookup is found at both its
+     * entries, and matches only the current one.
+     *
+     * @param book  the book to check
+     * @param entry the entry the book was found at
+     * @return {@code true} if the attribute of the book is the value of the entry
+     */
+    public boolean matches(Book book, Entry entry) {
+        return entry.key().equals(normalize(attribute.apply(book)));
+    }
+
+    /**
+     * Tells whether the attribute of the book matches the value in the sense of {@link #find}.
+     *
+     * @param book   the book to check
+     * @param value  the value looked up
+     * @param prefix {@code true} to match every value starting with {@code value}
+     * @return {@code true} if the book matches
+     */
+    public boolean matches(Book book, String value, boolean prefix) {
+        var bookKey = normalize(attribute.apply(book));
+        if (bookKey == null) {
+            return false;
+        }
+        var key = normalize(value);
+        return prefix ? bookKey.startsWith(key) : bookKey.equals(key);
+    }
+
+    /**
+     * Returns the number of books in the index.
+     *
+     * @return the number of indexed books
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * An entry of the index: the normalised value of the attribute of a book, and its ISBN.
+     *
+     * @param key  the attribute of the book, stripped and in lower case
+     * @param isbn the ISBN of the book
+     */
+    public record Entry(String key, String isbn) implements Comparable<Entry> {
+
+        @Override
+        public int compareTo(Entry other) {
+            int order = key.compareTo(other.key);
+            return order != 0 ? order : isbn.compareTo(other.isbn);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.catalog.index;
+
+import org.catalog.model.Book;
+import org.catalog.store.BookStoreListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the author, publisher and price secondary indexes of the catalog in sync with the
+ * {@link org.catalog.store.BookStore}.
+ * <p>
+ * The indexes are registered as a {@link BookStoreListener}, so they are updated by the
+ * writer of each book while its ISBN is locked and never lag behind by more than the
+ * mutation in flight.
+ */
+@Component
+public class BookAttributeIndexes implements BookStoreListener {
+    private final AttributeIndex authors = new AttributeIndex(Book::author);
+    private final AttributeIndex publishers = new AttributeIndex(Book::publisher);
+    private final PriceIndex prices = new PriceIndex();
+
+    @Override
+    public void onChange(Book previous, Book current, long generation) {
+        authors.update(previous, current);
+        publishers.update(previous, current);
+        prices.update(previous, current);
+    }
+
+    /**
+     * Returns the index over {@link Book#author()}.
+     *
+     * @return the author index
+     */
+    public AttributeIndex authors() {
+        return authors;
+    }
+
+    /**
+     * Returns the index over {@link Book#publisher()}.
+     *
+     * @return the publisher index
+     */
+    public AttributeIndex publishers() {
+        return publishers;
+    }
+
+    /**
+     * Returns the index over {@link Book#price()}.
+     *
+     * @return the price index
+     */
+    public PriceIndex prices() {
+        return prices;
+    }
+}
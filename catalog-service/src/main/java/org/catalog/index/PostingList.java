@@ -0,0 +1,67 @@
+package org.catalog.index;
+
+import java.util.Arrays;
+
+/**
+ * A growable, sorted list of document ids backed by a primitive {@code int} array.
+ * <p>
+ * Ids are kept in ascending order without duplicates so that lists can be merged and probed
+ * with binary search. The class is not thread-safe; {@link TitleSearchIndex} guards it.
+ */
+final class PostingList {
+    private int[] ids = new int[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Adds the id, keeping the list sorted. Ids are usually appended, as new documents get
+     * the highest id, so the common case costs no search or copy.
+     */
+    void add(int id) {
+        if (size > 0 && ids[size - 1] >= id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            insertAt(-index - 1, id);
+            return;
+        }
+        insertAt(size, id);
+    }
+
+    void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            if (size > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+        }
+    }
+
+    /**
+     * Tells whether the list holds the id, searching only from the given position onwards.
+     *
+     * @return the position of the id, or a negative value as defined by {@link Arrays#binarySearch}
+     */
+    int search(int from, int id) {
+        return Arrays.binarySearch(ids, from, size, id);
+    }
+
+    private void insertAt(int index, int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+    }
+}
@@ -0,0 +1,113 @@
+package org.catalog.index;
+
+import org.catalog.model.Book;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * A sorted index over the prices of the books in the catalog, with the ISBN as tie-breaker.
+ * <p>
+ * Besides the index of the whole catalog, every publisher has an index of its own books, so
+ * that a price range, or the k cheapest books, of one publisher is a range scan of its index
+ * that costs O(log n + k) however many books the other publishers have. Both are concurrent
+ * skip lists, which are read without blocking while writers move single entries. Books
+ * without a price are not indexed.
+ */
+public class PriceIndex {
+    private final ConcurrentSkipListSet<PriceKey> entries = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, NavigableSet<PriceKey>> publishers = new ConcurrentHashMap<>();
+
+    /**
+     * Moves the entries of a book after it has been added, replaced or removed.
+     *
+     * @param previous the book before the change, or {@code null} if it was added
+     * @param current  the book after the change, or {@code null} if it was removed
+     */
+    public void update(Book previous, Book current) {
+        var previousKey = previous == null || previous.price() == null ? null : PriceKey.of(previous);
+        var currentKey = current == null || current.price() == null ? null : PriceKey.of(current);
+        var previousPublisher = previousKey == null ? null : AttributeIndex.normalize(previous.publisher());
+        var currentPublisher = currentKey == null ? null : AttributeIndex.normalize(current.publisher());
+        if (Objects.equals(previousKey, currentKey) && Objects.equals(previousPublisher, currentPublisher)) {
+            return;
+        }
+        if (previousKey != null) {
+            entries.remove(previousKey);
+            if (previousPublisher != null) {
+                // Removing an emptied set under the bin lock keeps a concurrent add from landing in it.
+                publishers.computeIfPresent(previousPublisher, (publisher, keys) -> {
+                    keys.remove(previousKey);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+        if (currentKey != null) {
+            entries.add(currentKey);
+            if (currentPublisher != null) {
+                publishers.compute(currentPublisher, (publisher, keys) -> {
+                    var set = keys != null ? keys : new ConcurrentSkipListSet<PriceKey>();
+                    set.add(currentKey);
+                    return set;
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns the positions of the books priced within the given range, cheapest first and then
+     * by ISBN, optionally restricted to one publisher, ignoring case.
+     *
+     * @param publisher the publisher whose books to return, or {@code null} for every book
+     * @param min       the lowest price, inclusive, or {@code null} for no lower bound
+     * @param max       the highest price, inclusive, or {@code null} for no upper bound
+     * @param after     the position the result starts after, or {@code null} to start from {@code min}
+     * @return a live, weakly consistent view of the matching entries
+     */
+    public Iterable<PriceKey> find(String publisher, Double min, Double max, PriceKey after) {
+        NavigableSet<PriceKey> range = publisher == null ? entries : publishers.get(AttributeIndex.normalize(publisher));
+        if (range == null) {
+            return List.of();
+        }
+        var from = min == null ? null : new PriceKey(min, "");
+        boolean fromAfter = after != null && (from == null || after.compareTo(from) >= 0);
+        if (fromAfter) {
+            from = after;
+        }
+        var to = max == null ? null : new PriceKey(Math.nextUp(max), "");
+        if (from != null && to != null) {
+            return from.compareTo(to) < 0 ? range.subSet(from, !fromAfter, to, false) : List.of();
+        }
+        if (from != null) {
+            return range.tailSet(from, !fromAfter);
+        }
+        return to != null ? range.headSet(to, false) : range;
+    }
+
+    /**
+     * Tells whether the book is still at the given position, and by the given publisher, in the
+     * sense of {@link #find}.
+     *
+     * @param book      the book to check
+     * @param key       the position the book was found at
+     * @param publisher the publisher looked up, or {@code null}
+     * @return {@code true} if the book matches
+     */
+    public boolean matches(Book book, PriceKey key, String publisher) {
+        return book.price() != null && Double.compare(book.price(), key.price()) == 0
+                && (publisher == null || Objects.equals(AttributeIndex.normalize(book.publisher()),
+                AttributeIndex.normalize(publisher)));
+    }
+
+    /**
+     * Returns the number of books in the index.
+     *
+     * @return the number of indexed books
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,49 @@
+package org.catalog.index;
+
+import org.catalog.model.Book;
+
+/**
+ * A position in the {@link PriceIndex}: a price, with the ISBN breaking ties between books
+ * of the same price. Its string form {@code price:isbn} is the cursor of a price listing.
+ *
+ * @param price the price of the book
+ * @param isbn  the ISBN of the book
+ */
+public record PriceKey(double price, String isbn) implements Comparable<PriceKey> {
+
+    /**
+     * Returns the position of the given book.
+     *
+     * @param book a book with a price
+     * @return the position of the book in the index
+     */
+    public static PriceKey of(Book book) {
+        return new PriceKey(book.price(), book.isbn());
+    }
+
+    /**
+     * Parses the string form of a position, as sent back by a client paging through a listing.
+     *
+     * @param value the position in the form {@code price:isbn}
+     * @return the parsed position
+     * @throws IllegalArgumentException if the value is not a valid position
+     */
+    public static PriceKey valueOf(String value) {
+        int colon = value.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Not a price cursor: " + value);
+        }
+        return new PriceKey(Double.parseDouble(value.substring(0, colon)), value.substring(colon + 1));
+    }
+
+    @Override
+    public int compareTo(PriceKey other) {
+        int order = Double.compare(price, other.price);
+        return order != 0 ? order : isbn.compareTo(other.isbn);
+    }
+
+    @Override
+    public String toString() {
+        return price + ":" + isbn;
+    }
+}
@@ -0,0 +1,305 @@
+package org.catalog.index;
+
+import org.catalog.config.CatalogProperties;
+import org.catalog.model.Book;
+import org.catalog.store.BookStoreListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory trigram index over the titles, and optionally the authors, of the books in
+ * the catalog, answering relevance-ranked free-text queries.
+ * <p>
+ * Each book gets a dense {@code int} document id and every trigram of its normalised text maps
+ * to a sorted {@link PostingList} of those ids. A query is split into trigrams and only the
+ * posting lists of those trigrams are read: a book sharing at least the configured fraction of
+ * the query's trigrams must appear in one of the rarest lists, so candidates are collected from
+ * those and counted against the remaining lists with binary search. Candidates are ranked by
+ * the Jaccard similarity of their trigram sets with the query's and the best ones are kept in
+ * a bounded heap.
+ * <p>
+ * The index follows the store as a {@link BookStoreListener}: an edit moves the book only
+ * between the posting lists of the trigrams that changed, and the ids of removed books are
+ * reused. Queries share a read lock and writers take the write lock.
+ */
+@Component
+public class TitleSearchIndex implements BookStoreListener {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<String, Integer> documents = new HashMap<>();
+    private String[] isbns = new String[1024];
+    private int[] gramCounts = new int[1024];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+    private final boolean includeAuthor;
+    private final double minMatch;
+
+    /**
+     * Constructs a {@code TitleSearchIndex} with the search settings of the catalog.
+     *
+     * @param catalogProperties the catalog configuration containing the search settings
+     */
+    @Autowired
+    public TitleSearchIndex(CatalogProperties catalogProperties) {
+        this(catalogProperties.search().includeAuthor(), catalogProperties.search().minMatch());
+    }
+
+    /**
+     * Constructs a {@code TitleSearchIndex}.
+     *
+     * @param includeAuthor whether the author is indexed alongside the title
+     * @param minMatch      the fraction of the query's trigrams a book must contain to be returned
+     */
+    public TitleSearchIndex(boolean includeAuthor, double minMatch) {
+        this.includeAuthor = includeAuthor;
+        this.minMatch = Math.min(1.0, Math.max(0.0, minMatch));
+    }
+
+    @Override
+    public void onChange(Book previous, Book current, long generation) {
+        long[] previousGrams = previous == null ? new long[0] : grams(text(previous));
+        long[] currentGrams = current == null ? new long[0] : grams(text(current));
+        if (previous != null && current != null && Arrays.equals(previousGrams, currentGrams)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (current == null) {
+                var id = documents.remove(previous.isbn());
+                if (id != null) {
+                    unindex(id, previousGrams);
+                    isbns[id] = null;
+                    release(id);
+                }
+                return;
+            }
+            var id = documents.get(current.isbn());
+            if (id == null) {
+                id = allocate(current.isbn());
+                documents.put(current.isbn(), id);
+                move(id, new long[0], currentGrams);
+            } else {
+                move(id, previousGrams, currentGrams);
+            }
+            gramCounts[id] = currentGrams.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ISBNs of the books best matching the query, most relevant first.
+     *
+     * @param query the free text to look for
+     * @param limit the maximum number of ISBNs to return
+     * @return up to {@code limit} ISBNs ordered by decreasing relevance
+     */
+    public List<String> search(String query, int limit) {
+        long[] queryGrams = grams(query);
+        if (queryGrams.length == 0 || limit < 1) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            var lists = new ArrayList<PostingList>(queryGrams.length);
+            for (long gram : queryGrams) {
+                var list = postings.get(gram);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            lists.sort((left, right) -> Integer.compare(left.size(), right.size()));
+            int required = Math.max(1, (int) Math.ceil(queryGrams.length * minMatch));
+            int candidateLists = lists.size() - required + 1;
+            if (candidateLists < 1) {
+                return List.of();
+            }
+            var top = new PriorityQueue<Hit>(limit + 1);
+            var cursors = new int[candidateLists];
+            int[] probes = new int[lists.size()];
+            while (true) {
+                int id = Integer.MAX_VALUE;
+                for (int i = 0; i < candidateLists; i++) {
+                    if (cursors[i] < lists.get(i).size()) {
+                        id = Math.min(id, lists.get(i).get(cursors[i]));
+                    }
+                }
+                if (id == Integer.MAX_VALUE) {
+                    break;
+                }
+                int matches = 0;
+                for (int i = 0; i < candidateLists; i++) {
+                    var list = lists.get(i);
+                    if (cursors[i] < list.size() && list.get(cursors[i]) == id) {
+                        cursors[i]++;
+                        matches++;
+                    }
+                }
+                for (int i = candidateLists; i < lists.size(); i++) {
+                    int position = lists.get(i).search(probes[i], id);
+                    if (position >= 0) {
+                        matches++;
+                        probes[i] = position + 1;
+                    } else {
+                        probes[i] = -position - 1;
+                    }
+                }
+                if (matches >= required) {
+                    double score = (double) matches / (queryGrams.length + gramCounts[id] - matches);
+                    top.add(new Hit(id, score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            var hits = new ArrayList<Hit>(top);
+            hits.sort(null);
+            var result = new ArrayList<String>(hits.size());
+            for (int i = hits.size() - 1; i >= 0; i--) {
+                result.add(isbns[hits.get(i).id()]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of books in the index.
+     *
+     * @return the number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String text(Book book) {
+        var title = book.title() == null ? "" : book.title();
+        return includeAuthor && book.author() != null ? title + " " + book.author() : title;
+    }
+
+    /**
+     * Splits the text into the distinct trigrams of its lower-cased words, each word padded
+     * with a space on both sides. A trigram is packed into a {@code long} of three 16-bit chars.
+     */
+    static long[] grams(String text) {
+        if (text == null || text.isBlank()) {
+            return new long[0];
+        }
+        var normalized = text.toLowerCase(Locale.ROOT);
+        var grams = new long[normalized.length() + 1];
+        int count = 0;
+        char first = ' ';
+        char second = ' ';
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (!Character.isLetterOrDigit(c)) {
+                if (second != ' ') {
+                    grams[count++] = pack(first, second, ' ');
+                }
+                first = ' ';
+                second = ' ';
+                continue;
+            }
+            if (second != ' ') {
+                grams[count++] = pack(first, second, c);
+            }
+            first = second;
+            second = c;
+        }
+        var distinct = Arrays.copyOf(grams, count);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+
+    private static long pack(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    /**
+     * Moves the document out of the posting lists of the trigrams it lost and into those of
+     * the trigrams it gained, walking both sorted arrays together, so that the lists of the
+     * trigrams it kept are not touched.
+     */
+    private void move(int id, long[] previous, long[] current) {
+        int i = 0;
+        int j = 0;
+        while (i < previous.length || j < current.length) {
+            if (j == current.length || i < previous.length && previous[i] < current[j]) {
+                unindex(id, previous[i++]);
+            } else if (i == previous.length || current[j] < previous[i]) {
+                postings.computeIfAbsent(current[j++], key -> new PostingList()).add(id);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private void unindex(int id, long[] grams) {
+        for (long gram : grams) {
+            unindex(id, gram);
+        }
+    }
+
+    private void unindex(int id, long gram) {
+        var list = postings.get(gram);
+        if (list != null) {
+            list.remove(id);
+            if (list.size() == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private int allocate(String isbn) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == isbns.length) {
+                isbns = Arrays.copyOf(isbns, id * 2);
+                gramCounts = Arrays.copyOf(gramCounts, id * 2);
+            }
+        }
+        isbns[id] = isbn;
+        return id;
+    }
+
+    private void release(int id) {
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    private record Hit(int id, double score) implements Comparable<Hit> {
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(other.id, id);
+        }
+    }
+}
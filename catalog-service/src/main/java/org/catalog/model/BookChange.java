@@ -0,0 +1,24 @@
+package org.catalog.model;
+
+/**
+ * Represents one mutation of the catalog as recorded in the change feed.
+ *
+ * @param sequence   the position of the change in the feed, increasing by one per change
+ * @param generation the catalog generation published by the change
+ * @param type       the kind of change
+ * @param isbn       the ISBN of the changed book
+ * @param book       the book after the change, or {@code null} if it was removed
+ */
+public record BookChange(long sequence, long generation, Type type, String isbn, Book book) {
+
+    /**
+     * The kinds of change a book goes through.
+     * <p>
+     * - ADDED: the book was added to the catalog.
+     * - UPDATED: the details of the book were edited.
+     * - REMOVED: the book was removed from the catalog.
+     */
+    public enum Type {
+        ADDED, UPDATED, REMOVED
+    }
+}
@@ -0,0 +1,43 @@
+package org.catalog.model;
+
+import java.util.List;
+
+/**
+ * Summarises a bulk import of books: how many rows were read and what became of them, along
+ * with the rejected rows. A rejected row never fails the rest of the import.
+ *
+ * @param rows       the number of rows read
+ * @param imported   the number of books added to the catalog
+ * @param duplicates the number of rows skipped because their ISBN was already in the catalog
+ * @param invalid    the number of rows that could not be read or failed validation
+ * @param rejections the rejected rows in input order, up to the configured number
+ * @param truncated  whether more rows were rejected than are listed in {@code rejections}
+ */
+public record BookImportResult(long rows,
+                               long imported,
+                               long duplicates,
+                               long invalid,
+                               List<Rejection> rejections,
+                               boolean truncated) {
+
+    /**
+     * A row that was not imported.
+     *
+     * @param line    the line of the input the row starts on, counting from 1
+     * @param isbn    the ISBN of the row, or {@code null} if it could not be read
+     * @param reason  why the row was rejected
+     * @param message a description of the problem
+     */
+    public record Rejection(long line, String isbn, Reason reason, String message) {
+    }
+
+    /**
+     * The reasons a row is rejected for.
+     * <p>
+     * - DUPLICATE: a book with the same ISBN is in the catalog or earlier in the input.
+     * - INVALID: the row cannot be read as a book or the book fails validation.
+     */
+    public enum Reason {
+        DUPLICATE, INVALID
+    }
+}
@@ -0,0 +1,15 @@
+package org.catalog.model;
+
+import java.util.List;
+
+/**
+ * Represents one page of a keyset-paginated listing of the catalog.
+ *
+ * @param generation the catalog generation the page was read from
+ * @param books      the books of the page in listing order, which is ISBN order unless the
+ *                   listing says otherwise
+ * @param next       the position of the last book of the page, to pass as the {@code after}
+ *                   cursor of the following page, or {@code null} if this is the last page
+ */
+public record BookPage(long generation, List<Book> books, String next) {
+}
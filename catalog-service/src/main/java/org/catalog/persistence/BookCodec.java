@@ -0,0 +1,151 @@
+package org.catalog.persistence;
+
+import org.catalog.model.Book;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding of {@link Book} records shared by the write-ahead log and the
+ * snapshot files.
+ * <p>
+ * A book is written as a flag byte telling which nullable numeric fields are present,
+ * followed by those fields, the strings as length-prefixed UTF-8 (a length of {@code -1}
+ * stands for {@code null}) and the version. Instants are stored as epoch seconds and nanos.
+ */
+public final class BookCodec {
+    private static final int HAS_ID = 1;
+    private static final int HAS_PRICE = 1 << 1;
+    private static final int HAS_CREATED_DATE = 1 << 2;
+    private static final int HAS_LAST_MODIFIED_DATE = 1 << 3;
+
+    private BookCodec() {
+    }
+
+    /**
+     * Encodes the book into a new byte array.
+     *
+     * @param book the book to encode
+     * @return the encoded book
+     */
+    public static byte[] encode(Book book) {
+        var isbn = bytes(book.isbn());
+        var title = bytes(book.title());
+        var author = bytes(book.author());
+        var publisher = bytes(book.publisher());
+        var createdBy = bytes(book.createdBy());
+        var lastModifiedBy = bytes(book.lastModifiedBy());
+        int flags = (book.id() != null ? HAS_ID : 0)
+                | (book.price() != null ? HAS_PRICE : 0)
+                | (book.createdDate() != null ? HAS_CREATED_DATE : 0)
+                | (book.lastModifiedDate() != null ? HAS_LAST_MODIFIED_DATE : 0);
+        int size = 1 + Integer.BYTES
+                + (book.id() != null ? Long.BYTES : 0)
+                + (book.price() != null ? Double.BYTES : 0)
+                + (book.createdDate() != null ? Long.BYTES + Integer.BYTES : 0)
+                + (book.lastModifiedDate() != null ? Long.BYTES + Integer.BYTES : 0)
+                + size(isbn) + size(title) + size(author) + size(publisher) + size(createdBy) + size(lastModifiedBy);
+        var buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) flags);
+        if (book.id() != null) {
+            buffer.putLong(book.id());
+        }
+        if (book.price() != null) {
+            buffer.putDouble(book.price());
+        }
+        putInstant(buffer, book.createdDate());
+        putInstant(buffer, book.lastModifiedDate());
+        putBytes(buffer, isbn);
+        putBytes(buffer, title);
+        putBytes(buffer, author);
+        putBytes(buffer, publisher);
+        putBytes(buffer, createdBy);
+        putBytes(buffer, lastModifiedBy);
+        buffer.putInt(book.version());
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a book from the buffer, advancing its position past the book.
+     *
+     * @param buffer the buffer positioned at an encoded book
+     * @return the decoded book
+     */
+    public static Book decode(ByteBuffer buffer) {
+        int flags = buffer.get();
+        Long id = (flags & HAS_ID) != 0 ? buffer.getLong() : null;
+        Double price = (flags & HAS_PRICE) != 0 ? buffer.getDouble() : null;
+        Instant createdDate = (flags & HAS_CREATED_DATE) != 0 ? getInstant(buffer) : null;
+        Instant lastModifiedDate = (flags & HAS_LAST_MODIFIED_DATE) != 0 ? getInstant(buffer) : null;
+        var isbn = getString(buffer);
+        var title = getString(buffer);
+        var author = getString(buffer);
+        var publisher = getString(buffer);
+        var createdBy = getString(buffer);
+        var lastModifiedBy = getString(buffer);
+        int version = buffer.getInt();
+        return new Book(id, isbn, title, author, price, publisher, createdDate, lastModifiedDate,
+                createdBy, lastModifiedBy, version);
+    }
+
+    /**
+     * Encodes a string as length-prefixed UTF-8 into a new byte array.
+     *
+     * @param value the string to encode, possibly {@code null}
+     * @return the encoded string
+     */
+    public static byte[] encodeString(String value) {
+        var bytes = bytes(value);
+        var buffer = ByteBuffer.allocate(size(bytes));
+        putBytes(buffer, bytes);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a length-prefixed UTF-8 string, advancing the buffer's position past it.
+     *
+     * @param buffer the buffer positioned at an encoded string
+     * @return the decoded string, possibly {@code null}
+     */
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            var value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static void putInstant(ByteBuffer buffer, Instant instant) {
+        if (instant != null) {
+            buffer.putLong(instant.getEpochSecond()).putInt(instant.getNano());
+        }
+    }
+
+    private static Instant getInstant(ByteBuffer buffer) {
+        return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+    }
+}
@@ -0,0 +1,250 @@
+package org.catalog.persistence;
+
+import org.catalog.config.CatalogProperties;
+import org.catalog.model.Book;
+import org.catalog.store.BookStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the catalog on disk so that it survives restarts.
+ * <p>
+ * On startup the latest {@link SnapshotFile} is loaded into the {@link BookStore} and the
+ * {@link WriteAheadLog} segments written since are replayed on top of it, which also rebuilds
+ * every index listening to the store. A new log segment is then opened and registered as a
+ * listener of the store, so every later mutation is appended to it. Snapshots are taken in the
+ * background once the configured interval has elapsed or the current segment has grown past
+ * the configured size, and once more on shutdown; the segments a snapshot covers are deleted.
+ * <p>
+ * Replaying a record is idempotent, so a snapshot may safely contain changes that are also in
+ * the segments replayed after it: the log is rolled before the store is snapshotted, and every
+ * change missing from the snapshot is in a later segment.
+ * <p>
+ * A crash may leave the last segment with a torn record at its end, which is truncated away.
+ * A damaged record in any earlier segment fails the recovery instead, since skipping it and
+ * replaying the segments after it would leave the catalog silently wrong.
+ */
+@Component
+public class CatalogPersistence implements InitializingBean, DisposableBean {
+    static final String SNAPSHOT_FILE = "catalog.snapshot";
+    private static final Logger log = LoggerFactory.getLogger(CatalogPersistence.class);
+    private final BookStore bookStore;
+    private final CatalogProperties.Persistence settings;
+    private final Path directory;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+    private volatile WriteAheadLog writeAheadLog;
+    private volatile boolean recoveredFromLog;
+    private volatile long snapshotNanos;
+
+    /**
+     * Constructs a {@code CatalogPersistence} for the given store.
+     *
+     * @param bookStore         the store holding the books of the catalog
+     * @param catalogProperties the catalog configuration containing the persistence settings
+     */
+    public CatalogPersistence(BookStore bookStore, CatalogProperties catalogProperties) {
+        this.bookStore = bookStore;
+        this.settings = catalogProperties.persistence();
+        this.directory = Path.of(settings.directory());
+    }
+
+    /**
+     * Recovers the catalog from disk and starts logging its mutations, if persistence is enabled.
+     *
+     * @throws IOException if the snapshot or the log cannot be read, or a new segment cannot be created
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!settings.enabled()) {
+            log.info("Catalog persistence is disabled, the catalog is kept in memory only");
+            return;
+        }
+        Files.createDirectories(directory);
+        long nextSegment = recover();
+        var wal = new WriteAheadLog(directory, nextSegment, settings.commitDelay(),
+                (int) settings.bufferSize().toBytes());
+        bookStore.addListener(wal);
+        writeAheadLog = wal;
+        snapshotNanos = System.nanoTime();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "catalog-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotIfDue, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits until the mutations made so far are on disk. Does nothing if persistence is disabled
+     * or configured to sync in the background.
+     *
+     * @throws java.io.UncheckedIOException if the log can no longer be written
+     */
+    public void awaitDurable() {
+        var wal = writeAheadLog;
+        if (wal != null && settings.syncWrites()) {
+            wal.awaitDurable();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the latest catalog generation and deletes the log segments it covers.
+     *
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if persistence is disabled
+     */
+    public void snapshot() throws IOException {
+        var wal = writeAheadLog;
+        if (wal == null) {
+            throw new IllegalStateException("Catalog persistence is not running");
+        }
+        snapshotLock.lock();
+        try {
+            long start = System.nanoTime();
+            long segment = wal.roll();
+            var snapshot = bookStore.snapshot();
+            SnapshotFile.write(directory.resolve(SNAPSHOT_FILE), segment, snapshot);
+            for (Path file : segments(0)) {
+                if (WriteAheadLog.segmentNumber(file.getFileName().toString()) < segment) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            recoveredFromLog = false;
+            snapshotNanos = System.nanoTime();
+            log.info("Wrote a snapshot of {} books at generation {} in {} ms", snapshot.size(),
+                    snapshot.generation(), TimeUnit.NANOSECONDS.toMillis(snapshotNanos - start));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background snapshots, writes a final snapshot if the catalog changed and closes
+     * the log.
+     *
+     * @throws IOException if the log cannot be flushed or closed
+     */
+    @Override
+    public void destroy() throws IOException {
+        var wal = writeAheadLog;
+        if (wal == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (recoveredFromLog || !wal.isSegmentEmpty()) {
+                snapshot();
+            }
+        } finally {
+            writeAheadLog = null;
+            wal.close();
+        }
+    }
+
+    /**
+     * Loads the snapshot and replays the log segments following it, truncating the last one to
+     * its last whole record.
+     *
+     * @return the number of the segment to continue the log in
+     * @throws IllegalStateException if a segment other than the last one is damaged
+     */
+    private long recover() throws IOException {
+        long start = System.nanoTime();
+        long firstSegment = 0;
+        var snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) {
+            firstSegment = SnapshotFile.read(snapshotFile, bookStore::putIfAbsent);
+        }
+        int loaded = bookStore.size();
+        long nextSegment = firstSegment;
+        long replayed = 0;
+        var segments = segments(firstSegment);
+        for (int i = 0; i < segments.size(); i++) {
+            var file = segments.get(i);
+            long size = Files.size(file);
+            var counter = new long[1];
+            long valid = WriteAheadLog.replay(file,
+                    book -> {
+                        counter[0]++;
+                        upsert(book);
+                    },
+                    isbn -> {
+                        counter[0]++;
+                        bookStore.remove(isbn);
+                    });
+            if (valid < size && i < segments.size() - 1) {
+                throw new IllegalStateException("The catalog log segment " + file + " is damaged at byte " + valid);
+            }
+            if (valid < size) {
+                log.warn("Discarding {} bytes of torn or corrupt records at the end of {}", size - valid, file);
+                try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                    channel.force(true);
+                }
+            }
+            replayed += counter[0];
+            nextSegment = WriteAheadLog.segmentNumber(file.getFileName().toString()) + 1;
+        }
+        recoveredFromLog = replayed > 0;
+        log.info("Recovered {} books ({} from the snapshot, {} log records replayed) in {} ms",
+                bookStore.size(), loaded, replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return nextSegment;
+    }
+
+    private void upsert(Book book) {
+        if (bookStore.computeIfPresent(book.isbn(), existingBook -> book) == null) {
+            bookStore.putIfAbsent(book);
+        }
+    }
+
+    private void snapshotIfDue() {
+        var wal = writeAheadLog;
+        if (wal == null) {
+            return;
+        }
+        boolean logFull = wal.segmentBytes() >= settings.snapshotLogSize().toBytes();
+        boolean intervalElapsed = System.nanoTime() - snapshotNanos >= settings.snapshotInterval().toNanos()
+                && (recoveredFromLog || !wal.isSegmentEmpty());
+        if (logFull || intervalElapsed) {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException ex) {
+                log.error("Failed to write a snapshot of the catalog", ex);
+            }
+        }
+    }
+
+    /**
+     * Lists the log segments numbered from the given one on, in order.
+     */
+    private List<Path> segments(long from) throws IOException {
+        var segments = new ArrayList<Path>();
+        try (var files = Files.list(directory)) {
+            files.filter(file -> WriteAheadLog.segmentNumber(file.getFileName().toString()) >= from)
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,104 @@
+package org.catalog.persistence;
+
+import org.catalog.model.Book;
+import org.catalog.store.BookSnapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A point-in-time image of the catalog, written from a {@link BookSnapshot} and paired with
+ * the write-ahead log segment that continues it.
+ * <p>
+ * The file starts with a magic number, a format version, the number of the first log segment
+ * to replay on top of it and the number of books, followed by the length-prefixed encoded
+ * books and a CRC32 of everything before it. It is written to a temporary file, synced and
+ * atomically moved into place, so a crash never leaves a partial snapshot behind. It is read
+ * back through a memory mapping.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x43415453;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot atomically to the given file.
+     *
+     * @param file       the snapshot file to replace
+     * @param walSegment the first log segment holding changes newer than the snapshot
+     * @param snapshot   the books to write
+     * @throws IOException if the snapshot cannot be written
+     */
+    static void write(Path file, long walSegment, BookSnapshot snapshot) throws IOException {
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var crc = new CRC32();
+            var out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(walSegment);
+            out.writeLong(snapshot.size());
+            for (Book book : snapshot.books()) {
+                var bytes = BookCodec.encode(book);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads every book of the snapshot file.
+     *
+     * @param file  the snapshot file
+     * @param books receives the books, in ISBN order
+     * @return the first log segment to replay on top of the snapshot
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    static long read(Path file, Consumer<Book> books) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " has an invalid size of " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            var crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - Integer.BYTES));
+            if ((int) crc.getValue() != buffer.getInt((int) size - Integer.BYTES)) {
+                throw new IOException("Snapshot " + file + " is corrupt");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("Snapshot " + file + " has an unsupported format");
+            }
+            long walSegment = buffer.getLong();
+            long count = buffer.getLong();
+            for (long i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                books.accept(BookCodec.decode(record));
+                buffer.position(buffer.position() + length);
+            }
+            return walSegment;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.catalog.persistence;
+
+import org.catalog.model.Book;
+import org.catalog.store.BookStoreListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, group-committed log of the mutations of the catalog, split into numbered
+ * segment files.
+ * <p>
+ * The log listens to the {@link org.catalog.store.BookStore}: each change is encoded on the
+ * writer's thread and copied into an in-memory buffer, which keeps the per-ISBN order of the
+ * store and costs no I/O. A dedicated flusher thread swaps that buffer with a spare one, writes
+ * it through a {@link FileChannel} and forces it to disk, so that every record appended while
+ * the previous batch was being synced is committed by a single {@code fsync}. The flusher may
+ * linger for a configurable time to let a batch grow. Callers that need durability wait with
+ * {@link #awaitDurable()} after their mutation, outside the store's locks.
+ * <p>
+ * A record is framed as {@code [length][crc32][op][payload]}, where the payload is an encoded
+ * book for a {@link #PUT} and an encoded ISBN for a {@link #DELETE}. Replaying a log applies the
+ * records in order and stops at the first torn or corrupt record.
+ */
+final class WriteAheadLog implements BookStoreListener, Closeable {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private final Path directory;
+    private final long lingerNanos;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition appended = appendLock.newCondition();
+    private final Condition drained = appendLock.newCondition();
+    private final Condition synced = appendLock.newCondition();
+    private final Thread flusher;
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long appendedRecords;
+    private long durableRecords;
+    private long segmentRecords;
+    private long segment;
+    private FileChannel channel;
+    private volatile long segmentBytes;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens a new log segment and starts the flusher thread.
+     *
+     * @param directory  the directory holding the segment files
+     * @param segment    the number of the first segment to write, which must not exist yet
+     * @param linger     how long the flusher waits for a batch to grow before syncing it
+     * @param bufferSize the size of each of the two in-memory batch buffers
+     * @throws IOException if the segment cannot be created
+     */
+    WriteAheadLog(Path directory, long segment, Duration linger, int bufferSize) throws IOException {
+        this.directory = directory;
+        this.lingerNanos = linger.toNanos();
+        this.pending = ByteBuffer.allocateDirect(bufferSize);
+        this.spare = ByteBuffer.allocateDirect(bufferSize);
+        this.segment = segment;
+        this.channel = open(directory, segment);
+        this.flusher = new Thread(this::flushLoop, "catalog-wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Returns the path of the given segment file.
+     *
+     * @param directory the directory holding the segment files
+     * @param segment   the segment number
+     * @return the path of the segment
+     */
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("wal-%016d.log", segment));
+    }
+
+    /**
+     * Parses the segment number from a segment file name.
+     *
+     * @param fileName the name of a file in the log directory
+     * @return the segment number, or {@code -1} if the file is not a segment
+     */
+    static long segmentNumber(String fileName) {
+        if (!fileName.startsWith("wal-") || !fileName.endsWith(".log")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(4, fileName.length() - 4));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void onChange(Book previous, Book current, long generation) {
+        byte op = current != null ? PUT : DELETE;
+        byte[] payload = current != null ? BookCodec.encode(current) : BookCodec.encodeString(previous.isbn());
+        var crc = new CRC32();
+        crc.update(op);
+        crc.update(payload);
+        int length = 1 + payload.length;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            while (pending.remaining() < HEADER_BYTES + length) {
+                if (pending.position() == 0) {
+                    pending = ByteBuffer.allocateDirect(HEADER_BYTES + length);
+                    break;
+                }
+                appended.signal();
+                drained.awaitUninterruptibly();
+                ensureOpen();
+            }
+            pending.putInt(length).putInt((int) crc.getValue()).put(op).put(payload);
+            appendedRecords++;
+            segmentRecords++;
+            appended.signal();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far, including the caller's own, is on disk.
+     *
+     * @throws UncheckedIOException if the log failed to write or sync a batch
+     */
+    void awaitDurable() {
+        appendLock.lock();
+        try {
+            long target = appendedRecords;
+            while (durableRecords < target) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Syncs the current segment and continues the log in a new one. Every record appended
+     * before the call ends up in a segment numbered below the returned one.
+     *
+     * @return the number of the new segment
+     * @throws IOException if the current segment cannot be synced or the new one created
+     */
+    long roll() throws IOException {
+        flushLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                ensureOpen();
+                write(pending);
+                channel.force(false);
+                durableRecords = appendedRecords;
+                synced.signalAll();
+                drained.signalAll();
+                channel.close();
+                segment++;
+                channel = open(directory, segment);
+                segmentBytes = 0;
+                segmentRecords = 0;
+                return segment;
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes written to the current segment.
+     *
+     * @return the size of the current segment
+     */
+    long segmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Tells whether no record was appended since the current segment was opened.
+     *
+     * @return {@code true} if the current segment holds no record
+     */
+    boolean isSegmentEmpty() {
+        appendLock.lock();
+        try {
+            return segmentRecords == 0;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes every appended record, stops the flusher and closes the current segment.
+     *
+     * @throws IOException if the last batch cannot be written or synced
+     */
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appended.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flushLock.lock();
+        appendLock.lock();
+        try {
+            if (failure == null) {
+                write(pending);
+                channel.force(false);
+                durableRecords = appendedRecords;
+            }
+            synced.signalAll();
+            drained.signalAll();
+            channel.close();
+        } finally {
+            appendLock.unlock();
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the records of a segment file in order.
+     *
+     * @param file   the segment to replay
+     * @param put    receives every book written by a {@link #PUT} record
+     * @param delete receives the ISBN of every {@link #DELETE} record
+     * @return the number of bytes holding complete, valid records; anything beyond is a torn tail
+     * @throws IOException if the segment cannot be read
+     */
+    static long replay(Path file, Consumer<Book> put, Consumer<String> delete) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Write-ahead log segment " + file + " exceeds 2 GiB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            var crc = new CRC32();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 1 || length > buffer.remaining()) {
+                    return start;
+                }
+                var record = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                byte op = record.get();
+                if (op == PUT) {
+                    put.accept(BookCodec.decode(record));
+                } else if (op == DELETE) {
+                    delete.accept(BookCodec.getString(record));
+                } else {
+                    return start;
+                }
+                buffer.position(start + HEADER_BYTES + length);
+            }
+            return buffer.position();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            appendLock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+            } finally {
+                appendLock.unlock();
+            }
+            flushLock.lock();
+            try {
+                ByteBuffer batch;
+                long batchRecords;
+                appendLock.lock();
+                try {
+                    if (pending.position() == 0) {
+                        continue;
+                    }
+                    long remaining = lingerNanos;
+                    while (remaining > 0 && !closed && pending.position() < pending.capacity() / 2) {
+                        remaining = appended.awaitNanos(remaining);
+                    }
+                    batch = pending;
+                    batchRecords = appendedRecords;
+                    pending = spare;
+                    spare = null;
+                    drained.signalAll();
+                } finally {
+                    appendLock.unlock();
+                }
+                write(batch);
+                channel.force(false);
+                appendLock.lock();
+                try {
+                    spare = batch;
+                    durableRecords = Math.max(durableRecords, batchRecords);
+                    synced.signalAll();
+                } finally {
+                    appendLock.unlock();
+                }
+            } catch (IOException ex) {
+                log.error("Write-ahead log failed, catalog changes are no longer durable", ex);
+                appendLock.lock();
+                try {
+                    failure = ex;
+                    synced.signalAll();
+                    drained.signalAll();
+                } finally {
+                    appendLock.unlock();
+                }
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffer to the current segment and clears it. Callers hold the flush lock.
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensureOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    private static FileChannel open(Path directory, long segment) throws IOException {
+        return FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+}
@@ -1,33 +1,242 @@
 package org.catalog.service;
 
+import org.catalog.changes.ChangeJournal;
+import org.catalog.config.CatalogProperties;
 import org.catalog.exception.BookAlreadyExistsException;
 import org.catalog.exception.BookNotFoundException;
+import org.catalog.exception.BookVersionMismatchException;
+import org.catalog.exception.GenerationNotRetainedException;
+import org.catalog.exception.InvalidBookException;
+import org.catalog.exception.LookupTooLargeException;
+import org.catalog.index.AttributeIndex;
+import org.catalog.index.BookAttributeIndexes;
+import org.catalog.index.PriceKey;
+import org.catalog.index.TitleSearchIndex;
+import org.catalog.persistence.CatalogPersistence;
+import org.catalog.store.BookSnapshot;
+import org.catalog.store.BookStore;
 import org.springframework.stereotype.Service;
 import org.catalog.model.Book;
+import org.catalog.model.BookChange;
+import org.catalog.model.BookLookup;
+import org.catalog.model.BookPage;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
-import java.util.Map;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * Service class for managing books in a catalog. This class provides methods to
  * perform operations such as retrieving, adding, updating, and removing books
  * from the catalog. It also handles scenarios where a book is not found or
  * already exists.
+ * <p>
+ * The books are held by a {@link BookStore}, which makes each mutation atomic per ISBN
+ * so that concurrent requests can neither lose updates nor corrupt a listing. Each mutation
+ * returns once {@link CatalogPersistence} reports it durable, and is recorded by the
+ * {@link ChangeJournal} for consumers following the change feed.
+ * <p>
+ * The service owns the identity and audit fields of the books: an added book gets the next
+ * id of the catalog and version {@code 0}, and every edit increments the version. Together
+ * with the id, the version tells apart every state a book has had while the service runs;
+ * the next id follows the highest id found at startup, so the id of a removed book may be
+ * handed out again after a restart, which the entity tags of conditional requests allow for.
  */
 @Service
 public class BookService {
     private static final Logger log = LoggerFactory.getLogger(BookService.class);
-    Map<String, Book> bookMap = new java.util.HashMap<>();
+    private final BookStore bookStore;
+    private final BookAttributeIndexes indexes;
+    private final TitleSearchIndex searchIndex;
+    private final CatalogProperties catalogProperties;
+    private final CatalogPersistence persistence;
+    private final ChangeJournal changeJournal;
+    private final AtomicLong lastId;
+
+    /**
+     * Constructs a {@code BookService} with the given {@code BookStore}.
+     *
+     * @param bookStore         the store holding the books of the catalog
+     * @param indexes           the author, publisher and price indexes kept in sync with the store
+     * @param searchIndex       the full-text index kept in sync with the store
+     * @param catalogProperties the catalog configuration containing the listing and search settings
+     * @param persistence       the write-ahead log the mutations of the store are appended to
+     * @param changeJournal     the journal of recent mutations feeding the change feed
+     */
+    public BookService(BookStore bookStore, BookAttributeIndexes indexes, TitleSearchIndex searchIndex,
+                       CatalogProperties catalogProperties, CatalogPersistence persistence,
+                       ChangeJournal changeJournal) {
+        this.bookStore = bookStore;
+        this.indexes = indexes;
+        this.searchIndex = searchIndex;
+        this.catalogProperties = catalogProperties;
+        this.persistence = persistence;
+        this.changeJournal = changeJournal;
+        this.lastId = new AtomicLong(bookStore.snapshot().books().stream()
+                .map(Book::id)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0));
+    }
+
     /**
      * Retrieves a list of all books available in the catalog.
      *
-     * @return an {@code Iterable} containing all {@code Book} objects in the catalog,
-     * or an empty collection if no books are available
+     * @return an immutable {@code BookSnapshot} of the latest catalog generation, holding no
+     * books if the catalog is empty
+     */
+    public BookSnapshot viewBookList() {
+        var snapshot = bookStore.snapshot();
+        log.debug("Retrieved {} books from the catalog at generation {}", snapshot.size(), snapshot.generation());
+        return snapshot;
+    }
+
+    /**
+     * Retrieves the list of books the catalog held at the given generation.
+     *
+     * @param generation the catalog generation to list
+     * @return an immutable {@code BookSnapshot} of the requested generation
+     * @throws GenerationNotRetainedException if the store no longer retains the generation
+     */
+    public BookSnapshot viewBookList(long generation) {
+        var snapshot = bookStore.snapshotAt(generation);
+        if (snapshot == null) {
+            log.error("Catalog generation {} is not retained", generation);
+            throw new GenerationNotRetainedException(generation);
+        }
+        log.debug("Retrieved {} books from the catalog at generation {}", snapshot.size(), generation);
+        return snapshot;
+    }
+
+    /**
+     * Retrieves one page of the latest catalog generation, starting after the given ISBN.
+     *
+     * @param after the ISBN of the last book of the previous page, or {@code null} for the first page
+     * @param limit the requested page size, or {@code null} for the default; it is capped at the
+     *              configured maximum page size
+     * @return a {@code BookPage} with the books of the page and the cursor of the next one
+     */
+    public BookPage viewBookPage(String after, Integer limit) {
+        return page(bookStore.snapshot(), after, limit);
+    }
+
+    /**
+     * Retrieves one page of the given catalog generation, starting after the given ISBN.
+     *
+     * @param generation the catalog generation to list
+     * @param after      the ISBN of the last book of the previous page, or {@code null} for the first page
+     * @param limit      the requested page size, or {@code null} for the default; it is capped at the
+     *                   configured maximum page size
+     * @return a {@code BookPage} with the books of the page and the cursor of the next one
+     * @throws GenerationNotRetainedException if the store no longer retains the generation
+     */
+    public BookPage viewBookPage(long generation, String after, Integer limit) {
+        return page(viewBookList(generation), after, limit);
+    }
+
+    /**
+     * Retrieves the books by the given author and/or publisher, ignoring case. The lookup is
+     * served by the secondary indexes, so its cost depends on the number of matches rather than
+     * on the size of the catalog. When both values are given, the author index is scanned and
+     * its matches are filtered by publisher.
+     *
+     * @param author    the author to look up, or {@code null} to look up by publisher only
+     * @param publisher the publisher to look up, or {@code null} to look up by author only
+     * @param prefix    {@code true} to match every author or publisher starting with the given values
+     * @param limit     the maximum number of books to return, or {@code null} for the default page
+     *                  size; it is capped at the configured maximum page size
+     * @return the matching books, ordered by the looked-up attribute and then by ISBN
+     */
+    public List<Book> viewBooksBy(String author, String publisher, boolean prefix, Integer limit) {
+        log.debug("Retrieving books by author {} and publisher {} (prefix: {})", author, publisher, prefix);
+        int pageSize = pageSize(limit);
+        var snapshot = bookStore.snapshot();
+        AttributeIndex index = author != null ? indexes.authors() : indexes.publishers();
+        var books = new ArrayList<Book>();
+        for (AttributeIndex.Entry entry : index.find(author != null ? author : publisher, prefix)) {
+            var book = snapshot.get(entry.isbn());
+            if (book != null && index.matches(book, entry)
+                    && (author == null || publisher == null || indexes.publishers().matches(book, publisher, prefix))) {
+                books.add(book);
+                if (books.size() == pageSize) {
+                    break;
+                }
+            }
+        }
+        log.debug("Retrieved {} books by author {} and publisher {}", books.size(), author, publisher);
+        return books;
+    }
+
+    /**
+     * Retrieves one page of the books priced within the given range, cheapest first and then by
+     * ISBN, optionally restricted to a publisher, ignoring case. The page is a range scan of the
+     * price index, or of the publisher's own price index, so its cost depends on the size of the
+     * page rather than on the size of the catalog; the first page of a publisher without bounds
+     * is its cheapest books.
+     *
+     * @param min       the lowest price, inclusive, or {@code null} for no lower bound
+     * @param max       the highest price, inclusive, or {@code null} for no upper bound
+     * @param publisher the publisher to restrict the result to, or {@code null}
+     * @param after     the position of the last book of the previous page, or {@code null} for the first page
+     * @param limit     the requested page size, or {@code null} for the default; it is capped at the
+     *                  configured maximum page size
+     * @return a {@code BookPage} with the books of the page and the cursor of the next one
      */
-    public Iterable<Book> viewBookList() {
-        var values = bookMap.values();
-        log.debug("Retrieved {} books from the catalog", values.size());
-        return values;
+    public BookPage viewBooksByPrice(Double min, Double max, String publisher, PriceKey after, Integer limit) {
+        log.debug("Retrieving books priced from {} to {} by publisher {} after {}", min, max, publisher, after);
+        int pageSize = pageSize(limit);
+        var snapshot = bookStore.snapshot();
+        var prices = indexes.prices();
+        var books = new ArrayList<Book>();
+        PriceKey last = null;
+        String next = null;
+        for (PriceKey key : prices.find(publisher, min, max, after)) {
+            var book = snapshot.get(key.isbn());
+            if (book != null && prices.matches(book, key, publisher)) {
+                if (books.size() == pageSize) {
+                    next = last.toString();
+                    break;
+                }
+                books.add(book);
+                last = key;
+            }
+        }
+        return new BookPage(snapshot.generation(), books, next);
+    }
+
+    /**
+     * Searches the titles, and if so configured the authors, of the catalog for the given free
+     * text. Matching tolerates partial words and small typos, and only the posting lists of the
+     * query's trigrams are read, never the whole catalog.
+     *
+     * @param query the free text to look for
+     * @param limit the maximum number of books to return, or {@code null} for the default page size;
+     *              it is capped at the configured maximum number of search results
+     * @return the best matching books, most relevant first
+     */
+    public List<Book> searchBooks(String query, Integer limit) {
+        log.debug("Searching the catalog for: {}", query);
+        var search = catalogProperties.search();
+        int maxResults = Math.max(1, Math.min(limit == null ? catalogProperties.listing().defaultPageSize() : limit,
+                search.maxResults()));
+        var snapshot = bookStore.snapshot();
+        var books = new ArrayList<Book>();
+        for (String isbn : searchIndex.search(query, maxResults)) {
+            var book = snapshot.get(isbn);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        log.debug("Found {} books matching: {}", books.size(), query);
+        return books;
     }
 
     /**
@@ -38,27 +247,136 @@ public class BookService {
      */
     public Book viewBookDetails(String isbn) {
         log.debug("Retrieving book details for ISBN: {}", isbn);
-        return bookMap.computeIfAbsent(isbn, this::handleBookNotFound);
+        var book = bookStore.get(isbn);
+        if (book == null) {
+            return handleBookNotFound(isbn);
+        }
+        return book;
+    }
+
+    /**
+     * Looks up several books by ISBN in one pass. Each distinct ISBN is looked up once, and an
+     * ISBN missing from the catalog is reported in the result rather than raising an exception.
+     *
+     * @param isbns the ISBNs to look up; {@code null} elements and repetitions are ignored
+     * @return the books found and the ISBNs missing, both in the order first requested
+     * @throws LookupTooLargeException if more distinct ISBNs are requested than the maximum page size
+     */
+    public BookLookup lookupBooks(List<String> isbns) {
+        var distinct = new LinkedHashSet<String>(isbns);
+        distinct.remove(null);
+        int maximum = catalogProperties.listing().maxPageSize();
+        if (distinct.size() > maximum) {
+            throw new LookupTooLargeException(distinct.size(), maximum);
+        }
+        var found = new ArrayList<Book>(distinct.size());
+        var missing = new ArrayList<String>();
+        for (String isbn : distinct) {
+            var book = bookStore.get(isbn);
+            if (book != null) {
+                found.add(book);
+            } else {
+                missing.add(isbn);
+            }
+        }
+        log.debug("Looked up {} ISBNs, {} missing", distinct.size(), missing.size());
+        return new BookLookup(found, missing);
+    }
+
+    /**
+     * Returns the sequence number of the latest change of the catalog. A consumer that lists
+     * the catalog after reading it can follow the change feed from it without missing a change.
+     *
+     * @return the sequence number of the latest change
+     */
+    public long viewLastChange() {
+        return changeJournal.lastSequence();
+    }
+
+    /**
+     * Copies the changes of the catalog following the given sequence number, oldest first.
+     *
+     * @param after the sequence number of the last change the consumer has seen
+     * @param max   the largest number of changes to copy
+     * @param into  the list the changes are appended to
+     * @return {@code false} if the changes following {@code after} are no longer retained, in
+     *         which case the consumer has to list the catalog again
+     */
+    public boolean viewChanges(long after, int max, List<BookChange> into) {
+        return changeJournal.read(after, max, into);
+    }
+
+    /**
+     * Waits until the catalog changes after the given sequence number.
+     *
+     * @param after   the sequence number of the last change the consumer has seen
+     * @param timeout the longest time to wait
+     * @return {@code true} if a change follows {@code after}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitChanges(long after, Duration timeout) throws InterruptedException {
+        return changeJournal.await(after, timeout);
     }
 
     /**
      * Adds a new book to the catalog. If a book with the same ISBN already exists
-     * in the catalog, an exception is thrown.
+     * in the catalog, an exception is thrown. The stored book gets a new id, version
+     * {@code 0} and the current time as creation and modification date.
      *
      * @param book the {@code Book} object to be added to the catalog
      * @return the added {@code Book} object after successful persistence
+     * @throws InvalidBookException       if the book has no ISBN
      * @throws BookAlreadyExistsException if a book with the same ISBN already exists
      */
     public Book addBookToCatalog(Book book) {
         log.debug("Adding book to catalog: {}, ISBN: {}", book, book.isbn());
-        return bookMap.compute(book.isbn(), (isbn, existingBook) -> {
-            if (existingBook != null) {
-                log.error("Book with ISBN {} already exists in the catalog", isbn);
-                throw new BookAlreadyExistsException(isbn);
-            }
-            log.debug("Adding successfully book to catalog: {}, ISBN: {}", book, book.isbn());
-            return book;
-        });
+        validate(book);
+        var newBook = newBook(book, Instant.now());
+        var existingBook = bookStore.putIfAbsent(newBook);
+        if (existingBook != null) {
+            log.error("Book with ISBN {} already exists in the catalog", book.isbn());
+            throw new BookAlreadyExistsException(book.isbn());
+        }
+        persistence.awaitDurable();
+        log.debug("Adding successfully book to catalog: {}, ISBN: {}", newBook, book.isbn());
+        return newBook;
+    }
+
+    /**
+     * Checks that a book can be added to the catalog, which identifies and locks every book by
+     * its ISBN and so cannot hold a book without one.
+     *
+     * @param book the book to be added
+     * @throws InvalidBookException if the book has no ISBN
+     */
+    public void validate(Book book) {
+        if (book.isbn() == null || book.isbn().isBlank()) {
+            throw new InvalidBookException("The book ISBN must be defined.");
+        }
+    }
+
+    /**
+     * Adds a batch of new books to the catalog in the given order. Unlike
+     * {@link #addBookToCatalog(Book)}, a book whose ISBN is already in the catalog, including
+     * earlier in the same batch, is skipped rather than failing the call. The batch returns once
+     * all of its books are durable, so the whole batch shares the wait for the log to be synced.
+     *
+     * @param books the books to be added to the catalog
+     * @return the added books in the order given, with {@code null} in place of every book
+     *         whose ISBN already existed
+     * @throws InvalidBookException if a book has no ISBN, in which case no book is added
+     */
+    public List<Book> addBooksToCatalog(List<Book> books) {
+        log.debug("Adding {} books to catalog", books.size());
+        books.forEach(this::validate);
+        var now = Instant.now();
+        var added = new ArrayList<Book>(books.size());
+        for (Book book : books) {
+            var newBook = newBook(book, now);
+            added.add(bookStore.putIfAbsent(newBook) == null ? newBook : null);
+        }
+        persistence.awaitDurable();
+        return added;
     }
 
     /**
@@ -67,11 +385,24 @@ public class BookService {
      * @param isbn the ISBN of the book to be removed from the catalog
      */
     public void removeBookFromCatalog(String isbn) {
+        removeBookFromCatalog(isbn, book -> true);
+    }
+
+    /**
+     * Removes a book from the catalog based on its ISBN, provided the stored book still
+     * satisfies the precondition. The precondition is checked atomically with the removal.
+     *
+     * @param isbn         the ISBN of the book to be removed from the catalog
+     * @param precondition the test the stored book must pass, such as matching a known version
+     * @throws BookVersionMismatchException if the stored book does not satisfy the precondition
+     */
+    public void removeBookFromCatalog(String isbn, Predicate<Book> precondition) {
         log.debug("Removing book from catalog: {}", isbn);
-        var removedBook = bookMap.remove(isbn);
+        var removedBook = bookStore.removeIf(isbn, book -> checkPrecondition(book, precondition));
         if (removedBook == null) {
             handleBookNotFound(isbn);
         }
+        persistence.awaitDurable();
         log.debug("Book removed from catalog: {}, ISBN: {}", removedBook, isbn);
     }
 
@@ -84,28 +415,87 @@ public class BookService {
      * @return the updated {@code Book} object after successful modification, or {@code null} if no book is found with the given ISBN
      */
     public Book editBookDetails(String isbn, Book book) {
+        return editBookDetails(isbn, book, existingBook -> true);
+    }
+
+    /**
+     * Updates the details of an existing book in the catalog based on its ISBN, provided the
+     * stored book still satisfies the precondition. The precondition is checked atomically with
+     * the update, which increments the version of the book and sets its modification date.
+     *
+     * @param isbn         the ISBN of the book to be updated
+     * @param book         the {@code Book} object containing the updated details of the book
+     * @param precondition the test the stored book must pass, such as matching a known version
+     * @return the updated {@code Book} object after successful modification
+     * @throws BookVersionMismatchException if the stored book does not satisfy the precondition
+     */
+    public Book editBookDetails(String isbn, Book book, Predicate<Book> precondition) {
         log.debug("Updating book details for ISBN: {}", isbn);
-        return bookMap.compute(isbn, (i, existingBook) -> {
-            if (existingBook != null) {
-                var bookToUpdate = new Book(
-                        existingBook.id(),
-                        existingBook.isbn(),
-                        book.title(),
-                        book.author(),
-                        book.price(),
-                        book.publisher(),
-                        existingBook.createdDate(),
-                        existingBook.lastModifiedDate(),
-                        existingBook.createdBy(),
-                        existingBook.lastModifiedBy(),
-                        existingBook.version());
-                bookMap.put(isbn, bookToUpdate);
-                log.debug("Book details updated successfully for ISBN: {}", isbn);
-                return bookToUpdate;
-            }
-            handleBookNotFound(isbn);
-            return book;
+        var updatedBook = bookStore.computeIfPresent(isbn, existingBook -> {
+            checkPrecondition(existingBook, precondition);
+            return new Book(
+                    existingBook.id(),
+                    existingBook.isbn(),
+                    book.title(),
+                    book.author(),
+                    book.price(),
+                    book.publisher(),
+                    existingBook.createdDate(),
+                    Instant.now(),
+                    existingBook.createdBy(),
+                    existingBook.lastModifiedBy(),
+                    existingBook.version() + 1);
         });
+        if (updatedBook == null) {
+            return handleBookNotFound(isbn);
+        }
+        persistence.awaitDurable();
+        log.debug("Book details updated successfully for ISBN: {}", isbn);
+        return updatedBook;
+    }
+
+    /**
+     * Cuts one page out of the snapshot. One book beyond the page is read to tell whether a
+     * following page exists, so the last page never carries a cursor to an empty one.
+     */
+    private BookPage page(BookSnapshot snapshot, String after, Integer limit) {
+        int pageSize = pageSize(limit);
+        var books = snapshot.booksAfter(after, pageSize + 1);
+        String next = null;
+        if (books.size() > pageSize) {
+            books = books.subList(0, pageSize);
+            next = books.get(pageSize - 1).isbn();
+        }
+        log.debug("Retrieved {} books after ISBN {} at generation {}", books.size(), after, snapshot.generation());
+        return new BookPage(snapshot.generation(), books, next);
+    }
+
+    private Book newBook(Book book, Instant now) {
+        return new Book(
+                lastId.incrementAndGet(),
+                book.isbn(),
+                book.title(),
+                book.author(),
+                book.price(),
+                book.publisher(),
+                now,
+                now,
+                book.createdBy(),
+                book.lastModifiedBy(),
+                0);
+    }
+
+    private boolean checkPrecondition(Book book, Predicate<Book> precondition) {
+        if (!precondition.test(book)) {
+            log.error("Book with ISBN {} does not match the expected version, found version {}", book.isbn(), book.version());
+            throw new BookVersionMismatchException(book.isbn());
+        }
+        return true;
+    }
+
+    private int pageSize(Integer limit) {
+        var listing = catalogProperties.listing();
+        return Math.max(1, Math.min(limit == null ? listing.defaultPageSize() : limit, listing.maxPageSize()));
     }
 
     /**
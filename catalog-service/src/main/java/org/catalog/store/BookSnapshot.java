@@ -0,0 +1,99 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An immutable, point-in-time view of the catalog at a given generation.
+ * <p>
+ * A snapshot wraps the root of a persistent {@link BookTree}, so taking one costs nothing
+ * beyond reading a reference and it can be iterated or serialised at leisure while writers
+ * keep publishing newer generations. Books are exposed in ISBN order.
+ * <p>
+ * Stores that do not keep a tree, such as {@link CompactBookStore}, extend this class with a
+ * view reading their own structures; those views are documented by the store.
+ */
+public class BookSnapshot {
+    private final long generation;
+    private final BookTree.Node root;
+
+    BookSnapshot(long generation, BookTree.Node root) {
+        this.generation = generation;
+        this.root = root;
+    }
+
+    /**
+     * Returns the generation of the catalog captured by this snapshot. Every successful
+     * mutation of the catalog advances the generation by one.
+     *
+     * @return the generation of this snapshot
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of books in this snapshot.
+     *
+     * @return the number of books
+     */
+    public int size() {
+        return BookTree.size(root);
+    }
+
+    /**
+     * Returns the book stored under the given ISBN in this snapshot.
+     *
+     * @param isbn the ISBN of the book to look up
+     * @return the {@code Book}, or {@code null} if the snapshot holds none with that ISBN
+     */
+    public Book get(String isbn) {
+        return BookTree.get(root, isbn);
+    }
+
+    /**
+     * Returns the books of this snapshot in ISBN order.
+     *
+     * @return an unmodifiable collection view backed by the snapshot
+     */
+    public Collection<Book> books() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Book> iterator() {
+                return BookTree.iterator(root, null);
+            }
+
+            @Override
+            public int size() {
+                return BookTree.size(root);
+            }
+        };
+    }
+
+    /**
+     * Returns the books of this snapshot that follow the given ISBN, in ISBN order. The start
+     * of the page is found by descending the tree, so the cost depends on the page size and the
+     * depth of the tree rather than on the position of the page in the catalog.
+     *
+     * @param after the exclusive lower bound of the page, or {@code null} to start at the first book
+     * @param limit the maximum number of books to return
+     * @return up to {@code limit} books whose ISBN is greater than {@code after}
+     */
+    public List<Book> booksAfter(String after, int limit) {
+        var books = new ArrayList<Book>(Math.min(limit, size()));
+        var iterator = BookTree.iterator(root, after);
+        while (books.size() < limit && iterator.hasNext()) {
+            books.add(iterator.next());
+        }
+        return books;
+    }
+
+    BookTree.Node root() {
+        return root;
+    }
+}
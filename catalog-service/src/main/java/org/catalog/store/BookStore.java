@@ -0,0 +1,106 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage abstraction for the books held by the catalog, keyed by ISBN.
+ * <p>
+ * Implementations must be safe for concurrent use by the servlet worker threads. Every
+ * mutating operation is atomic per ISBN: a check and the write it guards can never be
+ * interleaved with another mutation of the same ISBN. Lookups return {@code null} rather
+ * than throwing so that callers such as {@link org.catalog.service.BookService} decide how a
+ * duplicate or missing book is reported.
+ * <p>
+ * Every successful mutation advances the catalog generation by one. Listings are served
+ * from a {@link BookSnapshot} of a generation rather than from the live store.
+ */
+public interface BookStore {
+
+    /**
+     * Registers a listener notified of every later successful mutation. Listeners should be
+     * registered before the store is first written to.
+     *
+     * @param listener the listener to register
+     */
+    void addListener(BookStoreListener listener);
+
+    /**
+     * Returns the book stored under the given ISBN.
+     *
+     * @param isbn the ISBN of the book to look up
+     * @return the stored {@code Book}, or {@code null} if there is none
+     */
+    Book get(String isbn);
+
+    /**
+     * Returns a snapshot of the books currently held by the store.
+     *
+     * @return a {@link BookSnapshot} of the latest generation
+     */
+    BookSnapshot snapshot();
+
+    /**
+     * Returns the snapshot of the given generation if the store still retains it.
+     * <p>
+     * The default implementation only ever retains the latest generation.
+     *
+     * @param generation the generation of the catalog to look up
+     * @return the {@link BookSnapshot} of that generation, or {@code null} if it is not retained
+     */
+    default BookSnapshot snapshotAt(long generation) {
+        var snapshot = snapshot();
+        return snapshot.generation() == generation ? snapshot : null;
+    }
+
+    /**
+     * Returns the number of books currently held by the store.
+     *
+     * @return the number of stored books
+     */
+    int size();
+
+    /**
+     * Stores the book under its ISBN unless a book with that ISBN is already present.
+     *
+     * @param book the book to store
+     * @return the book already stored under the same ISBN, or {@code null} if the given book was stored
+     */
+    Book putIfAbsent(Book book);
+
+    /**
+     * Replaces the book stored under the given ISBN with the result of the remapping function.
+     * The function runs while the ISBN is locked, so it observes the latest stored value and no
+     * other mutation of the same ISBN can happen until it returns. Exceptions thrown by the
+     * function propagate to the caller and leave the stored book untouched.
+     *
+     * @param isbn      the ISBN of the book to replace
+     * @param remapping the function computing the new book from the stored one
+     * @return the new book, or {@code null} if no book is stored under the ISBN
+     */
+    Book computeIfPresent(String isbn, UnaryOperator<Book> remapping);
+
+    /**
+     * Removes the book stored under the given ISBN.
+     *
+     * @param isbn the ISBN of the book to remove
+     * @return the removed book, or {@code null} if no book was stored under the ISBN
+     */
+    default Book remove(String isbn) {
+        return removeIf(isbn, book -> true);
+    }
+
+    /**
+     * Removes the book stored under the given ISBN if it satisfies the condition. The condition
+     * runs while the ISBN is locked, so it observes the latest stored value. Exceptions thrown
+     * by the condition propagate to the caller and leave the stored book in place.
+     *
+     * @param isbn      the ISBN of the book to remove
+     * @param condition the test the stored book must pass to be removed
+     * @return the removed book, or {@code null} if no book was stored under the ISBN or it did
+     * not satisfy the condition
+     */
+    Book removeIf(String isbn, Predicate<Book> condition);
+}
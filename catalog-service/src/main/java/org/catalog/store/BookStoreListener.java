@@ -0,0 +1,26 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+
+/**
+ * Callback notified of every successful mutation of a {@link BookStore}.
+ * <p>
+ * Listeners are invoked synchronously by the writer, after the change is visible to readers
+ * and while the ISBN is still locked. Notifications about one ISBN are therefore delivered
+ * one at a time and in the order the changes were made, which lets derived structures such
+ * as secondary indexes stay in sync with the store without locking of their own per book.
+ * Notifications about different ISBNs may arrive concurrently. Listeners must be fast and
+ * must not call back into the store's mutating methods.
+ */
+@FunctionalInterface
+public interface BookStoreListener {
+
+    /**
+     * Called after a book has been added, replaced or removed.
+     *
+     * @param previous   the book stored before the change, or {@code null} if the book was added
+     * @param current    the book stored after the change, or {@code null} if the book was removed
+     * @param generation the catalog generation published by the change
+     */
+    void onChange(Book previous, Book current, long generation);
+}
@@ -0,0 +1,211 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A persistent AVL tree of books ordered by ISBN.
+ * <p>
+ * Nodes are immutable: {@link #put} and {@link #remove} copy only the path from the root to
+ * the changed node and share every other subtree with the tree they were applied to. A root
+ * therefore stays a valid, unchanging view of the catalog for as long as it is referenced,
+ * which is what {@link BookSnapshot} relies on.
+ */
+final class BookTree {
+
+    private BookTree() {
+    }
+
+    /**
+     * An immutable tree node holding one book together with the height and size of its subtree.
+     */
+    static final class Node {
+        final Book book;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        private Node(Book book, Node left, Node right) {
+            this.book = book;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Returns the book stored under the given ISBN.
+     *
+     * @param node the root of the tree
+     * @param isbn the ISBN to look up
+     * @return the book, or {@code null} if the tree holds none with that ISBN
+     */
+    static Book get(Node node, String isbn) {
+        while (node != null) {
+            int cmp = isbn.compareTo(node.book.isbn());
+            if (cmp == 0) {
+                return node.book;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a tree holding the given book, replacing any book with the same ISBN.
+     *
+     * @param node the root of the tree
+     * @param book the book to store
+     * @return the root of the new tree
+     */
+    static Node put(Node node, Book book) {
+        if (node == null) {
+            return new Node(book, null, null);
+        }
+        int cmp = book.isbn().compareTo(node.book.isbn());
+        if (cmp < 0) {
+            return balance(node.book, put(node.left, book), node.right);
+        }
+        if (cmp > 0) {
+            return balance(node.book, node.left, put(node.right, book));
+        }
+        return new Node(book, node.left, node.right);
+    }
+
+    /**
+     * Returns a tree without the book stored under the given ISBN.
+     *
+     * @param node the root of the tree
+     * @param isbn the ISBN of the book to drop
+     * @return the root of the new tree, or {@code node} itself if it holds no such book
+     */
+    static Node remove(Node node, String isbn) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = isbn.compareTo(node.book.isbn());
+        if (cmp < 0) {
+            var left = remove(node.left, isbn);
+            return left == node.left ? node : balance(node.book, left, node.right);
+        }
+        if (cmp > 0) {
+            var right = remove(node.right, isbn);
+            return right == node.right ? node : balance(node.book, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        var successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.book, node.left, removeFirst(node.right));
+    }
+
+    /**
+     * Builds a balanced tree from books already sorted by ISBN.
+     *
+     * @param books the books, sorted by ISBN and free of duplicates
+     * @return the root of the tree
+     */
+    static Node fromSorted(List<Book> books) {
+        return build(books, 0, books.size() - 1);
+    }
+
+    /**
+     * Returns an iterator over the books of the tree in ISBN order.
+     *
+     * @param root  the root of the tree
+     * @param after the exclusive lower bound of the iteration, or {@code null} to start at the first book
+     * @return an iterator over the books whose ISBN is greater than {@code after}
+     */
+    static Iterator<Book> iterator(Node root, String after) {
+        return new InOrderIterator(root, after);
+    }
+
+    private static Node build(List<Book> books, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(books.get(middle), build(books, from, middle - 1), build(books, middle + 1, to));
+    }
+
+    private static Node removeFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.book, removeFirst(node.left), node.right);
+    }
+
+    private static Node balance(Book book, Node left, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.book, left.left, new Node(book, left.right, right));
+            }
+            return new Node(left.right.book,
+                    new Node(left.book, left.left, left.right.left),
+                    new Node(book, left.right.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.book, new Node(book, left, right.left), right.right);
+            }
+            return new Node(right.left.book,
+                    new Node(book, left, right.left.left),
+                    new Node(right.book, right.left.right, right.right));
+        }
+        return new Node(book, left, right);
+    }
+
+    private static final class InOrderIterator implements Iterator<Book> {
+        private final ArrayDeque<Node> path = new ArrayDeque<>();
+
+        private InOrderIterator(Node node, String after) {
+            while (node != null) {
+                if (after == null || node.book.isbn().compareTo(after) > 0) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public Book next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            var node = path.pop();
+            for (var next = node.right; next != null; next = next.left) {
+                path.push(next);
+            }
+            return node.book;
+        }
+    }
+}
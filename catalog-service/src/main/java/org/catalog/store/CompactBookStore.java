@@ -0,0 +1,513 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongToIntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link BookStore} that keeps the catalog in primitive, column-oriented arrays instead of
+ * {@link Book} objects, so that a large catalog costs a fraction of the heap and next to
+ * nothing to the garbage collector.
+ * <p>
+ * Every book occupies one row of the columns. ISBNs of up to 17 digits, which covers every
+ * ISBN-13, are packed into a {@code long} key together with their length; any other ISBN is
+ * given a key through a dictionary. Keys map to rows through an open-addressing
+ * {@link LongIntHashMap} and are kept in ISBN order by a {@link SortedLongList} for the
+ * listings. Authors, publishers and audit users are dictionary-encoded, titles are stored as
+ * UTF-8 in a shared byte arena that is compacted once half of it is garbage, and freed rows
+ * are reused. A {@code Book} is only materialised when a caller asks for one.
+ * <p>
+ * A read-write lock guards the columns: readers share it and writers take it exclusively, so
+ * mutations are serialised across the whole store. Snapshots are live views that read the
+ * columns as they are iterated; like those of {@link StripedBookStore} they may mix books of
+ * adjacent generations, and {@link VersionedBookStore} provides true point-in-time snapshots.
+ */
+public class CompactBookStore implements BookStore {
+    private static final int LENGTH_SHIFT = 57;
+    private static final int MAX_DIGITS = 17;
+    private static final long DIGITS_MASK = (1L << LENGTH_SHIFT) - 1;
+    private static final long DICTIONARY_KEY = 1L << 62;
+    private static final byte HAS_ID = 1;
+    private static final byte HAS_PRICE = 1 << 1;
+    private static final byte HAS_CREATED_DATE = 1 << 2;
+    private static final byte HAS_LAST_MODIFIED_DATE = 1 << 3;
+    private static final int BATCH_SIZE = 256;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<BookStoreListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongIntHashMap rows;
+    private final SortedLongList order = new SortedLongList(this::compareKeys);
+    private final StringDictionary isbns = new StringDictionary();
+    private final StringDictionary names = new StringDictionary();
+    private volatile long generation;
+
+    private long[] keys;
+    private byte[] flags;
+    private long[] ids;
+    private double[] prices;
+    private long[] createdSeconds;
+    private int[] createdNanos;
+    private long[] lastModifiedSeconds;
+    private int[] lastModifiedNanos;
+    private int[] authors;
+    private int[] publishers;
+    private int[] createdBy;
+    private int[] lastModifiedBy;
+    private int[] versions;
+    private int[] titleOffsets;
+    private int[] titleLengths;
+    private byte[] titleArena = new byte[1 << 16];
+    private int arenaUsed;
+    private int arenaGarbage;
+    private int rowCount;
+    private int[] freeRows = new int[64];
+    private int freeCount;
+
+    /**
+     * Constructs an empty {@code CompactBookStore}.
+     *
+     * @param expectedSize the number of books the store is sized for up front; it grows beyond as needed
+     */
+    public CompactBookStore(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        rows = new LongIntHashMap(capacity);
+        keys = new long[capacity];
+        flags = new byte[capacity];
+        ids = new long[capacity];
+        prices = new double[capacity];
+        createdSeconds = new long[capacity];
+        createdNanos = new int[capacity];
+        lastModifiedSeconds = new long[capacity];
+        lastModifiedNanos = new int[capacity];
+        authors = new int[capacity];
+        publishers = new int[capacity];
+        createdBy = new int[capacity];
+        lastModifiedBy = new int[capacity];
+        versions = new int[capacity];
+        titleOffsets = new int[capacity];
+        titleLengths = new int[capacity];
+    }
+
+    @Override
+    public void addListener(BookStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Book get(String isbn) {
+        lock.readLock().lock();
+        try {
+            int row = rowOf(isbn);
+            return row < 0 ? null : materialise(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BookSnapshot snapshot() {
+        return new LiveSnapshot(generation);
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Book putIfAbsent(Book book) {
+        lock.writeLock().lock();
+        try {
+            int existingRow = rowOf(book.isbn());
+            if (existingRow >= 0) {
+                return materialise(existingRow);
+            }
+            long key = numericKey(book.isbn());
+            if (key == 0) {
+                key = DICTIONARY_KEY | isbns.encode(book.isbn());
+            }
+            int row = allocateRow();
+            keys[row] = key;
+            write(row, book);
+            rows.put(key, row);
+            order.insert(key);
+            notifyListeners(null, book, ++generation);
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Book computeIfPresent(String isbn, UnaryOperator<Book> remapping) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(isbn);
+            if (row < 0) {
+                return null;
+            }
+            var existingBook = materialise(row);
+            var updatedBook = remapping.apply(existingBook);
+            arenaGarbage += Math.max(0, titleLengths[row]);
+            write(row, updatedBook);
+            notifyListeners(existingBook, updatedBook, ++generation);
+            return updatedBook;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Book removeIf(String isbn, Predicate<Book> condition) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(isbn);
+            if (row < 0) {
+                return null;
+            }
+            var removedBook = materialise(row);
+            if (!condition.test(removedBook)) {
+                return null;
+            }
+            rows.remove(keys[row]);
+            order.remove(keys[row]);
+            keys[row] = 0;
+            arenaGarbage += Math.max(0, titleLengths[row]);
+            titleLengths[row] = -1;
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            }
+            freeRows[freeCount++] = row;
+            notifyListeners(removedBook, null, ++generation);
+            return removedBook;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of distinct authors, publishers and audit users held by the name
+     * dictionary.
+     *
+     * @return the size of the name dictionary
+     */
+    public int dictionarySize() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Materialises up to {@code limit} books following the given ISBN, in ISBN order.
+     */
+    private List<Book> booksAfter(String after, int limit) {
+        lock.readLock().lock();
+        try {
+            var page = new long[Math.max(0, Math.min(limit, rows.size()))];
+            int count = order.copyAfter(probe(after), page);
+            var books = new ArrayList<Book>(count);
+            for (int i = 0; i < count; i++) {
+                books.add(materialise(rows.get(page[i])));
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the row of the ISBN, or {@code -1} if it is not stored. Callers hold the lock.
+     */
+    private int rowOf(String isbn) {
+        long key = numericKey(isbn);
+        if (key == 0) {
+            int code = isbns.find(isbn);
+            if (code == StringDictionary.NULL) {
+                return -1;
+            }
+            key = DICTIONARY_KEY | code;
+        }
+        return rows.get(key);
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == keys.length) {
+            grow(keys.length * 2);
+        }
+        return rowCount++;
+    }
+
+    private void write(int row, Book book) {
+        flags[row] = (byte) ((book.id() != null ? HAS_ID : 0)
+                | (book.price() != null ? HAS_PRICE : 0)
+                | (book.createdDate() != null ? HAS_CREATED_DATE : 0)
+                | (book.lastModifiedDate() != null ? HAS_LAST_MODIFIED_DATE : 0));
+        ids[row] = book.id() != null ? book.id() : 0;
+        prices[row] = book.price() != null ? book.price() : 0;
+        if (book.createdDate() != null) {
+            createdSeconds[row] = book.createdDate().getEpochSecond();
+            createdNanos[row] = book.createdDate().getNano();
+        }
+        if (book.lastModifiedDate() != null) {
+            lastModifiedSeconds[row] = book.lastModifiedDate().getEpochSecond();
+            lastModifiedNanos[row] = book.lastModifiedDate().getNano();
+        }
+        authors[row] = names.encode(book.author());
+        publishers[row] = names.encode(book.publisher());
+        createdBy[row] = names.encode(book.createdBy());
+        lastModifiedBy[row] = names.encode(book.lastModifiedBy());
+        versions[row] = book.version();
+        writeTitle(row, book.title());
+    }
+
+    private Book materialise(int row) {
+        byte flag = flags[row];
+        String title = titleLengths[row] < 0 ? null
+                : new String(titleArena, titleOffsets[row], titleLengths[row], StandardCharsets.UTF_8);
+        return new Book(
+                (flag & HAS_ID) != 0 ? ids[row] : null,
+                isbnOf(keys[row]),
+                title,
+                names.decode(authors[row]),
+                (flag & HAS_PRICE) != 0 ? prices[row] : null,
+                names.decode(publishers[row]),
+                (flag & HAS_CREATED_DATE) != 0 ? Instant.ofEpochSecond(createdSeconds[row], createdNanos[row]) : null,
+                (flag & HAS_LAST_MODIFIED_DATE) != 0
+                        ? Instant.ofEpochSecond(lastModifiedSeconds[row], lastModifiedNanos[row]) : null,
+                names.decode(createdBy[row]),
+                names.decode(lastModifiedBy[row]),
+                versions[row]);
+    }
+
+    /**
+     * Appends the title to the arena, first compacting the arena if most of it is garbage and
+     * growing it if it is still too small. The previous title of the row, if any, must already
+     * be counted as garbage.
+     */
+    private void writeTitle(int row, String title) {
+        if (title == null) {
+            titleLengths[row] = -1;
+            return;
+        }
+        var bytes = title.getBytes(StandardCharsets.UTF_8);
+        if (arenaUsed + bytes.length > titleArena.length) {
+            titleLengths[row] = -1;
+            if (arenaGarbage > arenaUsed / 2) {
+                compactArena(arenaUsed - arenaGarbage + bytes.length);
+            }
+            if (arenaUsed + bytes.length > titleArena.length) {
+                long required = Math.max((long) titleArena.length * 2, (long) arenaUsed + bytes.length);
+                titleArena = Arrays.copyOf(titleArena, (int) Math.min(required, Integer.MAX_VALUE - 8));
+            }
+        }
+        System.arraycopy(bytes, 0, titleArena, arenaUsed, bytes.length);
+        titleOffsets[row] = arenaUsed;
+        titleLengths[row] = bytes.length;
+        arenaUsed += bytes.length;
+    }
+
+    private void compactArena(int required) {
+        var compacted = new byte[Math.max(titleArena.length, required)];
+        int used = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (keys[row] != 0 && titleLengths[row] > 0) {
+                System.arraycopy(titleArena, titleOffsets[row], compacted, used, titleLengths[row]);
+                titleOffsets[row] = used;
+                used += titleLengths[row];
+            }
+        }
+        titleArena = compacted;
+        arenaUsed = used;
+        arenaGarbage = 0;
+    }
+
+    private void grow(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        createdSeconds = Arrays.copyOf(createdSeconds, capacity);
+        createdNanos = Arrays.copyOf(createdNanos, capacity);
+        lastModifiedSeconds = Arrays.copyOf(lastModifiedSeconds, capacity);
+        lastModifiedNanos = Arrays.copyOf(lastModifiedNanos, capacity);
+        authors = Arrays.copyOf(authors, capacity);
+        publishers = Arrays.copyOf(publishers, capacity);
+        createdBy = Arrays.copyOf(createdBy, capacity);
+        lastModifiedBy = Arrays.copyOf(lastModifiedBy, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+        titleLengths = Arrays.copyOf(titleLengths, capacity);
+    }
+
+    /**
+     * Packs an ISBN made of 1 to 17 digits into a key holding its length and numeric value.
+     *
+     * @return the key, or {@code 0} if the ISBN has another form
+     */
+    private static long numericKey(String isbn) {
+        int length = isbn.length();
+        if (length == 0 || length > MAX_DIGITS) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = isbn.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return ((long) length << LENGTH_SHIFT) | value;
+    }
+
+    private String isbnOf(long key) {
+        if ((key & DICTIONARY_KEY) != 0) {
+            return isbns.decode((int) key);
+        }
+        var digits = new char[(int) (key >>> LENGTH_SHIFT)];
+        long value = key & DIGITS_MASK;
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Orders numeric keys as their ISBN strings would be ordered, without decoding them.
+     * Dictionary keys are compared through their strings, which only happens under the lock.
+     */
+    private int compareKeys(long a, long b) {
+        if (((a | b) & DICTIONARY_KEY) != 0) {
+            return isbnOf(a).compareTo(isbnOf(b));
+        }
+        int lengthA = (int) (a >>> LENGTH_SHIFT);
+        int lengthB = (int) (b >>> LENGTH_SHIFT);
+        long valueA = a & DIGITS_MASK;
+        long valueB = b & DIGITS_MASK;
+        for (int i = lengthA; i < lengthB; i++) {
+            valueA *= 10;
+        }
+        for (int i = lengthB; i < lengthA; i++) {
+            valueB *= 10;
+        }
+        int cmp = Long.compare(valueA, valueB);
+        return cmp != 0 ? cmp : Integer.compare(lengthA, lengthB);
+    }
+
+    private LongToIntFunction probe(String after) {
+        if (after == null) {
+            return key -> 1;
+        }
+        long afterKey = numericKey(after);
+        if (afterKey != 0) {
+            return key -> compareKeys(key, afterKey);
+        }
+        return key -> isbnOf(key).compareTo(after);
+    }
+
+    private void notifyListeners(Book previous, Book current, long generation) {
+        for (BookStoreListener listener : listeners) {
+            listener.onChange(previous, current, generation);
+        }
+    }
+
+    /**
+     * A snapshot reading the live columns of the store, a batch of books at a time.
+     */
+    private final class LiveSnapshot extends BookSnapshot {
+
+        LiveSnapshot(long generation) {
+            super(generation, null);
+        }
+
+        @Override
+        public int size() {
+            return CompactBookStore.this.size();
+        }
+
+        @Override
+        public Book get(String isbn) {
+            return CompactBookStore.this.get(isbn);
+        }
+
+        @Override
+        public Collection<Book> books() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<Book> iterator() {
+                    return new BatchIterator();
+                }
+
+                @Override
+                public int size() {
+                    return CompactBookStore.this.size();
+                }
+            };
+        }
+
+        @Override
+        public List<Book> booksAfter(String after, int limit) {
+            return CompactBookStore.this.booksAfter(after, limit);
+        }
+    }
+
+    /**
+     * Iterates the store in ISBN order, materialising a batch of books per read of the columns.
+     */
+    private final class BatchIterator implements Iterator<Book> {
+        private List<Book> batch = List.of();
+        private int index;
+        private String last;
+        private boolean exhausted;
+
+        @Override
+        public boolean hasNext() {
+            if (index < batch.size()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            batch = booksAfter(last, BATCH_SIZE);
+            index = 0;
+            exhausted = batch.size() < BATCH_SIZE;
+            if (!batch.isEmpty()) {
+                last = batch.get(batch.size() - 1).isbn();
+            }
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Book next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.get(index++);
+        }
+    }
+}
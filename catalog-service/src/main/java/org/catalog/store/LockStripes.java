@@ -0,0 +1,51 @@
+package org.catalog.store;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed, power-of-two array of locks used by the stores to serialise writers per ISBN.
+ * <p>
+ * Two ISBNs share a lock only when their spread hash codes fall into the same stripe, so
+ * writers of unrelated books rarely contend while writers of the same book are always
+ * serialised.
+ */
+final class LockStripes {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Constructs {@code LockStripes} with the given number of stripes.
+     *
+     * @param stripes the requested number of stripes, or a value below one to derive it from the
+     *                number of available processors
+     */
+    LockStripes(int stripes) {
+        int requested = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors() * 4;
+        int size = requested <= 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the lock guarding the given ISBN.
+     *
+     * @param isbn the ISBN about to be mutated
+     * @return the stripe owning the ISBN
+     */
+    ReentrantLock forIsbn(String isbn) {
+        int hash = isbn.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    /**
+     * Returns the number of stripes.
+     *
+     * @return the number of stripes, always a power of two
+     */
+    int count() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,134 @@
+package org.catalog.store;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from non-zero {@code long} keys to non-negative {@code int}
+ * values, backed by two primitive arrays.
+ * <p>
+ * Collisions are resolved by linear probing and removals shift the following entries back
+ * into place, so the table never accumulates tombstones. The table doubles once it is half
+ * full. The map is not thread-safe.
+ */
+final class LongIntHashMap {
+    private static final long EMPTY = 0L;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs a {@code LongIntHashMap} able to hold the given number of entries without
+     * resizing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    LongIntHashMap(int expectedSize) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1);
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the value mapped to the key.
+     *
+     * @param key a non-zero key
+     * @return the value, or {@code -1} if the key is absent
+     */
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long candidate = keys[slot];
+            if (candidate == key) {
+                return values[slot];
+            }
+            if (candidate == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous value.
+     *
+     * @param key   a non-zero key
+     * @param value a non-negative value
+     */
+    void put(long key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @param key a non-zero key
+     * @return the value the key was mapped to, or {@code -1} if it was absent
+     */
+    int remove(long key) {
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of keys in the map
+     */
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize() {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+        Arrays.fill(oldKeys, EMPTY);
+    }
+}
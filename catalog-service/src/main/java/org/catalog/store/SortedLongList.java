@@ -0,0 +1,197 @@
+package org.catalog.store;
+
+import java.util.ArrayList;
+import java.util.function.LongToIntFunction;
+
+/**
+ * A sorted list of distinct {@code long} keys kept in fixed-size primitive blocks, ordered by
+ * a caller-supplied comparison.
+ * <p>
+ * Each block holds up to {@value #BLOCK_SIZE} keys. A key is located by a binary search over
+ * the blocks followed by one within the block, and an insertion shifts at most one block,
+ * splitting it when full. The list is not thread-safe.
+ */
+final class SortedLongList {
+    static final int BLOCK_SIZE = 512;
+
+    /**
+     * The order of the keys in the list.
+     */
+    @FunctionalInterface
+    interface Order {
+
+        /**
+         * Compares two keys.
+         *
+         * @param a the first key
+         * @param b the second key
+         * @return a negative number, zero or a positive number as {@code a} sorts before, with or after {@code b}
+         */
+        int compare(long a, long b);
+    }
+
+    private static final class Block {
+        final long[] keys = new long[BLOCK_SIZE];
+        int size;
+    }
+
+    private final Order order;
+    private final ArrayList<Block> blocks = new ArrayList<>();
+    private int size;
+
+    /**
+     * Constructs an empty {@code SortedLongList}.
+     *
+     * @param order the order of the keys
+     */
+    SortedLongList(Order order) {
+        this.order = order;
+    }
+
+    /**
+     * Inserts the key, which must not be in the list yet.
+     *
+     * @param key the key to insert
+     */
+    void insert(long key) {
+        if (blocks.isEmpty()) {
+            blocks.add(new Block());
+        }
+        int b = blockOf(key);
+        var block = blocks.get(b);
+        int index = -indexIn(block, key) - 1;
+        if (block.size == BLOCK_SIZE) {
+            var split = new Block();
+            int half = BLOCK_SIZE / 2;
+            System.arraycopy(block.keys, half, split.keys, 0, half);
+            split.size = half;
+            block.size = half;
+            blocks.add(b + 1, split);
+            if (index > half) {
+                block = split;
+                index -= half;
+            }
+        }
+        System.arraycopy(block.keys, index, block.keys, index + 1, block.size - index);
+        block.keys[index] = key;
+        block.size++;
+        size++;
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @param key the key to remove
+     * @return {@code true} if the key was in the list
+     */
+    boolean remove(long key) {
+        if (blocks.isEmpty()) {
+            return false;
+        }
+        int b = blockOf(key);
+        var block = blocks.get(b);
+        int index = indexIn(block, key);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(block.keys, index + 1, block.keys, index, block.size - index - 1);
+        if (--block.size == 0) {
+            blocks.remove(b);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Copies the keys following a position of the list, in order.
+     *
+     * @param probe compares a key with the position: negative or zero for keys at or before it,
+     *              positive for keys after it
+     * @param out   receives the keys
+     * @return the number of keys copied, at most {@code out.length}
+     */
+    int copyAfter(LongToIntFunction probe, long[] out) {
+        int lo = 0;
+        int hi = blocks.size() - 1;
+        int b = blocks.size();
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            var block = blocks.get(mid);
+            if (probe.applyAsInt(block.keys[block.size - 1]) > 0) {
+                b = mid;
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        if (b == blocks.size()) {
+            return 0;
+        }
+        var first = blocks.get(b);
+        lo = 0;
+        hi = first.size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (probe.applyAsInt(first.keys[mid]) > 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        int copied = 0;
+        for (int index = lo; copied < out.length && b < blocks.size(); b++, index = 0) {
+            var block = blocks.get(b);
+            int count = Math.min(block.size - index, out.length - copied);
+            System.arraycopy(block.keys, index, out, copied, count);
+            copied += count;
+        }
+        return copied;
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return the number of keys in the list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the last block whose first key does not sort after the key, or the
+     * first block if every block does.
+     */
+    private int blockOf(long key) {
+        int lo = 0;
+        int hi = blocks.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (order.compare(blocks.get(mid).keys[0], key) <= 0) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Binary-searches the block, returning the index of the key or {@code -(insertion point) - 1}.
+     */
+    private int indexIn(Block block, long key) {
+        int lo = 0;
+        int hi = block.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = order.compare(block.keys[mid], key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -lo - 1;
+    }
+}
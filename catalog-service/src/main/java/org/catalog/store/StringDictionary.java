@@ -0,0 +1,69 @@
+package org.catalog.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns dense {@code int} codes to strings so that a repeated value is held once and
+ * referenced by its code. Codes are never reclaimed, which suits low-cardinality values such
+ * as authors and publishers. The dictionary is not thread-safe.
+ */
+final class StringDictionary {
+    static final int NULL = -1;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[256];
+
+    /**
+     * Returns the code of the value, assigning one if the value is new.
+     *
+     * @param value the value to encode, possibly {@code null}
+     * @return the code of the value, or {@link #NULL} for {@code null}
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        var code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        int next = codes.size();
+        if (next == values.length) {
+            values = Arrays.copyOf(values, next * 2);
+        }
+        values[next] = value;
+        codes.put(value, next);
+        return next;
+    }
+
+    /**
+     * Returns the code of the value without assigning one.
+     *
+     * @param value the value to look up
+     * @return the code of the value, or {@link #NULL} if it has none
+     */
+    int find(String value) {
+        var code = codes.get(value);
+        return code == null ? NULL : code;
+    }
+
+    /**
+     * Returns the value of the code.
+     *
+     * @param code a code returned by {@link #encode(String)}
+     * @return the value, or {@code null} for {@link #NULL}
+     */
+    String decode(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    /**
+     * Returns the number of distinct values.
+     *
+     * @return the number of codes assigned
+     */
+    int size() {
+        return codes.size();
+    }
+}
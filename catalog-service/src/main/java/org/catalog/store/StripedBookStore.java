@@ -0,0 +1,132 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link BookStore} backed by a {@link ConcurrentHashMap} whose writers are serialised by a
+ * fixed array of lock stripes.
+ * <p>
+ * Readers go straight to the map and never block. Writers first take the stripe owning the
+ * ISBN, which makes every check-then-write sequence atomic per ISBN while writers of ISBNs
+ * mapped to different stripes proceed in parallel. The stripe count is rounded up to a power
+ * of two so that the stripe can be selected with a mask.
+ * <p>
+ * Snapshots are built by copying and sorting the map, so they cost time proportional to the
+ * catalog size and, as the map is only weakly consistent, may mix books of adjacent
+ * generations. {@link VersionedBookStore} provides true point-in-time snapshots.
+ */
+public class StripedBookStore implements BookStore {
+    private final ConcurrentHashMap<String, Book> books = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LockStripes stripes;
+    private final List<BookStoreListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a {@code StripedBookStore} with the given number of lock stripes.
+     *
+     * @param stripes the requested number of stripes, or a value below one to derive it from the
+     *                number of available processors
+     */
+    public StripedBookStore(int stripes) {
+        this.stripes = new LockStripes(stripes);
+    }
+
+    @Override
+    public void addListener(BookStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Book get(String isbn) {
+        return books.get(isbn);
+    }
+
+    @Override
+    public BookSnapshot snapshot() {
+        long current = generation.get();
+        var sorted = new ArrayList<>(books.values());
+        sorted.sort(Comparator.comparing(Book::isbn));
+        return new BookSnapshot(current, BookTree.fromSorted(sorted));
+    }
+
+    @Override
+    public int size() {
+        return books.size();
+    }
+
+    @Override
+    public Book putIfAbsent(Book book) {
+        var lock = stripes.forIsbn(book.isbn());
+        lock.lock();
+        try {
+            var existingBook = books.get(book.isbn());
+            if (existingBook != null) {
+                return existingBook;
+            }
+            books.put(book.isbn(), book);
+            notifyListeners(null, book, generation.incrementAndGet());
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Book computeIfPresent(String isbn, UnaryOperator<Book> remapping) {
+        var lock = stripes.forIsbn(isbn);
+        lock.lock();
+        try {
+            var existingBook = books.get(isbn);
+            if (existingBook == null) {
+                return null;
+            }
+            var updatedBook = remapping.apply(existingBook);
+            books.put(isbn, updatedBook);
+            notifyListeners(existingBook, updatedBook, generation.incrementAndGet());
+            return updatedBook;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Book removeIf(String isbn, Predicate<Book> condition) {
+        var lock = stripes.forIsbn(isbn);
+        lock.lock();
+        try {
+            var existingBook = books.get(isbn);
+            if (existingBook == null || !condition.test(existingBook)) {
+                return null;
+            }
+            books.remove(isbn);
+            notifyListeners(existingBook, null, generation.incrementAndGet());
+            return existingBook;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of lock stripes guarding the writers of this store.
+     *
+     * @return the number of stripes, always a power of two
+     */
+    public int stripeCount() {
+        return stripes.count();
+    }
+
+    private void notifyListeners(Book previous, Book current, long generation) {
+        for (BookStoreListener listener : listeners) {
+            listener.onChange(previous, current, generation);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A multi-version {@link BookStore} that publishes every generation of the catalog as an
+ * immutable {@link BookSnapshot}.
+ * <p>
+ * The catalog is a persistent {@link BookTree}. A writer takes the lock stripe owning its ISBN,
+ * path-copies the current tree and publishes the new root with a compare-and-set, retrying
+ * only when a writer of another ISBN published first. Readers load the current root and never
+ * block, and a snapshot stays consistent however long it is iterated. The most recent
+ * generations are kept in a ring so that a listing can be repeated as of a recent generation.
+ */
+public class VersionedBookStore implements BookStore {
+    private final AtomicReference<BookSnapshot> current = new AtomicReference<>(new BookSnapshot(0, null));
+    private final AtomicReferenceArray<BookSnapshot> retained;
+    private final LockStripes stripes;
+    private final List<BookStoreListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a {@code VersionedBookStore}.
+     *
+     * @param stripes             the requested number of lock stripes, or a value below one to derive
+     *                            it from the number of available processors
+     * @param retainedGenerations the number of most recent generations kept available to
+     *                            {@link #snapshotAt(long)}
+     */
+    public VersionedBookStore(int stripes, int retainedGenerations) {
+        this.stripes = new LockStripes(stripes);
+        this.retained = new AtomicReferenceArray<>(Math.max(1, retainedGenerations));
+    }
+
+    @Override
+    public void addListener(BookStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Book get(String isbn) {
+        return current.get().get(isbn);
+    }
+
+    @Override
+    public BookSnapshot snapshot() {
+        return current.get();
+    }
+
+    @Override
+    public BookSnapshot snapshotAt(long generation) {
+        var latest = current.get();
+        if (latest.generation() == generation) {
+            return latest;
+        }
+        var snapshot = retained.get(slot(generation));
+        return snapshot != null && snapshot.generation() == generation ? snapshot : null;
+    }
+
+    @Override
+    public int size() {
+        return current.get().size();
+    }
+
+    @Override
+    public Book putIfAbsent(Book book) {
+        var lock = stripes.forIsbn(book.isbn());
+        lock.lock();
+        try {
+            var existingBook = get(book.isbn());
+            if (existingBook != null) {
+                return existingBook;
+            }
+            long generation = publish(root -> BookTree.put(root, book));
+            notifyListeners(null, book, generation);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Book computeIfPresent(String isbn, UnaryOperator<Book> remapping) {
+        var lock = stripes.forIsbn(isbn);
+        lock.lock();
+        try {
+            var existingBook = get(isbn);
+            if (existingBook == null) {
+                return null;
+            }
+            var updatedBook = remapping.apply(existingBook);
+            long generation = publish(root -> BookTree.put(root, updatedBook));
+            notifyListeners(existingBook, updatedBook, generation);
+            return updatedBook;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Book removeIf(String isbn, Predicate<Book> condition) {
+        var lock = stripes.forIsbn(isbn);
+        lock.lock();
+        try {
+            var removedBook = get(isbn);
+            if (removedBook == null || !condition.test(removedBook)) {
+                return null;
+            }
+            long generation = publish(root -> BookTree.remove(root, isbn));
+            notifyListeners(removedBook, null, generation);
+            return removedBook;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the change to the latest tree and publishes the result as the next generation.
+     * The caller holds the stripe of the ISBN being changed, so a failed compare-and-set can only
+     * be caused by a writer of another ISBN and re-applying the change on its tree is safe.
+     *
+     * @return the published generation
+     */
+    private long publish(UnaryOperator<BookTree.Node> change) {
+        BookSnapshot base;
+        BookSnapshot next;
+        do {
+            base = current.get();
+            next = new BookSnapshot(base.generation() + 1, change.apply(base.root()));
+        } while (!current.compareAndSet(base, next));
+        retained.set(slot(next.generation()), next);
+        return next.generation();
+    }
+
+    private int slot(long generation) {
+        return (int) Math.floorMod(generation, (long) retained.length());
+    }
+
+    private void notifyListeners(Book previous, Book current, long generation) {
+        for (BookStoreListener listener : listeners) {
+            listener.onChange(previous, current, generation);
+        }
+    }
+}
@@ -3,7 +3,7 @@ package org.catalog;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "catalog.persistence.enabled=false")
 class CatalogServiceApplicationTests {
 
     @Test
@@ -0,0 +1,106 @@
+package org.catalog.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.catalog.model.Book;
+import org.catalog.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares adding books one at a time, as a client issuing one {@code POST /books} per book
+ * would, with bulk imports of newline-delimited JSON and CSV, with synced writes to the
+ * write-ahead log. The {@code decode} mode only splits, decodes and validates the rows, which
+ * tells the cost of the import itself apart from the cost of adding the books. Run with {@code ./gradlew benchmark}; the number of imported rows is set
+ * with {@code -Dbenchmark.rows}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class BookImportBenchmark {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500_000);
+    private static final int SINGLE_ROWS = 20_000;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookImporter bookImporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void persistence(DynamicPropertyRegistry registry) throws IOException {
+        var directory = Files.createTempDirectory("catalog-import");
+        registry.add("catalog.persistence.directory", directory::toString);
+        registry.add("logging.level.org.catalog", () -> "info");
+    }
+
+    @Test
+    void compareImportModes() throws Exception {
+        System.out.printf("%-10s %10s %10s %14s%n", "mode", "rows", "ms", "rows/s");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_ROWS; i++) {
+            bookService.addBookToCatalog(book(0, i));
+        }
+        report("single", SINGLE_ROWS, System.nanoTime() - start);
+
+        var ndjson = new ByteArrayOutputStream();
+        for (int i = 0; i < ROWS; i++) {
+            var book = book(1, i);
+            ndjson.writeBytes("""
+                    {"isbn":"%s","title":"%s","author":"%s","price":%s,"publisher":"%s"}
+                    """.formatted(book.isbn(), book.title(), book.author(), book.price(), book.publisher())
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        start = System.nanoTime();
+        var reader = new NdjsonRowReader(new ByteArrayInputStream(ndjson.toByteArray()),
+                objectMapper.readerFor(Book.class), 64 * 1024);
+        int decoded = 0;
+        BookRowReader.Row row;
+        while ((row = reader.next()) != null) {
+            bookService.validate(row.decode());
+            decoded++;
+        }
+        report("decode", ROWS, System.nanoTime() - start);
+        assertThat(decoded).isEqualTo(ROWS);
+
+        start = System.nanoTime();
+        var result = bookImporter.importNdjson(new ByteArrayInputStream(ndjson.toByteArray()));
+        report("ndjson", ROWS, System.nanoTime() - start);
+        assertThat(result.imported()).isEqualTo(ROWS);
+
+        var csv = new ByteArrayOutputStream();
+        csv.writeBytes("isbn,title,author,price,publisher\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < ROWS; i++) {
+            var book = book(2, i);
+            csv.writeBytes("%s,\"%s\",%s,%s,%s\n".formatted(book.isbn(), book.title(), book.author(),
+                    book.price(), book.publisher()).getBytes(StandardCharsets.UTF_8));
+        }
+        start = System.nanoTime();
+        result = bookImporter.importCsv(new ByteArrayInputStream(csv.toByteArray()), StandardCharsets.UTF_8);
+        report("csv", ROWS, System.nanoTime() - start);
+        assertThat(result.imported()).isEqualTo(ROWS);
+    }
+
+    private static void report(String mode, int rows, long nanos) {
+        System.out.printf("%-10s %,10d %,10d %,14d%n", mode, rows, nanos / 1_000_000, (long) (rows / (nanos / 1e9)));
+    }
+
+    private static Book book(int feed, int i) {
+        return Book.of(String.valueOf(9_780_000_000_000L + feed * 1_000_000L + i), "Title of book number " + i,
+                "Author " + (i % 1_000), 10.0 + i % 50, "Publisher " + (i % 100));
+    }
+}
@@ -0,0 +1,121 @@
+package org.catalog.bulk;
+
+import org.catalog.changes.ChangeJournal;
+import org.catalog.config.CatalogProperties;
+import org.catalog.exception.MalformedImportException;
+import org.catalog.index.BookAttributeIndexes;
+import org.catalog.index.TitleSearchIndex;
+import org.catalog.model.Book;
+import org.catalog.model.BookImportResult.Reason;
+import org.catalog.model.BookImportResult.Rejection;
+import org.catalog.persistence.CatalogPersistence;
+import org.catalog.service.BookService;
+import org.catalog.store.BookStore;
+import org.catalog.store.StripedBookStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class BookImporterTest {
+    private BookStore store;
+    private BookImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new CatalogProperties(null, null, null,
+                new CatalogProperties.Persistence(false, "data", true, Duration.ZERO, DataSize.ofKilobytes(64),
+                        Duration.ofHours(1), DataSize.ofMegabytes(64)),
+                new CatalogProperties.Bulk(2, DataSize.ofBytes(200), 3, 2), null);
+        store = new StripedBookStore(4);
+        var service = new BookService(store, new BookAttributeIndexes(), new TitleSearchIndex(true, 0.5),
+                properties, new CatalogPersistence(store, properties), new ChangeJournal(16, 0));
+        importer = new BookImporter(service, Jackson2ObjectMapperBuilder.json().build(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.destroy();
+    }
+
+    @Test
+    void importsNdjsonAndReportsRejectedRows() throws Exception {
+        store.putIfAbsent(Book.of("9780000000003", "Existing", "Author", 5.0, "Polar"));
+        var result = importer.importNdjson(input("""
+                {"isbn": "9780000000001", "title": "One", "author": "Author", "price": 9.90, "publisher": "Polar"}
+
+                {"isbn": "9780000000002", "title": "Two", "author": "Author", "price": 9.90}\r
+                {"isbn": "9780000000003", "title": "Three", "author": "Author", "price": 9.90}
+                {"isbn": "9780000000001", "title": "Again", "author": "Author", "price": 9.90}
+                {"title": "No ISBN", "author": "Author", "price": 9.90}
+                {"isbn": " ", "title": "Blank ISBN", "author": "Author", "price": 9.90}
+                {"isbn": "9780000000005", "title": "Broken"
+                {"isbn": "9780000000006", "title": "Last", "author": "Author", "price": 1.5}"""));
+
+        assertThat(result.rows()).isEqualTo(8);
+        assertThat(result.imported()).isEqualTo(3);
+        assertThat(result.duplicates()).isEqualTo(2);
+        assertThat(result.invalid()).isEqualTo(3);
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.rejections()).extracting(Rejection::line, Rejection::isbn, Rejection::reason).containsExactly(
+                tuple(4L, "9780000000003", Reason.DUPLICATE),
+                tuple(5L, "9780000000001", Reason.DUPLICATE),
+                tuple(6L, null, Reason.INVALID));
+        assertThat(store.get("9780000000001").title()).isEqualTo("One");
+        assertThat(store.get("9780000000001").id()).isNotNull();
+        assertThat(store.get("9780000000006").price()).isEqualTo(1.5);
+    }
+
+    @Test
+    void rejectsOverlongNdjsonRowsWithoutLosingTheNext() throws Exception {
+        var result = importer.importNdjson(input("{\"isbn\": \"9780000000001\", \"title\": \"" + "x".repeat(20_000)
+                + "\"}\n{\"isbn\": \"9780000000002\", \"title\": \"Two\", \"author\": \"Author\", \"price\": 9.90}\n"));
+
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.rejections()).singleElement().satisfies(rejection -> {
+            assertThat(rejection.line()).isEqualTo(1);
+            assertThat(rejection.message()).contains("longer than 200 bytes");
+        });
+        assertThat(store.get("9780000000002")).isNotNull();
+    }
+
+    @Test
+    void importsCsvWithQuotedFieldsAndAnyColumnOrder() throws Exception {
+        var result = importer.importCsv(input("""
+                Price,ISBN,Title,Author,Pages\r
+                9.90,9780000000001,"Title, with comma",Author,100\r
+                12,9780000000002,"Two ""quoted""
+                lines",Author,200\r
+                abc,9780000000003,Three,Author,300\r
+                """), StandardCharsets.UTF_8);
+
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.rejections()).singleElement().satisfies(rejection -> {
+            assertThat(rejection.line()).isEqualTo(5);
+            assertThat(rejection.reason()).isEqualTo(Reason.INVALID);
+            assertThat(rejection.message()).isEqualTo("The price abc is not a number.");
+        });
+        assertThat(store.get("9780000000001").title()).isEqualTo("Title, with comma");
+        assertThat(store.get("9780000000002").title()).isEqualTo("Two \"quoted\"\nlines");
+        assertThat(store.get("9780000000002").publisher()).isNull();
+    }
+
+    @Test
+    void rejectsCsvWithoutIsbnColumn() {
+        assertThatThrownBy(() -> importer.importCsv(input("title,author\nOne,Author\n"), StandardCharsets.UTF_8))
+                .isInstanceOf(MalformedImportException.class);
+    }
+
+    private static ByteArrayInputStream input(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
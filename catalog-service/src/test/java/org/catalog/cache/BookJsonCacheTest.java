@@ -0,0 +1,88 @@
+package org.catalog.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.catalog.model.Book;
+import org.catalog.model.BookChange;
+import org.catalog.model.BookLookup;
+import org.catalog.store.VersionedBookStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookJsonCacheTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    void cachedJsonMatchesJackson() throws Exception {
+        var store = store();
+        var book = new Book(1L, "1", "Title", "Author", 9.9, "Polar", Instant.ofEpochSecond(10), null, "alice", null, 2);
+        store.putIfAbsent(book);
+        store.putIfAbsent(Book.of("2", "Other", null, null, null));
+        var cache = cache(store);
+
+        assertThat(cache.json(book)).isEqualTo(objectMapper.writeValueAsBytes(book));
+        assertThat(cache.json(book)).isSameAs(cache.json(store.get("1")));
+        assertThat(write(cache.body(store.snapshot())))
+                .isEqualTo(objectMapper.writeValueAsString(List.copyOf(store.snapshot().books())));
+        assertThat(write(cache.body(List.of()))).isEqualTo("[]");
+        var lookup = new BookLookup(List.of(book, store.get("2")), List.of("3", "4"));
+        assertThat(write(cache.body(lookup))).isEqualTo(objectMapper.writeValueAsString(lookup));
+        var added = new BookChange(7, 3, BookChange.Type.ADDED, "1", book);
+        assertThat(write(cache.body(added))).isEqualTo(objectMapper.writeValueAsString(added));
+        var removed = new BookChange(8, 4, BookChange.Type.REMOVED, "\"quoted\"", null);
+        assertThat(write(cache.body(removed))).isEqualTo(objectMapper.writeValueAsString(removed));
+    }
+
+    @Test
+    void editsAndRemovalsInvalidateEntries() {
+        var store = store();
+        var original = Book.of("1", "Old", null, null, null);
+        store.putIfAbsent(original);
+        var cache = cache(store);
+
+        store.computeIfPresent("1", book -> Book.of("1", "New", null, null, null));
+
+        assertThat(new String(cache.json(store.get("1")))).contains("New");
+        assertThat(new String(cache.json(original))).contains("Old");
+        store.remove("1");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void listingIsReusedWithinAGeneration() {
+        var store = store();
+        store.putIfAbsent(Book.of("1", "Title", null, null, null));
+        var cache = cache(store);
+        var first = cache.body(store.snapshot());
+
+        assertThat(cache.body(store.snapshot())).isSameAs(first);
+        store.putIfAbsent(Book.of("2", "Title", null, null, null));
+        assertThat(cache.body(store.snapshot()).size()).isEqualTo(2);
+    }
+
+    private VersionedBookStore store() {
+        return new VersionedBookStore(4, 8);
+    }
+
+    private BookJsonCache cache(VersionedBookStore store) {
+        var cache = new BookJsonCache(objectMapper, true);
+        store.snapshot().books().forEach(book -> cache.onChange(null, book, 0));
+        store.addListener(cache);
+        return cache;
+    }
+
+    private static String write(JsonBody body) throws Exception {
+        var out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        assertThat(out.size()).isEqualTo(body.contentLength());
+        return out.toString();
+    }
+}
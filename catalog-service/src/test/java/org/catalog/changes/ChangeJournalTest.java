@@ -0,0 +1,76 @@
+package org.catalog.changes;
+
+import org.catalog.model.Book;
+import org.catalog.model.BookChange;
+import org.catalog.model.BookChange.Type;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ChangeJournalTest {
+
+    @Test
+    void recordsChangesInOrderWithTheirType() {
+        var journal = new ChangeJournal(8, 100);
+        var book = Book.of("1", "Title", "Author", 9.90, "Polar");
+        var edited = Book.of("1", "New Title", "Author", 9.90, "Polar");
+        journal.onChange(null, book, 1);
+        journal.onChange(book, edited, 2);
+        journal.onChange(edited, null, 3);
+
+        var changes = new ArrayList<BookChange>();
+        assertThat(journal.read(99, 10, changes)).isTrue();
+        assertThat(changes).extracting(BookChange::sequence, BookChange::generation, BookChange::type, BookChange::book)
+                .containsExactly(tuple(100L, 1L, Type.ADDED, book), tuple(101L, 2L, Type.UPDATED, edited),
+                        tuple(102L, 3L, Type.REMOVED, null));
+        assertThat(journal.lastSequence()).isEqualTo(102);
+
+        changes.clear();
+        assertThat(journal.read(100, 1, changes)).isTrue();
+        assertThat(changes).extracting(BookChange::sequence).containsExactly(101L);
+        changes.clear();
+        assertThat(journal.read(102, 10, changes)).isTrue();
+        assertThat(changes).isEmpty();
+    }
+
+    @Test
+    void consumersLappedByWritersOrFromElsewhereMustResnapshot() {
+        var journal = new ChangeJournal(4, 100);
+        for (int i = 0; i < 6; i++) {
+            journal.onChange(null, Book.of(String.valueOf(i), "Title", "Author", 9.90, "Polar"), i + 1);
+        }
+
+        var changes = new ArrayList<BookChange>();
+        assertThat(journal.capacity()).isEqualTo(4);
+        assertThat(journal.read(100, 10, changes)).isFalse();
+        assertThat(journal.read(101, 10, changes)).isTrue();
+        assertThat(changes).extracting(BookChange::sequence).containsExactly(102L, 103L, 104L, 105L);
+        assertThat(journal.read(5, 10, changes)).isFalse();
+        assertThat(journal.read(106, 10, changes)).isFalse();
+        assertThat(new ChangeJournal(4, 100).read(99, 10, changes)).isTrue();
+    }
+
+    @Test
+    void awaitWakesUpOnTheNextChange() throws Exception {
+        var journal = new ChangeJournal(4, 0);
+        assertThat(journal.await(-1, Duration.ofMillis(10))).isFalse();
+
+        var waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return journal.await(-1, Duration.ofSeconds(30));
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        journal.onChange(null, Book.of("1", "Title", "Author", 9.90, "Polar"), 1);
+
+        assertThat(waiter.get(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(journal.await(-1, Duration.ZERO)).isTrue();
+    }
+}
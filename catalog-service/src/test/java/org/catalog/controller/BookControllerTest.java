@@ -0,0 +1,349 @@
+package org.catalog.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"catalog.persistence.enabled=false", "catalog.changes.max-streams=2",
+        "catalog.changes.max-duration=1s"})
+@AutoConfigureMockMvc
+class BookControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void listsCatalogAsOfRetainedGeneration() throws Exception {
+        addBook("9780000000001");
+        var generation = mockMvc.perform(get("/books"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(BookController.GENERATION_HEADER);
+        addBook("9780000000002");
+
+        mockMvc.perform(get("/books").param("asOf", generation))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BookController.GENERATION_HEADER, generation))
+                .andExpect(jsonPath("$[?(@.isbn == '9780000000002')]").isEmpty());
+        mockMvc.perform(get("/books"))
+                .andExpect(jsonPath("$[?(@.isbn == '9780000000002')]", hasSize(1)));
+    }
+
+    @Test
+    void paginatesCatalogWithKeysetCursor() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            addBook("978100000000" + i);
+        }
+
+        var firstPage = mockMvc.perform(get("/books").param("after", "9781").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].isbn").value(contains("9781000000001", "9781000000002")))
+                .andReturn().getResponse();
+        assertThat(firstPage.getHeader("Link")).contains("after=9781000000002").contains("rel=\"next\"");
+
+        mockMvc.perform(get("/books").param("after", "9781000000004").param("limit", "2"))
+                .andExpect(jsonPath("$[0].isbn").value("9781000000005"))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void streamsCatalogAsNdjson() throws Exception {
+        addBook("9782000000001");
+        addBook("9782000000002");
+
+        var result = mockMvc.perform(get("/books/stream"))
+                .andExpect(status().isOk())
+                .andReturn();
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        var lines = body.split("\n");
+        assertThat(body).endsWith("\n");
+        assertThat(lines).allSatisfy(line -> assertThat(line).startsWith("{").endsWith("}"));
+        assertThat(lines).anySatisfy(line -> assertThat(line).contains("\"isbn\":\"9782000000002\""));
+    }
+
+    @Test
+    void findsBooksByAuthorAndPublisher() throws Exception {
+        addBook("9783000000001", "Ursula Le Guin", "Ace");
+        addBook("9783000000002", "Ursula Le Guin", "Harper");
+        addBook("9783000000003", "Ursula Vernon", "Ace");
+
+        mockMvc.perform(get("/books").param("author", "ursula le guin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].isbn").value(contains("9783000000001", "9783000000002")));
+        mockMvc.perform(get("/books").param("author", "URSULA").param("prefix", "true").param("publisher", "ace"))
+                .andExpect(jsonPath("$[*].isbn").value(contains("9783000000001", "9783000000003")));
+        mockMvc.perform(get("/books").param("publisher", "harp").param("prefix", "true"))
+                .andExpect(jsonPath("$[*].isbn").value(contains("9783000000002")));
+    }
+
+    @Test
+    void searchesTitles() throws Exception {
+        addBook("9784000000001", "Stanislaw Lem", "Polar");
+
+        mockMvc.perform(get("/books/search").param("q", "stanislav lem"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].isbn").value("9784000000001"));
+    }
+
+    @Test
+    void listsBooksByPriceWithKeysetCursor() throws Exception {
+        addBook("9780100000001", 7.50, "Gollancz");
+        addBook("9780100000002", 5.25, "Gollancz");
+        addBook("9780100000003", 6.00, "Orbit");
+        addBook("9780100000004", 5.25, "Gollancz");
+
+        var firstPage = mockMvc.perform(get("/books/by-price").param("publisher", "GOLLANCZ").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].isbn").value(contains("9780100000002", "9780100000004")))
+                .andReturn().getResponse();
+        assertThat(firstPage.getHeader("Link")).contains("after=5.25:9780100000004").contains("rel=\"next\"");
+        mockMvc.perform(get("/books/by-price").param("publisher", "gollancz").param("after", "5.25:9780100000004"))
+                .andExpect(jsonPath("$[*].isbn").value(contains("9780100000001")))
+                .andExpect(header().doesNotExist("Link"));
+        mockMvc.perform(get("/books/by-price").param("min", "5.25").param("max", "6"))
+                .andExpect(jsonPath("$[*].isbn").value(contains("9780100000002", "9780100000004", "9780100000003")));
+
+        mockMvc.perform(editBook("9780100000002")).andExpect(status().isOk());
+        mockMvc.perform(get("/books/by-price").param("publisher", "gollancz"))
+                .andExpect(jsonPath("$[*].isbn").value(contains("9780100000004", "9780100000001")));
+        mockMvc.perform(get("/books/by-price").param("after", "cheap"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rejectsGenerationThatIsNotRetained() throws Exception {
+        mockMvc.perform(get("/books").param("asOf", "-1"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void rejectsBookWithoutIsbn() throws Exception {
+        mockMvc.perform(post("/books")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"title": "Title", "author": "Author", "price": 9.90, "publisher": "Polar"}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("The book ISBN must be defined."));
+    }
+
+    @Test
+    void answersMatchingIfNoneMatchWithNotModified() throws Exception {
+        addBook("9785000000001");
+
+        var bookTag = mockMvc.perform(get("/books/9785000000001"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/books/9785000000001").header("If-None-Match", bookTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        var listTag = mockMvc.perform(get("/books"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/books").header("If-None-Match", listTag))
+                .andExpect(status().isNotModified());
+        addBook("9785000000002");
+        mockMvc.perform(get("/books").header("If-None-Match", listTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updatesAndDeletesOnlyWhenIfMatchIsCurrent() throws Exception {
+        addBook("9786000000001");
+        var staleTag = mockMvc.perform(get("/books/9786000000001"))
+                .andExpect(jsonPath("$.version").value(0))
+                .andReturn().getResponse().getHeader("ETag");
+
+        var currentTag = mockMvc.perform(editBook("9786000000001").header("If-Match", staleTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1))
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(currentTag).isNotEqualTo(staleTag);
+
+        mockMvc.perform(editBook("9786000000001").header("If-Match", staleTag))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/books/9786000000001")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .header("If-Match", staleTag))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/books/9786000000001")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .header("If-Match", currentTag))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void importsBooksInBulk() throws Exception {
+        addBook("9787000000002");
+
+        mockMvc.perform(post("/books/bulk")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"isbn": "9787000000001", "title": "One", "author": "Author", "price": 9.90}
+                                {"isbn": "9787000000002", "title": "Two", "author": "Author", "price": 9.90}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejections[0].line").value(2))
+                .andExpect(jsonPath("$.rejections[0].reason").value("DUPLICATE"));
+        mockMvc.perform(post("/books/bulk")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .contentType("text/csv; charset=ISO-8859-1")
+                        .content("isbn,title,author,price\n9787000000003,Caf\u00e9,Author,5\n".getBytes(StandardCharsets.ISO_8859_1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+        mockMvc.perform(get("/books/9787000000003"))
+                .andExpect(jsonPath("$.title").value("Caf\u00e9"));
+        mockMvc.perform(post("/books/bulk")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .contentType("text/csv")
+                        .content("title\nNo ISBN\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void looksUpSeveralIsbnsAtOnce() throws Exception {
+        addBook("9788000000001");
+        addBook("9788000000002");
+
+        mockMvc.perform(post("/books/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                ["9788000000002", "9788000000009", "9788000000001", "9788000000002"]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.found[*].isbn").value(contains("9788000000002", "9788000000001")))
+                .andExpect(jsonPath("$.missing").value(contains("9788000000009")));
+        mockMvc.perform(post("/books/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(jsonPath("$.found").isEmpty())
+                .andExpect(jsonPath("$.missing").isEmpty());
+    }
+
+    @Test
+    void streamsChangesSinceASequenceNumber() throws Exception {
+        var caughtUp = mockMvc.perform(get("/books/changes").param("follow", "false")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        assertThat(mockMvc.perform(asyncDispatch(caughtUp)).andReturn().getResponse().getContentAsString()).isEmpty();
+        var start = mockMvc.perform(get("/books/changes").param("since", "0").param("follow", "false")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        var resnapshot = mockMvc.perform(asyncDispatch(start)).andReturn().getResponse().getContentAsString();
+        assertThat(resnapshot).startsWith("{\"type\":\"RESNAPSHOT\",\"sequence\":");
+        var sequence = resnapshot.substring(resnapshot.lastIndexOf(':') + 1, resnapshot.indexOf('}'));
+
+        addBook("9789000000001");
+        mockMvc.perform(delete("/books/9789000000001").with(jwt().authorities(() -> "ROLE_employee")))
+                .andExpect(status().isNoContent());
+
+        var ndjson = mockMvc.perform(get("/books/changes").param("since", sequence).param("follow", "false")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        var lines = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"type\":\"ADDED\",\"isbn\":\"9789000000001\",\"book\":{");
+        assertThat(lines[1]).contains("\"type\":\"REMOVED\",\"isbn\":\"9789000000001\",\"book\":null");
+
+        var events = mockMvc.perform(get("/books/changes").param("follow", "false")
+                        .header("Last-Event-ID", sequence)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andReturn();
+        var body = mockMvc.perform(asyncDispatch(events))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body).startsWith("id: " + (Long.parseLong(sequence) + 1) + "\nevent: added\ndata: {");
+        assertThat(body).contains("\nevent: removed\ndata: {").endsWith("}\n\n");
+    }
+
+    @Test
+    void turnsAwayChangeStreamsBeyondTheMostServedAtOnce() throws Exception {
+        var followers = new ArrayList<MvcResult>();
+        for (int i = 0; i < 2; i++) {
+            followers.add(mockMvc.perform(get("/books/changes").accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+        }
+
+        mockMvc.perform(get("/books/changes").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+        mockMvc.perform(get("/books/stream"))
+                .andExpect(request().asyncStarted());
+
+        for (MvcResult follower : followers) {
+            mockMvc.perform(asyncDispatch(follower)).andExpect(status().isOk());
+        }
+        var next = mockMvc.perform(get("/books/changes").param("follow", "false")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(next)).andExpect(status().isOk());
+    }
+
+    private MockHttpServletRequestBuilder editBook(String isbn) {
+        return put("/books/" + isbn)
+                .with(jwt().authorities(() -> "ROLE_employee"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"isbn": "%s", "title": "New Title", "author": "Author", "price": 12.50, "publisher": "Polar"}
+                        """.formatted(isbn));
+    }
+
+    private void addBook(String isbn) throws Exception {
+        addBook(isbn, "Author", "Polar");
+    }
+
+    private void addBook(String isbn, double price, String publisher) throws Exception {
+        mockMvc.perform(post("/books")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"isbn": "%s", "title": "Title", "author": "Author", "price": %s, "publisher": "%s"}
+                                """.formatted(isbn, price, publisher)))
+                .andExpect(status().isCreated());
+    }
+
+    private void addBook(String isbn, String author, String publisher) throws Exception {
+        mockMvc.perform(post("/books")
+                        .with(jwt().authorities(() -> "ROLE_employee"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"isbn": "%s", "title": "Title", "author": "%s", "price": 9.90, "publisher": "%s"}
+                                """.formatted(isbn, author, publisher)))
+                .andExpect(status().isCreated());
+    }
+}
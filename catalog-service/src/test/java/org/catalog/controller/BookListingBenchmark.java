@@ -0,0 +1,147 @@
+package org.catalog.controller;
+
+import com.sun.management.ThreadMXBean;
+import org.catalog.model.Book;
+import org.catalog.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures time-to-first-byte, total time, allocation and peak heap of the full JSON listing,
+ * the NDJSON stream and a walk over the keyset-paginated listing of a large catalog.
+ * Run with {@code ./gradlew benchmark}; the catalog size is set with {@code -Dbenchmark.books}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "catalog.persistence.enabled=false")
+class BookListingBenchmark {
+    private static final int BOOKS = Integer.getInteger("benchmark.books", 200_000);
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>; rel=\"next\"");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookService bookService;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void compareListingModes() throws Exception {
+        for (int i = 0; i < BOOKS; i++) {
+            bookService.addBookToCatalog(Book.of(String.valueOf(9_780_000_000_000L + i),
+                    "Title of book number " + i, "Author " + (i % 1_000), 10.0 + i % 50, "Publisher " + (i % 100)));
+        }
+        System.out.printf("catalog of %,d books%n", BOOKS);
+        System.out.printf("%-10s %12s %12s %14s %16s %14s%n", "mode", "ttfb ms", "total ms", "bytes", "allocated MB", "peak heap MB");
+        for (int round = 0; round < 2; round++) {
+            measure("array", () -> fetch("/books"));
+            measure("ndjson", () -> fetch("/books/stream"));
+            measure("paginated", () -> walkPages("/books?limit=1000"));
+        }
+    }
+
+    private void measure(String mode, Fetch fetch) throws Exception {
+        System.gc();
+        var memory = ManagementFactory.getMemoryMXBean();
+        var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        var peak = new AtomicLong(baseline);
+        var sampling = new AtomicBoolean(true);
+        var sampler = new Thread(() -> {
+            while (sampling.get()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                Thread.onSpinWait();
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        long allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        var result = fetch.run();
+        long total = System.nanoTime() - start;
+        long allocated = allocatedBytes(threads) - allocatedBefore;
+        sampling.set(false);
+        sampler.join();
+
+        assertThat(result.bytes()).isPositive();
+        System.out.printf("%-10s %12.1f %12.1f %,14d %16.1f %14.1f%n", mode,
+                (result.firstByteNanos() - start) / 1e6, total / 1e6, result.bytes(),
+                allocated / 1e6, (peak.get() - baseline) / 1e6);
+    }
+
+    private Result fetch(String path) throws IOException, InterruptedException {
+        var response = httpClient.send(request(path), HttpResponse.BodyHandlers.ofInputStream());
+        try (var body = response.body()) {
+            return drain(body, new Result(0, 0));
+        }
+    }
+
+    private Result walkPages(String path) throws IOException, InterruptedException {
+        var result = new Result(0, 0);
+        String next = "http://localhost:" + port + path;
+        while (next != null) {
+            var response = httpClient.send(HttpRequest.newBuilder(URI.create(next)).build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (var body = response.body()) {
+                result = drain(body, result);
+            }
+            next = response.headers().firstValue("Link")
+                    .map(NEXT_LINK::matcher)
+                    .filter(Matcher::find)
+                    .map(matcher -> matcher.group(1))
+                    .orElse(null);
+        }
+        return result;
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+    }
+
+    private static Result drain(InputStream body, Result result) throws IOException {
+        var buffer = new byte[8192];
+        long firstByte = result.firstByteNanos();
+        long bytes = result.bytes();
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            if (firstByte == 0) {
+                firstByte = System.nanoTime();
+            }
+            bytes += read;
+        }
+        return new Result(firstByte, bytes);
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads) {
+        return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+                .filter(bytes -> bytes > 0)
+                .sum();
+    }
+
+    private record Result(long firstByteNanos, long bytes) {
+    }
+
+    @FunctionalInterface
+    private interface Fetch {
+        Result run() throws Exception;
+    }
+}
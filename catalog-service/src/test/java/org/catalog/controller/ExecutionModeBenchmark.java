@@ -0,0 +1,182 @@
+package org.catalog.controller;
+
+import org.catalog.CatalogServiceApplication;
+import org.catalog.model.Book;
+import org.catalog.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.util.FileSystemUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares request handling on the bounded Tomcat pool of platform threads with request
+ * handling on virtual threads ({@code spring.threads.virtual.enabled}), under a closed-loop load
+ * of increasing concurrency. Each client reads a random book and, every so often, adds one,
+ * which waits for the write-ahead log to be synced; the blocked writers are what exhausts the
+ * platform pool while the CPU is idle. Every mode runs in a fresh application on a random port
+ * and is warmed up by one step at the lowest concurrency. Failed requests are only counted as
+ * errors, so a mode that fails fast does not look faster in the throughput and latencies.
+ * Run with {@code ./gradlew benchmark}; the client counts are set with
+ * {@code -Dbenchmark.concurrency=16,64,256}, the duration of each step in seconds with
+ * {@code -Dbenchmark.seconds} and the share of writes in percent with {@code -Dbenchmark.writes}.
+ */
+@Tag("benchmark")
+class ExecutionModeBenchmark {
+    private static final int[] CONCURRENCY = Arrays.stream(System.getProperty("benchmark.concurrency", "16,64,256,1024")
+            .split(",")).mapToInt(level -> Integer.parseInt(level.strip())).toArray();
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 10);
+    private static final int WRITE_PERCENT = Integer.getInteger("benchmark.writes", 20);
+    private static final int BOOKS = 10_000;
+
+    private final AtomicLong nextIsbn = new AtomicLong(9_790_000_000_000L);
+
+    @Test
+    void compareExecutionModes() throws Exception {
+        System.out.printf("%-10s %8s %12s %10s %10s %10s %8s%n", "threads", "clients", "requests/s", "p50 ms", "p99 ms",
+                "max ms", "errors");
+        for (boolean virtual : new boolean[] {false, true}) {
+            var directory = Files.createTempDirectory("catalog-threads");
+            try (var context = new SpringApplicationBuilder(CatalogServiceApplication.class, AnyTokenDecoder.class)
+                    .run("--server.port=0",
+                            "--spring.threads.virtual.enabled=" + virtual,
+                            "--catalog.persistence.directory=" + directory,
+                            "--logging.level.org.catalog=info")) {
+                var bookService = context.getBean(BookService.class);
+                for (int i = 0; i < BOOKS; i++) {
+                    bookService.addBookToCatalog(book(String.valueOf(9_780_000_000_000L + i)));
+                }
+                var mode = virtual ? "virtual" : "platform";
+                load(context, CONCURRENCY[0], SECONDS);
+                for (int clients : CONCURRENCY) {
+                    var result = load(context, clients, SECONDS);
+                    System.out.printf("%-10s %8d %,12d %10.2f %10.2f %10.2f %8d%n", mode, clients,
+                            result.requests() / SECONDS, result.percentile(0.50), result.percentile(0.99),
+                            result.percentile(1.0), result.errors());
+                    assertThat(result.requests()).isPositive();
+                }
+            } finally {
+                FileSystemUtils.deleteRecursively(directory);
+            }
+        }
+    }
+
+    private Result load(ConfigurableApplicationContext context, int clients, int seconds) throws InterruptedException {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        var base = "http://localhost:" + port + "/books";
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        var latencies = new long[clients][];
+        var counts = new int[clients];
+        var errors = new AtomicLong();
+        var threads = new ArrayList<Thread>(clients);
+        try (var httpClient = HttpClient.newHttpClient()) {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                threads.add(Thread.ofVirtual().start(() -> {
+                    var random = ThreadLocalRandom.current();
+                    var own = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        var request = random.nextInt(100) < WRITE_PERCENT ? addBook(base)
+                                : HttpRequest.newBuilder(URI.create(base + "/" + (9_780_000_000_000L + random.nextInt(BOOKS)))).build();
+                        long start = System.nanoTime();
+                        try {
+                            var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 300) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception ex) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == own.length) {
+                            own = Arrays.copyOf(own, count * 2);
+                        }
+                        own[count++] = System.nanoTime() - start;
+                    }
+                    latencies[client] = own;
+                    counts[client] = count;
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        int total = Arrays.stream(counts).sum();
+        var all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+        return new Result(all, errors.get());
+    }
+
+    private HttpRequest addBook(String base) {
+        var isbn = nextIsbn.getAndIncrement();
+        return HttpRequest.newBuilder(URI.create(base))
+                .header("Authorization", "Bearer benchmark")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"isbn": "%d", "title": "Title", "author": "Author", "price": 9.90, "publisher": "Polar"}
+                        """.formatted(isbn)))
+                .build();
+    }
+
+    private static Book book(String isbn) {
+        return Book.of(isbn, "Title of book " + isbn, "Author", 9.90, "Polar");
+    }
+
+    private record Result(long[] latencies, long errors) {
+
+        long requests() {
+            return latencies.length;
+        }
+
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            return latencies[(int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1)] / 1e6;
+        }
+    }
+
+    /**
+     * Accepts any bearer token as an employee's, so the load can add books without an issuer.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class AnyTokenDecoder {
+
+        @Bean
+        JwtDecoder jwtDecoder() {
+            return token -> Jwt.withTokenValue(token)
+                    .header("alg", "none")
+                    .subject("benchmark")
+                    .claim("roles", List.of("employee"))
+                    .issuedAt(Instant.now())
+                    .expiresAt(Instant.now().plusSeconds(3600))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.catalog.index;
+
+import org.catalog.model.Book;
+import org.catalog.store.VersionedBookStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookAttributeIndexesTest {
+
+    @Test
+    void findsExactAndPrefixMatchesIgnoringCase() {
+        var indexes = new BookAttributeIndexes();
+        var store = new VersionedBookStore(4, 4);
+        store.addListener(indexes);
+        store.putIfAbsent(Book.of("1", "Title", "Lyra Silverstar", 9.90, "Polarsophia"));
+        store.putIfAbsent(Book.of("2", "Title", "lyra silverstar", 9.90, "Polar Books"));
+        store.putIfAbsent(Book.of("3", "Title", "Lyrae", 9.90, "Polarsophia"));
+        store.putIfAbsent(Book.of("4", "Title", null, 9.90, null));
+
+        assertThat(list(indexes.authors().find("LYRA SILVERSTAR", false))).containsExactly("1", "2");
+        assertThat(list(indexes.authors().find("lyra", true))).containsExactly("1", "2", "3");
+        assertThat(list(indexes.authors().find("lyr", false))).isEmpty();
+        assertThat(list(indexes.publishers().find("polar", true))).containsExactly("2", "1", "3");
+        assertThat(indexes.authors().size()).isEqualTo(3);
+    }
+
+    @Test
+    void followsEditsAndRemovals() {
+        var indexes = new BookAttributeIndexes();
+        var store = new VersionedBookStore(4, 4);
+        store.addListener(indexes);
+        store.putIfAbsent(Book.of("1", "Title", "Lyra", 9.90, "Polar"));
+
+        store.computeIfPresent("1", book -> Book.of("1", "Title", "Jon", 9.90, "Polar"));
+        assertThat(list(indexes.authors().find("lyra", false))).isEmpty();
+        assertThat(list(indexes.authors().find("jon", false))).containsExactly("1");
+
+        store.remove("1");
+        assertThat(indexes.authors().size()).isZero();
+        assertThat(indexes.publishers().size()).isZero();
+    }
+
+    @Test
+    void matchesBookOnlyAtItsCurrentEntry() {
+        var indexes = new BookAttributeIndexes();
+        var store = new VersionedBookStore(4, 4);
+        store.addListener(indexes);
+        store.putIfAbsent(Book.of("1", "Title", "Lyra", 9.90, "Polar"));
+        var stale = indexes.authors().find("lyr", true).iterator().next();
+
+        var moved = store.computeIfPresent("1", book -> Book.of("1", "Title", "Lyrae", 9.90, "Polar"));
+
+        assertThat(indexes.authors().matches(moved, stale)).isFalse();
+        assertThat(indexes.authors().find("lyr", true)).singleElement()
+                .satisfies(entry -> assertThat(indexes.authors().matches(moved, entry)).isTrue());
+    }
+
+    @Test
+    void scansPriceRangesOfCatalogAndPublisher() {
+        var indexes = new BookAttributeIndexes();
+        var store = new VersionedBookStore(4, 4);
+        store.addListener(indexes);
+        store.putIfAbsent(Book.of("1", "Title", "Author", 12.0, "Polar"));
+        store.putIfAbsent(Book.of("2", "Title", "Author", 5.0, "Polar"));
+        store.putIfAbsent(Book.of("3", "Title", "Author", 8.0, "Ace"));
+        store.putIfAbsent(Book.of("4", "Title", "Author", 5.0, "polar "));
+        store.putIfAbsent(Book.of("5", "Title", "Author", null, "Polar"));
+
+        var prices = indexes.prices();
+        assertThat(isbns(prices.find(null, null, null, null))).containsExactly("2", "4", "3", "1");
+        assertThat(isbns(prices.find(null, 5.0, 8.0, null))).containsExactly("2", "4", "3");
+        assertThat(isbns(prices.find("POLAR", null, null, null))).containsExactly("2", "4", "1");
+        assertThat(isbns(prices.find("Polar", null, null, new PriceKey(5.0, "2")))).containsExactly("4", "1");
+        assertThat(isbns(prices.find(null, 6.0, null, new PriceKey(5.0, "2")))).containsExactly("3", "1");
+        assertThat(isbns(prices.find(null, 9.0, 8.0, null))).isEmpty();
+        assertThat(isbns(prices.find("Harper", null, null, null))).isEmpty();
+
+        store.computeIfPresent("2", book -> Book.of("2", "Title", "Author", 20.0, "Ace"));
+        assertThat(isbns(prices.find("polar", null, null, null))).containsExactly("4", "1");
+        assertThat(isbns(prices.find("ace", null, null, null))).containsExactly("3", "2");
+        store.remove("3");
+        store.remove("2");
+        assertThat(isbns(prices.find("ace", null, null, null))).isEmpty();
+        assertThat(prices.size()).isEqualTo(2);
+        assertThat(PriceKey.valueOf(new PriceKey(5.0, "4").toString())).isEqualTo(new PriceKey(5.0, "4"));
+    }
+
+    @Test
+    void staysInSyncWithStoreUnderConcurrentEdits() throws Exception {
+        var indexes = new BookAttributeIndexes();
+        var store = new VersionedBookStore(16, 4);
+        store.addListener(indexes);
+        var authors = List.of("Ada", "Grace", "Barbara", "Edsger");
+        int isbns = 500;
+        for (int i = 0; i < isbns; i++) {
+            store.putIfAbsent(Book.of(String.valueOf(i), "Title", "Ada", 9.90, "Polar"));
+        }
+
+        var pool = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    var random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        var isbn = String.valueOf(random.nextInt(isbns));
+                        var author = authors.get(random.nextInt(authors.size()));
+                        if (random.nextInt(10) == 0 && store.remove(isbn) != null) {
+                            store.putIfAbsent(Book.of(isbn, "Title", author, 9.90, "Polar"));
+                        } else {
+                            store.computeIfPresent(isbn, book -> Book.of(isbn, "Title", author, 9.90, "Polar"));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int indexed = 0;
+        for (String author : authors) {
+            for (var entry : indexes.authors().find(author, false)) {
+                assertThat(store.get(entry.isbn()).author()).isEqualTo(author);
+                indexed++;
+            }
+        }
+        assertThat(indexed).isEqualTo(store.size());
+        assertThat(indexes.authors().size()).isEqualTo(store.size());
+    }
+
+    private static List<String> list(Iterable<AttributeIndex.Entry> entries) {
+        var list = new ArrayList<String>();
+        entries.forEach(entry -> list.add(entry.isbn()));
+        return list;
+    }
+
+    private static List<String> isbns(Iterable<PriceKey> keys) {
+        var list = new ArrayList<String>();
+        keys.forEach(key -> list.add(key.isbn()));
+        return list;
+    }
+}
@@ -0,0 +1,107 @@
+package org.catalog.index;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Builds a {@link TitleSearchIndex} over a synthetic corpus of titles and reports the index
+ * footprint and the latency distribution of typical queries.
+ * Run with {@code ./gradlew benchmark}; the corpus size is set with {@code -Dbenchmark.titles}.
+ */
+@Tag("benchmark")
+class TitleSearchBenchmark {
+    private static final int TITLES = Integer.getInteger("benchmark.titles", 1_000_000);
+    private static final int QUERIES = 20_000;
+    private static final String[] WORDS = vocabulary(new Random(7), 20_000);
+
+    @Test
+    void measureQueryLatency() {
+        var random = new Random(42);
+        var titles = new String[TITLES];
+        for (int i = 0; i < TITLES; i++) {
+            titles[i] = title(random);
+        }
+        System.gc();
+        long heapBefore = usedHeap();
+        var index = new TitleSearchIndex(false, 0.5);
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < TITLES; i++) {
+            index.onChange(null, Book.of(String.valueOf(9_780_000_000_000L + i), titles[i], null, 9.90, "Polar"), i + 1);
+        }
+        long buildNanos = System.nanoTime() - buildStart;
+        System.gc();
+        long indexBytes = usedHeap() - heapBefore;
+
+        for (int i = 0; i < QUERIES / 4; i++) {
+            index.search(query(random, titles), 10);
+        }
+        var latencies = new long[QUERIES];
+        int hits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            var query = query(random, titles);
+            long start = System.nanoTime();
+            hits += index.search(query, 10).isEmpty() ? 0 : 1;
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("titles %,d, built in %.1f s, index heap ~%.1f MB%n", TITLES, buildNanos / 1e9, indexBytes / 1e6);
+        System.out.printf("queries %,d: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms, %d%% with hits%n", QUERIES,
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                latencies[QUERIES - 1] / 1e6, hits * 100 / QUERIES);
+        assertThat(hits).isPositive();
+    }
+
+    private static String title(Random random) {
+        int words = 2 + random.nextInt(5);
+        var title = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                title.append(' ');
+            }
+            title.append(WORDS[(int) Math.min(WORDS.length - 1, Math.abs(random.nextGaussian()) * WORDS.length / 3)]);
+        }
+        return title.toString();
+    }
+
+    /**
+     * Picks two consecutive words of an existing title and, every other query, drops one letter.
+     */
+    private static String query(Random random, String[] titles) {
+        var words = titles[random.nextInt(titles.length)].split(" ");
+        int first = random.nextInt(words.length - 1);
+        var query = words[first] + " " + words[first + 1];
+        if (random.nextBoolean() && query.length() > 4) {
+            int drop = 1 + random.nextInt(query.length() - 2);
+            query = query.substring(0, drop) + query.substring(drop + 1);
+        }
+        return query;
+    }
+
+    private static String[] vocabulary(Random random, int size) {
+        var words = new String[size];
+        for (int i = 0; i < size; i++) {
+            var word = new char[3 + random.nextInt(7)];
+            for (int c = 0; c < word.length; c++) {
+                word[c] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(word);
+        }
+        return words;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))] / 1e6;
+    }
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,77 @@
+package org.catalog.index;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TitleSearchIndexTest {
+
+    @Test
+    void splitsWordsIntoPaddedTrigrams() {
+        assertThat(TitleSearchIndex.grams("Ab, c!")).hasSize(3);
+        assertThat(TitleSearchIndex.grams("abc abc")).hasSize(3);
+        assertThat(TitleSearchIndex.grams(" \t ")).isEmpty();
+    }
+
+    @Test
+    void ranksClosestTitlesFirstAndToleratesTypos() {
+        var index = new TitleSearchIndex(false, 0.5);
+        add(index, "1", "The Left Hand of Darkness", "Ursula Le Guin");
+        add(index, "2", "The Dispossessed", "Ursula Le Guin");
+        add(index, "3", "Darkness at Noon", "Arthur Koestler");
+        add(index, "4", "Left Behind", "Tim LaHaye");
+
+        assertThat(index.search("left hand of darkness", 10).get(0)).isEqualTo("1");
+        assertThat(index.search("dispossesed", 10)).containsExactly("2");
+        assertThat(index.search("darkness", 10)).containsExactly("3", "1");
+        assertThat(index.search("darkness", 1)).containsExactly("3");
+        assertThat(index.search("ursula", 10)).isEmpty();
+        assertThat(index.search("?!", 10)).isEmpty();
+    }
+
+    @Test
+    void searchesAuthorsWhenConfigured() {
+        var index = new TitleSearchIndex(true, 0.5);
+        add(index, "1", "The Dispossessed", "Ursula Le Guin");
+
+        assertThat(index.search("ursula", 10)).containsExactly("1");
+    }
+
+    @Test
+    void followsEditsAndRemovalsAndReusesIds() {
+        var index = new TitleSearchIndex(false, 0.5);
+        var original = add(index, "1", "Solaris", "Stanislaw Lem");
+        var edited = Book.of("1", "Fiasco", "Stanislaw Lem", 9.90, "Polar");
+        index.onChange(original, edited, 2);
+
+        assertThat(index.search("solaris", 10)).isEmpty();
+        assertThat(index.search("fiasco", 10)).containsExactly("1");
+
+        index.onChange(edited, null, 3);
+        assertThat(index.search("fiasco", 10)).isEmpty();
+        assertThat(index.size()).isZero();
+
+        add(index, "2", "Fiasco", "Stanislaw Lem");
+        assertThat(index.search("fiasco", 10)).containsExactly("2");
+    }
+
+    @Test
+    void keepsTrigramsSharedByEditedTitle() {
+        var index = new TitleSearchIndex(false, 1.0);
+        var original = add(index, "1", "The Left Hand of Darkness", "Ursula K. Le Guin");
+        add(index, "2", "The Dispossessed", "Ursula K. Le Guin");
+        index.onChange(original, Book.of("1", "The Left Hand of Light", "Ursula K. Le Guin", 9.90, "Polar"), 2);
+
+        assertThat(index.search("left hand", 10)).containsExactly("1");
+        assertThat(index.search("light", 10)).containsExactly("1");
+        assertThat(index.search("darkness", 10)).isEmpty();
+        assertThat(index.search("the", 10)).containsExactlyInAnyOrder("1", "2");
+    }
+
+    private static Book add(TitleSearchIndex index, String isbn, String title, String author) {
+        var book = Book.of(isbn, title, author, 9.90, "Polar");
+        index.onChange(null, book, 1);
+        return book;
+    }
+}
@@ -0,0 +1,118 @@
+package org.catalog.persistence;
+
+import org.catalog.config.CatalogProperties;
+import org.catalog.model.Book;
+import org.catalog.store.VersionedBookStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reports the latency of durable writes under concurrent load and the time it takes to recover
+ * a large catalog from a snapshot and from the write-ahead log.
+ * Run with {@code ./gradlew benchmark}; the catalog size is set with {@code -Dbenchmark.books}.
+ */
+@Tag("benchmark")
+class CatalogPersistenceBenchmark {
+    private static final int BOOKS = Integer.getInteger("benchmark.books", 2_000_000);
+    private static final int WRITERS = 8;
+    private static final int WRITES = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void measureWriteLatency() throws Exception {
+        for (boolean syncWrites : new boolean[] {true, false}) {
+            var store = new VersionedBookStore(0, 64);
+            var persistence = new CatalogPersistence(store, properties(directory.resolve("writes-" + syncWrites), syncWrites));
+            persistence.afterPropertiesSet();
+            var pool = Executors.newFixedThreadPool(WRITERS);
+            try {
+                var futures = new ArrayList<Future<long[]>>();
+                for (int w = 0; w < WRITERS; w++) {
+                    int writer = w;
+                    futures.add(pool.submit(() -> {
+                        var latencies = new long[WRITES];
+                        for (int i = 0; i < WRITES; i++) {
+                            long start = System.nanoTime();
+                            store.putIfAbsent(book(writer * WRITES + i));
+                            persistence.awaitDurable();
+                            latencies[i] = System.nanoTime() - start;
+                        }
+                        return latencies;
+                    }));
+                }
+                long start = System.nanoTime();
+                var all = new long[WRITERS * WRITES];
+                for (int w = 0; w < WRITERS; w++) {
+                    System.arraycopy(futures.get(w).get(), 0, all, w * WRITES, WRITES);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Arrays.sort(all);
+                System.out.printf("sync writes %s, %d writers: %,.0f writes/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                        syncWrites, WRITERS, all.length / seconds, percentile(all, 0.50), percentile(all, 0.99),
+                        all[all.length - 1] / 1e6);
+            } finally {
+                pool.shutdownNow();
+                persistence.destroy();
+            }
+            assertThat(store.size()).isEqualTo(WRITERS * WRITES);
+        }
+    }
+
+    @Test
+    void measureRecoveryTime() throws Exception {
+        var fromSnapshot = directory.resolve("snapshot");
+        var fromLog = directory.resolve("log");
+        Files.createDirectories(fromSnapshot);
+        Files.createDirectories(fromLog);
+        var store = new VersionedBookStore(0, 64);
+        try (var wal = new WriteAheadLog(fromLog, 0, Duration.ZERO, 1 << 20)) {
+            store.addListener(wal);
+            for (int i = 0; i < BOOKS; i++) {
+                store.putIfAbsent(book(i));
+            }
+        }
+        long start = System.nanoTime();
+        SnapshotFile.write(fromSnapshot.resolve(CatalogPersistence.SNAPSHOT_FILE), 0, store.snapshot());
+        System.out.printf("snapshot of %,d books written in %.2f s%n", BOOKS, (System.nanoTime() - start) / 1e9);
+        store = null;
+
+        for (var source : new Path[] {fromSnapshot, fromLog}) {
+            System.gc();
+            var recovered = new VersionedBookStore(0, 64);
+            var persistence = new CatalogPersistence(recovered, properties(source, true));
+            start = System.nanoTime();
+            persistence.afterPropertiesSet();
+            System.out.printf("recovered %,d books from %s in %.2f s%n", recovered.size(),
+                    source.getFileName(), (System.nanoTime() - start) / 1e9);
+            assertThat(recovered.size()).isEqualTo(BOOKS);
+        }
+    }
+
+    private static CatalogProperties properties(Path directory, boolean syncWrites) {
+        return new CatalogProperties(null, null, null, new CatalogProperties.Persistence(true, directory.toString(),
+                syncWrites, Duration.ZERO, DataSize.ofMegabytes(1), Duration.ofHours(1), DataSize.ofGigabytes(1)), null, null);
+    }
+
+    private static Book book(int i) {
+        return Book.of(String.valueOf(9_780_000_000_000L + i), "Title " + i, "Author " + (i % 50_000),
+                10.0 + i % 90, "Publisher " + (i % 500));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1e6;
+    }
+}
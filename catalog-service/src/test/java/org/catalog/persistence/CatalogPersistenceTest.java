@@ -0,0 +1,144 @@
+package org.catalog.persistence;
+
+import org.catalog.config.CatalogProperties;
+import org.catalog.model.Book;
+import org.catalog.store.BookStore;
+import org.catalog.store.VersionedBookStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class CatalogPersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversMutationsFromTheLog() throws Exception {
+        try (var wal = new WriteAheadLog(directory, 0, Duration.ZERO, 1024)) {
+            wal.onChange(null, book("1", 1.0), 1);
+            wal.onChange(null, book("2", 2.0), 2);
+            wal.onChange(book("1", 1.0), book("1", 10.0), 3);
+            wal.onChange(book("2", 2.0), null, 4);
+            wal.awaitDurable();
+        }
+
+        var store = recover();
+
+        assertThat(store.snapshot().books()).extracting(Book::isbn).containsExactly("1");
+        assertThat(store.get("1").price()).isEqualTo(10.0);
+    }
+
+    @Test
+    void codecPreservesEveryField() {
+        var book = new Book(7L, "1", "Title", "Author", 9.9, "Polar", Instant.ofEpochSecond(10, 20),
+                Instant.ofEpochSecond(30, 40), "alice", "bob", 3);
+
+        var decoded = BookCodec.decode(ByteBuffer.wrap(BookCodec.encode(book)));
+
+        assertThat(decoded).isEqualTo(book);
+        assertThat(BookCodec.decode(ByteBuffer.wrap(BookCodec.encode(Book.of("2", "T", null, null, null)))))
+                .isEqualTo(Book.of("2", "T", null, null, null));
+    }
+
+    @Test
+    void snapshotsAndShutdownPreserveTheCatalog() throws Exception {
+        var store = new VersionedBookStore(4, 8);
+        var persistence = new CatalogPersistence(store, properties());
+        persistence.afterPropertiesSet();
+        store.putIfAbsent(book("1", 1.0));
+        store.putIfAbsent(book("2", 2.0));
+        persistence.snapshot();
+        store.computeIfPresent("2", book -> book("2", 20.0));
+        store.putIfAbsent(book("3", 3.0));
+        persistence.destroy();
+
+        try (var files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder(CatalogPersistence.SNAPSHOT_FILE, "wal-0000000000000002.log");
+        }
+        assertThat(recover().snapshot().books()).extracting(Book::price).containsExactly(1.0, 20.0, 3.0);
+    }
+
+    @Test
+    void replayingChangesAlreadyInTheSnapshotIsHarmless() throws Exception {
+        var source = new VersionedBookStore(4, 8);
+        try (var wal = new WriteAheadLog(directory, 0, Duration.ZERO, 1024)) {
+            source.addListener(wal);
+            source.putIfAbsent(book("1", 1.0));
+            source.putIfAbsent(book("2", 2.0));
+            SnapshotFile.write(directory.resolve(CatalogPersistence.SNAPSHOT_FILE), 0, source.snapshot());
+            source.remove("1");
+            source.computeIfPresent("2", book -> book("2", 20.0));
+        }
+
+        var store = recover();
+
+        assertThat(store.snapshot().books()).extracting(Book::price).containsExactly(20.0);
+    }
+
+    @Test
+    void discardsATornTail() throws Exception {
+        try (var wal = new WriteAheadLog(directory, 0, Duration.ZERO, 1024)) {
+            wal.onChange(null, book("1", 1.0), 1);
+            wal.onChange(null, book("2", 2.0), 2);
+        }
+        var segment = WriteAheadLog.segmentPath(directory, 0);
+        long intact = Files.size(segment);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(intact - 3);
+        }
+
+        var store = recover();
+
+        assertThat(store.snapshot().books()).extracting(Book::isbn).containsExactly("1");
+        assertThat(Files.size(segment)).isLessThan(intact - 3);
+    }
+
+    @Test
+    void failsOnADamagedSegmentBeforeTheLast() throws Exception {
+        try (var wal = new WriteAheadLog(directory, 0, Duration.ZERO, 1024)) {
+            wal.onChange(null, book("1", 1.0), 1);
+            wal.onChange(null, book("2", 2.0), 2);
+        }
+        try (var wal = new WriteAheadLog(directory, 1, Duration.ZERO, 1024)) {
+            wal.onChange(null, book("3", 3.0), 3);
+        }
+        var segment = WriteAheadLog.segmentPath(directory, 0);
+        long intact = Files.size(segment);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(intact - 3);
+        }
+
+        assertThatIllegalStateException().isThrownBy(this::recover)
+                .withMessageContaining(segment.getFileName().toString());
+        assertThat(Files.size(segment)).isEqualTo(intact - 3);
+    }
+
+    private BookStore recover() throws Exception {
+        var store = new VersionedBookStore(4, 8);
+        var persistence = new CatalogPersistence(store, properties());
+        persistence.afterPropertiesSet();
+        return store;
+    }
+
+    private CatalogProperties properties() {
+        return new CatalogProperties(null, null, null, new CatalogProperties.Persistence(true, directory.toString(),
+                true, Duration.ZERO, DataSize.ofKilobytes(64), Duration.ofHours(1), DataSize.ofMegabytes(64)), null, null);
+    }
+
+    private static Book book(String isbn, double price) {
+        return Book.of(isbn, "Title", "Author", price, "Polar");
+    }
+}
@@ -0,0 +1,96 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the heap footprint and garbage collection cost of {@link StripedBookStore},
+ * {@link VersionedBookStore} and {@link CompactBookStore} holding a large catalog. For each
+ * store it reports the live heap after loading, the pause of a full collection and the
+ * collections caused by a burst of edits.
+ * Run with {@code ./gradlew benchmark}; the catalog size is set with {@code -Dbenchmark.books},
+ * the stores with {@code -Dbenchmark.stores} and the heap with {@code -PbenchmarkHeap}.
+ */
+@Tag("benchmark")
+class BookStoreFootprintBenchmark {
+    private static final int BOOKS = Integer.getInteger("benchmark.books", 1_000_000);
+    private static final List<String> STORES = List.of(System.getProperty("benchmark.stores", "striped,versioned,compact").split(","));
+    private static final int EDITS = 500_000;
+
+    @Test
+    void compareFootprint() {
+        Map<String, Supplier<BookStore>> factories = Map.of(
+                "striped", () -> new StripedBookStore(0),
+                "versioned", () -> new VersionedBookStore(0, 64),
+                "compact", () -> new CompactBookStore(BOOKS));
+        System.out.printf("%-10s %12s %12s %14s %14s %16s%n", "store", "books", "heap MB", "bytes/book",
+                "full GC ms", "edit GC ms (n)");
+        for (String name : STORES) {
+            var baseline = fullGc();
+            var store = factories.get(name).get();
+            var random = new Random(42);
+            for (int i = 0; i < BOOKS; i++) {
+                store.putIfAbsent(book(i, random));
+            }
+            var loaded = fullGc();
+            long heap = loaded.usedHeap - baseline.usedHeap;
+
+            var before = gcTotals();
+            for (int i = 0; i < EDITS; i++) {
+                int index = random.nextInt(BOOKS);
+                store.computeIfPresent(isbn(index), existing -> book(index, random));
+            }
+            var after = gcTotals();
+
+            System.out.printf("%-10s %,12d %,12.1f %,14d %,14d %,10d (%d)%n", name, store.size(), heap / 1e6,
+                    heap / BOOKS, loaded.pauseMillis, after[1] - before[1], after[0] - before[0]);
+            assertThat(store.size()).isEqualTo(BOOKS);
+        }
+    }
+
+    private static Book book(int i, Random random) {
+        var created = Instant.ofEpochSecond(1_700_000_000L + i);
+        return new Book((long) i, isbn(i), "The " + Integer.toString(random.nextInt(), 36) + " of " + i,
+                "Author " + (i % 50_000), 5.0 + random.nextInt(9_000) / 100.0, "Publisher " + (i % 500),
+                created, created, "employee", "employee", 0);
+    }
+
+    private static String isbn(int i) {
+        return String.valueOf(9_780_000_000_000L + i);
+    }
+
+    private static GcSample fullGc() {
+        var before = gcTotals();
+        System.gc();
+        var after = gcTotals();
+        var runtime = Runtime.getRuntime();
+        return new GcSample(runtime.totalMemory() - runtime.freeMemory(), after[1] - before[1]);
+    }
+
+    /**
+     * Returns the number of collections and the accumulated collection time in milliseconds.
+     */
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return new long[] {count, millis};
+    }
+
+    private record GcSample(long usedHeap, long pauseMillis) {
+    }
+}
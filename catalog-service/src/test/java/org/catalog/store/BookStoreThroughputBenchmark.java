@@ -0,0 +1,146 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of {@link StripedBookStore}, {@link VersionedBookStore} and {@link CompactBookStore} with the {@code HashMap} the catalog used
+ * before, made thread-safe with a single monitor, under a read-mostly mix of catalog operations.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class BookStoreThroughputBenchmark {
+    private static final int BOOKS = 10_000;
+    private static final long MEASURE_MILLIS = 2_000;
+
+    @Test
+    void compareThroughput() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-12s %8s %16s%n", "store", "threads", "ops/s");
+        for (int threads = 1; threads <= Math.max(8, cores * 2); threads *= 2) {
+            long locked = measure(SynchronizedMapBookStore::new, threads);
+            long striped = measure(() -> new StripedBookStore(0), threads);
+            long versioned = measure(() -> new VersionedBookStore(0, 64), threads);
+            long compact = measure(() -> new CompactBookStore(BOOKS), threads);
+            System.out.printf("%-12s %8d %,16d%n", "synchronized", threads, locked);
+            System.out.printf("%-12s %8d %,16d%n", "striped", threads, striped);
+            System.out.printf("%-12s %8d %,16d%n", "versioned", threads, versioned);
+            System.out.printf("%-12s %8d %,16d%n", "compact", threads, compact);
+            assertThat(striped).isPositive();
+        }
+    }
+
+    private static long measure(Supplier<BookStore> storeFactory, int threads) throws Exception {
+        var store = storeFactory.get();
+        for (int i = 0; i < BOOKS; i++) {
+            store.putIfAbsent(Book.of(isbn(i), "Title " + i, "Author " + (i % 100), 10.0, "Polar"));
+        }
+        var pool = Executors.newFixedThreadPool(threads);
+        try {
+            var running = new AtomicBoolean(true);
+            var start = new CountDownLatch(1);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    var random = ThreadLocalRandom.current();
+                    long ops = 0;
+                    while (running.get()) {
+                        var isbn = isbn(random.nextInt(BOOKS));
+                        int dice = random.nextInt(100);
+                        if (dice < 90) {
+                            store.get(isbn);
+                        } else if (dice < 96) {
+                            store.computeIfPresent(isbn, book -> Book.of(book.isbn(), book.title(),
+                                    book.author(), book.price() + 1, book.publisher()));
+                        } else {
+                            var removed = store.remove(isbn);
+                            if (removed != null) {
+                                store.putIfAbsent(removed);
+                            }
+                        }
+                        ops++;
+                    }
+                    return ops;
+                }));
+            }
+            start.countDown();
+            TimeUnit.MILLISECONDS.sleep(MEASURE_MILLIS);
+            running.set(false);
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get();
+            }
+            return total * 1_000 / MEASURE_MILLIS;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String isbn(int i) {
+        return String.valueOf(9_780_000_000_000L + i);
+    }
+
+    /**
+     * The catalog's original {@code HashMap}, guarded by one monitor so it is correct under concurrency.
+     */
+    private static final class SynchronizedMapBookStore implements BookStore {
+        private final Map<String, Book> books = new HashMap<>();
+
+        @Override
+        public void addListener(BookStoreListener listener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized Book get(String isbn) {
+            return books.get(isbn);
+        }
+
+        @Override
+        public synchronized BookSnapshot snapshot() {
+            var sorted = new ArrayList<>(books.values());
+            sorted.sort(Comparator.comparing(Book::isbn));
+            return new BookSnapshot(0, BookTree.fromSorted(sorted));
+        }
+
+        @Override
+        public synchronized int size() {
+            return books.size();
+        }
+
+        @Override
+        public synchronized Book putIfAbsent(Book book) {
+            return books.putIfAbsent(book.isbn(), book);
+        }
+
+        @Override
+        public synchronized Book computeIfPresent(String isbn, UnaryOperator<Book> remapping) {
+            return books.computeIfPresent(isbn, (key, book) -> remapping.apply(book));
+        }
+
+        @Override
+        public synchronized Book removeIf(String isbn, Predicate<Book> condition) {
+            var book = books.get(isbn);
+            return book != null && condition.test(book) ? books.remove(isbn) : null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookTreeTest {
+
+    @Test
+    void randomOperationsMatchSortedMapAndStayBalanced() {
+        var random = new Random(42);
+        var expected = new TreeMap<String, Book>();
+        BookTree.Node root = null;
+        for (int i = 0; i < 20_000; i++) {
+            var isbn = String.valueOf(random.nextInt(2_000));
+            if (random.nextInt(3) == 0) {
+                root = BookTree.remove(root, isbn);
+                expected.remove(isbn);
+            } else {
+                var book = book(isbn, i);
+                root = BookTree.put(root, book);
+                expected.put(isbn, book);
+            }
+        }
+
+        assertThat(BookTree.size(root)).isEqualTo(expected.size());
+        assertThat(toList(root, null)).containsExactlyElementsOf(expected.values());
+        assertThat(BookTree.height(root)).isLessThanOrEqualTo((int) (1.45 * log2(expected.size() + 2)));
+        assertBalanced(root);
+        for (var entry : expected.entrySet()) {
+            assertThat(BookTree.get(root, entry.getKey())).isSameAs(entry.getValue());
+        }
+    }
+
+    @Test
+    void updatesLeaveEarlierRootsUntouched() {
+        var first = BookTree.put(null, book("1", 0));
+        var second = BookTree.put(first, book("2", 0));
+        var third = BookTree.remove(second, "1");
+
+        assertThat(toList(first, null)).extracting(Book::isbn).containsExactly("1");
+        assertThat(toList(second, null)).extracting(Book::isbn).containsExactly("1", "2");
+        assertThat(toList(third, null)).extracting(Book::isbn).containsExactly("2");
+        assertThat(BookTree.remove(third, "missing")).isSameAs(third);
+    }
+
+    @Test
+    void iterationStartsStrictlyAfterGivenIsbn() {
+        var books = new ArrayList<Book>();
+        for (int i = 10; i < 60; i += 10) {
+            books.add(book(String.valueOf(i), 0));
+        }
+        var root = BookTree.fromSorted(books);
+
+        assertThat(toList(root, "30")).extracting(Book::isbn).containsExactly("40", "50");
+        assertThat(toList(root, "35")).extracting(Book::isbn).containsExactly("40", "50");
+        assertThat(toList(root, "50")).isEmpty();
+        assertThat(toList(root, "")).hasSize(5);
+        assertBalanced(root);
+    }
+
+    private static List<Book> toList(BookTree.Node root, String after) {
+        var books = new ArrayList<Book>();
+        BookTree.iterator(root, after).forEachRemaining(books::add);
+        return books;
+    }
+
+    private static void assertBalanced(BookTree.Node node) {
+        if (node == null) {
+            return;
+        }
+        assertThat(Math.abs(BookTree.height(node.left) - BookTree.height(node.right))).isLessThanOrEqualTo(1);
+        assertBalanced(node.left);
+        assertBalanced(node.right);
+    }
+
+    private static double log2(int value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    private static Book book(String isbn, int revision) {
+        return Book.of(isbn, "Title " + revision, "Author", 9.90, "Polar");
+    }
+}
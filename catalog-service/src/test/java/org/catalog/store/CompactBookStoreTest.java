@@ -0,0 +1,107 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactBookStoreTest {
+
+    @Test
+    void materialisedBooksCarryEveryField() {
+        var store = new CompactBookStore(16);
+        var book = new Book(7L, "9781234567897", "Titolo è", "Author", 9.90, "Polar",
+                Instant.ofEpochSecond(10, 20), Instant.ofEpochSecond(30, 40), "alice", "bob", 3);
+        var sparse = Book.of("0042", null, null, null, null);
+
+        store.putIfAbsent(book);
+        store.putIfAbsent(sparse);
+
+        assertThat(store.get("9781234567897")).isEqualTo(book);
+        assertThat(store.get("0042")).isEqualTo(sparse);
+        assertThat(store.get("42")).isNull();
+        assertThat(store.putIfAbsent(Book.of("0042", "Other", null, null, null))).isEqualTo(sparse);
+    }
+
+    @Test
+    void authorsAndPublishersAreDictionaryEncoded() {
+        var store = new CompactBookStore(16);
+        for (int i = 0; i < 1_000; i++) {
+            store.putIfAbsent(Book.of(String.valueOf(9_780_000_000_000L + i), "Title " + i, "Author " + (i % 10),
+                    1.0, "Publisher " + (i % 3)));
+        }
+
+        assertThat(store.size()).isEqualTo(1_000);
+        assertThat(store.dictionarySize()).isEqualTo(13);
+    }
+
+    @Test
+    void listingsFollowIsbnStringOrder() {
+        var store = new CompactBookStore(16);
+        var isbns = List.of("2", "10", "010", "0010", "978-1-23", "9781", "97", "1", "X", "99999999999999999");
+        isbns.forEach(isbn -> store.putIfAbsent(Book.of(isbn, "Title", "Author", 1.0, "Polar")));
+
+        var expected = isbns.stream().sorted().toList();
+        assertThat(store.snapshot().books()).extracting(Book::isbn).containsExactlyElementsOf(expected);
+        assertThat(store.snapshot().booksAfter("10", 3)).extracting(Book::isbn).containsExactly("2", "97", "978-1-23");
+        assertThat(store.snapshot().booksAfter("1", 2)).extracting(Book::isbn).containsExactly("10", "2");
+        assertThat(store.snapshot().booksAfter("Z", 2)).isEmpty();
+    }
+
+    @Test
+    void randomMutationsMatchAReferenceMap() {
+        var store = new CompactBookStore(16);
+        var reference = new TreeMap<String, Book>();
+        var random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            var isbn = String.valueOf(9_780_000_000_000L + random.nextInt(5_000));
+            var book = Book.of(isbn, "Title " + random.nextInt(1_000_000), "Author " + random.nextInt(50),
+                    (double) random.nextInt(100), "Polar");
+            switch (random.nextInt(3)) {
+                case 0 -> assertThat(store.putIfAbsent(book)).isEqualTo(reference.putIfAbsent(isbn, book));
+                case 1 -> assertThat(store.computeIfPresent(isbn, existing -> book))
+                        .isEqualTo(reference.computeIfPresent(isbn, (key, existing) -> book));
+                default -> assertThat(store.remove(isbn)).isEqualTo(reference.remove(isbn));
+            }
+        }
+
+        var books = new ArrayList<Book>();
+        store.snapshot().books().forEach(books::add);
+        assertThat(books).containsExactlyElementsOf(reference.values());
+        assertThat(store.snapshot().generation()).isPositive();
+    }
+
+    @Test
+    void failingRemappingLeavesBookUntouched() {
+        var store = new CompactBookStore(16);
+        var original = Book.of("1234567890", "Title", "Author", 9.90, "Polar");
+        store.putIfAbsent(original);
+
+        assertThatThrownBy(() -> store.computeIfPresent("1234567890", book -> {
+            throw new IllegalStateException("rejected");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(store.get("1234567890")).isEqualTo(original);
+        assertThat(store.snapshot().generation()).isEqualTo(1);
+    }
+
+    @Test
+    void listenersSeeMaterialisedChanges() {
+        var store = new CompactBookStore(16);
+        var changes = new ArrayList<String>();
+        store.addListener((previous, current, generation) -> changes.add(generation + ":"
+                + (previous == null ? null : previous.title()) + "->" + (current == null ? null : current.title())));
+
+        store.putIfAbsent(Book.of("1", "A", null, null, null));
+        store.computeIfPresent("1", book -> Book.of("1", "B", null, null, null));
+        store.remove("1");
+
+        assertThat(changes).containsExactly("1:null->A", "2:A->B", "3:B->null");
+    }
+}
@@ -0,0 +1,184 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedBookStoreTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void stripeCountIsRoundedUpToPowerOfTwo() {
+        assertThat(new StripedBookStore(1).stripeCount()).isEqualTo(1);
+        assertThat(new StripedBookStore(5).stripeCount()).isEqualTo(8);
+        assertThat(new StripedBookStore(64).stripeCount()).isEqualTo(64);
+        assertThat(Integer.bitCount(new StripedBookStore(0).stripeCount())).isEqualTo(1);
+    }
+
+    @Test
+    void putIfAbsentKeepsExistingBook() {
+        var store = new StripedBookStore(4);
+        var original = Book.of("1234567890", "Title", "Author", 9.90, "Polar");
+
+        assertThat(store.putIfAbsent(original)).isNull();
+        assertThat(store.putIfAbsent(Book.of("1234567890", "Other", "Author", 1.0, "Polar"))).isSameAs(original);
+        assertThat(store.get("1234567890")).isSameAs(original);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void computeIfPresentAndRemoveReturnNullForMissingBook() {
+        var store = new StripedBookStore(4);
+
+        assertThat(store.computeIfPresent("1234567890", book -> book)).isNull();
+        assertThat(store.remove("1234567890")).isNull();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void failingRemappingLeavesBookUntouched() {
+        var store = new StripedBookStore(4);
+        var original = Book.of("1234567890", "Title", "Author", 9.90, "Polar");
+        store.putIfAbsent(original);
+
+        assertThatThrownBy(() -> store.computeIfPresent("1234567890", book -> {
+            throw new IllegalStateException("rejected");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(store.get("1234567890")).isSameAs(original);
+    }
+
+    @Test
+    void removeIfKeepsBookThatFailsCondition() {
+        var store = new StripedBookStore(4);
+        var original = Book.of("1234567890", "Title", "Author", 9.90, "Polar");
+        store.putIfAbsent(original);
+
+        assertThat(store.removeIf("1234567890", book -> book.version() == 1)).isNull();
+        assertThat(store.get("1234567890")).isSameAs(original);
+        assertThat(store.removeIf("1234567890", book -> book.version() == 0)).isSameAs(original);
+        assertThat(store.get("1234567890")).isNull();
+    }
+
+    @Test
+    void concurrentUpdatesOfOneIsbnAreNeverLost() throws Exception {
+        var store = new StripedBookStore(16);
+        store.putIfAbsent(Book.of("1234567890", "Title", "Author", 0.0, "Polar"));
+        int incrementsPerThread = 10_000;
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < incrementsPerThread; i++) {
+                store.computeIfPresent("1234567890", book ->
+                        Book.of(book.isbn(), book.title(), book.author(), book.price() + 1, book.publisher()));
+            }
+            return null;
+        });
+
+        assertThat(store.get("1234567890").price()).isEqualTo((double) THREADS * incrementsPerThread);
+    }
+
+    @Test
+    void concurrentInsertsOfOneIsbnHaveExactlyOneWinner() throws Exception {
+        var store = new StripedBookStore(16);
+        int rounds = 2_000;
+        var winners = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < rounds; i++) {
+                if (store.putIfAbsent(Book.of("isbn-" + i, "Title", "Author", (double) thread, "Polar")) == null) {
+                    winners.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        assertThat(winners.get()).isEqualTo(rounds);
+        assertThat(store.size()).isEqualTo(rounds);
+    }
+
+    @Test
+    void readersIterateSafelyWhileWritersMutate() throws Exception {
+        var store = new StripedBookStore(16);
+        var writing = new AtomicBoolean(true);
+        var isbns = 1_000;
+        var pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            var writers = new ArrayList<Future<?>>();
+            for (int w = 0; w < THREADS / 2; w++) {
+                int offset = w;
+                writers.add(pool.submit(() -> {
+                    for (int round = 0; round < 20; round++) {
+                        for (int i = offset; i < isbns; i += THREADS / 2) {
+                            var isbn = "isbn-" + i;
+                            if (store.putIfAbsent(Book.of(isbn, "Title", "Author", 1.0, "Polar")) != null) {
+                                store.remove(isbn);
+                            }
+                        }
+                    }
+                }));
+            }
+            var readers = new ArrayList<Future<Integer>>();
+            for (int r = 0; r < THREADS / 2; r++) {
+                readers.add(pool.submit(() -> {
+                    int seen = 0;
+                    while (writing.get()) {
+                        for (Book book : store.snapshot().books()) {
+                            assertThat(book.isbn()).startsWith("isbn-");
+                            seen++;
+                        }
+                    }
+                    return seen;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<Integer> reader : readers) {
+                assertThat(reader.get(30, TimeUnit.SECONDS)).isNotNegative();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(store.size()).isZero();
+    }
+
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        var pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            var start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit((Callable<Void>) () -> {
+                    start.await();
+                    return task.run(thread);
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        Void run(int thread) throws Exception;
+    }
+}
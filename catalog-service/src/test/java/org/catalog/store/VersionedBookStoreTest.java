@@ -0,0 +1,116 @@
+package org.catalog.store;
+
+import org.catalog.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionedBookStoreTest {
+
+    @Test
+    void snapshotIsUnaffectedByLaterWrites() {
+        var store = new VersionedBookStore(4, 8);
+        store.putIfAbsent(book("1", 1.0));
+        var snapshot = store.snapshot();
+
+        store.putIfAbsent(book("2", 2.0));
+        store.computeIfPresent("1", book -> book("1", 10.0));
+        store.remove("1");
+
+        assertThat(snapshot.generation()).isEqualTo(1);
+        assertThat(snapshot.books()).extracting(Book::price).containsExactly(1.0);
+        assertThat(store.snapshot().books()).extracting(Book::isbn).containsExactly("2");
+        assertThat(store.snapshot().generation()).isEqualTo(4);
+    }
+
+    @Test
+    void failedMutationsDoNotAdvanceGeneration() {
+        var store = new VersionedBookStore(4, 8);
+        store.putIfAbsent(book("1", 1.0));
+
+        assertThat(store.putIfAbsent(book("1", 2.0))).isNotNull();
+        assertThat(store.computeIfPresent("2", book -> book)).isNull();
+        assertThat(store.remove("2")).isNull();
+        assertThat(store.snapshot().generation()).isEqualTo(1);
+    }
+
+    @Test
+    void recentGenerationsAreRetained() {
+        var store = new VersionedBookStore(4, 4);
+        for (int i = 1; i <= 10; i++) {
+            store.putIfAbsent(book(String.valueOf(i), i));
+        }
+
+        assertThat(store.snapshotAt(10).size()).isEqualTo(10);
+        assertThat(store.snapshotAt(7).books()).extracting(Book::isbn).containsExactly("1", "2", "3", "4", "5", "6", "7");
+        assertThat(store.snapshotAt(6)).isNull();
+        assertThat(store.snapshotAt(11)).isNull();
+    }
+
+    @Test
+    void snapshotsStayConsistentUnderConcurrentWrites() throws Exception {
+        var store = new VersionedBookStore(16, 64);
+        var writing = new AtomicBoolean(true);
+        int writers = 4;
+        var pool = Executors.newFixedThreadPool(writers + 2);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int w = 0; w < writers; w++) {
+                int offset = w;
+                futures.add(pool.submit(() -> {
+                    for (int round = 0; round < 10; round++) {
+                        for (int i = offset; i < 2_000; i += writers) {
+                            var isbn = String.format("%05d", i);
+                            if (store.putIfAbsent(book(isbn, round)) != null) {
+                                store.computeIfPresent(isbn, book -> book(isbn, book.price() + 1));
+                            }
+                        }
+                    }
+                }));
+            }
+            var readers = new ArrayList<Future<Long>>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(pool.submit(() -> {
+                    long lastGeneration = -1;
+                    while (writing.get()) {
+                        var snapshot = store.snapshot();
+                        assertThat(snapshot.generation()).isGreaterThanOrEqualTo(lastGeneration);
+                        lastGeneration = snapshot.generation();
+                        String previous = null;
+                        int count = 0;
+                        for (Book book : snapshot.books()) {
+                            assertThat(previous == null || previous.compareTo(book.isbn()) < 0).isTrue();
+                            previous = book.isbn();
+                            count++;
+                        }
+                        assertThat(count).isEqualTo(snapshot.size());
+                    }
+                    return lastGeneration;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<Long> reader : readers) {
+                assertThat(reader.get(60, TimeUnit.SECONDS)).isNotNegative();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        var snapshot = store.snapshot();
+        assertThat(snapshot.generation()).isEqualTo(10 * 2_000);
+        assertThat(snapshot.books()).allSatisfy(book -> assertThat(book.price()).isEqualTo(9.0));
+    }
+
+    private static Book book(String isbn, double price) {
+        return Book.of(isbn, "Title", "Author", price, "Polar");
+    }
+}
@@ -0,0 +1,113 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.orders.config.OrderProperties;
+import org.orders.model.Book;
+import org.orders.model.BookLookup;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Gathers the lookups of single books into lookups of several books in the catalog, so that
+ * concurrent orders share one request to the catalog, and one connection, even for
+ * different books.
+ * <p>
+ * Every lookup is queued together with the {@link Sinks.One} its order waits on. The queue is
+ * cut into batches of at most the maximum size, and a batch that is not full is sent when its
+ * first lookup has waited for the window, so a lookup is delayed by the window at most. Every
+ * batch is resolved in one lookup of several books, up to the configured number at once, and
+ * each book found, or missing, is handed to the orders that asked for it. If the batch lookup
+ * fails, all of them get the error.
+ * <p>
+ * The batcher reports the sizes of the batches as the {@code catalog.lookup.batch.size} meter.
+ */
+public class BookBatcher {
+    private static final Duration EMIT_TIMEOUT = Duration.ofSeconds(1);
+
+    private final Sinks.Many<Request> requests = Sinks.many().unicast().onBackpressureBuffer();
+    private final Function<List<String>, Mono<BookLookup>> lookup;
+    private final DistributionSummary batchSizes;
+    private final Disposable batches;
+
+    /**
+     * Constructs a {@code BookBatcher} and starts to batch lookups.
+     *
+     * @param lookup   the lookup of several books in the catalog, which fails if the catalog
+     *                 cannot be reached
+     * @param settings the size and the window of the batches
+     * @param registry the registry of the meters of the batcher
+     * @throws IllegalArgumentException if the maximum size or the concurrency is not positive
+     */
+    public BookBatcher(Function<List<String>, Mono<BookLookup>> lookup, OrderProperties.BookBatch settings,
+                       MeterRegistry registry) {
+        if (settings.maxSize() < 1 || settings.concurrency() < 1) {
+            throw new IllegalArgumentException("The maximum size and the concurrency of book batches must be positive: "
+                    + settings.maxSize() + ", " + settings.concurrency());
+        }
+        this.lookup = lookup;
+        this.batchSizes = DistributionSummary.builder("catalog.lookup.batch.size")
+                .description("The number of distinct ISBNs looked up in one request to the catalog")
+                .register(registry);
+        this.batches = requests.asFlux()
+                .bufferTimeout(settings.maxSize(), settings.window(), true)
+                .flatMap(this::resolve, settings.concurrency())
+                .subscribe();
+    }
+
+    /**
+     * Returns the book with the given ISBN, looked up in the next batch.
+     *
+     * @param isbn the ISBN of the book
+     * @return a {@link Mono} emitting the book, empty if the catalog does not have it, or failing
+     * if the catalog could not be reached
+     */
+    public Mono<Book> get(String isbn) {
+        return Mono.defer(() -> {
+            var request = new Request(isbn, Sinks.one());
+            requests.emitNext(request, Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+            return request.book().asMono();
+        });
+    }
+
+    /**
+     * Stops batching. Lookups queued and not yet sent are never answered.
+     */
+    public void close() {
+        batches.dispose();
+    }
+
+    private Mono<Void> resolve(List<Request> batch) {
+        var isbns = batch.stream().map(Request::isbn).distinct().toList();
+        batchSizes.record(isbns.size());
+        return lookup.apply(isbns)
+                .map(BookLookup::found)
+                .defaultIfEmpty(List.of())
+                .doOnNext(found -> {
+                    var byIsbn = new HashMap<String, Book>();
+                    found.forEach(book -> byIsbn.putIfAbsent(book.isbn(), book));
+                    for (Request request : batch) {
+                        var book = byIsbn.get(request.isbn());
+                        if (book != null) {
+                            request.book().tryEmitValue(book);
+                        } else {
+                            request.book().tryEmitEmpty();
+                        }
+                    }
+                })
+                .onErrorResume(exception -> {
+                    batch.forEach(request -> request.book().tryEmitError(exception));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private record Request(String isbn, Sinks.One<Book> book) {
+    }
+}
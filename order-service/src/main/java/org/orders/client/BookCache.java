@@ -0,0 +1,250 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.orders.config.OrderProperties;
+import org.orders.model.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, in-process cache of the books looked up in the catalog, so that the orders for
+ * the same book do not each send their own request.
+ * <p>
+ * The cache keeps one entry per ISBN in a {@link ConcurrentHashMap}. An entry is either a
+ * lookup in flight or the result of one:
+ * - A lookup in flight holds a {@link Sinks.One} that every order for the book waits on, so
+ * concurrent misses for one ISBN share a single request to the catalog. The lookup runs to the
+ * end even if the order that started it is cancelled, since others may be waiting on it.
+ * - A found book is served until its time to live runs out. Once it is older than the refresh
+ * time, the first order to read it looks it up again in the background and keeps being served
+ * the cached book in the meantime, so a book that keeps being ordered never expires.
+ * - A book the catalog does not have is remembered as missing for a short time of its own.
+ * - A failed lookup is not cached: the orders waiting on it get the error, and the next order
+ * looks the book up again.
+ * <p>
+ * Results enter a queue in the order they were loaded. Beyond the maximum size, the cache
+ * evicts from the head of the queue, but gives an entry that was read since it was queued a
+ * second chance at the tail (the CLOCK approximation of LRU), so hot books stay and one-off
+ * lookups go first. Entries replaced by a reload are left in the queue and dropped when they
+ * reach its head; since they count towards the maximum size, the queue stays bounded too.
+ * <p>
+ * The cache reports the {@code cache.gets}, {@code cache.loads}, {@code cache.evictions} and
+ * {@code cache.size} meters, tagged with {@code cache=books}.
+ */
+public class BookCache {
+    static final String NAME = "books";
+    private static final Logger log = LoggerFactory.getLogger(BookCache.class);
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Function<String, Mono<Book>> loader;
+    private final LongSupplier clock;
+    private final int maxSize;
+    private final long ttl;
+    private final long refreshAfter;
+    private final long negativeTtl;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loads;
+    private final Counter refreshes;
+    private final Counter evictions;
+
+    /**
+     * Constructs an empty {@code BookCache}.
+     *
+     * @param loader   the lookup of a book in the catalog, which emits nothing if the catalog
+     *                 does not have it and fails if the catalog cannot be reached
+     * @param settings the size and the times to live of the cache
+     * @param registry the registry of the meters of the cache
+     * @param clock    the source of the current time in nanoseconds, such as {@link System#nanoTime()}
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public BookCache(Function<String, Mono<Book>> loader, OrderProperties.BookCache settings,
+                     MeterRegistry registry, LongSupplier clock) {
+        if (settings.maxSize() < 1) {
+            throw new IllegalArgumentException("The maximum size of the book cache must be positive: "
+                    + settings.maxSize());
+        }
+        this.loader = loader;
+        this.clock = clock;
+        this.maxSize = settings.maxSize();
+        this.ttl = settings.ttl().toNanos();
+        this.refreshAfter = settings.refreshAfter().toNanos();
+        this.negativeTtl = settings.negativeTtl().toNanos();
+        this.hits = counter(registry, "cache.gets", "result", "hit",
+                "The number of books, or missing books, served from the cache");
+        this.misses = counter(registry, "cache.gets", "result", "miss",
+                "The number of books waited for while they were looked up in the catalog");
+        this.loads = counter(registry, "cache.loads", "trigger", "miss",
+                "The number of books looked up in the catalog because they were not cached");
+        this.refreshes = counter(registry, "cache.loads", "trigger", "refresh",
+                "The number of books looked up again in the catalog ahead of their expiry");
+        this.evictions = Counter.builder("cache.evictions").tag("cache", NAME)
+                .description("The number of books evicted to keep the cache within its maximum size")
+                .register(registry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", NAME)
+                .description("The number of books cached or being looked up")
+                .register(registry);
+    }
+
+    /**
+     * Returns the book with the given ISBN, from the cache if it holds it, or else from the
+     * lookup of the book in flight, which this call starts if there is none.
+     *
+     * @param isbn the ISBN of the book
+     * @return a {@link Mono} emitting the book, empty if the catalog does not have it, or failing
+     * if the catalog could not be reached
+     */
+    public Mono<Book> get(String isbn) {
+        return Mono.defer(() -> lookup(isbn));
+    }
+
+    /**
+     * Returns the number of entries in the cache, lookups in flight included.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private Mono<Book> lookup(String isbn) {
+        long now = clock.getAsLong();
+        Entry entry = entries.get(isbn);
+        if (entry != null && entry.pending != null) {
+            misses.increment();
+            return entry.pending.asMono();
+        }
+        if (entry != null && now - entry.expiresAt < 0) {
+            hits.increment();
+            entry.used = true;
+            if (now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                refresh(entry);
+            }
+            return Mono.justOrEmpty(entry.book);
+        }
+
+        var loading = new Entry(isbn);
+        boolean started = entry == null
+                ? entries.putIfAbsent(isbn, loading) == null
+                : entries.replace(isbn, entry, loading);
+        if (!started) {
+            // Another order started a lookup or stored a result first
+            return lookup(isbn);
+        }
+        misses.increment();
+        loads.increment();
+        load(isbn).subscribe(
+                book -> {
+                    store(loading, book.orElse(null));
+                    if (book.isPresent()) {
+                        loading.pending.tryEmitValue(book.get());
+                    } else {
+                        loading.pending.tryEmitEmpty();
+                    }
+                },
+                exception -> {
+                    entries.remove(isbn, loading);
+                    loading.pending.tryEmitError(exception);
+                });
+        return loading.pending.asMono();
+    }
+
+    /**
+     * Looks the book of an entry up again and replaces the entry with the result. If the lookup
+     * fails, the entry is kept and served until it expires, without being refreshed again.
+     */
+    private void refresh(Entry entry) {
+        refreshes.increment();
+        load(entry.isbn).subscribe(
+                book -> store(entry, book.orElse(null)),
+                exception -> log.warn("Could not refresh book with ISBN {}", entry.isbn, exception));
+    }
+
+    private Mono<Optional<Book>> load(String isbn) {
+        return loader.apply(isbn).map(Optional::of).defaultIfEmpty(Optional.empty());
+    }
+
+    /**
+     * Replaces an entry with the result of a lookup, unless it was replaced or evicted meanwhile.
+     */
+    private void store(Entry previous, Book book) {
+        long now = clock.getAsLong();
+        var entry = book != null
+                ? new Entry(previous.isbn, book, now + ttl, now + refreshAfter)
+                : new Entry(previous.isbn, null, now + negativeTtl, now + negativeTtl);
+        if (entries.replace(previous.isbn, previous, entry)) {
+            queue.add(entry);
+            if (queued.incrementAndGet() > maxSize) {
+                evict();
+            }
+        }
+    }
+
+    private void evict() {
+        int spared = 0;
+        while (queued.get() > maxSize) {
+            Entry head = queue.poll();
+            if (head == null) {
+                return;
+            }
+            if (head.used && spared++ < maxSize && entries.get(head.isbn) == head) {
+                head.used = false;
+                queue.add(head);
+                continue;
+            }
+            queued.decrementAndGet();
+            if (entries.remove(head.isbn, head)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, String name, String tag, String value, String description) {
+        return Counter.builder(name).tag("cache", NAME).tag(tag, value).description(description).register(registry);
+    }
+
+    /**
+     * A lookup in flight, if {@code pending} is set, or else its result, with a {@code null}
+     * book if the catalog does not have it. Times are in the nanoseconds of the clock.
+     */
+    private static final class Entry {
+        final String isbn;
+        final Sinks.One<Book> pending;
+        final Book book;
+        final long expiresAt;
+        final long refreshAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile boolean used;
+
+        Entry(String isbn) {
+            this.isbn = isbn;
+            this.pending = Sinks.one();
+            this.book = null;
+            this.expiresAt = 0;
+            this.refreshAt = 0;
+        }
+
+        Entry(String isbn, Book book, long expiresAt, long refreshAt) {
+            this.isbn = isbn;
+            this.pending = null;
+            this.book = book;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package org.orders.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.orders.config.OrderProperties;
 import org.orders.model.Book;
+import org.orders.model.BookLookup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -10,6 +14,9 @@ import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * A client class that facilitates communication with an external book service
@@ -27,18 +34,63 @@ public class BookClient {
      * This base URI acts as the starting point for book-specific REST API requests.
      */
     private static final String BOOKS_ROOT_API = "/books/";
+    private static final String LOOKUP_API = BOOKS_ROOT_API + "lookup";
     private final WebClient webClient;
+    private final RequestHedger requestHedger;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final Duration deadline;
+    private final BookBatcher bookBatcher;
+    private final Function<String, Mono<Book>> bookLookup;
+    private final BookCache bookCache;
     private static final Logger log = LoggerFactory.getLogger(BookClient.class);
 
 
-    public BookClient(WebClient webClient) {
+    /**
+     * Constructs a {@code BookClient}, with a {@link BookCache} in front of the catalog and a
+     * {@link BookBatcher} gathering the lookups the cache cannot answer, unless they are disabled,
+     * a {@link RequestHedger} timing out and hedging the requests to the catalog, and a
+     * {@link ConcurrencyLimiter} keeping the requests in flight within what the catalog can
+     * serve, unless it is disabled.
+     *
+     * @param webClient       the client of the catalog service
+     * @param orderProperties the order configuration containing the settings of the cache, the
+     *                        batches, the hedging and the concurrency limit
+     * @param meterRegistry   the registry of the meters of the cache, the batches, the hedging
+     *                        and the concurrency limit
+     */
+    public BookClient(WebClient webClient, OrderProperties orderProperties, MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.requestHedger = new RequestHedger(orderProperties.hedging(), meterRegistry, System::nanoTime);
+        this.deadline = orderProperties.hedging().maxTimeout();
+        var concurrency = orderProperties.concurrency();
+        this.concurrencyLimiter = concurrency.enabled()
+                ? new ConcurrencyLimiter(concurrency, meterRegistry, System::nanoTime)
+                : null;
+        var batch = orderProperties.bookBatch();
+        this.bookBatcher = batch.enabled()
+                ? new BookBatcher(this::fetchBooksByIsbn, batch, meterRegistry)
+                : null;
+        this.bookLookup = bookBatcher != null ? bookBatcher::get : this::fetchBookByIsbn;
+        var cache = orderProperties.bookCache();
+        this.bookCache = cache.enabled()
+                ? new BookCache(bookLookup, cache, meterRegistry, System::nanoTime)
+                : null;
+    }
+
+    /**
+     * Stops batching the lookups of books when the application shuts down.
+     */
+    @PreDestroy
+    void close() {
+        if (bookBatcher != null) {
+            bookBatcher.close();
+        }
     }
 
     /**
-     * Retrieves a book by its ISBN from an external service.
-     * The method performs a non-blocking HTTP GET request using a WebClient,
-     * retrieves the book details as a Mono result, and handles potential errors.
+     * Retrieves a book by its ISBN, from the {@link BookCache} if it holds the book, or else
+     * from the external service, sharing the request with concurrent retrievals of the same book
+     * and, through the {@link BookBatcher}, with those of other books.
      * If the book is not found or an error occurs, an empty Mono is returned.
      *
      * @param isbn the ISBN of the book to be retrieved
@@ -46,20 +98,73 @@ public class BookClient {
      */
     public Mono<Book> getBookByIsbn(String isbn) {
         log.debug("Retrieving book with ISBN: {}", isbn);
-        return webClient
-                .get()
-                .uri(BOOKS_ROOT_API + isbn)
-                .retrieve()
-                .bodyToMono(Book.class)
-                .timeout(Duration.ofSeconds(3), Mono.empty())
-                .onErrorResume(WebClientResponseException.NotFound.class, exception -> {
-                    log.error("Book with ISBN {} not found", isbn);
-                    return Mono.empty();
-                })
-                .retryWhen(Retry.backoff(3, Duration.ofMillis(100)))
+        return (bookCache != null ? bookCache.get(isbn) : bookLookup.apply(isbn))
                 .onErrorResume(Exception.class, exception -> {
                     log.error("Error retrieving book with ISBN {}", isbn, exception);
                     return Mono.empty();
                 });
     }
+
+    /**
+     * Retrieves a book by its ISBN from the external service.
+     * The method performs a non-blocking HTTP GET request using a WebClient, hedged and timed
+     * out by the {@link RequestHedger} and limited by the {@link ConcurrencyLimiter}, and retries
+     * it on server and connection errors and on timeouts, which follow the latency of the catalog
+     * and so mostly cut off stragglers. A request rejected by the limiter is not retried.
+     * The retrieval gives up once the maximum timeout of a request has passed overall.
+     * Unlike {@link #getBookByIsbn(String)}, it tells a book that does not exist, for which it
+     * returns an empty Mono, from a failed request, for which it returns the error, so that
+     * the {@link BookCache} only remembers the former.
+     *
+     * @param isbn the ISBN of the book to be retrieved
+     * @return a {@link Mono} emitting the {@link Book} retrieved, empty if not found, or failing
+     */
+    Mono<Book> fetchBookByIsbn(String isbn) {
+        return requestHedger.send(() -> limited(() -> webClient
+                        .get()
+                        .uri(BOOKS_ROOT_API + isbn)
+                        .retrieve()
+                        .bodyToMono(Book.class)
+                        .onErrorResume(WebClientResponseException.NotFound.class, exception -> {
+                            log.error("Book with ISBN {} not found", isbn);
+                            return Mono.empty();
+                        })))
+                .retryWhen(retry())
+                .timeout(deadline);
+    }
+
+    /**
+     * Retrieves several books by ISBN from the external service in one request.
+     * The method performs a non-blocking HTTP POST request of the ISBNs using a WebClient, hedged
+     * and timed out by the {@link RequestHedger} and limited by the {@link ConcurrencyLimiter}, and
+     * retries it on server and connection errors and on timeouts, but not when the limiter
+     * rejected it. The retrieval gives up once the maximum timeout of a request has passed overall.
+     *
+     * @param isbns the distinct ISBNs of the books to be retrieved
+     * @return a {@link Mono} emitting the books found and the ISBNs missing, or failing
+     */
+    Mono<BookLookup> fetchBooksByIsbn(List<String> isbns) {
+        log.debug("Retrieving {} books in one lookup", isbns.size());
+        return requestHedger.send(() -> limited(() -> webClient
+                        .post()
+                        .uri(LOOKUP_API)
+                        .bodyValue(isbns)
+                        .retrieve()
+                        .bodyToMono(BookLookup.class)))
+                .retryWhen(retry())
+                .timeout(deadline);
+    }
+
+    private <T> Mono<T> limited(Supplier<Mono<T>> request) {
+        return concurrencyLimiter != null ? concurrencyLimiter.limit(request) : Mono.defer(request);
+    }
+
+    /**
+     * Returns the retries of a failed request, which back off and leave out the requests the
+     * {@link ConcurrencyLimiter} rejected, since retrying them would add to the overload.
+     */
+    private static Retry retry() {
+        return Retry.backoff(3, Duration.ofMillis(100))
+                .filter(exception -> !(exception instanceof ConcurrencyLimitExceededException));
+    }
 }
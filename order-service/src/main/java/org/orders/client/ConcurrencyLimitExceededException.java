@@ -0,0 +1,17 @@
+package org.orders.client;
+
+/**
+ * Thrown when a request to the catalog is rejected because the catalog already has as many
+ * requests in flight as the {@link ConcurrencyLimiter} allows, and as many waiting as it queues.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code ConcurrencyLimitExceededException}.
+     *
+     * @param limit the limit of the requests in flight when the request was rejected
+     */
+    public ConcurrencyLimitExceededException(int limit) {
+        super("The catalog already has its limit of " + limit + " requests in flight and a full queue");
+    }
+}
@@ -0,0 +1,262 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.orders.config.OrderProperties;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of requests in flight to the catalog to a limit it adapts to the latency of
+ * the catalog, so that an overloaded catalog is sent about as many requests as it can serve
+ * rather than a growing queue of requests that time out before they are served.
+ * <p>
+ * The limit follows the gradient algorithm of Netflix's concurrency-limits, with the baseline
+ * latency of TCP Vegas:
+ * - The latencies of the requests are averaged over windows of {@link #WINDOW_SAMPLES}, which
+ * gives the short-term latency.
+ * - The baseline latency, the latency of the catalog when it is not queueing, is the lowest
+ * short-term latency seen, let rise by {@link #BASELINE_DRIFT} every window so that a catalog
+ * that became slower for good is eventually taken at its new latency. An average of the
+ * short-term latencies would follow them up in a lasting overload, and let the limit grow again.
+ * - The ratio of the baseline to the short-term latency, times the configured tolerance and
+ * capped at 1, is the gradient: it stays at 1 while the latency is within the tolerance, and
+ * drops as requests start to queue in the catalog.
+ * - The new limit is the current one times the gradient, plus its square root as room to grow,
+ * smoothed, and kept within the configured bounds. The limit thus grows until the latency
+ * rises, and shrinks back to where it does not: the knee of the latency.
+ * - A window in which fewer than half the limit were in flight does not change the limit,
+ * which would otherwise grow without the catalog ever being tested at it.
+ * - Only the requests answered count: a request that failed may have failed fast, and one
+ * cancelled, because its hedge won or it timed out waiting for the limit, was cut short, and
+ * either would pass for a catalog faster than it is.
+ * <p>
+ * A request beyond the limit waits in a queue of bounded length for a request in flight to
+ * end; beyond the queue, it is rejected at once with a {@link ConcurrencyLimitExceededException}.
+ * <p>
+ * Unlike the other parts of the client, the limiter takes a lock: the limit, the count of
+ * requests in flight and the queue must change together, and the lock is only held for a few
+ * field updates per request.
+ * <p>
+ * The limiter reports the {@code catalog.requests.limit}, {@code catalog.requests.in.flight}
+ * and {@code catalog.requests.queued} gauges, and the {@code catalog.requests.rejected} counter.
+ */
+public class ConcurrencyLimiter {
+    static final int WINDOW_SAMPLES = 10;
+    static final double BASELINE_DRIFT = 0.001;
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CANCELLED = 2;
+
+    private final OrderProperties.Concurrency settings;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private final Counter rejected;
+    private volatile double limit;
+    private volatile int inFlight;
+    private int maxInFlight;
+    private double baselineRtt;
+    private long windowRtt;
+    private int windowSamples;
+
+    /**
+     * Constructs a {@code ConcurrencyLimiter} at its initial limit.
+     *
+     * @param settings the bounds of the limit, its tolerance to latency and the length of the queue
+     * @param registry the registry of the meters of the limiter
+     * @param clock    the source of the current time in nanoseconds, such as {@link System#nanoTime()}
+     * @throws IllegalArgumentException if the bounds of the limit are not positive and ordered
+     */
+    public ConcurrencyLimiter(OrderProperties.Concurrency settings, MeterRegistry registry, LongSupplier clock) {
+        if (settings.minLimit() < 1 || settings.minLimit() > settings.initialLimit()
+                || settings.initialLimit() > settings.maxLimit()) {
+            throw new IllegalArgumentException("The concurrency limits must be positive and ordered: "
+                    + settings.minLimit() + ", " + settings.initialLimit() + ", " + settings.maxLimit());
+        }
+        this.settings = settings;
+        this.clock = clock;
+        this.limit = settings.initialLimit();
+        this.rejected = Counter.builder("catalog.requests.rejected")
+                .description("The number of requests to the catalog rejected because the queue for the limit was full")
+                .register(registry);
+        Gauge.builder("catalog.requests.limit", this, ConcurrencyLimiter::limit)
+                .description("The current limit of the requests in flight to the catalog").register(registry);
+        Gauge.builder("catalog.requests.in.flight", this, ConcurrencyLimiter::inFlight)
+                .description("The number of requests in flight to the catalog").register(registry);
+        Gauge.builder("catalog.requests.queued", this, ConcurrencyLimiter::queued)
+                .description("The number of requests waiting for the limit to send to the catalog").register(registry);
+    }
+
+    /**
+     * Sends a request once the number of requests in flight is below the limit.
+     *
+     * @param request the supplier of the request
+     * @param <T>     the type of the answer
+     * @return a {@link Mono} emitting the answer, or failing with a
+     * {@link ConcurrencyLimitExceededException} if the queue for the limit was full
+     */
+    public <T> Mono<T> limit(Supplier<Mono<T>> request) {
+        return Mono.<Permit>create(this::acquire)
+                .flatMap(permit -> Mono.defer(() -> {
+                            permit.start = clock.getAsLong();
+                            return request.get();
+                        })
+                        .doOnSuccess(answer -> permit.completed = true)
+                        .doFinally(signal -> release(permit)));
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the limit of the requests in flight
+     */
+    public int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(MonoSink<Permit> sink) {
+        Waiter waiter = null;
+        boolean granted = false;
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                start();
+                granted = true;
+            } else if (waiters.size() < settings.maxQueue()) {
+                waiter = new Waiter(sink);
+                waiters.add(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (granted) {
+            sink.success(new Permit());
+        } else if (waiter != null) {
+            var queued = waiter;
+            sink.onCancel(() -> cancel(queued));
+        } else {
+            rejected.increment();
+            sink.error(new ConcurrencyLimitExceededException((int) limit));
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        if (waiter.state.compareAndSet(WAITING, CANCELLED)) {
+            lock.lock();
+            try {
+                waiters.remove(waiter);
+            } finally {
+                lock.unlock();
+            }
+        } else if (waiter.state.get() == GRANTED) {
+            // Cancelled as the permit was handed over, maybe before the request was sent
+            release(waiter.permit);
+        }
+    }
+
+    private void release(Permit permit) {
+        if (!permit.released.compareAndSet(false, true)) {
+            return;
+        }
+        var granted = new ArrayList<Waiter>();
+        lock.lock();
+        try {
+            inFlight--;
+            if (permit.completed) {
+                sample(clock.getAsLong() - permit.start);
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                var waiter = waiters.poll();
+                if (waiter.state.compareAndSet(WAITING, GRANTED)) {
+                    start();
+                    granted.add(waiter);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Waiter waiter : granted) {
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private void start() {
+        inFlight++;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+    }
+
+    /**
+     * Adds the latency of a request that ended to the current window, and adapts the limit
+     * when the window is full.
+     *
+     * @param rttNanos the time from the request being sent to it ending, in nanoseconds
+     */
+    void sample(long rttNanos) {
+        lock.lock();
+        try {
+            windowRtt += rttNanos;
+            if (++windowSamples < WINDOW_SAMPLES) {
+                return;
+            }
+            double shortRtt = Math.max(1, (double) windowRtt / windowSamples);
+            boolean applicationLimited = maxInFlight < limit / 2;
+            windowRtt = 0;
+            windowSamples = 0;
+            maxInFlight = inFlight;
+
+            baselineRtt = baselineRtt == 0 ? shortRtt : Math.min(shortRtt, baselineRtt * (1 + BASELINE_DRIFT));
+            if (applicationLimited) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1, settings.tolerance() * baselineRtt / shortRtt));
+            double target = limit * gradient + Math.sqrt(limit);
+            double smoothed = limit * (1 - settings.smoothing()) + target * settings.smoothing();
+            limit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), smoothed));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The right of a request to be in flight, given back once, when the request ends.
+     */
+    private static final class Permit {
+        final AtomicBoolean released = new AtomicBoolean();
+        volatile long start;
+        volatile boolean completed;
+    }
+
+    private static final class Waiter {
+        final MonoSink<Permit> sink;
+        final Permit permit = new Permit();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+}
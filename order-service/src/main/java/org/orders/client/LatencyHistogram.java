@@ -0,0 +1,142 @@
+package org.orders.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies over a rolling time window, to read their quantiles from.
+ * <p>
+ * Latencies are counted in microseconds, in log-linear buckets: every power of two is split
+ * into 8 buckets, so a quantile is read to within 12.5% whatever the scale, from a few
+ * microseconds to minutes, in under 500 buckets.
+ * <p>
+ * The window is split into slices, each with an array of bucket counters, used as a ring:
+ * the slice a latency falls in is found from the current time, and a slice left from a
+ * previous turn of the ring is cleared by the first latency recorded in it. Quantiles are read
+ * from the slices within the window. Recording takes no lock; a latency recorded while its
+ * slice is being cleared may be lost, which the histogram accepts for being approximate.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long sliceNanos;
+    private final AtomicLongArray[] slices;
+    private final AtomicLongArray epochs;
+
+    /**
+     * Constructs an empty {@code LatencyHistogram}.
+     *
+     * @param window the time latencies are kept for
+     * @param slices the number of slices the window is split into, the histogram forgetting
+     *               the latencies of a slice all at once when it leaves the window
+     * @throws IllegalArgumentException if the window is shorter than the number of slices in nanoseconds
+     */
+    public LatencyHistogram(Duration window, int slices) {
+        if (slices < 1 || window.toNanos() < slices) {
+            throw new IllegalArgumentException("The latency window must be split into at least one slice: "
+                    + window + ", " + slices);
+        }
+        this.sliceNanos = window.toNanos() / slices;
+        this.slices = new AtomicLongArray[slices];
+        for (int i = 0; i < slices; i++) {
+            this.slices[i] = new AtomicLongArray(BUCKETS);
+        }
+        this.epochs = new AtomicLongArray(slices);
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param latencyNanos the latency in nanoseconds
+     * @param nowNanos     the current time in nanoseconds, as the clock of the caller tells it
+     */
+    public void record(long latencyNanos, long nowNanos) {
+        long epoch = epoch(nowNanos);
+        int slice = Math.floorMod(epoch, slices.length);
+        long current = epochs.get(slice);
+        if (current != epoch && epochs.compareAndSet(slice, current, epoch)) {
+            var counts = slices[slice];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+        }
+        slices[slice].incrementAndGet(bucket(Math.max(0, latencyNanos) / 1_000));
+    }
+
+    /**
+     * Returns the number of latencies recorded within the window.
+     *
+     * @param nowNanos the current time in nanoseconds
+     * @return the number of latencies
+     */
+    public long count(long nowNanos) {
+        long total = 0;
+        for (long count : counts(nowNanos)) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns a quantile of the latencies recorded within the window, rounded up to the upper
+     * bound of its bucket.
+     *
+     * @param quantile the quantile, from 0 to 1, such as 0.95 for the 95th percentile
+     * @param nowNanos the current time in nanoseconds
+     * @return the quantile, or {@link Duration#ZERO} if no latency was recorded within the window
+     */
+    public Duration quantile(double quantile, long nowNanos) {
+        var counts = counts(nowNanos);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && total > 0; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Duration.ofNanos(Math.multiplyExact(upperBound(i), 1_000));
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    private long[] counts(long nowNanos) {
+        long epoch = epoch(nowNanos);
+        var counts = new long[BUCKETS];
+        for (int slice = 0; slice < slices.length; slice++) {
+            long age = epoch - epochs.get(slice);
+            if (age >= 0 && age < slices.length) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += slices[slice].get(i);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private long epoch(long nowNanos) {
+        return Math.floorDiv(nowNanos, sliceNanos);
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+    }
+}
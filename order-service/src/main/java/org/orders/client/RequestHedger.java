@@ -0,0 +1,217 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.orders.config.OrderProperties;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends requests to the catalog with a timeout and a hedge derived from their recent latencies,
+ * so that one slow catalog instance does not hold orders up.
+ * <p>
+ * The latencies of the requests are kept in a rolling {@link LatencyHistogram}: the time a
+ * request took to be answered, or for a request cancelled because it timed out or its hedge
+ * answered first, the time it had been waiting, which is as long as it took at least. The
+ * stragglers thus keep counting while the catalog is slow, rather than only the requests fast
+ * enough to be answered. Once the histogram holds enough latencies:
+ * - A request still unanswered after the configured quantile of the latencies, the 95th
+ * percentile by default, is sent a second time, and the first answer wins; the other request
+ * is cancelled. A request that fails while the other is still in flight does not end the
+ * exchange, so a failed request does not throw away a hedge already sent, nor the reverse.
+ * - A request times out after a multiple of the 99th percentile, within the configured bounds.
+ * Until then, requests are not hedged and time out after the maximum timeout.
+ * <p>
+ * Hedges are paid for from a budget, which every request adds a fraction of a hedge to, up to
+ * a few hedges in reserve, so the hedges can never add more than that fraction to the load on
+ * the catalog, even when it is slow all over rather than in a few straggling requests.
+ * <p>
+ * The timeout and the hedge delay are read from the histogram at most every
+ * {@link #LIMITS_PERIOD} rather than for every request.
+ * <p>
+ * The hedger reports the {@code catalog.requests.hedges} meter, tagged with
+ * {@code outcome=sent}, {@code won} or {@code denied} for the hedges the budget refused, and
+ * the current {@code catalog.requests.hedge.delay} and {@code catalog.requests.timeout}.
+ */
+public class RequestHedger {
+    static final Duration LIMITS_PERIOD = Duration.ofMillis(100);
+    private static final long HEDGE = 1_000;
+    private static final long BUDGET_RESERVE = 10 * HEDGE;
+    private static final int SLICES = 6;
+
+    private final OrderProperties.Hedging settings;
+    private final LongSupplier clock;
+    private final LatencyHistogram latencies;
+    private final AtomicLong budget = new AtomicLong(BUDGET_RESERVE);
+    private final long deposit;
+    private final AtomicLong nextLimits;
+    private volatile Limits limits;
+    private final Counter sent;
+    private final Counter won;
+    private final Counter denied;
+
+    /**
+     * Constructs a {@code RequestHedger} that knows no latency yet.
+     *
+     * @param settings the quantile, the budget and the timeouts of the hedging
+     * @param registry the registry of the meters of the hedger
+     * @param clock    the source of the current time in nanoseconds, such as {@link System#nanoTime()}
+     */
+    public RequestHedger(OrderProperties.Hedging settings, MeterRegistry registry, LongSupplier clock) {
+        this.settings = settings;
+        this.clock = clock;
+        this.latencies = new LatencyHistogram(settings.window(), SLICES);
+        this.deposit = Math.round(settings.budget() * HEDGE);
+        this.limits = new Limits(null, settings.maxTimeout());
+        this.nextLimits = new AtomicLong(clock.getAsLong());
+        this.sent = counter(registry, "sent", "The number of requests to the catalog sent a second time");
+        this.won = counter(registry, "won", "The number of hedges answered before the requests they hedged");
+        this.denied = counter(registry, "denied", "The number of hedges not sent for lack of budget");
+        Gauge.builder("catalog.requests.hedge.delay", this, hedger -> seconds(hedger.limits().hedgeDelay()))
+                .description("The time after which a request to the catalog is hedged, or 0 if none is")
+                .baseUnit("seconds").register(registry);
+        Gauge.builder("catalog.requests.timeout", this, hedger -> seconds(hedger.limits().timeout()))
+                .description("The time after which a request to the catalog times out")
+                .baseUnit("seconds").register(registry);
+    }
+
+    /**
+     * Sends a request, and a hedge of it if it is slow and the budget allows.
+     *
+     * @param request the supplier of the request, called once for the request and once for the hedge
+     * @param <T>     the type of the answer
+     * @return a {@link Mono} emitting the first answer, or failing with a
+     * {@link java.util.concurrent.TimeoutException} if none came in time
+     */
+    public <T> Mono<T> send(Supplier<Mono<T>> request) {
+        return Mono.defer(() -> {
+            var limits = limits();
+            deposit();
+            if (!settings.enabled() || limits.hedgeDelay() == null) {
+                return timed(request, true).timeout(limits.timeout());
+            }
+            // The requests in flight, down to 0 once the last one failed, when no hedge is sent any more
+            var inFlight = new AtomicInteger(1);
+            Mono<T> primary = timed(request, true).onErrorResume(ex -> failed(ex, inFlight));
+            Mono<T> hedge = Mono.delay(limits.hedgeDelay()).flatMap(tick -> {
+                if (inFlight.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+                    return Mono.never();
+                }
+                if (!withdraw()) {
+                    denied.increment();
+                    return failed(null, inFlight);
+                }
+                sent.increment();
+                return timed(request, false).doOnSuccess(answer -> won.increment())
+                        .onErrorResume(ex -> failed(ex, inFlight));
+            });
+            return Mono.firstWithSignal(primary, hedge).timeout(limits.timeout());
+        });
+    }
+
+    /**
+     * Returns the current hedge delay and timeout, reading them again from the latencies if
+     * they are older than {@link #LIMITS_PERIOD}.
+     */
+    Limits limits() {
+        long now = clock.getAsLong();
+        long next = nextLimits.get();
+        if (now - next >= 0 && nextLimits.compareAndSet(next, now + LIMITS_PERIOD.toNanos())) {
+            limits = readLimits(now);
+        }
+        return limits;
+    }
+
+    private Limits readLimits(long now) {
+        if (latencies.count(now) < settings.minSamples()) {
+            return new Limits(null, settings.maxTimeout());
+        }
+        var tail = latencies.quantile(0.99, now);
+        var timeout = clamp(Duration.ofNanos((long) (tail.toNanos() * settings.timeoutFactor())),
+                settings.minTimeout(), settings.maxTimeout());
+        var hedgeDelay = latencies.quantile(settings.quantile(), now);
+        return new Limits(hedgeDelay.compareTo(timeout) < 0 ? hedgeDelay : null, timeout);
+    }
+
+    /**
+     * Ends the exchange with the failure of one of its requests if no other request is left
+     * in flight, or else leaves the answer to the other request.
+     *
+     * @param failure the failure, or {@code null} for a hedge that was not sent
+     */
+    private static <T> Mono<T> failed(Throwable failure, AtomicInteger inFlight) {
+        if (inFlight.decrementAndGet() > 0 || failure == null) {
+            return Mono.never();
+        }
+        return Mono.error(failure);
+    }
+
+    /**
+     * Sends a request, recording the time it took to be answered, or if it is cancelled and
+     * cancellations are recorded, the time it had been waiting.
+     * A hedge cancelled because the request it hedged was answered was only sent late, so its
+     * wait says nothing of the latency of the catalog; a hedge that times out was waited for as
+     * long as the request it hedged, which records it.
+     */
+    private <T> Mono<T> timed(Supplier<Mono<T>> request, boolean recordsCancellation) {
+        return Mono.defer(() -> {
+            long start = clock.getAsLong();
+            var recorded = new AtomicBoolean();
+            return request.get()
+                    .doOnSuccess(answer -> record(start, recorded))
+                    .doOnCancel(() -> {
+                        if (recordsCancellation) {
+                            record(start, recorded);
+                        }
+                    });
+        });
+    }
+
+    private void record(long start, AtomicBoolean recorded) {
+        if (recorded.compareAndSet(false, true)) {
+            long end = clock.getAsLong();
+            latencies.record(end - start, end);
+        }
+    }
+
+    private void deposit() {
+        budget.getAndUpdate(tokens -> Math.min(BUDGET_RESERVE, tokens + deposit));
+    }
+
+    private boolean withdraw() {
+        long tokens;
+        do {
+            tokens = budget.get();
+            if (tokens < HEDGE) {
+                return false;
+            }
+        } while (!budget.compareAndSet(tokens, tokens - HEDGE));
+        return true;
+    }
+
+    private static Duration clamp(Duration duration, Duration min, Duration max) {
+        return duration.compareTo(min) < 0 ? min : duration.compareTo(max) > 0 ? max : duration;
+    }
+
+    private static double seconds(Duration duration) {
+        return duration == null ? 0 : duration.toNanos() / 1e9;
+    }
+
+    private static Counter counter(MeterRegistry registry, String outcome, String description) {
+        return Counter.builder("catalog.requests.hedges").tag("outcome", outcome)
+                .description(description).register(registry);
+    }
+
+    /**
+     * The delay after which a request is hedged, {@code null} if it is not, and its timeout.
+     */
+    record Limits(Duration hedgeDelay, Duration timeout) {
+    }
+}
@@ -0,0 +1,172 @@
+package org.orders.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the orders, bound from the properties prefixed with
+ * "orders" in the application's configuration files.
+ *
+ * @param ids         the settings of the generation of order ids
+ * @param bookCache   the settings of the cache of the books looked up in the catalog
+ * @param bookBatch   the settings of the batching of the lookups of books in the catalog
+ * @param hedging     the settings of the timeouts and the hedging of the requests to the catalog
+ * @param concurrency the settings of the limit of the requests in flight to the catalog
+ * @param orderBatch  the settings of the submission of orders in batches
+ * @param paging      the settings of the pages of the listings of orders
+ * @param journal     the settings of the journal the orders are kept in on the disk
+ * @param tiering     the settings of the archive the older orders are moved to out of memory
+ */
+@ConfigurationProperties(prefix = "orders")
+public record OrderProperties(@DefaultValue Ids ids,
+                              @DefaultValue BookCache bookCache,
+                              @DefaultValue BookBatch bookBatch,
+                              @DefaultValue Hedging hedging,
+                              @DefaultValue Concurrency concurrency,
+                              @DefaultValue OrderBatch orderBatch,
+                              @DefaultValue Paging paging,
+                              @DefaultValue Journal journal,
+                              @DefaultValue Tiering tiering) {
+
+    /**
+     * Settings of the {@link org.orders.service.OrderIdGenerator}.
+     *
+     * @param node the number of this instance among the instances of the service, from 0 to 31,
+     *             which must be different for every instance running at the same time; it has
+     *             no default, since instances left to the same default would generate the same
+     *             ids, and the service does not start without it
+     */
+    public record Ids(Integer node) {
+    }
+
+    /**
+     * Settings of the {@link org.orders.client.BookCache}.
+     *
+     * @param enabled      whether books are cached, rather than looked up in the catalog for every order
+     * @param maxSize      the number of books beyond which the books not read recently are evicted
+     * @param ttl          the time after which a cached book is no longer served
+     * @param refreshAfter the time after which a book that is still being ordered is looked up
+     *                     again in the background, while the cached one keeps being served
+     * @param negativeTtl  the time for which a book the catalog does not have is remembered as missing
+     */
+    public record BookCache(@DefaultValue("true") boolean enabled,
+                            @DefaultValue("10000") int maxSize,
+                            @DefaultValue("5m") Duration ttl,
+                            @DefaultValue("1m") Duration refreshAfter,
+                            @DefaultValue("5s") Duration negativeTtl) {
+    }
+
+    /**
+     * Settings of the {@link org.orders.client.BookBatcher}.
+     *
+     * @param enabled     whether concurrent lookups are sent to the catalog together,
+     *                    rather than each in a request of its own
+     * @param maxSize     the largest number of ISBNs in one request, which must not exceed
+     *                    the largest lookup the catalog accepts
+     * @param window      the longest time a lookup waits for others to share its request
+     * @param concurrency the largest number of requests in flight at once
+     */
+    public record BookBatch(@DefaultValue("true") boolean enabled,
+                            @DefaultValue("100") int maxSize,
+                            @DefaultValue("5ms") Duration window,
+                            @DefaultValue("8") int concurrency) {
+    }
+
+    /**
+     * Settings of the {@link org.orders.client.RequestHedger}.
+     *
+     * @param enabled       whether slow requests are sent a second time, rather than only timed out
+     * @param quantile      the quantile of the recent latencies after which a request is hedged
+     * @param budget        the largest fraction of the requests that may be hedged
+     * @param window        the time the latencies are kept for
+     * @param minSamples    the number of latencies needed before requests are hedged and timed
+     *                      out from them rather than after the maximum timeout
+     * @param timeoutFactor the multiple of the 99th percentile of the latencies after which a request times out
+     * @param minTimeout    the shortest timeout of a request
+     * @param maxTimeout    the longest timeout of a request
+     */
+    public record Hedging(@DefaultValue("true") boolean enabled,
+                          @DefaultValue("0.95") double quantile,
+                          @DefaultValue("0.1") double budget,
+                          @DefaultValue("30s") Duration window,
+                          @DefaultValue("100") int minSamples,
+                          @DefaultValue("3") double timeoutFactor,
+                          @DefaultValue("250ms") Duration minTimeout,
+                          @DefaultValue("3s") Duration maxTimeout) {
+    }
+
+    /**
+     * Settings of the {@link org.orders.client.ConcurrencyLimiter}.
+     *
+     * @param enabled      whether the requests in flight to the catalog are limited
+     * @param initialLimit the limit of the requests in flight before any latency is known
+     * @param minLimit     the lowest the limit goes, however slow the catalog
+     * @param maxLimit     the highest the limit goes, however fast the catalog
+     * @param tolerance    the ratio of the latency of the catalog to its latency when it is not
+     *                     queueing, up to which the limit keeps growing
+     * @param smoothing    the fraction of the way to its new value the limit moves every window
+     * @param maxQueue     the number of requests that may wait for the limit, beyond which
+     *                     requests are rejected at once
+     */
+    public record Concurrency(@DefaultValue("true") boolean enabled,
+                              @DefaultValue("20") int initialLimit,
+                              @DefaultValue("4") int minLimit,
+                              @DefaultValue("200") int maxLimit,
+                              @DefaultValue("1.5") double tolerance,
+                              @DefaultValue("0.2") double smoothing,
+                              @DefaultValue("100") int maxQueue) {
+    }
+
+    /**
+     * Settings of the submission of orders in batches by the {@link org.orders.service.OrderService}.
+     *
+     * @param concurrency the largest number of orders of a batch being submitted at once
+     */
+    public record OrderBatch(@DefaultValue("32") int concurrency) {
+    }
+
+    /**
+     * Settings of the pages in which the {@link org.orders.service.OrderService} lists orders.
+     *
+     * @param defaultSize the number of orders of a page when the client does not ask for one
+     * @param maxSize     the largest number of orders of a page, whatever the client asks for
+     */
+    public record Paging(@DefaultValue("100") int defaultSize,
+                         @DefaultValue("1000") int maxSize) {
+    }
+
+    /**
+     * Settings of the {@link org.orders.store.OrderJournal}.
+     *
+     * @param enabled     whether orders are written to the journal, and answered once they are on
+     *                    the disk, rather than kept in memory only
+     * @param directory   the directory of the segments of the journal
+     * @param segmentSize the size beyond which the journal goes on in a new segment, below 2GB,
+     *                    which is also the unit in which orders are archived
+     * @param maxBatch    the largest number of orders forced to the disk together
+     */
+    public record Journal(@DefaultValue("true") boolean enabled,
+                          @DefaultValue("data/journal") String directory,
+                          @DefaultValue("16MB") DataSize segmentSize,
+                          @DefaultValue("1024") int maxBatch) {
+    }
+
+    /**
+     * Settings of the moving of the older orders from the {@link org.orders.store.OrderStore}
+     * to the {@link org.orders.store.OrderArchive}, which needs the journal to be enabled.
+     *
+     * @param enabled      whether the older orders are archived, rather than all kept in memory
+     * @param directory    the directory of the segments of the archive
+     * @param maxHotOrders the number of orders kept in memory beyond which the oldest segments
+     *                     of the journal are archived
+     * @param blockSize    the size of the blocks of orders compressed and read together, below 1GB
+     */
+    public record Tiering(@DefaultValue("true") boolean enabled,
+                          @DefaultValue("data/archive") String directory,
+                          @DefaultValue("1000000") long maxHotOrders,
+                          @DefaultValue("16KB") DataSize blockSize) {
+    }
+}
@@ -1,15 +1,26 @@
 package org.orders.controller;
 
 import org.orders.model.Order;
+import org.orders.model.OrderPage;
 import org.orders.model.OrderRequest;
+import org.orders.model.OrderStatus;
 import org.orders.service.OrderService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -21,8 +32,11 @@ import java.util.List;
  * This class delegates the business logic to the {@link OrderService}.
  * <p>
  * The controller provides endpoints for:
- * - Retrieving a list of all existing orders.
+ * - Retrieving the existing orders page by page, optionally filtered by status and book ISBN,
+ * or streaming them as newline-delimited JSON or server-sent events.
+ * - Retrieving a single order by its id.
  * - Submitting a new order based on a provided {@link OrderRequest}.
+ * - Submitting a batch of orders, streamed in and answered as they are processed.
  * <p>
  * Logging is employee to track and debug the operations performed, ensuring
  * better traceability and visibility into the controller's behavior.
@@ -57,14 +71,82 @@ public class OrderController {
     }
 
     /**
-     * Retrieves all existing orders.
+     * Retrieves a page of the existing orders, or of the orders with the given status and/or for
+     * the given book, in the order they were created.
+     * Unless it is the last page, the response links to the next page in a {@code Link} header
+     * with the relation {@code next}, which starts after the last order of this page.
      *
-     * @return a list of all orders available, represented as {@link Order} objects.
+     * @param status  the status of the orders to retrieve, or {@code null} for any status
+     * @param isbn    the ISBN of the book of the orders to retrieve, or {@code null} for any book
+     * @param after   the id of the last order of the previous page, or {@code null} for the first page
+     * @param size    the number of orders of the page, or {@code null} for the default
+     * @param request the request, from which the link to the next page is built
+     * @return a {@link Mono} emitting a list of the matching orders, represented as {@link Order}
+     * objects, in the order they were created, or a 400 (Bad Request) response if the size is
+     * not positive or there is no order with the id to start after
      */
     @GetMapping
-    List<Order> getAllOrders() {
-        log.debug("Retrieving all orders");
-        return orderService.getAllOrders();
+    Mono<ResponseEntity<List<Order>>> getOrders(@RequestParam(required = false) OrderStatus status,
+                                          @RequestParam(required = false) String isbn,
+                                          @RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer size,
+                                          ServerHttpRequest request) {
+        log.debug("Retrieving orders with status {} for ISBN {} after ID {}", status, isbn, after);
+        return orderService.getOrders(status, isbn, after, size).map(page -> page(page, request));
+    }
+
+    /**
+     * Builds the response of a page of orders, linking to the next page unless it is the last one.
+     *
+     * @param page    the page of orders
+     * @param request the request, from which the link to the next page is built
+     * @return the response with the orders of the page
+     */
+    private static ResponseEntity<List<Order>> page(OrderPage page, ServerHttpRequest request) {
+        var response = ResponseEntity.ok();
+        if (page.nextAfter() != null) {
+            var next = UriComponentsBuilder.fromPath(request.getPath().value())
+                    .query(request.getURI().getRawQuery())
+                    .replaceQueryParam("after", page.nextAfter())
+                    .build(true);
+            response.header(HttpHeaders.LINK, "<" + next.toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(page.orders());
+    }
+
+    /**
+     * Streams the existing orders, or the orders with the given status and/or for the given
+     * book, in the order they were created, as newline-delimited JSON or server-sent events.
+     * The orders are read as the client takes them, so that a listing of any length is served
+     * without holding it in memory.
+     *
+     * @param status the status of the orders to stream, or {@code null} for any status
+     * @param isbn   the ISBN of the book of the orders to stream, or {@code null} for any book
+     * @param after  the id of the order after which to start, or {@code null} to start from the first order
+     * @return a {@link Flux} emitting the matching {@link Order}s, or a 400 (Bad Request)
+     * response if there is no order with the id to start after
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    Flux<Order> streamOrders(@RequestParam(required = false) OrderStatus status,
+                             @RequestParam(required = false) String isbn,
+                             @RequestParam(required = false) Long after) {
+        log.debug("Streaming orders with status {} for ISBN {} after ID {}", status, isbn, after);
+        return orderService.streamOrders(status, isbn, after);
+    }
+
+    /**
+     * Retrieves the order with the given id, whether it is still in memory or archived.
+     *
+     * @param id the id of the order
+     * @return a {@link Mono} emitting the {@link Order}, or a 404 (Not Found) response if there
+     * is no such order
+     */
+    @GetMapping("/{id}")
+    Mono<ResponseEntity<Order>> getOrder(@PathVariable long id) {
+        log.debug("Retrieving order with ID: {}", id);
+        return orderService.getOrder(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     /**
@@ -74,11 +156,45 @@ public class OrderController {
      * the availability of the book and other criteria.
      *
      * @param orderRequest the order request containing the ISBN of the book and the quantity to order
-     * @return a {@link Mono} that emits the {@link Order} created, which may either be accepted or rejected
+     * @return a {@link Mono} that emits the {@link Order} created, which may either be accepted or
+     * rejected, or a 400 (Bad Request) response if the ISBN is longer than any ISBN
      */
     @PostMapping
     public Mono<Order> submitOrder(@RequestBody OrderRequest orderRequest) {
         log.debug("Submitting order for ISBN: {}", orderRequest.isbn());
         return orderService.submitOrder(orderRequest);
     }
+
+    /**
+     * Submits a batch of orders, read from a JSON array or from newline-delimited JSON as they
+     * arrive, and streams back the order created for each, as newline-delimited JSON in the
+     * order of the requests.
+     * Batch buyers can thus submit hundreds of orders in one request, with the books of the
+     * batch looked up once per ISBN, rather than one request per order.
+     *
+     * @param orderRequests the order requests, each containing the ISBN of the book and the quantity to order
+     * @return a {@link Flux} that emits the {@link Order}s created, each either accepted or
+     * rejected, and a rejected order without an id for a request that could not be ordered at
+     * all, such as one with an ISBN longer than any ISBN
+     */
+    @PostMapping(path = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Order> submitOrders(@RequestBody Flux<OrderRequest> orderRequests) {
+        log.debug("Submitting a batch of orders");
+        return orderService.submitOrders(orderRequests);
+    }
+
+    /**
+     * Answers a request with arguments the service refused, such as an unknown order to start
+     * a listing after, with a 400 (Bad Request) response.
+     *
+     * @param exception the exception thrown by the service
+     * @return a 400 (Bad Request) response with the message of the exception
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    ResponseEntity<String> handleIllegalArgument(IllegalArgumentException exception) {
+        log.debug("Refused request: {}", exception.getMessage());
+        return ResponseEntity.badRequest().body(exception.getMessage());
+    }
 }
@@ -0,0 +1,12 @@
+package org.orders.model;
+
+import java.util.List;
+
+/**
+ * Represents the answer of the catalog service to a lookup of several books by ISBN at once.
+ *
+ * @param found   the books found, in the order their ISBNs were first requested
+ * @param missing the requested ISBNs that are not in the catalog, in the order requested
+ */
+public record BookLookup(List<Book> found, List<String> missing) {
+}
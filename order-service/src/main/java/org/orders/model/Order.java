@@ -1,7 +1,6 @@
 package org.orders.model;
 
 import java.time.Instant;
-import java.util.Random;
 
 /**
  * Represents an Order entity that includes details about a requested book, such as
@@ -10,18 +9,12 @@ import java.util.Random;
  * a version number to track updates.
  * <p>
  * This record is immutable and designed to encapsulate the state of an order, providing
- * readonly access to its attributes once instantiated. It also includes utility methods for
- * order creation and unique ID generation.
+ * readonly access to its attributes once instantiated.
  * <p>
  * Key characteristics:
  * - Includes attributes for book-related details and order metadata.
- * - Uses a static factory method for convenient creation of Order instances.
- * - Contains a utility method to generate a unique identifier for orders using
- *   the current system time and a random component.
- * <p>
- * Static Methods:
- * - of: Creates a new Order instance with specified attributes.
- * - generate: Produces a unique identifier based on the current time and a random number.
+ * - Uses a static factory method for convenient creation of Order instances, whose id is
+ *   assigned when the order is stored (see {@link org.orders.service.OrderIdGenerator}).
  * <p>
  * This design ensures thread safety and immutability for instances of the Order record.
  *
@@ -46,21 +39,17 @@ public record Order(
         Instant lastModifiedDate,
         Integer version
 ) {
-    private static final Random RANDOM = new Random();
-
     public static Order of(String bookIsbn, String bookName, Double bookPrice, Integer quantity, OrderStatus status) {
-        return new Order(generate(), bookIsbn, bookName, bookPrice, quantity, status, null, null, 0);
+        return new Order(null, bookIsbn, bookName, bookPrice, quantity, status, null, null, 0);
     }
 
     /**
-     * Generates a unique long value by combining the current system time in milliseconds
-     * and a random number. The generated value is intended to serve as a unique identifier.
+     * Returns a copy of this order with the given id.
      *
-     * @return A unique long value generated using the current system time and a random component.
+     * @param id the id of the order
+     * @return an order equal to this one but for its id
      */
-    public static long generate() {
-        long currentTimeMillis = System.currentTimeMillis();
-        int randomPart = RANDOM.nextInt(999); // random 0-998
-        return (currentTimeMillis % Integer.MAX_VALUE) + randomPart;
+    public Order withId(long id) {
+        return new Order(id, bookIsbn, bookName, bookPrice, quantity, status, crateDate, lastModifiedDate, version);
     }
 }
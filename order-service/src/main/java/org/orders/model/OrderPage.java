@@ -0,0 +1,13 @@
+package org.orders.model;
+
+import java.util.List;
+
+/**
+ * Represents a page of a listing of the orders, in the order they were created.
+ *
+ * @param orders    the orders of the page
+ * @param nextAfter the id of the last order of the page, after which the next page starts,
+ *                  or {@code null} if this is the last page
+ */
+public record OrderPage(List<Order> orders, Long nextAfter) {
+}
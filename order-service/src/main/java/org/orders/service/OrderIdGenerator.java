@@ -0,0 +1,110 @@
+package org.orders.service;
+
+import org.orders.config.OrderProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates unique, time-ordered order ids without locks or allocation.
+ * <p>
+ * An id is made, from the most significant bit down, of:
+ * - 41 bits of milliseconds since {@link #EPOCH}, which last until 2094.
+ * - 5 bits of the node number of the instance, so instances never generate the same id.
+ * - 7 bits of sequence within the millisecond, allowing 128 ids per millisecond per instance.
+ * <p>
+ * That is 53 bits in all, so ids stay exact as JavaScript numbers, which is how the UI reads them.
+ * <p>
+ * The generator keeps the time and the sequence of the last id together in one
+ * {@link AtomicLong} and moves it forward with a single compare-and-set per id: the next state
+ * is the current time, or the last state plus one if that is not later. When the sequence of a
+ * millisecond runs out, the increment carries into the time, so the generator borrows the next
+ * millisecond instead of waiting for it, and a clock that steps backwards is ridden out the same
+ * way. Ids therefore increase strictly on each instance, whatever the clock does, and across
+ * its restarts once it has been advanced past the last id it returned.
+ */
+@Component
+public class OrderIdGenerator {
+    /**
+     * The time the timestamps of the ids count from, 2025-01-01T00:00:00Z.
+     */
+    public static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 5;
+    static final int SEQUENCE_BITS = 7;
+    static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final AtomicLong last = new AtomicLong();
+    private final long node;
+    private final LongSupplier clock;
+
+    /**
+     * Constructs an {@code OrderIdGenerator} for the node configured for this instance.
+     *
+     * @param orderProperties the order configuration containing the node number
+     * @throws IllegalStateException    if the node number is not configured
+     * @throws IllegalArgumentException if the node number is out of range
+     */
+    @Autowired
+    public OrderIdGenerator(OrderProperties orderProperties) {
+        this(node(orderProperties.ids()), System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs an {@code OrderIdGenerator}.
+     *
+     * @param node  the number of this instance, from 0 to 31
+     * @param clock the source of the current time in milliseconds since the Unix epoch
+     * @throws IllegalArgumentException if the node number is out of range
+     */
+    public OrderIdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("The node number must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    private static int node(OrderProperties.Ids ids) {
+        if (ids.node() == null) {
+            throw new IllegalStateException("The node number of this instance must be set with orders.ids.node,"
+                    + " from 0 to " + MAX_NODE + " and different from the one of every other running instance");
+        }
+        return ids.node();
+    }
+
+    /**
+     * Returns the next id, which is greater than every id this generator returned before.
+     *
+     * @return a unique order id
+     */
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        long state = last.accumulateAndGet(now, (previous, time) -> Math.max(time, previous + 1));
+        return (state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | state & SEQUENCE_MASK;
+    }
+
+    /**
+     * Makes the ids returned from now on greater than the given id, so that an instance which
+     * restarts on a clock that went back never returns an id it returned before it stopped.
+     *
+     * @param id an id returned by the generator of this node, before or since it started
+     */
+    public void advancePast(long id) {
+        long state = (id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS | id & SEQUENCE_MASK;
+        last.accumulateAndGet(state, Math::max);
+    }
+
+    /**
+     * Returns the time an id was generated at, to the millisecond.
+     *
+     * @param id an id returned by {@link #nextId()}
+     * @return the time encoded in the id
+     */
+    public static Instant timestamp(long id) {
+        return Instant.ofEpochMilli(EPOCH + (id >>> (NODE_BITS + SEQUENCE_BITS)));
+    }
+}
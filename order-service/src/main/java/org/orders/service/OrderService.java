@@ -1,28 +1,65 @@
 package org.orders.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.orders.client.BookClient;
+import org.orders.config.OrderProperties;
 import org.orders.model.Book;
 import org.orders.model.Order;
+import org.orders.model.OrderPage;
 import org.orders.model.OrderRequest;
 import org.orders.model.OrderStatus;
+import org.orders.store.OrderArchive;
+import org.orders.store.OrderJournal;
+import org.orders.store.OrderStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 /**
  * Service class responsible for handling operations related to orders.
  * This class interacts with an external book service to fetch book details,
  * enables submission of book orders based on availability, and maintains
  * an in-memory store of the created orders.
+ * <p>
+ * The orders are held by an {@link OrderStore}, which needs no lock to add or read them,
+ * so orders are stored directly on the thread that completes the book lookup. Unless it is
+ * disabled, every order is first written to the {@link OrderJournal}, from which the store is
+ * rebuilt when the service starts, and is only stored and answered once it is on the disk;
+ * the journal stores it on its own thread, so a segment of the journal is only archived once
+ * all its orders are in the store.
+ * <p>
+ * Unless tiering is disabled, the store only keeps the recent orders: once it holds more than
+ * the configured number, a thread of its own moves the orders of the oldest segments of the
+ * journal to the {@link OrderArchive} on the disk, and deletes the segments. An order is
+ * archived before it is removed from the store, so it is always in one or the other. Orders
+ * are read from the store first and from the archive otherwise, on the bounded elastic
+ * scheduler since the archive reads the disk, and listings go through the archive then the
+ * store. A listing running while orders are archived may miss the orders archived just as it
+ * moves from the archive to the store.
  */
 @Service
 public class OrderService {
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
 
+    /**
+     * The longest ISBN an order may be for, well above the 17 characters of a hyphenated ISBN-13.
+     */
+    static final int MAX_ISBN_LENGTH = 64;
+
     /**
      * A client instance used to interact with the external book service.
      * It serves as the primary means of retrieving book information, such as fetching
@@ -33,26 +70,220 @@ public class OrderService {
     private final BookClient bookClient;
 
     /**
-     * A map that stores and manages all orders in the system. The key is a unique
-     * {@link Long} identifier for each order, and the value is an instance of {@link Order},
-     * representing the details of the order. This map serves as the primary in-memory
-     * data store for tracking and accessing orders created or processed by the system.
+     * The in-memory store of all orders in the system, which indexes them by id, status and
+     * book ISBN and is safe to use from the event-loop threads that create the orders.
+     */
+    private final OrderStore orderStore;
+
+    /**
+     * The generator of the ids of the orders, which are unique across the instances of the service.
+     */
+    private final OrderIdGenerator idGenerator;
+
+    /**
+     * The journal the orders are written to before they are stored, or {@code null} if the
+     * orders are kept in memory only.
+     */
+    private final OrderJournal orderJournal;
+
+    /**
+     * The archive the older orders are moved to, or {@code null} if every order is kept in memory.
+     */
+    private final OrderArchive orderArchive;
+
+    /**
+     * The number of orders in the store beyond which the oldest are archived.
+     */
+    private final long maxHotOrders;
+
+    /**
+     * The thread the orders are archived on, or {@code null} if orders are not archived.
+     */
+    private final Scheduler tieringScheduler;
+
+    /**
+     * Whether orders are being archived, or about to be.
+     */
+    private final AtomicBoolean archiving = new AtomicBoolean();
+
+    /**
+     * Whether the service is closing, which stops the archiving.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The largest number of orders of a batch submitted at once.
+     */
+    private final int batchConcurrency;
+
+    /**
+     * The number of orders of a page when the client does not ask for one, and the largest.
      */
-    private final Map<Long, Order> ordersMap = new java.util.HashMap<>();
+    private final OrderProperties.Paging paging;
 
-    public OrderService(BookClient bookClient) {
+    /**
+     * Constructs an {@code OrderService}, rebuilding the store from the {@link OrderJournal}
+     * unless it is disabled, advancing the id generator past the ids of the orders rebuilt and
+     * archived, and archiving the oldest orders if the store holds too many.
+     *
+     * @param bookClient      the client of the catalog service
+     * @param orderStore      the store of the orders
+     * @param idGenerator     the generator of the ids of the orders
+     * @param orderProperties the order configuration containing the settings of the batches,
+     *                        the pages, the journal and the tiering
+     * @param meterRegistry   the registry of the meters of the journal and the archive
+     */
+    public OrderService(BookClient bookClient, OrderStore orderStore, OrderIdGenerator idGenerator,
+                        OrderProperties orderProperties, MeterRegistry meterRegistry) {
         this.bookClient = bookClient;
+        this.orderStore = orderStore;
+        this.idGenerator = idGenerator;
+        this.batchConcurrency = orderProperties.orderBatch().concurrency();
+        this.paging = orderProperties.paging();
+        var journal = orderProperties.journal();
+        var tiering = orderProperties.tiering();
+        this.maxHotOrders = tiering.maxHotOrders();
+        if (tiering.enabled() && !journal.enabled()) {
+            log.warn("Orders are not archived, since the journal they are archived from is disabled");
+        }
+        this.orderArchive = tiering.enabled() && journal.enabled() ? new OrderArchive(tiering, meterRegistry) : null;
+        long archived = orderArchive != null ? orderArchive.lastSegment() : 0;
+        try {
+            this.orderJournal = journal.enabled()
+                    ? new OrderJournal(journal, meterRegistry, archived, orderStore::add, this::add)
+                    : null;
+        } catch (RuntimeException ex) {
+            if (orderArchive != null) {
+                orderArchive.close();
+            }
+            throw ex;
+        }
+        // The clock may have gone back since the orders replayed and archived were created
+        orderStore.orders().stream().mapToLong(Order::id).max().ifPresent(idGenerator::advancePast);
+        if (orderArchive != null) {
+            idGenerator.advancePast(orderArchive.lastId());
+        }
+        this.tieringScheduler = orderArchive != null ? Schedulers.newSingle("order-tiering") : null;
+        archiveIfNeeded();
+    }
+
+    /**
+     * Stops archiving orders, writes the orders being submitted to the journal and closes it
+     * and the archive when the application shuts down.
+     */
+    @PreDestroy
+    void close() {
+        closed = true;
+        if (tieringScheduler != null) {
+            // Waits for the orders being archived, if any, which the scheduler runs before this task
+            var done = new CountDownLatch(1);
+            tieringScheduler.schedule(done::countDown);
+            try {
+                if (!done.await(30, TimeUnit.SECONDS)) {
+                    log.warn("The archiving of orders did not stop within 30 seconds");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                tieringScheduler.dispose();
+            }
+        }
+        if (orderJournal != null) {
+            orderJournal.close();
+        }
+        if (orderArchive != null) {
+            orderArchive.close();
+        }
+    }
+
+    /**
+     * Retrieves a page of the orders, or of the orders with the given status and/or for the
+     * given book, in the order they were created, starting after the given order.
+     * Only the orders of the page are read from the store and the archive, however many orders
+     * there are.
+     *
+     * @param status  the status of the orders, or {@code null} for any status
+     * @param isbn    the ISBN of the ordered book, or {@code null} for any book
+     * @param afterId the id of the last order of the previous page, or {@code null} for the first page
+     * @param size    the number of orders of the page, at most the configured maximum, or
+     *                {@code null} for the configured default
+     * @return a {@link Mono} emitting the {@link OrderPage} of the matching orders, with the id
+     * after which the next page starts, or failing with an {@link IllegalArgumentException} if
+     * there is no order with the id to start after
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public Mono<OrderPage> getOrders(OrderStatus status, String isbn, Long afterId, Integer size) {
+        if (size != null && size < 1) {
+            throw new IllegalArgumentException("The size of a page must be positive: " + size);
+        }
+        int pageSize = size == null ? paging.defaultSize() : Math.min(size, paging.maxSize());
+        var page = Mono.fromCallable(() -> {
+            // One order more than the page tells whether there is a next page
+            List<Order> list = find(status, isbn, afterId).limit(pageSize + 1L).toList();
+            log.debug("Retrieved {} orders with status {} for ISBN {} after ID {}",
+                    Math.min(list.size(), pageSize), status, isbn, afterId);
+            if (list.size() <= pageSize) {
+                return new OrderPage(list, null);
+            }
+            var orders = list.subList(0, pageSize);
+            return new OrderPage(orders, orders.get(pageSize - 1).id());
+        });
+        return readsArchive(afterId) ? page.subscribeOn(Schedulers.boundedElastic()) : page;
+    }
+
+    /**
+     * Streams the orders, or the orders with the given status and/or for the given book, in the
+     * order they were created, starting after the given order.
+     * The orders are read from the store as the subscriber requests them, so a slow client holds
+     * back the reading rather than the orders piling up in memory.
+     *
+     * @param status  the status of the orders, or {@code null} for any status
+     * @param isbn    the ISBN of the ordered book, or {@code null} for any book
+     * @param afterId the id of the order after which to start, or {@code null} to start from the first order
+     * @return a {@link Flux} emitting the matching {@link Order}s, or failing with an
+     * {@link IllegalArgumentException} if there is no order with the id to start after
+     */
+    public Flux<Order> streamOrders(OrderStatus status, String isbn, Long afterId) {
+        log.debug("Streaming orders with status {} for ISBN {} after ID {}", status, isbn, afterId);
+        // Finding the orders opens the archive segments, so it waits for the subscription
+        var orders = Flux.defer(() -> Flux.fromStream(find(status, isbn, afterId)));
+        return readsArchive(afterId) ? orders.subscribeOn(Schedulers.boundedElastic()) : orders;
+    }
+
+    /**
+     * Retrieves the order with the given id, from the store or else from the archive.
+     *
+     * @param id the id of the order
+     * @return a {@link Mono} emitting the {@link Order}, or empty if there is none
+     */
+    public Mono<Order> getOrder(long id) {
+        log.debug("Retrieving order with ID: {}", id);
+        var order = orderStore.get(id);
+        if (order.isPresent() || orderArchive == null) {
+            return Mono.justOrEmpty(order);
+        }
+        return Mono.fromCallable(() -> orderArchive.get(id).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic());
     }
 
     /**
-     * Retrieves a list of all orders stored in the system.
+     * Returns the orders with the given status and/or for the given book, from the archive and
+     * then from the store, starting after the given order.
      *
-     * @return a list containing all {@link Order} objects currently managed in the system.
+     * @throws IllegalArgumentException if there is no order with the id to start after
      */
-    public List<Order> getAllOrders() {
-        List<Order> list = ordersMap.values().stream().toList();
-        log.debug("Retrieved {} orders", list.size());
-        return list;
+    private Stream<Order> find(OrderStatus status, String isbn, Long afterId) {
+        if (!readsArchive(afterId)) {
+            return orderStore.find(status, isbn, afterId);
+        }
+        return Stream.concat(orderArchive.find(status, isbn, afterId), orderStore.find(status, isbn, null));
+    }
+
+    /**
+     * Returns whether a listing starting after the given order goes through the archive.
+     */
+    private boolean readsArchive(Long afterId) {
+        return orderArchive != null && (afterId == null || orderStore.get(afterId).isEmpty());
     }
 
     /**
@@ -63,17 +294,146 @@ public class OrderService {
      * @param orderRequest the order request containing the ISBN of the book and the quantity to order
      * @return a {@link Mono} that emits the created {@link Order}, which can be an
      * accepted or rejected order depending on the book's availability
+     * @throws IllegalArgumentException if the ISBN is longer than any ISBN
      */
     public Mono<Order> submitOrder(OrderRequest orderRequest) {
         log.debug("Submitting order for ISBN: {}", orderRequest.isbn());
-        return bookClient.getBookByIsbn(orderRequest.isbn()).
-                map(book -> buildAcceptedOrder(book, orderRequest.quantity()))
+        validate(orderRequest);
+        return submitOrder(orderRequest, bookClient.getBookByIsbn(orderRequest.isbn()));
+    }
+
+    /**
+     * Processes a batch of order submission requests, as {@link #submitOrder(OrderRequest)} does
+     * for each, as they arrive.
+     * Up to the configured number of orders are submitted at once, and the book of each ISBN
+     * is looked up once for the whole batch, however many of its orders are for that book.
+     * <p>
+     * The orders are streamed back as they are created, so by the time a request turns out to be
+     * unusable the answer to the batch is under way and cannot be an error any more: a request
+     * with an ISBN longer than any ISBN, or whose order cannot be written to the journal, is
+     * answered with a rejected order that has no id and is not stored, and the batch goes on.
+     *
+     * @param orderRequests the order requests, each containing the ISBN of the book and the quantity to order
+     * @return a {@link Flux} that emits the created {@link Order}s, accepted or rejected, in the
+     * order of their requests
+     */
+    public Flux<Order> submitOrders(Flux<OrderRequest> orderRequests) {
+        Map<String, Mono<Book>> books = new ConcurrentHashMap<>();
+        return orderRequests.flatMapSequential(orderRequest -> {
+            log.debug("Submitting order for ISBN: {} in a batch", orderRequest.isbn());
+            if (hasOverlongIsbn(orderRequest)) {
+                log.warn("Rejected an order of a batch for an ISBN of {} characters", orderRequest.isbn().length());
+                return Mono.just(buildRejectedOrder(orderRequest.isbn(), orderRequest.quantity()));
+            }
+            // No book has a null ISBN, which the map could not hold anyway, so its order is rejected
+            var book = orderRequest.isbn() == null
+                    ? Mono.<Book>empty()
+                    : books.computeIfAbsent(orderRequest.isbn(), isbn -> bookClient.getBookByIsbn(isbn).cache());
+            return submitOrder(orderRequest, book).onErrorResume(ex -> {
+                log.error("Cannot store the order for ISBN {} of a batch", orderRequest.isbn(), ex);
+                return Mono.just(buildRejectedOrder(orderRequest.isbn(), orderRequest.quantity()));
+            });
+        }, batchConcurrency);
+    }
+
+    /**
+     * Refuses a request whose ISBN is longer than any ISBN, which would otherwise be looked up
+     * in the catalog and stored as a rejected order, however long it is.
+     *
+     * @param orderRequest the order request
+     * @throws IllegalArgumentException if the ISBN is longer than {@value #MAX_ISBN_LENGTH} characters
+     */
+    private static void validate(OrderRequest orderRequest) {
+        if (hasOverlongIsbn(orderRequest)) {
+            throw new IllegalArgumentException("The ISBN of an order must be at most " + MAX_ISBN_LENGTH
+                    + " characters: " + orderRequest.isbn().length());
+        }
+    }
+
+    private static boolean hasOverlongIsbn(OrderRequest orderRequest) {
+        return orderRequest.isbn() != null && orderRequest.isbn().length() > MAX_ISBN_LENGTH;
+    }
+
+    /**
+     * Creates the order for the given request from the book looked up for it, accepted if the
+     * book was found and rejected otherwise, and stores it.
+     *
+     * @param orderRequest the order request containing the ISBN of the book and the quantity to order
+     * @param book         the lookup of the book, empty if the book is not available
+     * @return a {@link Mono} that emits the created {@link Order}
+     */
+    private Mono<Order> submitOrder(OrderRequest orderRequest, Mono<Book> book) {
+        return book.map(found -> buildAcceptedOrder(found, orderRequest.quantity()))
                 .switchIfEmpty(Mono.defer(() -> Mono.just(buildRejectedOrder(orderRequest.isbn(), orderRequest.quantity()))))
-                .mapNotNull(order -> {
-                     ordersMap.put(order.id(), order);
-                     log.debug("Order created with ID: {}", order.id());
-                     return order;
-                });
+                .flatMap(this::store);
+    }
+
+    /**
+     * Gives the order its id, writes it to the journal unless it is disabled, which adds it to
+     * the store once it is on the disk, or else adds it to the store.
+     *
+     * @param order the order to store
+     * @return a {@link Mono} that emits the stored order, or fails if it could not be written
+     */
+    private Mono<Order> store(Order order) {
+        var identified = order.withId(idGenerator.nextId());
+        if (orderJournal == null) {
+            return Mono.just(add(identified));
+        }
+        return orderJournal.append(identified);
+    }
+
+    /**
+     * Adds an order that has its id to the store.
+     *
+     * @param stored the order to add
+     * @return the order
+     */
+    private Order add(Order stored) {
+        if (!orderStore.add(stored)) {
+            throw new IllegalStateException("Order ID " + stored.id() + " is already taken");
+        }
+        log.debug("Order created with ID: {}", stored.id());
+        archiveIfNeeded();
+        return stored;
+    }
+
+    /**
+     * Schedules the archiving of the oldest orders if the store holds more than the configured
+     * number and they are not being archived already.
+     */
+    private void archiveIfNeeded() {
+        if (tieringScheduler != null && orderStore.size() > maxHotOrders && archiving.compareAndSet(false, true)) {
+            tieringScheduler.schedule(this::archive);
+        }
+    }
+
+    /**
+     * Moves the orders of the oldest sealed segments of the journal to the archive, until the
+     * store holds at most the configured number of orders or only the current segment is left.
+     * If the archiving fails, the orders stay in the store and it is tried again a minute later.
+     */
+    private void archive() {
+        try {
+            OptionalLong oldest;
+            while (!closed && orderStore.size() > maxHotOrders
+                    && (oldest = orderJournal.oldestSealed()).isPresent()) {
+                long number = oldest.getAsLong();
+                long start = System.nanoTime();
+                var orders = orderJournal.read(number);
+                orderArchive.add(number, orders);
+                orders.forEach(orderStore::remove);
+                orderJournal.delete(number);
+                log.info("Archived the {} orders of journal segment {} in {} ms", orders.size(), number,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            archiving.set(false);
+            // Orders added after the last check did not schedule the archiving, which was running
+            archiveIfNeeded();
+        } catch (RuntimeException ex) {
+            log.error("Cannot archive orders, which stay in memory until the next try in a minute", ex);
+            tieringScheduler.schedule(() -> archiving.set(false), 1, TimeUnit.MINUTES);
+        }
     }
 
     /**
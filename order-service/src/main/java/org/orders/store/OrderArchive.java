@@ -0,0 +1,489 @@
+package org.orders.store;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.orders.config.OrderProperties;
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The cold tier of the orders: the orders moved out of the {@link OrderStore} to bound its
+ * memory, kept in compressed, immutable segments on the local disk.
+ * <p>
+ * Each segment of the archive holds the orders of one segment of the {@link OrderJournal},
+ * whose number it takes, sorted by id. The orders are encoded by the {@link OrderCodec} into
+ * blocks of about the configured size, each compressed with Deflate and checked by a CRC32C,
+ * and the segment ends with its sparse index: the first id and the position of every block.
+ * The archive keeps the indexes in memory, 16 bytes per block, so reading an order costs a
+ * binary search, the read of one block and its decompression, however many orders are archived.
+ * <p>
+ * A segment is written to a temporary file, forced to the disk and renamed, so a crash leaves
+ * either the whole segment or none of it. Segments are only added, by one thread at a time,
+ * and published once complete, so readers need no lock.
+ * <p>
+ * Listings read the segments in the order they were archived, block by block, holding one
+ * block of orders in memory at most. A listing filtered by status or book reads every block
+ * it goes through, since the archive only indexes ids.
+ * <p>
+ * The archive reports the {@code orders.archive.segments} and {@code orders.archive.orders}
+ * gauges, and the {@code orders.archive.reads} timer, the time it takes to read an order by id.
+ */
+public class OrderArchive implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OrderArchive.class);
+    private static final String SUFFIX = ".archive";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int BLOCK_HEADER_SIZE = 12;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int TRAILER_SIZE = 32;
+    private static final int MAGIC = 0x4F524441;
+
+    private final Path directory;
+    private final int blockSize;
+    private final Timer reads;
+    private volatile List<Segment> segments = List.of();
+
+    /**
+     * Constructs an {@code OrderArchive} on the configured directory, which is created if it
+     * does not exist, and reads the indexes of the segments it holds.
+     *
+     * @param settings the directory and the size of the blocks of the archive
+     * @param registry the registry of the meters of the archive
+     * @throws UncheckedIOException     if a segment cannot be read
+     * @throws IllegalStateException    if a segment is damaged
+     * @throws IllegalArgumentException if the size of the blocks is not positive and below 1GB
+     */
+    public OrderArchive(OrderProperties.Tiering settings, MeterRegistry registry) {
+        if (settings.blockSize().toBytes() < 1 || settings.blockSize().toBytes() > 1 << 30) {
+            throw new IllegalArgumentException("The size of the blocks of the archive must be positive and below 1GB: "
+                    + settings.blockSize());
+        }
+        this.directory = Path.of(settings.directory());
+        this.blockSize = (int) settings.blockSize().toBytes();
+        this.reads = Timer.builder("orders.archive.reads")
+                .description("The time it takes to read an order by id from the archive")
+                .register(registry);
+        Gauge.builder("orders.archive.segments", this, archive -> archive.segments.size())
+                .description("The number of segments of the archive").register(registry);
+        Gauge.builder("orders.archive.orders", this, OrderArchive::size)
+                .description("The number of orders in the archive").register(registry);
+        var opened = new ArrayList<Segment>();
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.sorted().toList();
+            }
+            for (Path file : files) {
+                var name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    opened.add(Segment.open(file, Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+                }
+            }
+        } catch (IOException ex) {
+            opened.forEach(Segment::close);
+            throw new UncheckedIOException("Cannot open the order archive in " + directory, ex);
+        } catch (RuntimeException ex) {
+            opened.forEach(Segment::close);
+            throw ex;
+        }
+        segments = List.copyOf(opened);
+        log.info("Opened {} archive segments of {} orders", segments.size(), size());
+    }
+
+    /**
+     * Returns the number of the last journal segment archived.
+     *
+     * @return the number of the segment, or 0 if the archive is empty
+     */
+    public long lastSegment() {
+        var current = segments;
+        return current.isEmpty() ? 0 : current.get(current.size() - 1).number;
+    }
+
+    /**
+     * Returns the largest id of the orders in the archive.
+     *
+     * @return the id, or 0 if the archive is empty
+     */
+    public long lastId() {
+        return segments.stream().mapToLong(segment -> segment.lastId).max().orElse(0);
+    }
+
+    /**
+     * Returns the number of orders in the archive.
+     *
+     * @return the number of orders
+     */
+    public long size() {
+        return segments.stream().mapToLong(segment -> segment.orders).sum();
+    }
+
+    /**
+     * Archives the orders of a segment of the journal, as a segment of the same number. Segments
+     * must be archived in the order of their numbers, by one thread at a time.
+     *
+     * @param number the number of the segment of the journal
+     * @param orders the orders of the segment, in any order
+     * @throws UncheckedIOException     if the segment cannot be written
+     * @throws IllegalArgumentException if the number is not above the one of the last segment archived
+     */
+    public void add(long number, List<Order> orders) {
+        if (number <= lastSegment()) {
+            throw new IllegalArgumentException("Segment " + number + " is not after the last archived segment "
+                    + lastSegment());
+        }
+        var sorted = orders.stream().sorted(Comparator.comparingLong(Order::id)).toList();
+        var file = directory.resolve(String.format("%020d%s", number, SUFFIX));
+        var temporary = directory.resolve(file.getFileName() + TEMPORARY_SUFFIX);
+        try {
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(sorted, channel);
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            try (var dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                dir.force(true);
+            } catch (IOException ex) {
+                log.debug("Cannot force the order archive directory {}", directory, ex);
+            }
+            var added = new ArrayList<>(segments);
+            added.add(Segment.open(file, number));
+            segments = List.copyOf(added);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot archive the journal segment " + number, ex);
+        }
+    }
+
+    /**
+     * Returns the archived order with the given id.
+     *
+     * @param id the id of the order
+     * @return the order, or an empty {@code Optional} if the archive does not hold it
+     * @throws UncheckedIOException  if the segment of the order cannot be read
+     * @throws IllegalStateException if the block of the order is damaged
+     */
+    public Optional<Order> get(long id) {
+        long start = System.nanoTime();
+        try {
+            var current = segments;
+            // Ids are given before orders are journaled, so neighbouring segments may overlap a little
+            for (int i = current.size() - 1; i >= 0; i--) {
+                var order = current.get(i).get(id);
+                if (order != null) {
+                    return Optional.of(order);
+                }
+            }
+            return Optional.empty();
+        } finally {
+            reads.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns the archived orders with the given status and/or for the given book, in the order
+     * they were archived, starting after the order with the given id. The stream reads the blocks
+     * of the segments as it is consumed, and goes on with the segments archived meanwhile.
+     *
+     * @param status  the status of the orders, or {@code null} for any status
+     * @param isbn    the ISBN of the ordered book, or {@code null} for any book
+     * @param afterId the id of the order after which to start, or {@code null} to start from the first order
+     * @return the matching orders
+     * @throws IllegalArgumentException if the archive holds no order with the id to start after
+     */
+    public Stream<Order> find(OrderStatus status, String isbn, Long afterId) {
+        var current = segments;
+        Segment first = current.isEmpty() ? null : current.get(0);
+        if (afterId != null) {
+            first = null;
+            for (int i = current.size() - 1; i >= 0 && first == null; i--) {
+                if (current.get(i).get(afterId) != null) {
+                    first = current.get(i);
+                }
+            }
+            if (first == null) {
+                throw new IllegalArgumentException("There is no order with ID " + afterId);
+            }
+        }
+        var start = first;
+        return Stream.iterate(start, Objects::nonNull, this::next)
+                .flatMap(segment -> segment.orders(segment == start ? afterId : null))
+                .filter(order -> (status == null || order.status() == status)
+                        && (isbn == null || isbn.equals(order.bookIsbn())));
+    }
+
+    /**
+     * Returns the segment archived after the given one, or {@code null} if it is the last one.
+     */
+    private Segment next(Segment segment) {
+        for (Segment next : segments) {
+            if (next.number > segment.number) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the files of the segments.
+     */
+    @Override
+    public void close() {
+        segments.forEach(Segment::close);
+    }
+
+    /**
+     * Writes the blocks of the orders, the index of the blocks and the trailer of a segment:
+     * the position of the index, the last id, the number of orders and of blocks, and a magic
+     * number.
+     */
+    private void write(List<Order> sorted, FileChannel channel) throws IOException {
+        var deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            var block = ByteBuffer.allocate(blockSize);
+            var firstIds = new ArrayList<Long>();
+            var offsets = new ArrayList<Long>();
+            long position = 0;
+            for (Order order : sorted) {
+                int size = OrderCodec.maxSize(order);
+                if (block.position() > 0 && block.remaining() < size) {
+                    offsets.add(position);
+                    position += writeBlock(block.flip(), deflater, channel, position);
+                    block.clear();
+                }
+                if (block.position() == 0) {
+                    firstIds.add(order.id());
+                    if (block.capacity() < size) {
+                        block = ByteBuffer.allocate(size);
+                    }
+                }
+                OrderCodec.encode(order, block);
+            }
+            if (block.position() > 0) {
+                offsets.add(position);
+                position += writeBlock(block.flip(), deflater, channel, position);
+            }
+            var index = ByteBuffer.allocate(firstIds.size() * INDEX_ENTRY_SIZE + TRAILER_SIZE);
+            for (int i = 0; i < firstIds.size(); i++) {
+                index.putLong(firstIds.get(i)).putLong(offsets.get(i));
+            }
+            index.putLong(position)
+                    .putLong(sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1).id())
+                    .putLong(sorted.size())
+                    .putInt(firstIds.size())
+                    .putInt(MAGIC);
+            writeFully(index.flip(), channel, position);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses a block and writes it after its header: its compressed and uncompressed
+     * lengths, and the checksum of its compressed bytes.
+     *
+     * @return the number of bytes written
+     */
+    private static int writeBlock(ByteBuffer block, Deflater deflater, FileChannel channel, long position)
+            throws IOException {
+        int uncompressed = block.remaining();
+        deflater.reset();
+        deflater.setInput(block);
+        deflater.finish();
+        var compressed = ByteBuffer.allocate(BLOCK_HEADER_SIZE + uncompressed + uncompressed / 8 + 64);
+        compressed.position(BLOCK_HEADER_SIZE);
+        while (!deflater.finished()) {
+            if (!compressed.hasRemaining()) {
+                compressed = ByteBuffer.allocate(compressed.capacity() * 2).put(compressed.flip());
+            }
+            deflater.deflate(compressed);
+        }
+        int length = compressed.position() - BLOCK_HEADER_SIZE;
+        var crc = new CRC32C();
+        crc.update(compressed.array(), BLOCK_HEADER_SIZE, length);
+        compressed.putInt(0, length).putInt(4, uncompressed).putInt(8, (int) crc.getValue());
+        writeFully(compressed.flip(), channel, position);
+        return BLOCK_HEADER_SIZE + length;
+    }
+
+    private static void writeFully(ByteBuffer buffer, FileChannel channel, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(ByteBuffer buffer, FileChannel channel, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at byte " + position);
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * A segment of the archive, with its sparse index.
+     */
+    private static final class Segment {
+        final long number;
+        final Path file;
+        final FileChannel channel;
+        final long[] firstIds;
+        final long[] offsets;
+        final long indexOffset;
+        final long lastId;
+        final long orders;
+
+        private Segment(long number, Path file, FileChannel channel, long[] firstIds, long[] offsets,
+                        long indexOffset, long lastId, long orders) {
+            this.number = number;
+            this.file = file;
+            this.channel = channel;
+            this.firstIds = firstIds;
+            this.offsets = offsets;
+            this.indexOffset = indexOffset;
+            this.lastId = lastId;
+            this.orders = orders;
+        }
+
+        static Segment open(Path file, long number) throws IOException {
+            var channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size < TRAILER_SIZE) {
+                    throw new IllegalStateException("The order archive segment " + file + " is damaged");
+                }
+                var trailer = ByteBuffer.allocate(TRAILER_SIZE);
+                readFully(trailer, channel, size - TRAILER_SIZE);
+                long indexOffset = trailer.getLong();
+                long lastId = trailer.getLong();
+                long orders = trailer.getLong();
+                int blocks = trailer.getInt();
+                if (trailer.getInt() != MAGIC || blocks < 0
+                        || indexOffset + (long) blocks * INDEX_ENTRY_SIZE + TRAILER_SIZE != size) {
+                    throw new IllegalStateException("The order archive segment " + file + " is damaged");
+                }
+                var index = ByteBuffer.allocate(blocks * INDEX_ENTRY_SIZE);
+                readFully(index, channel, indexOffset);
+                long[] firstIds = new long[blocks];
+                long[] offsets = new long[blocks];
+                for (int i = 0; i < blocks; i++) {
+                    firstIds[i] = index.getLong();
+                    offsets[i] = index.getLong();
+                }
+                return new Segment(number, file, channel, firstIds, offsets, indexOffset, lastId, orders);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        /**
+         * Returns the order with the given id, reading the one block that may hold it.
+         */
+        Order get(long id) {
+            if (firstIds.length == 0 || id < firstIds[0] || id > lastId) {
+                return null;
+            }
+            int block = Arrays.binarySearch(firstIds, id);
+            for (Order order : read(block >= 0 ? block : -block - 2)) {
+                if (order.id() == id) {
+                    return order;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the orders of the segment, after the order with the given id if there is one.
+         */
+        Stream<Order> orders(Long afterId) {
+            if (afterId == null) {
+                return IntStream.range(0, firstIds.length).mapToObj(this::read).flatMap(List::stream);
+            }
+            int block = Arrays.binarySearch(firstIds, afterId);
+            return IntStream.range(block >= 0 ? block : Math.max(0, -block - 2), firstIds.length)
+                    .mapToObj(this::read)
+                    .flatMap(List::stream)
+                    .filter(order -> order.id() > afterId);
+        }
+
+        /**
+         * Reads, checks and decompresses a block.
+         */
+        List<Order> read(int block) {
+            long end = block + 1 < offsets.length ? offsets[block + 1] : indexOffset;
+            var bytes = ByteBuffer.allocate((int) (end - offsets[block]));
+            var inflater = new Inflater(true);
+            try {
+                readFully(bytes, channel, offsets[block]);
+                int length = bytes.getInt();
+                int uncompressed = bytes.getInt();
+                int checksum = bytes.getInt();
+                var crc = new CRC32C();
+                crc.update(bytes.array(), BLOCK_HEADER_SIZE, bytes.remaining());
+                if (length != bytes.remaining() || (int) crc.getValue() != checksum) {
+                    throw new IllegalStateException("The order archive segment " + file + " is damaged at byte "
+                            + offsets[block]);
+                }
+                inflater.setInput(bytes.array(), BLOCK_HEADER_SIZE, length);
+                byte[] records = new byte[uncompressed];
+                if (inflater.inflate(records) != uncompressed || !inflater.finished()) {
+                    throw new IllegalStateException("The order archive segment " + file + " is damaged at byte "
+                            + offsets[block]);
+                }
+                var buffer = ByteBuffer.wrap(records);
+                var codec = new OrderCodec();
+                var orders = new ArrayList<Order>();
+                while (buffer.hasRemaining()) {
+                    orders.add(codec.decode(buffer));
+                }
+                return orders;
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot read the order archive segment " + file, ex);
+            } catch (DataFormatException ex) {
+                throw new IllegalStateException("The order archive segment " + file + " is damaged at byte "
+                        + offsets[block], ex);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.warn("Cannot close the order archive segment {}", file, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.orders.store;
+
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes orders into the binary records of the {@link OrderJournal} and of the blocks of the
+ * {@link OrderArchive}, and decodes them back.
+ * <p>
+ * A record holds the id, a byte of flags telling which of the other fields are present, the
+ * status, and then the fields present: the ISBN and the name of the book as UTF-8 strings
+ * prefixed by their length in an unsigned short, the price, the quantity, the dates as
+ * seconds and nanoseconds, and the version.
+ * <p>
+ * A codec remembers the ISBNs and the book names it decoded, so that the orders it replays
+ * share one string per book rather than holding a copy each. It is not thread-safe.
+ */
+final class OrderCodec {
+    private static final int ISBN = 1;
+    private static final int NAME = 1 << 1;
+    private static final int PRICE = 1 << 2;
+    private static final int QUANTITY = 1 << 3;
+    private static final int CREATED = 1 << 4;
+    private static final int MODIFIED = 1 << 5;
+    private static final int VERSION = 1 << 6;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Map<String, String> strings = new HashMap<>();
+
+    /**
+     * Returns the largest size of the record of the given order, to size the buffer it is
+     * encoded into.
+     *
+     * @param order the order
+     * @return the size in bytes
+     */
+    static int maxSize(Order order) {
+        return 8 + 1 + 1 + maxSize(order.bookIsbn()) + maxSize(order.bookName()) + 8 + 4 + 12 + 12 + 4;
+    }
+
+    /**
+     * Encodes an order at the position of the buffer.
+     *
+     * @param order  the order, which must have an id
+     * @param buffer the buffer, with at least {@link #maxSize(Order)} bytes remaining
+     * @throws IllegalArgumentException if the ISBN or the name of the book is longer than
+     *                                  65535 bytes in UTF-8
+     */
+    static void encode(Order order, ByteBuffer buffer) {
+        int flags = (order.bookIsbn() != null ? ISBN : 0)
+                | (order.bookName() != null ? NAME : 0)
+                | (order.bookPrice() != null ? PRICE : 0)
+                | (order.quantity() != null ? QUANTITY : 0)
+                | (order.crateDate() != null ? CREATED : 0)
+                | (order.lastModifiedDate() != null ? MODIFIED : 0)
+                | (order.version() != null ? VERSION : 0);
+        buffer.putLong(order.id());
+        buffer.put((byte) flags);
+        buffer.put((byte) order.status().ordinal());
+        if (order.bookIsbn() != null) {
+            putString(order.bookIsbn(), buffer);
+        }
+        if (order.bookName() != null) {
+            putString(order.bookName(), buffer);
+        }
+        if (order.bookPrice() != null) {
+            buffer.putDouble(order.bookPrice());
+        }
+        if (order.quantity() != null) {
+            buffer.putInt(order.quantity());
+        }
+        if (order.crateDate() != null) {
+            putInstant(order.crateDate(), buffer);
+        }
+        if (order.lastModifiedDate() != null) {
+            putInstant(order.lastModifiedDate(), buffer);
+        }
+        if (order.version() != null) {
+            buffer.putInt(order.version());
+        }
+    }
+
+    /**
+     * Decodes the order at the position of the buffer, and moves the position past it.
+     *
+     * @param buffer the buffer
+     * @return the order
+     */
+    Order decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        int flags = buffer.get();
+        var status = STATUSES[buffer.get()];
+        String isbn = (flags & ISBN) != 0 ? getString(buffer) : null;
+        String name = (flags & NAME) != 0 ? getString(buffer) : null;
+        Double price = (flags & PRICE) != 0 ? buffer.getDouble() : null;
+        Integer quantity = (flags & QUANTITY) != 0 ? buffer.getInt() : null;
+        Instant created = (flags & CREATED) != 0 ? getInstant(buffer) : null;
+        Instant modified = (flags & MODIFIED) != 0 ? getInstant(buffer) : null;
+        Integer version = (flags & VERSION) != 0 ? buffer.getInt() : null;
+        return new Order(id, isbn, name, price, quantity, status, created, modified, version);
+    }
+
+    private static int maxSize(String string) {
+        return string == null ? 0 : 2 + string.length() * 3;
+    }
+
+    private static void putString(String string, ByteBuffer buffer) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Strings of an order must be at most 65535 bytes: " + bytes.length);
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        var string = new String(bytes, StandardCharsets.UTF_8);
+        var known = strings.putIfAbsent(string, string);
+        return known != null ? known : string;
+    }
+
+    private static void putInstant(Instant instant, ByteBuffer buffer) {
+        buffer.putLong(instant.getEpochSecond());
+        buffer.putInt(instant.getNano());
+    }
+
+    private static Instant getInstant(ByteBuffer buffer) {
+        return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+    }
+}
@@ -0,0 +1,497 @@
+package org.orders.store;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.orders.config.OrderProperties;
+import org.orders.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of the orders on the local disk, from which the {@link OrderStore}
+ * is rebuilt when the service starts, so that the accepted orders survive a restart or a crash.
+ * <p>
+ * The journal is a directory of segments, files named after their sequence number, which
+ * are written one after the other, each up to the configured size. A segment is a sequence of
+ * records, each the length and the CRC32C checksum of an order encoded by the
+ * {@link OrderCodec}, followed by the encoded order.
+ * <p>
+ * Appends never block their caller: an order is queued together with the {@link Sinks.One}
+ * its caller waits on, and a single thread of its own writes the queue to the segment and
+ * forces it to the disk. Every order queued while the thread was forcing the previous ones is
+ * written and forced together, up to the configured batch size, so a burst of orders shares
+ * one fsync rather than paying one each. The caller is answered once its order is on the disk,
+ * on the parallel scheduler rather than on the thread of the journal, which would otherwise
+ * run the rest of the caller's pipeline before forcing the next batch. If a write fails, the
+ * journal fails the orders of the batch and every order after them, since it can no longer
+ * tell what is on the disk. An order that cannot be encoded, such as one with a string over
+ * 65535 bytes, fails alone, and is not written.
+ * <p>
+ * The segments are replayed through read-only memory maps, so reading them costs neither a
+ * copy into the heap nor a system call per record. A crash may leave the last segment with a
+ * record cut short, or never forced, whose length or checksum does not match; the replay stops
+ * there and the segment is truncated to its last whole record, which is the last order a caller
+ * was told is on the disk. A damaged record in any other segment fails the replay instead.
+ * <p>
+ * Once an order is on the disk, the journal hands it to the consumer of the written orders,
+ * which adds it to the {@link OrderStore}, before answering its caller. The segments before
+ * the current one are sealed once every order in them has been handed over: they no longer
+ * change, and the store holds all their orders, so the {@link OrderArchive} can take their
+ * orders from the store and the journal then delete them. The journal
+ * neither replays nor keeps the segments up to the last one archived, in case it was stopped
+ * after archiving a segment but before deleting it, and goes on after it, so that the number
+ * of a segment is never used twice.
+ * <p>
+ * The journal reports the {@code orders.journal.batch.size} meter, the number of orders per
+ * fsync, and the {@code orders.journal.sync} timer, the time an fsync takes.
+ */
+public class OrderJournal implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OrderJournal.class);
+    private static final String SUFFIX = ".journal";
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int maxBatch;
+    private final ConcurrentLinkedQueue<Append> pending = new ConcurrentLinkedQueue<>();
+    private final ConcurrentSkipListSet<Long> sealed = new ConcurrentSkipListSet<>();
+    private final List<Long> rolled = new ArrayList<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Scheduler scheduler = Schedulers.newSingle("order-journal");
+    private final CRC32C crc = new CRC32C();
+    private final long archived;
+    private final Consumer<Order> committed;
+    private final DistributionSummary batchSizes;
+    private final Timer syncs;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private FileChannel segment;
+    private long segmentNumber;
+    private long segmentLength;
+    private IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Constructs an {@code OrderJournal} on the configured directory, which is created if it
+     * does not exist, and replays the orders it holds, in the order they were appended.
+     *
+     * @param settings the directory, the size of the segments and the size of the batches
+     * @param registry the registry of the meters of the journal
+     * @param replayed the consumer of the orders replayed
+     * @throws UncheckedIOException     if the journal cannot be read or opened for writing
+     * @throws IllegalStateException    if a segment other than the last one is damaged
+     * @throws IllegalArgumentException if the size of the segments is not positive and below 2GB,
+     *                                  or the size of the batches is not positive
+     */
+    public OrderJournal(OrderProperties.Journal settings, MeterRegistry registry, Consumer<Order> replayed) {
+        this(settings, registry, 0, replayed, order -> {
+        });
+    }
+
+    /**
+     * Constructs an {@code OrderJournal} on the configured directory, which is created if it
+     * does not exist, deletes the segments up to the given one, which are archived, and replays
+     * the orders of the others, in the order they were appended.
+     *
+     * @param settings  the directory, the size of the segments and the size of the batches
+     * @param registry  the registry of the meters of the journal
+     * @param archived  the number of the last segment archived, or 0 if none is
+     * @param replayed  the consumer of the orders replayed
+     * @param committed the consumer of the orders appended, called on the thread of the journal
+     *                  once they are on the disk and before their callers are answered; an
+     *                  exception it throws fails the append of the order
+     * @throws UncheckedIOException     if the journal cannot be read or opened for writing
+     * @throws IllegalStateException    if a segment other than the last one is damaged
+     * @throws IllegalArgumentException if the size of the segments is not positive and below 2GB,
+     *                                  or the size of the batches is not positive
+     */
+    public OrderJournal(OrderProperties.Journal settings, MeterRegistry registry, long archived,
+                        Consumer<Order> replayed, Consumer<Order> committed) {
+        if (settings.segmentSize().toBytes() < 1 || settings.segmentSize().toBytes() > Integer.MAX_VALUE
+                || settings.maxBatch() < 1) {
+            throw new IllegalArgumentException("The size of the segments of the journal must be positive and below 2GB,"
+                    + " and the size of its batches positive: " + settings.segmentSize() + ", " + settings.maxBatch());
+        }
+        this.directory = Path.of(settings.directory());
+        this.segmentSize = settings.segmentSize().toBytes();
+        this.maxBatch = settings.maxBatch();
+        this.archived = archived;
+        this.committed = committed;
+        this.batchSizes = DistributionSummary.builder("orders.journal.batch.size")
+                .description("The number of orders written to the journal and forced to the disk together")
+                .register(registry);
+        this.syncs = Timer.builder("orders.journal.sync")
+                .description("The time it takes to force a batch of orders of the journal to the disk")
+                .register(registry);
+        try {
+            Files.createDirectories(directory);
+            replay(replayed);
+        } catch (IOException ex) {
+            scheduler.dispose();
+            throw new UncheckedIOException("Cannot open the order journal in " + directory, ex);
+        } catch (RuntimeException ex) {
+            scheduler.dispose();
+            throw ex;
+        }
+    }
+
+    /**
+     * Appends an order to the journal.
+     *
+     * @param order the order, which must have an id
+     * @return a {@link Mono} emitting the order once it is on the disk, or failing if it could
+     * not be written
+     */
+    public Mono<Order> append(Order order) {
+        return Mono.defer(() -> {
+            if (closed) {
+                return Mono.error(new IllegalStateException("The order journal is closed"));
+            }
+            var append = new Append(order, Sinks.one());
+            pending.add(append);
+            if (wip.getAndIncrement() == 0) {
+                scheduler.schedule(this::drain);
+            }
+            return append.written().asMono().publishOn(Schedulers.parallel());
+        });
+    }
+
+    /**
+     * Returns the number of the oldest sealed segment, the first one to archive.
+     *
+     * @return the number of the segment, or an empty {@code OptionalLong} if only the current
+     * segment is left
+     */
+    public OptionalLong oldestSealed() {
+        var oldest = sealed.ceiling(Long.MIN_VALUE);
+        return oldest == null ? OptionalLong.empty() : OptionalLong.of(oldest);
+    }
+
+    /**
+     * Reads the orders of a sealed segment, in the order they were appended.
+     *
+     * @param number the number of the segment
+     * @return the orders of the segment
+     * @throws UncheckedIOException     if the segment cannot be read
+     * @throws IllegalStateException    if the segment is damaged
+     * @throws IllegalArgumentException if there is no sealed segment with this number
+     */
+    public List<Order> read(long number) {
+        if (!sealed.contains(number)) {
+            throw new IllegalArgumentException("There is no sealed journal segment " + number);
+        }
+        var file = segment(number);
+        var orders = new ArrayList<Order>();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var replay = replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), new CRC32C(),
+                    new OrderCodec(), orders::add);
+            if (replay.end() < channel.size()) {
+                throw new IllegalStateException("The order journal segment " + file + " is damaged at byte "
+                        + replay.end());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read the order journal segment " + file, ex);
+        }
+        return orders;
+    }
+
+    /**
+     * Deletes a sealed segment, once its orders are archived.
+     *
+     * @param number the number of the segment
+     * @throws UncheckedIOException     if the segment cannot be deleted
+     * @throws IllegalArgumentException if there is no sealed segment with this number
+     */
+    public void delete(long number) {
+        if (!sealed.remove(number)) {
+            throw new IllegalArgumentException("There is no sealed journal segment " + number);
+        }
+        try {
+            Files.deleteIfExists(segment(number));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot delete the order journal segment " + number, ex);
+        }
+    }
+
+    /**
+     * Writes the orders appended so far to the disk and closes the journal. Orders appended
+     * afterwards fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        var done = new CountDownLatch(1);
+        scheduler.schedule(() -> {
+            drainAll();
+            try {
+                segment.close();
+            } catch (IOException ex) {
+                log.warn("Cannot close the order journal segment {}", segmentNumber, ex);
+            }
+            done.countDown();
+        });
+        try {
+            if (!done.await(10, TimeUnit.SECONDS)) {
+                log.warn("The order journal did not close within 10 seconds");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            try {
+                drainAll();
+            } catch (RuntimeException ex) {
+                // Keeps draining, since no other drain is scheduled while this one owns the queue
+                log.error("Unexpected failure while writing to the order journal", ex);
+            } finally {
+                missed = wip.addAndGet(-missed);
+            }
+        } while (missed != 0);
+    }
+
+    private void drainAll() {
+        var batch = new ArrayList<Append>(Math.min(maxBatch, 256));
+        Append append;
+        while ((append = pending.poll()) != null) {
+            batch.add(append);
+            if (batch.size() == maxBatch) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Append> batch) {
+        var refused = new RuntimeException[batch.size()];
+        if (failure == null) {
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        encode(batch.get(i).order());
+                    } catch (RuntimeException ex) {
+                        refused[i] = ex;
+                    }
+                }
+                flush();
+                long start = System.nanoTime();
+                segment.force(false);
+                syncs.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                batchSizes.record(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    if (refused[i] == null) {
+                        try {
+                            committed.accept(batch.get(i).order());
+                        } catch (RuntimeException ex) {
+                            refused[i] = ex;
+                        }
+                    }
+                }
+                // The segments rolled over by this batch hold orders only handed over just now
+                sealed.addAll(rolled);
+                rolled.clear();
+            } catch (IOException ex) {
+                log.error("Cannot write to the order journal, which now fails every order", ex);
+                failure = ex;
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            var append = batch.get(i);
+            if (failure == null && refused[i] != null) {
+                append.written().tryEmitError(refused[i]);
+            } else if (failure == null) {
+                append.written().tryEmitValue(append.order());
+            } else {
+                append.written().tryEmitError(new UncheckedIOException("Cannot write the order to the journal", failure));
+            }
+        }
+    }
+
+    /**
+     * Adds the record of an order to the buffer, writing the buffer out first if the record
+     * does not fit in it, or in the current segment. If the order cannot be encoded, the buffer
+     * is left as it was before its record, so that only this order fails.
+     *
+     * @throws IllegalArgumentException if the order cannot be encoded
+     */
+    private void encode(Order order) throws IOException {
+        int maxSize = HEADER_SIZE + OrderCodec.maxSize(order);
+        if (buffer.remaining() < maxSize) {
+            flush();
+            if (buffer.capacity() < maxSize) {
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(maxSize) << 1);
+            }
+        }
+        long written = segmentLength + buffer.position();
+        if (written + maxSize > segmentSize && written > 0) {
+            flush();
+            segment.force(false);
+            segment.close();
+            rolled.add(segmentNumber);
+            openSegment(segmentNumber + 1);
+        }
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        try {
+            OrderCodec.encode(order, buffer);
+        } catch (RuntimeException ex) {
+            buffer.position(start);
+            throw ex;
+        }
+        int length = buffer.position() - start - HEADER_SIZE;
+        crc.reset();
+        crc.update(buffer.duplicate().position(start + HEADER_SIZE).limit(buffer.position()));
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        segmentLength += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Deletes the archived segments, replays the orders of the others, truncates the last one to
+     * its last whole record and opens it for appending.
+     */
+    private void replay(Consumer<Order> replayed) throws IOException {
+        long start = System.nanoTime();
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : segments) {
+            if (number(file) <= archived) {
+                log.info("Deleting the order journal segment {}, which is archived", file);
+                Files.delete(file);
+            }
+        }
+        segments = segments.stream().filter(file -> number(file) > archived).toList();
+        var codec = new OrderCodec();
+        long orders = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            var file = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            long valid;
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                var replay = replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), crc, codec,
+                        replayed);
+                orders += replay.orders();
+                valid = replay.end();
+                if (valid < channel.size() && !last) {
+                    throw new IllegalStateException("The order journal segment " + file + " is damaged at byte " + valid);
+                }
+            }
+            if (!last) {
+                sealed.add(number(file));
+            } else {
+                segmentNumber = number(file);
+                segment = FileChannel.open(file, StandardOpenOption.WRITE);
+                if (valid < segment.size()) {
+                    log.warn("Truncating the order journal segment {} from {} to {} bytes, after its last whole record",
+                            file, segment.size(), valid);
+                    segment.truncate(valid);
+                    segment.force(true);
+                }
+                segment.position(valid);
+                segmentLength = valid;
+            }
+        }
+        if (segment == null) {
+            openSegment(archived + 1);
+        }
+        log.info("Replayed {} orders from {} journal segments in {} ms", orders, segments.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Replays the whole records of a mapped segment.
+     *
+     * @return the number of orders replayed and the position after the last whole record
+     */
+    private static SegmentReplay replay(MappedByteBuffer mapped, CRC32C crc, OrderCodec codec,
+                                        Consumer<Order> replayed) {
+        long orders = 0;
+        int position = 0;
+        while (mapped.limit() - position >= HEADER_SIZE) {
+            int length = mapped.getInt(position);
+            int checksum = mapped.getInt(position + 4);
+            if (length <= 0 || length > mapped.limit() - position - HEADER_SIZE) {
+                break;
+            }
+            var record = mapped.slice(position + HEADER_SIZE, length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            replayed.accept(codec.decode(record));
+            orders++;
+            position += HEADER_SIZE + length;
+        }
+        return new SegmentReplay(orders, position);
+    }
+
+    private void openSegment(long number) throws IOException {
+        segmentNumber = number;
+        segmentLength = 0;
+        segment = FileChannel.open(segment(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        // Makes the new segment itself durable, not only its records, where directories can be forced
+        try (var dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ex) {
+            log.debug("Cannot force the order journal directory {}", directory, ex);
+        }
+    }
+
+    private Path segment(long number) {
+        return directory.resolve(String.format("%020d%s", number, SUFFIX));
+    }
+
+    private static long number(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private record Append(Order order, Sinks.One<Order> written) {
+    }
+
+    private record SegmentReplay(long orders, long end) {
+    }
+}
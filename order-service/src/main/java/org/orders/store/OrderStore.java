@@ -0,0 +1,176 @@
+package org.orders.store;
+
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory store of the orders, safe to use from the event-loop threads.
+ * <p>
+ * Every order is numbered in the order it was added. The store keeps the orders by number in a
+ * concurrent skip list, for iteration in insertion order, and their numbers by id in a
+ * {@link ConcurrentHashMap}, for lookups in O(1). The secondary indexes by {@link OrderStatus}
+ * and by book ISBN are concurrent skip lists of numbers, so a filtered listing is in insertion
+ * order too. None of these structures blocks a reader, and writers only contend on the hash
+ * bin of an id.
+ * <p>
+ * A listing can start after a given order, found by its id, which lets clients page through
+ * the orders with the id of the last order they read as a cursor: the orders added since
+ * come after it, so no page skips or repeats an order as the store grows.
+ * <p>
+ * An order is published by number before it is indexed, and removed from the indexes before
+ * it is unpublished, so a number found in an index resolves to its order unless the order was
+ * removed since. Listings are weakly consistent: they reflect the orders added before they
+ * started and may or may not reflect the ones added or removed while they run.
+ * <p>
+ * Orders are removed when they move to the {@link OrderArchive}, the oldest first. The index
+ * of a book keeps existing once its orders are all removed, so that adding an order never
+ * races with dropping the index it is added to; there is one per book ever ordered.
+ */
+@Component
+public class OrderStore {
+    private final AtomicLong lastNumber = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> numbersById = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Order> byNumber = new ConcurrentSkipListMap<>();
+    private final Map<OrderStatus, NavigableSet<Long>> byStatus = new EnumMap<>(OrderStatus.class);
+    private final ConcurrentHashMap<String, NavigableSet<Long>> byIsbn = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty {@code OrderStore}.
+     */
+    public OrderStore() {
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    /**
+     * Adds an order unless the store already holds an order with the same id.
+     *
+     * @param order the order to add
+     * @return {@code true} if the order was added, {@code false} if its id is taken
+     */
+    public boolean add(Order order) {
+        // Boxed once and shared by the map and the indexes, rather than once for each
+        Long number = lastNumber.incrementAndGet();
+        if (numbersById.putIfAbsent(order.id(), number) != null) {
+            return false;
+        }
+        byNumber.put(number, order);
+        byStatus.get(order.status()).add(number);
+        if (order.bookIsbn() != null) {
+            byIsbn.computeIfAbsent(order.bookIsbn(), isbn -> new ConcurrentSkipListSet<>()).add(number);
+        }
+        return true;
+    }
+
+    /**
+     * Removes an order from the store.
+     *
+     * @param order the order to remove
+     * @return {@code true} if the order was removed, {@code false} if the store did not hold it
+     */
+    public boolean remove(Order order) {
+        var number = numbersById.get(order.id());
+        if (number == null) {
+            return false;
+        }
+        byStatus.get(order.status()).remove(number);
+        if (order.bookIsbn() != null) {
+            var numbers = byIsbn.get(order.bookIsbn());
+            if (numbers != null) {
+                numbers.remove(number);
+            }
+        }
+        byNumber.remove(number);
+        numbersById.remove(order.id(), number);
+        return true;
+    }
+
+    /**
+     * Returns the order with the given id.
+     *
+     * @param id the id of the order
+     * @return the order, or an empty {@code Optional} if there is none
+     */
+    public Optional<Order> get(long id) {
+        var number = numbersById.get(id);
+        return number == null ? Optional.empty() : Optional.ofNullable(byNumber.get(number));
+    }
+
+    /**
+     * Returns the orders in the order they were added.
+     *
+     * @return a live, weakly consistent view of the orders
+     */
+    public Collection<Order> orders() {
+        return byNumber.values();
+    }
+
+    /**
+     * Returns the orders with the given status and/or for the given book, in the order they
+     * were added. When both are given, the orders of the book are filtered by status.
+     *
+     * @param status the status of the orders, or {@code null} for any status
+     * @param isbn   the ISBN of the ordered book, or {@code null} for any book
+     * @return the matching orders
+     */
+    public Stream<Order> find(OrderStatus status, String isbn) {
+        return find(status, isbn, null);
+    }
+
+    /**
+     * Returns the orders with the given status and/or for the given book that were added after
+     * the order with the given id, in the order they were added. The stream reads the orders
+     * from the store as it is consumed, rather than copying them first.
+     *
+     * @param status  the status of the orders, or {@code null} for any status
+     * @param isbn    the ISBN of the ordered book, or {@code null} for any book
+     * @param afterId the id of the order after which to start, or {@code null} to start from the first order
+     * @return the matching orders
+     * @throws IllegalArgumentException if the store holds no order with the id to start after
+     */
+    public Stream<Order> find(OrderStatus status, String isbn, Long afterId) {
+        long after = 0;
+        if (afterId != null) {
+            var number = numbersById.get(afterId);
+            if (number == null) {
+                throw new IllegalArgumentException("There is no order with ID " + afterId);
+            }
+            after = number;
+        }
+        if (isbn != null) {
+            var numbers = byIsbn.get(isbn);
+            if (numbers == null) {
+                return Stream.empty();
+            }
+            return numbers.tailSet(after, false).stream().map(byNumber::get)
+                    .filter(order -> order != null && (status == null || order.status() == status));
+        }
+        if (status != null) {
+            return byStatus.get(status).tailSet(after, false).stream().map(byNumber::get).filter(Objects::nonNull);
+        }
+        return byNumber.tailMap(after, false).values().stream();
+    }
+
+    /**
+     * Returns the number of orders in the store.
+     *
+     * @return the number of orders
+     */
+    public int size() {
+        return numbersById.size();
+    }
+}
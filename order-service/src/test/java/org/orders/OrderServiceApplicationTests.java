@@ -3,7 +3,7 @@ package org.orders;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {"orders.ids.node=0", "orders.journal.enabled=false", "orders.tiering.enabled=false"})
 class OrderServiceApplicationTests {
 
     @Test
@@ -0,0 +1,90 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.orders.config.OrderProperties;
+import org.orders.model.Book;
+import org.orders.model.BookLookup;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookBatcherTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private BookBatcher batcher;
+
+    @AfterEach
+    void close() {
+        batcher.close();
+    }
+
+    @Test
+    void resolvesConcurrentLookupsInOneRequest() {
+        batcher = batcher(10, Duration.ofMillis(50), BookBatcherTest::catalog);
+
+        var found = batcher.get("1234567890").toFuture();
+        var missing = batcher.get("0000000000").toFuture();
+        var again = batcher.get("1234567890").toFuture();
+
+        assertThat(found.join().isbn()).isEqualTo("1234567890");
+        assertThat(missing.join()).isNull();
+        assertThat(again.join().isbn()).isEqualTo("1234567890");
+        assertThat(batches).containsExactly(List.of("1234567890", "0000000000"));
+        assertThat(registry.get("catalog.lookup.batch.size").summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void cutsBatchesAtMaximumSizeAndSendsLastAfterWindow() {
+        batcher = batcher(10, Duration.ofMillis(100), BookBatcherTest::catalog);
+
+        var books = IntStream.range(0, 25)
+                .mapToObj(i -> batcher.get("978000000" + String.format("%04d", i)).toFuture())
+                .toList();
+
+        assertThat(books).allSatisfy(book -> assertThat(book.join()).isNotNull());
+        assertThat(batches).extracting(List::size).containsExactly(10, 10, 5);
+    }
+
+    @Test
+    void failsEveryLookupOfFailedBatch() {
+        var fail = new AtomicBoolean(true);
+        batcher = batcher(10, Duration.ofMillis(20), isbns -> fail.getAndSet(false)
+                ? Mono.error(new IllegalStateException("Catalog unavailable"))
+                : catalog(isbns));
+
+        var first = batcher.get("1234567890").toFuture();
+        var second = batcher.get("1234567891").toFuture();
+        assertThat(first).failsWithin(Duration.ofSeconds(5));
+        assertThat(second).failsWithin(Duration.ofSeconds(5));
+
+        StepVerifier.create(batcher.get("1234567890")).expectNextCount(1).verifyComplete();
+    }
+
+    private BookBatcher batcher(int maxSize, Duration window, Function<List<String>, Mono<BookLookup>> catalog) {
+        var settings = new OrderProperties.BookBatch(true, maxSize, window, 2);
+        return new BookBatcher(isbns -> {
+            batches.add(isbns);
+            return catalog.apply(isbns);
+        }, settings, registry);
+    }
+
+    /**
+     * A catalog that has every book whose ISBN does not start with 0.
+     */
+    private static Mono<BookLookup> catalog(List<String> isbns) {
+        return Mono.fromSupplier(() -> new BookLookup(
+                isbns.stream().filter(isbn -> !isbn.startsWith("0"))
+                        .map(isbn -> Book.of(isbn, "Title", "Author", 9.90, "Publisher")).toList(),
+                isbns.stream().filter(isbn -> isbn.startsWith("0")).toList()));
+    }
+}
@@ -0,0 +1,147 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.orders.config.OrderProperties;
+import org.orders.model.Book;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookCacheTest {
+    private static final OrderProperties.BookCache SETTINGS = new OrderProperties.BookCache(
+            true, 3, Duration.ofSeconds(10), Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+
+    @Test
+    void sharesOneLookupAmongConcurrentMisses() {
+        var response = Sinks.<Book>one();
+        var cache = cache(isbn -> response.asMono());
+
+        var waiting = new ArrayList<Mono<Book>>();
+        for (int i = 0; i < 100; i++) {
+            waiting.add(cache.get("1234567890"));
+        }
+        var results = waiting.stream().map(Mono::toFuture).toList();
+        response.tryEmitValue(book("1234567890", 9.90));
+
+        assertThat(results).allSatisfy(result -> assertThat(result.join().price()).isEqualTo(9.90));
+        assertThat(lookups("1234567890")).isEqualTo(1);
+        assertThat(count("cache.gets", "result", "miss")).isEqualTo(100);
+        assertThat(count("cache.loads", "trigger", "miss")).isEqualTo(1);
+
+        StepVerifier.create(cache.get("1234567890")).expectNextCount(1).verifyComplete();
+        assertThat(lookups("1234567890")).isEqualTo(1);
+        assertThat(count("cache.gets", "result", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void refreshesBookAheadOfExpiry() {
+        var price = new AtomicInteger(10);
+        var cache = cache(isbn -> Mono.fromSupplier(() -> book(isbn, price.getAndIncrement())));
+
+        StepVerifier.create(cache.get("1234567890")).expectNextMatches(book -> book.price() == 10).verifyComplete();
+        clock.set(seconds(6));
+        StepVerifier.create(cache.get("1234567890")).expectNextMatches(book -> book.price() == 10).verifyComplete();
+        StepVerifier.create(cache.get("1234567890")).expectNextMatches(book -> book.price() == 11).verifyComplete();
+
+        clock.set(seconds(15));
+        StepVerifier.create(cache.get("1234567890")).expectNextMatches(book -> book.price() == 11).verifyComplete();
+        StepVerifier.create(cache.get("1234567890")).expectNextMatches(book -> book.price() == 12).verifyComplete();
+        assertThat(lookups("1234567890")).isEqualTo(3);
+        assertThat(count("cache.loads", "trigger", "miss")).isEqualTo(1);
+        assertThat(count("cache.loads", "trigger", "refresh")).isEqualTo(2);
+    }
+
+    @Test
+    void expiresBookWhoseRefreshFailed() {
+        var fail = new AtomicInteger();
+        var cache = cache(isbn -> fail.get() > 0
+                ? Mono.error(new IllegalStateException("Catalog unavailable"))
+                : Mono.just(book(isbn, 9.90)));
+
+        StepVerifier.create(cache.get("1234567890")).expectNextCount(1).verifyComplete();
+        fail.set(1);
+        clock.set(seconds(6));
+        StepVerifier.create(cache.get("1234567890")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get("1234567890")).expectNextCount(1).verifyComplete();
+        assertThat(lookups("1234567890")).isEqualTo(2);
+
+        clock.set(seconds(10));
+        StepVerifier.create(cache.get("1234567890")).verifyError(IllegalStateException.class);
+        StepVerifier.create(cache.get("1234567890")).verifyError(IllegalStateException.class);
+        assertThat(lookups("1234567890")).isEqualTo(4);
+    }
+
+    @Test
+    void remembersMissingBookForNegativeTtl() {
+        var cache = cache(isbn -> Mono.empty());
+
+        StepVerifier.create(cache.get("1234567890")).verifyComplete();
+        StepVerifier.create(cache.get("1234567890")).verifyComplete();
+        assertThat(lookups("1234567890")).isEqualTo(1);
+
+        clock.set(seconds(1));
+        StepVerifier.create(cache.get("1234567890")).verifyComplete();
+        assertThat(lookups("1234567890")).isEqualTo(2);
+    }
+
+    @Test
+    void evictsBooksNotReadSinceTheyWereCached() {
+        var cache = cache(isbn -> Mono.just(book(isbn, 9.90)));
+        for (String isbn : new String[] {"1", "2", "3"}) {
+            cache.get(isbn).block();
+        }
+        cache.get("1").block();
+
+        cache.get("4").block();
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(count("cache.evictions", null, null)).isEqualTo(1);
+        for (String isbn : new String[] {"1", "3", "4", "2"}) {
+            cache.get(isbn).block();
+        }
+        assertThat(lookups("1")).isEqualTo(1);
+        assertThat(lookups("3")).isEqualTo(1);
+        assertThat(lookups("4")).isEqualTo(1);
+        assertThat(lookups("2")).isEqualTo(2);
+    }
+
+    private BookCache cache(Function<String, Mono<Book>> catalog) {
+        Function<String, Mono<Book>> loader = isbn -> {
+            lookups.computeIfAbsent(isbn, key -> new AtomicInteger()).incrementAndGet();
+            return catalog.apply(isbn);
+        };
+        return new BookCache(loader, SETTINGS, registry, clock::get);
+    }
+
+    private int lookups(String isbn) {
+        return lookups.getOrDefault(isbn, new AtomicInteger()).get();
+    }
+
+    private double count(String name, String tag, String value) {
+        var search = registry.find(name).tag("cache", BookCache.NAME);
+        return (tag != null ? search.tag(tag, value) : search).counter().count();
+    }
+
+    private static long seconds(long seconds) {
+        return Duration.ofSeconds(seconds).toNanos();
+    }
+
+    private static Book book(String isbn, double price) {
+        return Book.of(isbn, "Title", "Author", price, "Publisher");
+    }
+}
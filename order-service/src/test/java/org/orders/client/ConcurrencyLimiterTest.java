@@ -0,0 +1,114 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.orders.config.OrderProperties;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void queuesRequestsBeyondLimitAndRejectsBeyondQueue() {
+        var limiter = limiter(2, 1);
+        var first = Sinks.<String>one();
+        var second = Sinks.<String>one();
+        var sent = new AtomicInteger();
+
+        var answers = new Object[] {
+                limiter.limit(() -> first.asMono().doOnSubscribe(s -> sent.incrementAndGet())).toFuture(),
+                limiter.limit(() -> second.asMono().doOnSubscribe(s -> sent.incrementAndGet())).toFuture(),
+                limiter.limit(() -> {
+                    sent.incrementAndGet();
+                    return Mono.just("queued");
+                }).toFuture()};
+        var rejected = limiter.limit(() -> Mono.just("rejected")).toFuture();
+
+        assertThat(sent).hasValue(2);
+        assertThat(limiter.inFlight()).isEqualTo(2);
+        assertThat(limiter.queued()).isEqualTo(1);
+        assertThat(rejected).failsWithin(Duration.ofSeconds(1))
+                .withThrowableOfType(Exception.class)
+                .withCauseInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(registry.get("catalog.requests.rejected").counter().count()).isEqualTo(1);
+
+        first.tryEmitValue("first");
+        assertThat(sent).hasValue(3);
+        assertThat(answers).hasSize(3);
+        assertThat(limiter.inFlight()).isEqualTo(1);
+        assertThat(limiter.queued()).isZero();
+        second.tryEmitValue("second");
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void dropsCancelledRequestsFromQueue() {
+        var limiter = limiter(1, 10);
+        var first = Sinks.<String>one();
+        var sent = new AtomicInteger();
+        limiter.limit(first::asMono).subscribe();
+
+        var queued = limiter.limit(() -> {
+            sent.incrementAndGet();
+            return Mono.just("queued");
+        }).subscribe();
+        queued.dispose();
+        first.tryEmitValue("first");
+
+        assertThat(sent).hasValue(0);
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.queued()).isZero();
+    }
+
+    @Test
+    void growsLimitWhileLatencyHoldsAndShrinksItWhenLatencyRises() {
+        var limiter = limiter(20, 10);
+        saturate(limiter, 20);
+        for (int i = 0; i < 50 * ConcurrencyLimiter.WINDOW_SAMPLES; i++) {
+            limiter.sample(Duration.ofMillis(10).toNanos());
+        }
+        int grown = limiter.limit();
+        // Up to twice the requests in flight, beyond which the limit is not being tested
+        assertThat(grown).isBetween(39, 41);
+
+        saturate(limiter, grown);
+        for (int i = 0; i < 50 * ConcurrencyLimiter.WINDOW_SAMPLES; i++) {
+            limiter.sample(Duration.ofMillis(100).toNanos());
+        }
+        assertThat(limiter.limit()).isLessThan(grown / 2);
+        assertThat(registry.get("catalog.requests.limit").gauge().value()).isEqualTo(limiter.limit());
+    }
+
+    @Test
+    void keepsLimitWhenFewRequestsAreInFlight() {
+        var limiter = limiter(20, 10);
+        for (int i = 0; i < 10 * ConcurrencyLimiter.WINDOW_SAMPLES; i++) {
+            limiter.sample(Duration.ofMillis(10).toNanos());
+        }
+
+        assertThat(limiter.limit()).isEqualTo(20);
+    }
+
+    /**
+     * Sends as many requests that never end as the limit allows, so that the limiter sees
+     * itself used to its limit.
+     */
+    private static void saturate(ConcurrencyLimiter limiter, int requests) {
+        for (int i = 0; i < requests; i++) {
+            limiter.limit(Mono::never).subscribe();
+        }
+    }
+
+    private ConcurrencyLimiter limiter(int initialLimit, int maxQueue) {
+        var settings = new OrderProperties.Concurrency(true, initialLimit, 1, 200, 1.5, 0.2, maxQueue);
+        return new ConcurrencyLimiter(settings, registry, clock::get);
+    }
+}
@@ -0,0 +1,48 @@
+package org.orders.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void readsQuantilesToWithinOneEighth() {
+        var histogram = new LatencyHistogram(Duration.ofSeconds(60), 6);
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(Duration.ofMillis(millis).toNanos(), 0);
+        }
+
+        assertThat(histogram.count(0)).isEqualTo(1000);
+        assertThat(histogram.quantile(0.5, 0).toMillis()).isBetween(500L, 563L);
+        assertThat(histogram.quantile(0.99, 0).toMillis()).isBetween(990L, 1114L);
+        assertThat(histogram.quantile(1, 0).toMillis()).isBetween(1000L, 1125L);
+    }
+
+    @Test
+    void forgetsLatenciesThatLeftTheWindow() {
+        var histogram = new LatencyHistogram(Duration.ofSeconds(6), 6);
+        long second = Duration.ofSeconds(1).toNanos();
+        histogram.record(Duration.ofMillis(500).toNanos(), 0);
+        histogram.record(Duration.ofMillis(5).toNanos(), 3 * second);
+
+        assertThat(histogram.count(6 * second - 1)).isEqualTo(2);
+        assertThat(histogram.quantile(1, 6 * second - 1).toMillis()).isBetween(500L, 563L);
+        assertThat(histogram.count(6 * second)).isEqualTo(1);
+        assertThat(histogram.quantile(1, 6 * second).toMillis()).isEqualTo(5);
+
+        histogram.record(Duration.ofMillis(7).toNanos(), 9 * second);
+        assertThat(histogram.count(9 * second)).isEqualTo(1);
+        assertThat(histogram.quantile(0.5, 15 * second)).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void bucketsBoundTheirLatenciesClosely() {
+        for (long micros = 0; micros < 10_000_000; micros = micros * 9 / 8 + 1) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.bucket(micros));
+            assertThat(upper).isBetween(micros, micros + micros / 8);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.orders.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.orders.config.OrderProperties;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestHedgerTest {
+    private static final OrderProperties.Hedging SETTINGS = new OrderProperties.Hedging(true, 0.95, 0.1,
+            Duration.ofSeconds(30), 100, 3, Duration.ofMillis(250), Duration.ofSeconds(3));
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestHedger hedger = new RequestHedger(SETTINGS, registry, clock::get);
+
+    @Test
+    void timesOutAfterMaximumUntilLatenciesAreKnown() {
+        var requests = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> hedger.send(() -> {
+                    requests.incrementAndGet();
+                    return Mono.never();
+                }))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(2999))
+                .thenAwait(Duration.ofMillis(1))
+                .verifyError(TimeoutException.class);
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void derivesHedgeDelayAndTimeoutFromLatencies() {
+        learn(Duration.ofMillis(100));
+
+        var limits = hedger.limits();
+        assertThat(limits.hedgeDelay().toMillis()).isBetween(100L, 112L);
+        assertThat(limits.timeout().toMillis()).isBetween(300L, 337L);
+        assertThat(registry.get("catalog.requests.timeout").gauge().value()).isBetween(0.3, 0.337);
+    }
+
+    @Test
+    void hedgesSlowRequestAndTakesFirstAnswer() {
+        learn(Duration.ofMillis(10));
+        var requests = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> hedger.send(() -> requests.incrementAndGet() == 1
+                        ? Mono.<String>never()
+                        : Mono.just("hedge")))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(20))
+                .expectNext("hedge")
+                .verifyComplete();
+        assertThat(requests).hasValue(2);
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(count("won")).isEqualTo(1);
+    }
+
+    @Test
+    void hedgesNoMoreThanTheBudgetAllows() {
+        learn(Duration.ofMillis(10));
+        var scheduler = VirtualTimeScheduler.getOrSet();
+        try {
+            var failures = new ArrayList<Throwable>();
+            for (int i = 0; i < 30; i++) {
+                hedger.send(Mono::never).subscribe(answer -> { }, failures::add);
+            }
+            scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+            assertThat(failures).hasSize(30).allMatch(TimeoutException.class::isInstance);
+            assertThat(count("sent")).isEqualTo(10);
+            assertThat(count("denied")).isEqualTo(20);
+        } finally {
+            VirtualTimeScheduler.reset();
+        }
+    }
+
+    @Test
+    void countsRequestsThatTimedOutOrWereOvertakenAsAtLeastTheirWait() {
+        learn(Duration.ofMillis(10));
+        var scheduler = VirtualTimeScheduler.getOrSet();
+        try {
+            for (int i = 0; i < 200; i++) {
+                hedger.send(Mono::never).subscribe(answer -> { }, failure -> { });
+            }
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+            scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        } finally {
+            VirtualTimeScheduler.reset();
+        }
+        clock.addAndGet(RequestHedger.LIMITS_PERIOD.toNanos());
+
+        var limits = hedger.limits();
+        assertThat(limits.hedgeDelay()).isGreaterThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(limits.timeout()).isEqualTo(SETTINGS.maxTimeout());
+    }
+
+    @Test
+    void keepsHedgeWhenRequestItHedgedFails() {
+        learn(Duration.ofMillis(10));
+        var requests = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> hedger.send(() -> requests.incrementAndGet() == 1
+                        ? Mono.delay(Duration.ofMillis(15)).then(Mono.<String>error(new IllegalStateException()))
+                        : Mono.delay(Duration.ofMillis(20)).thenReturn("hedge")))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(40))
+                .expectNext("hedge")
+                .verifyComplete();
+        assertThat(requests).hasValue(2);
+    }
+
+    @Test
+    void failsWithRequestThatFailsBeforeItIsHedged() {
+        learn(Duration.ofMillis(10));
+        var requests = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> hedger.send(() -> {
+                    requests.incrementAndGet();
+                    return Mono.<String>error(new IllegalStateException());
+                }))
+                .expectSubscription()
+                .verifyError(IllegalStateException.class);
+        assertThat(requests).hasValue(1);
+        assertThat(count("sent")).isZero();
+    }
+
+    /**
+     * Sends enough requests answered after the given latency for the hedger to hedge, and
+     * moves on past the period of its limits.
+     */
+    private void learn(Duration latency) {
+        for (int i = 0; i < SETTINGS.minSamples(); i++) {
+            hedger.send(() -> {
+                clock.addAndGet(latency.toNanos());
+                return Mono.just("book");
+            }).block();
+        }
+        clock.addAndGet(RequestHedger.LIMITS_PERIOD.toNanos());
+    }
+
+    private double count(String outcome) {
+        return registry.get("catalog.requests.hedges").tag("outcome", outcome).counter().count();
+    }
+}
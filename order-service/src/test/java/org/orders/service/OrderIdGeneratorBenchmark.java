@@ -0,0 +1,82 @@
+package org.orders.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of the {@link OrderIdGenerator} with that of the former
+ * {@code Order.generate()}, the current time plus a random number drawn from a shared
+ * {@link Random}, at increasing thread counts, and counts the duplicate ids each produced.
+ * Run with {@code ./gradlew benchmark}; the number of ids per thread is set with
+ * {@code -Dbenchmark.ids}.
+ */
+@Tag("benchmark")
+class OrderIdGeneratorBenchmark {
+    private static final int IDS = Integer.getInteger("benchmark.ids", 2_000_000);
+    private static final Random RANDOM = new Random();
+
+    @Test
+    void compareGenerators() throws Exception {
+        var generator = new OrderIdGenerator(0, System::currentTimeMillis);
+        System.out.printf("%-10s %8s %14s %12s%n", "generator", "threads", "ids/s", "duplicates");
+        for (int round = 0; round < 2; round++) {
+            for (int threads : new int[] {1, 2, 4, 8}) {
+                measure("random", threads, OrderIdGeneratorBenchmark::generate);
+                var duplicates = measure("snowflake", threads, generator::nextId);
+                assertThat(duplicates).isZero();
+            }
+        }
+    }
+
+    private static long measure(String name, int threads, LongSupplier ids) throws InterruptedException {
+        var results = new long[threads][IDS];
+        var start = new CountDownLatch(1);
+        var workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            var own = results[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < own.length; i++) {
+                    own[i] = ids.getAsLong();
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - begin;
+
+        var all = Arrays.stream(results).flatMapToLong(Arrays::stream).sorted().toArray();
+        long duplicates = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                duplicates++;
+            }
+        }
+        System.out.printf("%-10s %8d %,14d %,12d%n", name, threads, (long) (all.length / (nanos / 1e9)), duplicates);
+        return duplicates;
+    }
+
+    /**
+     * The former {@code Order.generate()}.
+     */
+    private static long generate() {
+        long currentTimeMillis = System.currentTimeMillis();
+        int randomPart = RANDOM.nextInt(999);
+        return (currentTimeMillis % Integer.MAX_VALUE) + randomPart;
+    }
+}
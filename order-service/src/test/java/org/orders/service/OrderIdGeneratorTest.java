@@ -0,0 +1,117 @@
+package org.orders.service;
+
+import org.junit.jupiter.api.Test;
+import org.orders.config.OrderProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderIdGeneratorTest {
+    private static final long NOW = OrderIdGenerator.EPOCH + 1_000_000;
+
+    @Test
+    void generatesUniqueIdsAcrossThreadsAndNodes() throws Exception {
+        int threads = 8;
+        int perThread = 100_000;
+        var generators = new OrderIdGenerator[] {
+                new OrderIdGenerator(0, System::currentTimeMillis), new OrderIdGenerator(31, System::currentTimeMillis)};
+        var ids = new long[threads][perThread];
+        var pool = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                var own = ids[t];
+                var generator = generators[t % generators.length];
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        own[i] = generator.nextId();
+                        if (i > 0) {
+                            assertThat(own[i]).isGreaterThan(own[i - 1]);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        var all = Arrays.stream(ids).flatMapToLong(Arrays::stream).sorted().toArray();
+        for (int i = 1; i < all.length; i++) {
+            assertThat(all[i]).isNotEqualTo(all[i - 1]);
+        }
+        assertThat(all[all.length - 1]).isLessThan(1L << 53);
+    }
+
+    @Test
+    void encodesTimeNodeAndSequence() {
+        var generator = new OrderIdGenerator(5, () -> NOW);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertThat(OrderIdGenerator.timestamp(first).toEpochMilli()).isEqualTo(NOW);
+        assertThat(first >>> OrderIdGenerator.SEQUENCE_BITS & OrderIdGenerator.MAX_NODE).isEqualTo(5);
+        assertThat(second).isEqualTo(first + 1);
+    }
+
+    @Test
+    void borrowsNextMillisecondWhenSequenceRunsOutOrClockGoesBack() {
+        var clock = new AtomicLong(NOW);
+        var generator = new OrderIdGenerator(1, clock::get);
+        long last = 0;
+        for (int i = 0; i < 1 << OrderIdGenerator.SEQUENCE_BITS; i++) {
+            last = generator.nextId();
+        }
+        assertThat(OrderIdGenerator.timestamp(last).toEpochMilli()).isEqualTo(NOW);
+
+        long borrowed = generator.nextId();
+        assertThat(OrderIdGenerator.timestamp(borrowed).toEpochMilli()).isEqualTo(NOW + 1);
+        assertThat(borrowed).isGreaterThan(last);
+
+        clock.set(NOW - 5_000);
+        assertThat(generator.nextId()).isGreaterThan(borrowed);
+        clock.set(NOW + 10);
+        assertThat(OrderIdGenerator.timestamp(generator.nextId()).toEpochMilli()).isEqualTo(NOW + 10);
+    }
+
+    @Test
+    void advancesPastIdsReturnedBeforeRestart() {
+        var before = new OrderIdGenerator(3, () -> NOW);
+        long last = 0;
+        for (int i = 0; i < 200; i++) {
+            last = before.nextId();
+        }
+
+        var restarted = new OrderIdGenerator(3, () -> NOW - 60_000);
+        restarted.advancePast(last);
+        restarted.advancePast(last - 1000);
+
+        assertThat(restarted.nextId()).isEqualTo(last + 1);
+    }
+
+    @Test
+    void requiresConfiguredNode() {
+        var properties = new OrderProperties(new OrderProperties.Ids(null), null, null, null, null, null, null,
+                null, null);
+
+        assertThatThrownBy(() -> new OrderIdGenerator(properties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("orders.ids.node");
+    }
+
+    @Test
+    void rejectsNodeOutOfRange() {
+        assertThatThrownBy(() -> new OrderIdGenerator(32, System::currentTimeMillis))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
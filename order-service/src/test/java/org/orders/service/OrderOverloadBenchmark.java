@@ -0,0 +1,133 @@
+package org.orders.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.orders.client.BookClient;
+import org.orders.config.OrderProperties;
+import org.orders.model.OrderRequest;
+import org.orders.model.OrderStatus;
+import org.orders.store.OrderStore;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the goodput of order submissions, the orders accepted per second, with and without
+ * the adaptive concurrency limit, when orders arrive at a multiple of the rate the catalog can
+ * serve. The {@link StubCatalog} serves requests from a fixed pool of threads, like the Tomcat
+ * of the catalog, and queues the others without bound, serving even those whose client gave up.
+ * Orders arrive at a fixed rate whatever the latency, as they do from many users; the book
+ * cache and the batches are disabled, so that every order reaches the catalog, and the catalog
+ * has every book, so that the orders rejected are those that timed out or were turned away.
+ * Run with {@code ./gradlew benchmark}; the threads and the service time of the catalog, the
+ * overload factor and the seconds per scenario are set with {@code -Dbenchmark.catalogThreads},
+ * {@code -Dbenchmark.serviceMillis}, {@code -Dbenchmark.overload} and {@code -Dbenchmark.seconds}.
+ */
+@Tag("benchmark")
+class OrderOverloadBenchmark {
+    private static final int CATALOG_THREADS = Integer.getInteger("benchmark.catalogThreads", 50);
+    private static final int SERVICE_MILLIS = Integer.getInteger("benchmark.serviceMillis", 200);
+    private static final double OVERLOAD = Double.parseDouble(System.getProperty("benchmark.overload", "2"));
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 30);
+    private static final int PHASE_SECONDS = 5;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        // Every order turned away logs an error, which would take the processor from the catalog
+        ((Logger) LoggerFactory.getLogger(BookClient.class)).setLevel(Level.OFF);
+    }
+
+    @Test
+    void compareConcurrencyLimit() throws IOException {
+        double capacity = CATALOG_THREADS * 1000.0 / SERVICE_MILLIS;
+        System.out.printf("catalog serves %.0f requests/s, orders arrive at %.0f/s%n", capacity, capacity * OVERLOAD);
+        System.out.printf("%-7s %10s %10s %9s %9s %10s %7s   %s%n", "limit", "goodput/s", "rejected/s",
+                "p50 ms", "p99 ms", "catalog/s", "final", "goodput/s every " + PHASE_SECONDS + "s");
+        measure(false, capacity * OVERLOAD);
+        measure(true, capacity * OVERLOAD);
+    }
+
+    /**
+     * Submits orders at the given rate against a new catalog, since the previous one may still
+     * be serving the requests left in its queue.
+     */
+    private void measure(boolean limited, double rate) throws IOException {
+        try (var catalog = new StubCatalog(CATALOG_THREADS, () -> SERVICE_MILLIS)) {
+            measure(catalog, limited, rate);
+        }
+    }
+
+    private void measure(StubCatalog catalog, boolean limited, double rate) {
+        var properties = new OrderProperties(new OrderProperties.Ids(0),
+                new OrderProperties.BookCache(false, 1, Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(5)),
+                new OrderProperties.BookBatch(false, 100, Duration.ofMillis(2), 8),
+                new OrderProperties.Hedging(true, 0.95, 0.1, Duration.ofSeconds(30), 100, 3,
+                        Duration.ofMillis(250), Duration.ofSeconds(3)),
+                new OrderProperties.Concurrency(limited, 20, 4, 200, 1.5, 0.2, 100),
+                new OrderProperties.OrderBatch(32),
+                new OrderProperties.Paging(100, 1000),
+                new OrderProperties.Journal(false, "data/journal", DataSize.ofMegabytes(16), 1024),
+                new OrderProperties.Tiering(false, "data/archive", 1_000_000, DataSize.ofKilobytes(16)));
+        var registry = new SimpleMeterRegistry();
+        var webClient = WebClient.builder().baseUrl(catalog.baseUrl()).build();
+        var service = new OrderService(new BookClient(webClient, properties, registry), new OrderStore(),
+                new OrderIdGenerator(0, System::currentTimeMillis), properties, registry);
+
+        var accepted = new AtomicLongArray(SECONDS / PHASE_SECONDS);
+        var rejected = new AtomicLong();
+        var latencies = new ConcurrentLinkedQueue<Long>();
+        long start = System.nanoTime();
+        Flux.interval(Duration.ofNanos((long) (1e9 / rate)))
+                .take(Duration.ofSeconds(SECONDS))
+                .flatMap(tick -> {
+                    var isbn = String.format("978%07d", ThreadLocalRandom.current().nextInt(10_000_000));
+                    long submitted = System.nanoTime();
+                    return service.submitOrder(new OrderRequest(isbn, 1)).doOnNext(order -> {
+                        long now = System.nanoTime();
+                        int phase = (int) ((now - start) / Duration.ofSeconds(PHASE_SECONDS).toNanos());
+                        if (order.status() == OrderStatus.REJECTED) {
+                            rejected.incrementAndGet();
+                        } else if (phase < accepted.length()) {
+                            accepted.incrementAndGet(phase);
+                            latencies.add(now - submitted);
+                        }
+                    });
+                }, Integer.MAX_VALUE)
+                .blockLast(Duration.ofSeconds(SECONDS + 30));
+        double catalogRate = catalog.requests() / ((System.nanoTime() - start) / 1e9);
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        assertThat(sorted).isNotEmpty();
+        var phases = IntStream.range(0, accepted.length())
+                .mapToObj(phase -> String.format("%5.0f", accepted.get(phase) / (double) PHASE_SECONDS))
+                .collect(Collectors.joining(" "));
+        long goodput = Arrays.stream(phases.trim().split("\\s+")).mapToLong(Long::parseLong).sum();
+        System.out.printf("%-7s %,10.0f %,10.0f %9.1f %9.1f %,10.0f %7s   %s%n", limited ? "on" : "off",
+                goodput / (double) accepted.length(), rejected.get() / (double) SECONDS,
+                millis(sorted, 0.5), millis(sorted, 0.99), catalogRate,
+                limited ? String.valueOf((int) registry.get("catalog.requests.limit").gauge().value()) : "-",
+                phases);
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,214 @@
+package org.orders.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.orders.client.BookClient;
+import org.orders.config.OrderProperties;
+import org.orders.model.Order;
+import org.orders.model.OrderRequest;
+import org.orders.model.OrderStatus;
+import org.orders.store.OrderStore;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.awaitility.Awaitility.await;
+
+class OrderServiceTest {
+    private StubCatalog catalog;
+    private OrderStore orderStore;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        catalog = new StubCatalog(0, () -> 5);
+        orderStore = new OrderStore();
+        orderService = service(orderStore, properties(
+                new OrderProperties.Journal(false, "data/journal", DataSize.ofMegabytes(16), 1024),
+                new OrderProperties.Tiering(false, "data/archive", 1_000_000, DataSize.ofKilobytes(16))));
+    }
+
+    private OrderProperties properties(OrderProperties.Journal journal, OrderProperties.Tiering tiering) {
+        return new OrderProperties(new OrderProperties.Ids(0),
+                new OrderProperties.BookCache(false, 1, Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(5)),
+                new OrderProperties.BookBatch(false, 100, Duration.ofMillis(5), 8),
+                new OrderProperties.Hedging(false, 0.95, 0.1, Duration.ofSeconds(30), 100, 3,
+                        Duration.ofMillis(250), Duration.ofSeconds(3)),
+                new OrderProperties.Concurrency(false, 20, 4, 200, 1.5, 0.2, 100),
+                new OrderProperties.OrderBatch(4),
+                new OrderProperties.Paging(100, 1000),
+                journal, tiering);
+    }
+
+    private OrderService service(OrderStore store, OrderProperties properties) {
+        return service(store, properties, new OrderIdGenerator(0, System::currentTimeMillis));
+    }
+
+    private OrderService service(OrderStore store, OrderProperties properties, OrderIdGenerator idGenerator) {
+        var webClient = WebClient.builder().baseUrl(catalog.baseUrl()).build();
+        var registry = new SimpleMeterRegistry();
+        return new OrderService(new BookClient(webClient, properties, registry), store,
+                idGenerator, properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog.close();
+    }
+
+    @Test
+    void submitsBatchInOrderOfRequests() {
+        var requests = Flux.range(0, 20).map(i -> new OrderRequest(String.format("978%07d", i), i + 1));
+
+        var orders = orderService.submitOrders(requests).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(orders).hasSize(20);
+        for (int i = 0; i < orders.size(); i++) {
+            assertThat(orders.get(i).bookIsbn()).isEqualTo(String.format("978%07d", i));
+            assertThat(orders.get(i).quantity()).isEqualTo(i + 1);
+            assertThat(orders.get(i).status()).isEqualTo(OrderStatus.ACCEPTED);
+        }
+        assertThat(orderStore.orders()).containsExactlyInAnyOrderElementsOf(orders);
+    }
+
+    @Test
+    void looksUpEachBookOncePerBatch() {
+        var requests = Flux.range(0, 30).map(i -> new OrderRequest(String.format("978%07d", i % 3), 1));
+
+        var orders = orderService.submitOrders(requests).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(orders).hasSize(30).extracting(Order::status).containsOnly(OrderStatus.ACCEPTED);
+        assertThat(orders).extracting(Order::id).doesNotHaveDuplicates();
+        assertThat(catalog.requests()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsOrderWithoutIsbnAlone() {
+        var requests = Flux.just(new OrderRequest("9780000001", 1), new OrderRequest(null, 1),
+                new OrderRequest("9780000002", 1));
+
+        var orders = orderService.submitOrders(requests).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(orders).extracting(Order::status)
+                .containsExactly(OrderStatus.ACCEPTED, OrderStatus.REJECTED, OrderStatus.ACCEPTED);
+        assertThat(orders.get(1).bookIsbn()).isNull();
+    }
+
+    @Test
+    void refusesIsbnLongerThanAnyIsbn() {
+        var isbn = "9".repeat(OrderService.MAX_ISBN_LENGTH + 1);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> orderService.submitOrder(new OrderRequest(isbn, 1)));
+        assertThat(orderStore.size()).isZero();
+
+        var requests = Flux.just(new OrderRequest("9780000001", 1), new OrderRequest(isbn, 2),
+                new OrderRequest("9780000002", 3));
+        var orders = orderService.submitOrders(requests).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(orders).extracting(Order::status)
+                .containsExactly(OrderStatus.ACCEPTED, OrderStatus.REJECTED, OrderStatus.ACCEPTED);
+        assertThat(orders.get(1).id()).isNull();
+        assertThat(orders.get(1).quantity()).isEqualTo(2);
+        assertThat(orderStore.orders()).containsExactlyInAnyOrder(orders.get(0), orders.get(2));
+    }
+
+    @Test
+    void pagesThroughOrdersAfterLastOrderOfPreviousPage() {
+        var requests = Flux.range(0, 25).map(i -> new OrderRequest(String.format("978%07d", i), 1));
+        orderService.submitOrders(requests).blockLast(Duration.ofSeconds(10));
+        var orders = List.copyOf(orderStore.orders());
+
+        var first = orderService.getOrders(null, null, null, 10).block();
+        var second = orderService.getOrders(null, null, first.nextAfter(), 10).block();
+        var last = orderService.getOrders(null, null, second.nextAfter(), 10).block();
+
+        assertThat(first.orders()).containsExactlyElementsOf(orders.subList(0, 10));
+        assertThat(first.nextAfter()).isEqualTo(orders.get(9).id());
+        assertThat(second.orders()).containsExactlyElementsOf(orders.subList(10, 20));
+        assertThat(last.orders()).containsExactlyElementsOf(orders.subList(20, 25));
+        assertThat(last.nextAfter()).isNull();
+        assertThat(orderService.getOrders(null, null, null, null).block().orders()).hasSize(25);
+        assertThatIllegalArgumentException().isThrownBy(() -> orderService.getOrders(null, null, null, 0));
+    }
+
+    @Test
+    void streamsOrdersAsRequested() {
+        var requests = Flux.range(0, 25).map(i -> new OrderRequest(String.format("978%07d", i % 5), 1));
+        orderService.submitOrders(requests).blockLast(Duration.ofSeconds(10));
+        var orders = orderStore.find(null, "9780000002").toList();
+
+        StepVerifier.create(orderService.streamOrders(null, "9780000002", orders.get(0).id()), 0)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(2)
+                .expectNext(orders.get(1), orders.get(2))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext(orders.get(3), orders.get(4))
+                .verifyComplete();
+    }
+
+    @Test
+    void findsStreamedOrdersOnlyOnSubscription() {
+        var orders = orderService.streamOrders(null, null, 42L);
+
+        StepVerifier.create(orders).verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void archivesOldestOrdersAndReadsThemAcrossTiers(@TempDir Path directory) {
+        var properties = properties(
+                new OrderProperties.Journal(true, directory.resolve("journal").toString(), DataSize.ofBytes(1024), 16),
+                new OrderProperties.Tiering(true, directory.resolve("archive").toString(), 20, DataSize.ofBytes(512)));
+        var store = new OrderStore();
+        var service = service(store, properties);
+        List<Order> orders;
+        try {
+            var requests = Flux.range(0, 100).map(i -> new OrderRequest(String.format("978%07d", i % 5), 1));
+            orders = service.submitOrders(requests).collectList().block(Duration.ofSeconds(10));
+            await().atMost(Duration.ofSeconds(5)).until(() -> store.size() <= 20);
+
+            assertThat(Flux.fromIterable(orders).flatMap(order -> service.getOrder(order.id())).collectList().block())
+                    .containsExactlyInAnyOrderElementsOf(orders);
+            var listed = service.streamOrders(null, null, null).collectList().block();
+            assertThat(listed).containsExactlyInAnyOrderElementsOf(orders);
+            var paged = new ArrayList<Order>();
+            Long after = null;
+            do {
+                var page = service.getOrders(null, null, after, 30).block();
+                paged.addAll(page.orders());
+                after = page.nextAfter();
+            } while (after != null);
+            assertThat(paged).containsExactlyElementsOf(listed);
+            assertThat(service.streamOrders(OrderStatus.ACCEPTED, "9780000002", null).collectList().block())
+                    .containsExactlyInAnyOrderElementsOf(orders.stream()
+                            .filter(order -> order.bookIsbn().equals("9780000002")).toList());
+            assertThat(service.getOrder(-1).blockOptional()).isEmpty();
+        } finally {
+            service.close();
+        }
+
+        // Restarts on a clock an hour behind, which must not bring back the ids already taken
+        long hourAgo = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+        var restarted = service(new OrderStore(), properties, new OrderIdGenerator(0, () -> hourAgo));
+        try {
+            assertThat(restarted.streamOrders(null, null, null).collectList().block())
+                    .containsExactlyInAnyOrderElementsOf(orders);
+            var order = restarted.submitOrder(new OrderRequest("9780000001", 1)).block(Duration.ofSeconds(10));
+            assertThat(order.id()).isGreaterThan(orders.stream().mapToLong(Order::id).max().orElseThrow());
+        } finally {
+            restarted.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.orders.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.orders.client.BookClient;
+import org.orders.config.OrderProperties;
+import org.orders.model.OrderRequest;
+import org.orders.model.OrderStatus;
+import org.orders.store.OrderStore;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the latency of order submissions with and without hedged requests to the catalog,
+ * against a {@link StubCatalog} that answers most requests in a couple of milliseconds but
+ * straggles on a few. The book cache and the concurrency limit are disabled, so that every
+ * order reaches the catalog, and the catalog has every book, so that the orders rejected are
+ * those that timed out.
+ * Run with {@code ./gradlew benchmark}; the share and the delay of the stragglers, the number
+ * of clients and the seconds per scenario are set with {@code -Dbenchmark.stragglers},
+ * {@code -Dbenchmark.stragglerMillis}, {@code -Dbenchmark.clients} and {@code -Dbenchmark.seconds}.
+ */
+@Tag("benchmark")
+class OrderSubmitLatencyBenchmark {
+    private static final double STRAGGLERS = Double.parseDouble(System.getProperty("benchmark.stragglers", "0.02"));
+    private static final int STRAGGLER_MILLIS = Integer.getInteger("benchmark.stragglerMillis", 250);
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 16);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 10);
+
+    private final AtomicLong rejected = new AtomicLong();
+    private StubCatalog catalog;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @BeforeEach
+    void startCatalog() throws IOException {
+        catalog = new StubCatalog(0, () -> {
+            var random = ThreadLocalRandom.current();
+            return random.nextDouble() < STRAGGLERS ? STRAGGLER_MILLIS : 1 + random.nextInt(2);
+        });
+    }
+
+    @AfterEach
+    void stopCatalog() {
+        catalog.close();
+    }
+
+    @Test
+    void compareHedging() throws Exception {
+        System.out.printf("%.0f%% of catalog requests straggle for %d ms, %d clients%n",
+                STRAGGLERS * 100, STRAGGLER_MILLIS, CLIENTS);
+        System.out.printf("%-8s %-7s %10s %9s %9s %9s %9s %10s %8s %9s%n", "batching", "hedging",
+                "orders/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "requests", "hedges", "rejected");
+        for (boolean batching : new boolean[] {false, true}) {
+            for (boolean hedging : new boolean[] {false, true}) {
+                measure(batching, hedging);
+            }
+        }
+    }
+
+    private void measure(boolean batching, boolean hedging) throws Exception {
+        var properties = new OrderProperties(new OrderProperties.Ids(0),
+                new OrderProperties.BookCache(false, 1, Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(5)),
+                new OrderProperties.BookBatch(batching, 100, Duration.ofMillis(2), 8),
+                new OrderProperties.Hedging(hedging, 0.95, 0.1, Duration.ofSeconds(30), 100, 3,
+                        Duration.ofMillis(250), Duration.ofSeconds(3)),
+                new OrderProperties.Concurrency(false, 20, 4, 200, 1.5, 0.2, 100),
+                new OrderProperties.OrderBatch(32),
+                new OrderProperties.Paging(100, 1000),
+                new OrderProperties.Journal(false, "data/journal", DataSize.ofMegabytes(16), 1024),
+                new OrderProperties.Tiering(false, "data/archive", 1_000_000, DataSize.ofKilobytes(16)));
+        var registry = new SimpleMeterRegistry();
+        var webClient = WebClient.builder().baseUrl(catalog.baseUrl()).build();
+        var service = new OrderService(new BookClient(webClient, properties, registry), new OrderStore(),
+                new OrderIdGenerator(0, System::currentTimeMillis), properties, registry);
+
+        run(service, Duration.ofSeconds(2));
+        catalog.resetRequests();
+        rejected.set(0);
+        double hedgesBefore = hedges(registry);
+        long start = System.nanoTime();
+        var latencies = run(service, Duration.ofSeconds(SECONDS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertThat(latencies).isNotEmpty();
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%-8s %-7s %,10.0f %9.1f %9.1f %9.1f %9.1f %,10d %8.0f %,9d%n",
+                batching ? "on" : "off", hedging ? "on" : "off", sorted.length / seconds,
+                millis(sorted, 0.5), millis(sorted, 0.99), millis(sorted, 0.999), sorted[sorted.length - 1] / 1e6,
+                catalog.requests(), hedges(registry) - hedgesBefore, rejected.get());
+    }
+
+    /**
+     * Submits orders from every client, one after the other, for the given time.
+     *
+     * @return the latencies of the orders in nanoseconds
+     */
+    private List<Long> run(OrderService service, Duration duration) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        var latencies = new ArrayList<List<Long>>();
+        var clients = new Thread[CLIENTS];
+        for (int c = 0; c < CLIENTS; c++) {
+            var own = new ArrayList<Long>();
+            latencies.add(own);
+            clients[c] = new Thread(() -> {
+                var random = ThreadLocalRandom.current();
+                while (System.nanoTime() - end < 0) {
+                    var isbn = String.format("978%07d", random.nextInt(10_000_000));
+                    long start = System.nanoTime();
+                    var order = service.submitOrder(new OrderRequest(isbn, 1)).block();
+                    own.add(System.nanoTime() - start);
+                    if (order.status() == OrderStatus.REJECTED) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            clients[c].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        return latencies.stream().flatMap(List::stream).toList();
+    }
+
+    private static double hedges(SimpleMeterRegistry registry) {
+        return registry.get("catalog.requests.hedges").tag("outcome", "sent").counter().count();
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
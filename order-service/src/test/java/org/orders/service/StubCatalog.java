@@ -0,0 +1,97 @@
+package org.orders.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.orders.model.Book;
+import org.orders.model.BookLookup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A local stub of the catalog service for the benchmarks, which has every book and answers
+ * {@code GET /books/{isbn}} and {@code POST /books/lookup} after a delay of its choice, from a
+ * pool of threads like the one of the Tomcat of the catalog.
+ */
+final class StubCatalog implements AutoCloseable {
+    static {
+        // Without it, the stub answers small responses about 40ms late, waiting for delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final LongSupplier delayMillis;
+    private final ExecutorService threads;
+    private final HttpServer server;
+
+    /**
+     * Starts a {@code StubCatalog} on a free port.
+     *
+     * @param threads     the number of threads serving requests, or 0 for as many as there are requests
+     * @param delayMillis the supplier of the time each request takes to serve, in milliseconds
+     */
+    StubCatalog(int threads, LongSupplier delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        this.threads = threads > 0 ? Executors.newFixedThreadPool(threads) : Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.setExecutor(this.threads);
+        server.createContext("/books/", this::answer);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of requests served since the last reset, including those whose client
+     * gave up waiting.
+     */
+    long requests() {
+        return requests.get();
+    }
+
+    void resetRequests() {
+        requests.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        threads.shutdownNow();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Thread.sleep(delayMillis.getAsLong());
+            Object body;
+            if (exchange.getRequestURI().getPath().equals("/books/lookup")) {
+                List<String> isbns = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {
+                });
+                body = new BookLookup(isbns.stream().map(StubCatalog::book).toList(), List.of());
+            } else {
+                body = book(exchange.getRequestURI().getPath().substring("/books/".length()));
+            }
+            var bytes = objectMapper.writeValueAsBytes(body);
+            // Counted before the answer, so that a client that got its answer sees it counted
+            requests.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Book book(String isbn) {
+        return Book.of(isbn, "Title", "Author", 9.90, "Publisher");
+    }
+}
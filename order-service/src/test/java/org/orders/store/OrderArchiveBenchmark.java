@@ -0,0 +1,130 @@
+package org.orders.store;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.orders.config.OrderProperties;
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures how much the {@link OrderArchive} compresses orders, and the latency of reading an
+ * archived order by id compared to reading one from the {@link OrderStore}.
+ * Run with {@code ./gradlew benchmark}; the orders archived, the orders per segment, the size
+ * of the blocks and the reads are set with {@code -Dbenchmark.orders},
+ * {@code -Dbenchmark.segmentOrders}, {@code -Dbenchmark.blockSize} and {@code -Dbenchmark.reads}.
+ * The segments are read back through the page cache, as they are once the service has read them.
+ */
+@Tag("benchmark")
+class OrderArchiveBenchmark {
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 2_000_000);
+    private static final int SEGMENT_ORDERS = Integer.getInteger("benchmark.segmentOrders", 250_000);
+    private static final String BLOCK_SIZE = System.getProperty("benchmark.blockSize", "16KB");
+    private static final int READS = Integer.getInteger("benchmark.reads", 100_000);
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @Test
+    void coldReads() throws IOException {
+        var settings = new OrderProperties.Tiering(true, directory.toString(), 0, DataSize.parse(BLOCK_SIZE));
+        var store = new OrderStore();
+        long encoded = 0;
+        long writing = System.nanoTime();
+        try (var archive = new OrderArchive(settings, new SimpleMeterRegistry())) {
+            var buffer = ByteBuffer.allocate(1024);
+            for (int first = 1; first <= ORDERS; first += SEGMENT_ORDERS) {
+                var orders = new ArrayList<Order>(SEGMENT_ORDERS);
+                for (long id = first; id < first + SEGMENT_ORDERS && id <= ORDERS; id++) {
+                    var order = order(id);
+                    orders.add(order);
+                    OrderCodec.encode(order, buffer.clear());
+                    encoded += buffer.position();
+                    if (id > ORDERS - SEGMENT_ORDERS) {
+                        store.add(order);
+                    }
+                }
+                archive.add(first / SEGMENT_ORDERS + 1, orders);
+            }
+            double written = (System.nanoTime() - writing) / 1e9;
+            long bytes;
+            try (Stream<Path> segments = Files.list(directory)) {
+                bytes = segments.mapToLong(segment -> segment.toFile().length()).sum();
+            }
+
+            // Warms up the code and the page cache
+            read(archive, store, READS / 10);
+            long[] cold = new long[READS];
+            long[] hot = new long[READS];
+            var random = ThreadLocalRandom.current();
+            for (int i = 0; i < READS; i++) {
+                long id = random.nextLong(1, ORDERS + 1L);
+                long start = System.nanoTime();
+                assertThat(archive.get(id)).isPresent();
+                cold[i] = System.nanoTime() - start;
+                long hotId = random.nextLong(ORDERS - SEGMENT_ORDERS + 1L, ORDERS + 1L);
+                start = System.nanoTime();
+                assertThat(store.get(hotId)).isPresent();
+                hot[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(cold);
+            Arrays.sort(hot);
+
+            long listing = System.nanoTime();
+            long listed = archive.find(OrderStatus.REJECTED, null, null).count();
+            double scanned = (System.nanoTime() - listing) / 1e9;
+
+            System.out.printf("archived %,d orders in %.1f s: %,d MB encoded, %,d MB on disk (%.1fx) in %s blocks%n",
+                    ORDERS, written, encoded >> 20, bytes >> 20, (double) encoded / bytes, BLOCK_SIZE);
+            System.out.printf("reads by id: cold p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms; hot p50 %.4f ms, p99 %.4f ms%n",
+                    millis(cold, 0.5), millis(cold, 0.99), millis(cold, 0.999), millis(hot, 0.5), millis(hot, 0.99));
+            System.out.printf("listed the %,d rejected orders of the archive in %.1f s: %,.0f orders/s scanned%n",
+                    listed, scanned, ORDERS / scanned);
+        }
+    }
+
+    private static void read(OrderArchive archive, OrderStore store, int reads) {
+        var random = ThreadLocalRandom.current();
+        for (int i = 0; i < reads; i++) {
+            archive.get(random.nextLong(1, ORDERS + 1L));
+            store.get(random.nextLong(ORDERS - SEGMENT_ORDERS + 1L, ORDERS + 1L));
+        }
+    }
+
+    /**
+     * Returns an order like those the service creates, for one of 10,000 books, one in ten rejected.
+     */
+    private static Order order(long id) {
+        var isbn = String.format("978%07d", id % 10_000);
+        var order = id % 10 == 0
+                ? Order.of(isbn, null, null, 1, OrderStatus.REJECTED)
+                : Order.of(isbn, "Title " + id % 10_000 + " - Author", 9.90, 1, OrderStatus.ACCEPTED);
+        return order.withId(id);
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
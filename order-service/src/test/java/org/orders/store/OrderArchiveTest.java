@@ -0,0 +1,123 @@
+package org.orders.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.orders.config.OrderProperties;
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class OrderArchiveTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsArchivedOrdersById() {
+        try (var archive = archive()) {
+            archive.add(1, shuffled(orders(1, 100)));
+            archive.add(2, orders(101, 200));
+
+            assertThat(archive.get(1)).contains(order(1));
+            assertThat(archive.get(77)).contains(order(77));
+            assertThat(archive.get(200)).contains(order(200));
+            assertThat(archive.get(0)).isEmpty();
+            assertThat(archive.get(201)).isEmpty();
+            assertThat(archive.size()).isEqualTo(200);
+            assertThat(registry.get("orders.archive.reads").timer().count()).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void listsOrdersInOrderArchivedAfterGivenOrder() {
+        try (var archive = archive()) {
+            archive.add(1, orders(1, 100));
+            archive.add(2, orders(101, 200));
+
+            assertThat(archive.find(null, null, null)).extracting(Order::id)
+                    .containsExactlyElementsOf(LongStream.rangeClosed(1, 200).boxed().toList());
+            assertThat(archive.find(null, null, 95L)).extracting(Order::id)
+                    .containsExactlyElementsOf(LongStream.rangeClosed(96, 200).boxed().toList());
+            assertThat(archive.find(OrderStatus.REJECTED, "9781", 150L)).extracting(Order::id)
+                    .containsExactly(153L, 163L, 173L, 183L, 193L);
+            assertThatIllegalArgumentException().isThrownBy(() -> archive.find(null, null, 201L));
+        }
+    }
+
+    @Test
+    void reopensArchivedSegments() throws IOException {
+        try (var archive = archive()) {
+            archive.add(3, orders(1, 100));
+            assertThatIllegalArgumentException().isThrownBy(() -> archive.add(3, orders(101, 200)));
+        }
+        Files.write(directory.resolve("00000000000000000004.archive.tmp"), new byte[] {1, 2, 3});
+
+        try (var archive = archive()) {
+            assertThat(archive.lastSegment()).isEqualTo(3);
+            assertThat(archive.get(42)).contains(order(42));
+            assertThat(archive.find(null, null, null)).hasSize(100);
+        }
+        assertThat(files()).containsExactly(directory.resolve("00000000000000000003.archive"));
+    }
+
+    @Test
+    void failsOnDamagedBlock() throws IOException {
+        try (var archive = archive()) {
+            archive.add(1, orders(1, 100));
+        }
+        var file = files().get(0);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[20] ^= 1;
+        Files.write(file, bytes);
+
+        try (var archive = archive()) {
+            assertThatIllegalStateException().isThrownBy(() -> archive.get(1))
+                    .withMessageContaining(file.getFileName().toString());
+        }
+    }
+
+    private OrderArchive archive() {
+        var settings = new OrderProperties.Tiering(true, directory.toString(), 10, DataSize.ofBytes(512));
+        return new OrderArchive(settings, registry);
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<Order> orders(long first, long last) {
+        return LongStream.rangeClosed(first, last).mapToObj(OrderArchiveTest::order).toList();
+    }
+
+    private static List<Order> shuffled(List<Order> orders) {
+        var shuffled = new ArrayList<>(orders);
+        Collections.shuffle(shuffled);
+        return shuffled;
+    }
+
+    private static Order order(long id) {
+        return id % 10 == 3
+                ? new Order(id, "978" + id % 2, null, null, 1, OrderStatus.REJECTED,
+                Instant.ofEpochSecond(1_700_000_000 + id), null, 0)
+                : new Order(id, "978" + id % 2, "Title - Author", 9.90, 2, OrderStatus.ACCEPTED,
+                Instant.ofEpochSecond(1_700_000_000 + id, 123), null, 0);
+    }
+}
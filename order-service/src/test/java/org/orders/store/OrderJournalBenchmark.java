@@ -0,0 +1,125 @@
+package org.orders.store;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.orders.config.OrderProperties;
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the orders per second the {@link OrderJournal} makes durable when many orders are
+ * submitted at once, and the time it takes to rebuild an {@link OrderStore} from a journal of
+ * many orders, as the service does when it starts.
+ * Run with {@code ./gradlew benchmark}; the orders written at once, the seconds of sustained
+ * writing and the orders recovered are set with {@code -Dbenchmark.concurrency},
+ * {@code -Dbenchmark.seconds} and {@code -Dbenchmark.orders}. Recovering 10M orders takes a
+ * heap of about 3.5GB, set with {@code -PbenchmarkHeap=3500m}.
+ */
+@Tag("benchmark")
+class OrderJournalBenchmark {
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 256);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 10);
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 10_000_000);
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @Test
+    void sustainedAppends() {
+        var registry = new SimpleMeterRegistry();
+        try (var journal = new OrderJournal(settings(), registry, order -> {
+        })) {
+            var latencies = new ConcurrentLinkedQueue<Long>();
+            long start = System.nanoTime();
+            long written = Flux.<Long, Long>generate(() -> 1L, (id, sink) -> {
+                        sink.next(id);
+                        return id + 1;
+                    })
+                    .take(Duration.ofSeconds(SECONDS))
+                    .flatMap(id -> {
+                        long submitted = System.nanoTime();
+                        return journal.append(order(id)).doOnNext(order -> latencies.add(System.nanoTime() - submitted));
+                    }, CONCURRENCY)
+                    .count()
+                    .block();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            var batches = registry.get("orders.journal.batch.size").summary();
+            var syncs = registry.get("orders.journal.sync").timer();
+            System.out.printf("%d orders in flight: %,.0f durable orders/s, %,.0f fsyncs/s of %.1f orders, "
+                            + "fsync %.2f ms, p50 %.2f ms, p99 %.2f ms%n",
+                    CONCURRENCY, written / seconds, batches.count() / seconds, batches.mean(),
+                    syncs.mean(TimeUnit.MILLISECONDS), millis(sorted, 0.5), millis(sorted, 0.99));
+        }
+    }
+
+    @Test
+    void recovery() throws IOException {
+        var settings = settings();
+        long writing = System.nanoTime();
+        try (var journal = new OrderJournal(settings, new SimpleMeterRegistry(), order -> {
+        })) {
+            Flux.range(1, ORDERS)
+                    .flatMap(id -> journal.append(order(id)), CONCURRENCY)
+                    .blockLast();
+        }
+        long bytes;
+        try (Stream<Path> segments = Files.list(directory)) {
+            bytes = segments.mapToLong(segment -> segment.toFile().length()).sum();
+        }
+        double written = (System.nanoTime() - writing) / 1e9;
+        System.gc();
+
+        var store = new OrderStore();
+        long start = System.nanoTime();
+        new OrderJournal(settings, new SimpleMeterRegistry(), store::add).close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertThat(store.size()).isEqualTo(ORDERS);
+        System.out.printf("wrote %,d orders (%,d MB of journal) in %.1f s, recovered them in %.1f s: %,.0f orders/s%n",
+                ORDERS, bytes >> 20, written, seconds, ORDERS / seconds);
+    }
+
+    private OrderProperties.Journal settings() {
+        return new OrderProperties.Journal(true, directory.toString(), DataSize.ofMegabytes(64), 1024);
+    }
+
+    /**
+     * Returns an order like those the service creates, for one of 10,000 books, one in ten rejected.
+     */
+    private static Order order(long id) {
+        var isbn = String.format("978%07d", id % 10_000);
+        var order = id % 10 == 0
+                ? Order.of(isbn, null, null, 1, OrderStatus.REJECTED)
+                : Order.of(isbn, "Title " + id % 10_000 + " - Author", 9.90, 1, OrderStatus.ACCEPTED);
+        return order.withId(id);
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,211 @@
+package org.orders.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.orders.config.OrderProperties;
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class OrderJournalTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysOrdersAcrossSegmentsInOrderAppended() throws IOException {
+        var orders = new ArrayList<Order>();
+        try (var journal = journal(new ArrayList<>())) {
+            for (long id = 1; id <= 100; id++) {
+                var order = order(id);
+                orders.add(order);
+                assertThat(journal.append(order).block(Duration.ofSeconds(5))).isEqualTo(order);
+            }
+        }
+        orders.add(new Order(101L, "1234567890", null, null, null, OrderStatus.REJECTED, null, null, null));
+        try (var journal = journal(new ArrayList<>())) {
+            journal.append(orders.get(100)).block(Duration.ofSeconds(5));
+        }
+
+        var replayed = new ArrayList<Order>();
+        journal(replayed).close();
+
+        assertThat(replayed).containsExactlyElementsOf(orders);
+        assertThat(segments()).hasSizeGreaterThan(2);
+    }
+
+    @Test
+    void forcesConcurrentAppendsTogether() {
+        try (var journal = journal(new ArrayList<>())) {
+            var written = Flux.range(1, 1000)
+                    .flatMap(id -> journal.append(order(id)), 1000)
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertThat(written).hasSize(1000);
+            var batches = registry.get("orders.journal.batch.size").summary();
+            assertThat(batches.totalAmount()).isEqualTo(1000);
+            assertThat(batches.count()).isLessThan(1000);
+        }
+    }
+
+    @Test
+    void truncatesRecordCutShortInLastSegment() throws IOException {
+        try (var journal = journal(new ArrayList<>())) {
+            for (long id = 1; id <= 30; id++) {
+                journal.append(order(id)).block(Duration.ofSeconds(5));
+            }
+        }
+        var last = segments().get(segments().size() - 1);
+        long size = Files.size(last);
+        Files.write(last, new byte[] {0, 0, 0, 60, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        var replayed = new ArrayList<Order>();
+        try (var journal = journal(replayed)) {
+            assertThat(Files.size(last)).isEqualTo(size);
+            journal.append(order(31)).block(Duration.ofSeconds(5));
+        }
+        assertThat(replayed).extracting(Order::id).hasSize(30).endsWith(30L);
+
+        replayed.clear();
+        journal(replayed).close();
+        assertThat(replayed).extracting(Order::id).hasSize(31).endsWith(30L, 31L);
+    }
+
+    @Test
+    void failsOnDamagedRecordBeforeLastSegment() throws IOException {
+        try (var journal = journal(new ArrayList<>())) {
+            for (long id = 1; id <= 30; id++) {
+                journal.append(order(id)).block(Duration.ofSeconds(5));
+            }
+        }
+        var first = segments().get(0);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[20] ^= 1;
+        Files.write(first, bytes);
+
+        assertThatIllegalStateException().isThrownBy(() -> journal(new ArrayList<>()))
+                .withMessageContaining(first.getFileName().toString());
+    }
+
+    @Test
+    void sealsSegmentsOnlyOnceTheirOrdersAreCommitted() throws IOException {
+        var journal = new AtomicReference<OrderJournal>();
+        var committed = new ArrayList<Order>();
+        var sealedTooEarly = new ArrayList<Order>();
+        var settings = new OrderProperties.Journal(true, directory.toString(), DataSize.ofBytes(1024), 16);
+        journal.set(new OrderJournal(settings, registry, 0, order -> {
+        }, order -> {
+            committed.add(order);
+            // Takes the sealed segments as the archiving does, which needs all their orders committed
+            for (var oldest = journal.get().oldestSealed(); oldest.isPresent(); oldest = journal.get().oldestSealed()) {
+                journal.get().read(oldest.getAsLong()).stream()
+                        .filter(sealed -> !committed.contains(sealed))
+                        .forEach(sealedTooEarly::add);
+                journal.get().delete(oldest.getAsLong());
+            }
+            if (order.id() == 500) {
+                throw new IllegalStateException("Order ID 500 is already taken");
+            }
+        }));
+        try (var written = journal.get()) {
+            var results = Flux.range(1, 1000)
+                    .flatMap(id -> written.append(order(id)).onErrorResume(ex -> Mono.empty()), 1000)
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertThat(results).hasSize(999).extracting(Order::id).doesNotContain(500L);
+            assertThat(committed).hasSize(1000);
+            assertThat(sealedTooEarly).isEmpty();
+            assertThat(segments()).hasSizeLessThan(3);
+        }
+    }
+
+    @Test
+    void failsOnlyOrderThatCannotBeEncoded() {
+        var replayed = new ArrayList<Order>();
+        try (var journal = journal(new ArrayList<>())) {
+            var oversized = new Order(2L, "9".repeat(70_000), null, null, 1, OrderStatus.REJECTED, null, null, null);
+            journal.append(order(1)).block(Duration.ofSeconds(5));
+            assertThatIllegalArgumentException().isThrownBy(() -> journal.append(oversized).block(Duration.ofSeconds(5)));
+            assertThat(journal.append(order(3)).block(Duration.ofSeconds(5))).isEqualTo(order(3));
+        }
+        journal(replayed).close();
+
+        assertThat(replayed).containsExactly(order(1), order(3));
+    }
+
+    @Test
+    void readsAndDeletesSealedSegmentsAndSkipsArchivedOnes() throws IOException {
+        try (var journal = journal(new ArrayList<>())) {
+            for (long id = 1; id <= 60; id++) {
+                journal.append(order(id)).block(Duration.ofSeconds(5));
+            }
+            assertThat(journal.oldestSealed()).hasValue(1);
+            var sealed = journal.read(1);
+            assertThat(sealed).extracting(Order::id).startsWith(1L, 2L);
+
+            journal.delete(1);
+            assertThat(journal.oldestSealed()).hasValue(2);
+            assertThat(segments()).extracting(segment -> segment.getFileName().toString())
+                    .doesNotContain("00000000000000000001.journal");
+        }
+        int count = segments().size();
+
+        var replayed = new ArrayList<Order>();
+        try (var journal = journal(2, replayed)) {
+            assertThat(segments()).hasSize(count - 1);
+            assertThat(journal.oldestSealed()).hasValue(3);
+        }
+        assertThat(replayed).extracting(Order::id).hasSizeLessThan(60).endsWith(60L);
+
+        for (Path segment : segments()) {
+            Files.delete(segment);
+        }
+        try (var journal = journal(7, new ArrayList<>())) {
+            journal.append(order(61)).block(Duration.ofSeconds(5));
+        }
+        assertThat(segments()).extracting(segment -> segment.getFileName().toString())
+                .containsExactly("00000000000000000008.journal");
+    }
+
+    private OrderJournal journal(List<Order> replayed) {
+        return journal(0, replayed);
+    }
+
+    private OrderJournal journal(long archived, List<Order> replayed) {
+        var settings = new OrderProperties.Journal(true, directory.toString(), DataSize.ofBytes(1024), 16);
+        return new OrderJournal(settings, registry, archived, replayed::add, order -> {
+        });
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static Order order(long id) {
+        return new Order(id, "978" + id, "Title - Author", 9.90, 2, OrderStatus.ACCEPTED,
+                Instant.ofEpochSecond(1_700_000_000, 123), null, 0);
+    }
+}
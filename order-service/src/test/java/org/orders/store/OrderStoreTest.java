@@ -0,0 +1,96 @@
+package org.orders.store;
+
+import org.junit.jupiter.api.Test;
+import org.orders.model.Order;
+import org.orders.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class OrderStoreTest {
+
+    @Test
+    void findsOrdersByIdStatusAndIsbnInInsertionOrder() {
+        var store = new OrderStore();
+        store.add(order(30, "1234567890", OrderStatus.ACCEPTED));
+        store.add(order(10, "1234567891", OrderStatus.REJECTED));
+        store.add(order(20, "1234567890", OrderStatus.REJECTED));
+
+        assertThat(store.get(10)).hasValueSatisfying(order -> assertThat(order.bookIsbn()).isEqualTo("1234567891"));
+        assertThat(store.get(40)).isEmpty();
+        assertThat(store.orders()).extracting(Order::id).containsExactly(30L, 10L, 20L);
+        assertThat(store.find(OrderStatus.REJECTED, null)).extracting(Order::id).containsExactly(10L, 20L);
+        assertThat(store.find(null, "1234567890")).extracting(Order::id).containsExactly(30L, 20L);
+        assertThat(store.find(OrderStatus.ACCEPTED, "1234567891")).isEmpty();
+        assertThat(store.find(null, "0000000000")).isEmpty();
+    }
+
+    @Test
+    void findsOrdersAddedAfterGivenOrder() {
+        var store = new OrderStore();
+        store.add(order(30, "1234567890", OrderStatus.ACCEPTED));
+        store.add(order(10, "1234567891", OrderStatus.REJECTED));
+        store.add(order(20, "1234567890", OrderStatus.REJECTED));
+        store.add(order(40, "1234567890", OrderStatus.ACCEPTED));
+
+        assertThat(store.find(null, null, 30L)).extracting(Order::id).containsExactly(10L, 20L, 40L);
+        assertThat(store.find(OrderStatus.REJECTED, null, 10L)).extracting(Order::id).containsExactly(20L);
+        assertThat(store.find(null, "1234567890", 10L)).extracting(Order::id).containsExactly(20L, 40L);
+        assertThat(store.find(OrderStatus.ACCEPTED, "1234567890", 30L)).extracting(Order::id).containsExactly(40L);
+        assertThat(store.find(null, null, 40L)).isEmpty();
+        assertThatIllegalArgumentException().isThrownBy(() -> store.find(null, null, 50L));
+    }
+
+    @Test
+    void rejectsTakenId() {
+        var store = new OrderStore();
+
+        assertThat(store.add(order(1, "1234567890", OrderStatus.ACCEPTED))).isTrue();
+        assertThat(store.add(order(1, "1234567891", OrderStatus.REJECTED))).isFalse();
+        assertThat(store.get(1)).hasValueSatisfying(order -> assertThat(order.bookIsbn()).isEqualTo("1234567890"));
+        assertThat(store.find(OrderStatus.REJECTED, null)).isEmpty();
+    }
+
+    @Test
+    void indexesEveryOrderAddedConcurrently() throws Exception {
+        var store = new OrderStore();
+        var ids = new AtomicLong();
+        var pool = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        long id = ids.incrementAndGet();
+                        var status = id % 3 == 0 ? OrderStatus.REJECTED : OrderStatus.ACCEPTED;
+                        store.add(order(id, String.valueOf(id % 7), status));
+                        assertThat(store.get(id)).isPresent();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(store.size()).isEqualTo(80_000);
+        assertThat(store.orders()).hasSize(80_000);
+        assertThat(store.find(OrderStatus.REJECTED, null).count()
+                + store.find(OrderStatus.ACCEPTED, null).count()).isEqualTo(80_000);
+        assertThat(store.find(OrderStatus.ACCEPTED, "3"))
+                .allSatisfy(order -> assertThat(order.id() % 7).isEqualTo(3))
+                .allSatisfy(order -> assertThat(order.status()).isEqualTo(OrderStatus.ACCEPTED));
+    }
+
+    private static Order order(long id, String isbn, OrderStatus status) {
+        return new Order(id, isbn, "Title - Author", 9.90, 1, status, null, null, 0);
+    }
+}